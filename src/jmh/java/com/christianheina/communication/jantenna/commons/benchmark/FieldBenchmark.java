@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.christianheina.communication.jantenna.commons.ElectricField;
+import com.christianheina.communication.jantenna.commons.Field;
+import com.christianheina.communication.jantenna.commons.RegularAngleGrid;
+import com.google.gson.JsonElement;
+
+/**
+ * Benchmarks for {@link Field} arithmetic and I/O.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldBenchmark {
+
+    private static final ElectricField[] POLARIZATIONS = { ElectricField.THETA, ElectricField.PHI,
+            ElectricField.LUDWIG3H, ElectricField.LUDWIG3V };
+
+    @Param({ "1", "2", "5" })
+    public int spacing;
+
+    @Param({ "1", "2", "4" })
+    public int polarizations;
+
+    private Field field;
+    private Field other;
+    private Field destination;
+    private byte[] json;
+    private Path binaryFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        field = createField(spacing, polarizations, 0);
+        other = createField(spacing, polarizations, 1);
+        destination = field.zeroedCopy();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        field.saveJson(outputStream);
+        json = outputStream.toByteArray();
+        binaryFile = Files.createTempFile("field-benchmark", ".bin");
+        field.saveBinary(binaryFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binaryFile);
+    }
+
+    static Field createField(int spacing, int polarizations, int seed) {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(spacing);
+        Field.Builder builder = Field.newBuilder().setAngleGrid(angleGrid).setFreqency(28e9);
+        for (int p = 0; p < polarizations; p++) {
+            double[] real = new double[angleGrid.size()];
+            double[] imaginary = new double[angleGrid.size()];
+            for (int i = 0; i < real.length; i++) {
+                real[i] = Math.sin(0.001 * i + p + seed);
+                imaginary[i] = Math.cos(0.003 * i - p + seed);
+            }
+            builder.addElectricField(POLARIZATIONS[p], real, imaginary);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public Field multiply() {
+        return field.multiply(other);
+    }
+
+    @Benchmark
+    public Field multiplyIntoDestination() {
+        return field.multiply(other, destination);
+    }
+
+    @Benchmark
+    public JsonElement toJson() {
+        return field.toJson();
+    }
+
+    @Benchmark
+    public int saveJson() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(json.length);
+        field.saveJson(outputStream);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public Field loadJson() throws IOException {
+        return Field.loadJson(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public double loadBinary() throws IOException {
+        Field loaded = Field.loadBinary(binaryFile);
+        return loaded.getReal(POLARIZATIONS[polarizations - 1], loaded.getAngleGrid().size() - 1);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.christianheina.communication.jantenna.commons.RegularAngleGrid;
+import com.christianheina.communication.jantenna.commons.ThetaPhi;
+
+/**
+ * Benchmarks for {@link ThetaPhi} grid creation and comparison.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThetaPhiBenchmark {
+
+    @Param({ "1", "2", "5" })
+    public int spacing;
+
+    private List<ThetaPhi> grid;
+    private List<ThetaPhi> otherGrid;
+    private List<ThetaPhi> explicitGrid;
+    private List<ThetaPhi> otherExplicitGrid;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        /* Lazy grid views compare in constant time, explicit lists angle by angle */
+        grid = RegularAngleGrid.equallySpacedSphere(spacing).asList();
+        otherGrid = RegularAngleGrid.equallySpacedSphere(spacing).asList();
+        explicitGrid = new ArrayList<>(grid);
+        otherExplicitGrid = new ArrayList<>(grid);
+    }
+
+    @Benchmark
+    public List<ThetaPhi> equallySpacedSphere() {
+        return ThetaPhi.equallySpacedSphere(spacing);
+    }
+
+    @Benchmark
+    public void equallySpacedSphereIterate(Blackhole blackhole) {
+        for (ThetaPhi thetaPhi : ThetaPhi.equallySpacedSphere(spacing)) {
+            blackhole.consume(thetaPhi);
+        }
+    }
+
+    @Benchmark
+    public boolean gridEquals() {
+        return grid.equals(otherGrid);
+    }
+
+    @Benchmark
+    public boolean explicitGridEquals() {
+        return explicitGrid.equals(otherExplicitGrid);
+    }
+
+}
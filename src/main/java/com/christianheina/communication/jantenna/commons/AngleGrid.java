@@ -0,0 +1,307 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Angle grid describing the theta and phi angles of field samples.<br>
+ * Angles are computed on demand by index, in radians, so a grid does not need to hold any {@link ThetaPhi} instances.
+ * Use {@link RegularAngleGrid} for equally spaced grids and {@link #fromList(List)} for irregular samplings.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public abstract class AngleGrid {
+
+    private volatile InterpolationGrid interpolationGrid;
+    private volatile PhiTrigonometry phiTrigonometry;
+
+    AngleGrid() {
+        /* Package private constructor */ }
+
+    /**
+     * Create angle grid from list of angles.<br>
+     * Lists created by {@link #asList()} give back their grid and lists holding an equally spaced grid are detected and
+     * turned into a {@link RegularAngleGrid}. Any other list is kept as an explicit grid.
+     *
+     * @param thetaPhiList
+     *            {@link List} of {@link ThetaPhi} to create grid from.
+     *
+     * @return new or existing instance of {@link AngleGrid}.
+     */
+    public static AngleGrid fromList(List<ThetaPhi> thetaPhiList) {
+        if (thetaPhiList instanceof AngleGridList) {
+            return ((AngleGridList) thetaPhiList).getAngleGrid();
+        }
+        double[] theta = new double[thetaPhiList.size()];
+        double[] phi = new double[thetaPhiList.size()];
+        int i = 0;
+        for (ThetaPhi thetaPhi : thetaPhiList) {
+            theta[i] = thetaPhi.getTheta();
+            phi[i] = thetaPhi.getPhi();
+            i++;
+        }
+        return fromArrays(theta, phi);
+    }
+
+    /**
+     * Create angle grid from theta and phi arrays in radians, detecting equally spaced grids.
+     */
+    static AngleGrid fromArrays(double[] theta, double[] phi) {
+        RegularAngleGrid regularAngleGrid = RegularAngleGrid.detect(theta, phi);
+        return regularAngleGrid != null ? regularAngleGrid : new ExplicitAngleGrid(theta, phi);
+    }
+
+    /**
+     * Get number of angles in grid.
+     *
+     * @return number of angles.
+     */
+    public abstract int size();
+
+    /**
+     * Get theta angle in radians.
+     *
+     * @param index
+     *            index of angle.
+     *
+     * @return theta angle.
+     */
+    public abstract double getTheta(int index);
+
+    /**
+     * Get phi angle in radians.
+     *
+     * @param index
+     *            index of angle.
+     *
+     * @return phi angle.
+     */
+    public abstract double getPhi(int index);
+
+    /**
+     * Get angle.
+     *
+     * @param index
+     *            index of angle.
+     *
+     * @return new instance of {@link ThetaPhi}.
+     */
+    public ThetaPhi get(int index) {
+        return ThetaPhi.fromRadians(getTheta(index), getPhi(index));
+    }
+
+    /**
+     * Find index of angle.
+     *
+     * @param theta
+     *            theta angle in radians.
+     * @param phi
+     *            phi angle in radians.
+     *
+     * @return index of angle or -1 if angle is not part of grid.
+     */
+    public abstract int indexOf(double theta, double phi);
+
+    /**
+     * Find index of angle.
+     *
+     * @param thetaPhi
+     *            angle to find.
+     *
+     * @return index of angle or -1 if angle is not part of grid.
+     */
+    public int indexOf(ThetaPhi thetaPhi) {
+        return indexOf(thetaPhi.getTheta(), thetaPhi.getPhi());
+    }
+
+    /**
+     * Get number of bytes held by stored angles, 0 for grids calculating angles on access.
+     */
+    long byteSize() {
+        return 0;
+    }
+
+    /**
+     * Get interpolation layout of grid, created on first use.
+     */
+    InterpolationGrid getInterpolationGrid() {
+        InterpolationGrid grid = interpolationGrid;
+        if (grid == null) {
+            grid = InterpolationGrid.of(this);
+            interpolationGrid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * Get cosine and sine of phi angle of every grid angle, computed on first use.
+     */
+    PhiTrigonometry getPhiTrigonometry() {
+        PhiTrigonometry trigonometry = phiTrigonometry;
+        if (trigonometry == null) {
+            trigonometry = new PhiTrigonometry(this);
+            phiTrigonometry = trigonometry;
+        }
+        return trigonometry;
+    }
+
+    /**
+     * Get grid as list of angles.
+     *
+     * @return unmodifiable {@link List} view of grid creating {@link ThetaPhi} instances on access.
+     */
+    public List<ThetaPhi> asList() {
+        return new AngleGridList(this);
+    }
+
+    /**
+     * Check if grid contains exactly the same angles, in the same order, as other grid.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof AngleGrid)) {
+            return false;
+        }
+        AngleGrid other = (AngleGrid) o;
+        if (size() != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < size(); i++) {
+            if (Double.compare(getTheta(i), other.getTheta(i)) != 0
+                    || Double.compare(getPhi(i), other.getPhi(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size(); i++) {
+            hash = 31 * hash + Double.hashCode(getTheta(i));
+            hash = 31 * hash + Double.hashCode(getPhi(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Cosine and sine of phi angles by grid index. Regular grids evaluate each distinct phi angle once.
+     */
+    static final class PhiTrigonometry {
+
+        private final double[] cos;
+        private final double[] sin;
+
+        private PhiTrigonometry(AngleGrid angleGrid) {
+            int size = angleGrid.size();
+            cos = new double[size];
+            sin = new double[size];
+            if (angleGrid instanceof RegularAngleGrid) {
+                RegularAngleGrid regularAngleGrid = (RegularAngleGrid) angleGrid;
+                int phiCount = regularAngleGrid.getPhiCount();
+                for (int j = 0; j < phiCount; j++) {
+                    double phi = regularAngleGrid.getPhiAt(j);
+                    cos[j] = Math.cos(phi);
+                    sin[j] = Math.sin(phi);
+                }
+                for (int offset = phiCount; offset < size; offset += phiCount) {
+                    System.arraycopy(cos, 0, cos, offset, phiCount);
+                    System.arraycopy(sin, 0, sin, offset, phiCount);
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    cos[i] = Math.cos(angleGrid.getPhi(i));
+                    sin[i] = Math.sin(angleGrid.getPhi(i));
+                }
+            }
+        }
+
+        double[] cos() {
+            return cos;
+        }
+
+        double[] sin() {
+            return sin;
+        }
+
+    }
+
+    /**
+     * {@link List} view of an {@link AngleGrid}. Equality with other grid views is decided by the grids.
+     */
+    private static final class AngleGridList extends AbstractList<ThetaPhi> implements RandomAccess {
+
+        private final AngleGrid angleGrid;
+
+        private AngleGridList(AngleGrid angleGrid) {
+            this.angleGrid = angleGrid;
+        }
+
+        private AngleGrid getAngleGrid() {
+            return angleGrid;
+        }
+
+        @Override
+        public ThetaPhi get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return angleGrid.get(index);
+        }
+
+        @Override
+        public int size() {
+            return angleGrid.size();
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof ThetaPhi)) {
+                return -1;
+            }
+            int index = angleGrid.indexOf((ThetaPhi) o);
+            return index >= 0 && get(index).equals(o) ? index : -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof AngleGridList) {
+                return angleGrid.equals(((AngleGridList) o).angleGrid);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+
+    }
+
+}
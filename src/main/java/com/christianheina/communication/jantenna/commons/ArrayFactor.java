@@ -0,0 +1,554 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Array factor calculator.<br>
+ * Calculates the array factor of a set of {@link WeightableElement}
+ *
+ * <pre>
+ * AF(theta, phi) = sum(w * exp(j * 2 * pi * (frequency / designFrequency) * (r.u(theta, phi))))
+ * </pre>
+ *
+ * where r is element location in wavelengths at design frequency and u is the unit direction vector. The phase terms
+ * are separated per axis and computed once for each distinct element coordinate, using a sin/cos recurrence for equally
+ * spaced coordinates, so no complex exponential is evaluated per element and angle.<br>
+ * When FFT oversampling is configured and elements lie on an equally spaced linear or planar lattice, the sum is
+ * instead sampled once by a zero padded fast Fourier transform of the lattice weights and interpolated for every angle,
+ * making the cost per angle independent of the number of elements.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class ArrayFactor {
+
+    private final ElectricField electricField;
+    private final double frequency;
+    private final ExecutionPolicy executionPolicy;
+    private final Axis innerAxis;
+    private final Axis firstOuterAxis;
+    private final Axis secondOuterAxis;
+    private final int[] innerIndex;
+    private final double[] weightReal;
+    private final double[] weightImaginary;
+    private final int[] groupStart;
+    private final int[] groupFirstOuterIndex;
+    private final int[] groupSecondOuterIndex;
+    private final Lattice lattice;
+
+    private ArrayFactor(Builder builder) {
+        List<WeightableElement> elements = builder.elements;
+        if (elements.isEmpty()) {
+            throw new AntennaException("At least one element is required");
+        }
+        if (builder.fftOversampling < 0) {
+            throw new AntennaException("FFT oversampling can not be negative");
+        }
+        if (builder.electricField == null) {
+            throw new AntennaException("Electric field to store array factor as needs to be set");
+        }
+        this.electricField = builder.electricField;
+        this.executionPolicy = builder.executionPolicy;
+        this.frequency = builder.frequency > 0 ? builder.frequency : commonDesignFrequency(elements);
+
+        int size = elements.size();
+        double[][] coordinates = new double[3][size];
+        for (int n = 0; n < size; n++) {
+            WeightableElement element = elements.get(n);
+            double scale = 2 * Math.PI * (builder.frequency > 0 ? builder.frequency / element.getDesignFrequency() : 1);
+            Vector3D location = element.getElementLocation();
+            coordinates[0][n] = scale * location.getX();
+            coordinates[1][n] = scale * location.getY();
+            coordinates[2][n] = scale * location.getZ();
+        }
+        Axis[] axes = { new Axis(0, coordinates[0]), new Axis(1, coordinates[1]), new Axis(2, coordinates[2]) };
+        int inner = 0;
+        for (int axis = 1; axis < 3; axis++) {
+            if (axes[axis].size() > axes[inner].size()) {
+                inner = axis;
+            }
+        }
+        this.innerAxis = axes[inner];
+        this.firstOuterAxis = axes[(inner + 1) % 3];
+        this.secondOuterAxis = axes[(inner + 2) % 3];
+
+        /* Sort elements by outer axes coordinates so elements sharing them are summed before applying outer phase */
+        long[] keys = new long[size];
+        Integer[] order = new Integer[size];
+        for (int n = 0; n < size; n++) {
+            keys[n] = (long) firstOuterAxis.indexOf(coordinates[firstOuterAxis.axis][n]) * secondOuterAxis.size()
+                    + secondOuterAxis.indexOf(coordinates[secondOuterAxis.axis][n]);
+            order[n] = n;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        this.innerIndex = new int[size];
+        this.weightReal = new double[size];
+        this.weightImaginary = new double[size];
+        int[] starts = new int[size + 1];
+        int groups = 0;
+        for (int i = 0; i < size; i++) {
+            int n = order[i];
+            if (i == 0 || keys[n] != keys[order[i - 1]]) {
+                starts[groups++] = i;
+            }
+            Complex weight = elements.get(n).getElementWeight();
+            innerIndex[i] = innerAxis.indexOf(coordinates[innerAxis.axis][n]);
+            weightReal[i] = weight.getReal();
+            weightImaginary[i] = weight.getImaginary();
+        }
+        starts[groups] = size;
+        this.groupStart = Arrays.copyOf(starts, groups + 1);
+        this.groupFirstOuterIndex = new int[groups];
+        this.groupSecondOuterIndex = new int[groups];
+        for (int g = 0; g < groups; g++) {
+            long key = keys[order[groupStart[g]]];
+            groupFirstOuterIndex[g] = (int) (key / secondOuterAxis.size());
+            groupSecondOuterIndex[g] = (int) (key % secondOuterAxis.size());
+        }
+        this.lattice = builder.fftOversampling > 0
+                ? Lattice.detect(axes, coordinates, elements, builder.fftOversampling) : null;
+    }
+
+    private static double commonDesignFrequency(List<WeightableElement> elements) {
+        double designFrequency = elements.get(0).getDesignFrequency();
+        for (WeightableElement element : elements) {
+            if (element.getDesignFrequency() != designFrequency) {
+                return Builder.DEFAULT_FREQUENCY;
+            }
+        }
+        return designFrequency;
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Calculate array factor for angles.
+     *
+     * @param thetaPhiList
+     *            {@link List} of {@link ThetaPhi} to calculate array factor for.
+     *
+     * @return new far field instance holding the array factor as the configured {@link ElectricField}.
+     */
+    public Field calculate(List<ThetaPhi> thetaPhiList) {
+        return calculate(AngleGrid.fromList(thetaPhiList));
+    }
+
+    /**
+     * Calculate array factor for angle grid.
+     *
+     * @param angleGrid
+     *            {@link AngleGrid} to calculate array factor for.
+     *
+     * @return new far field instance holding the array factor as the configured {@link ElectricField}. Frequency is the
+     *         configured frequency or, if not configured, the design frequency shared by all elements.
+     */
+    public Field calculate(AngleGrid angleGrid) {
+        DirectionCosines directionCosines = new DirectionCosines(angleGrid);
+        double[] real = new double[angleGrid.size()];
+        double[] imaginary = new double[angleGrid.size()];
+        int cost = lattice != null ? LatticeSpectrum.INTERPOLATION_COST : weightReal.length;
+        executionPolicy.forEachChunk(angleGrid.size(), cost,
+                (from, to) -> calculate(directionCosines, from, to, real, imaginary));
+        return Field.newBuilder().setFieldType(FieldType.FARFIELD).setAngleGrid(angleGrid).setFreqency(frequency)
+                .addElectricField(electricField, real, imaginary).build();
+    }
+
+    /**
+     * Calculate array factor for angle index range [from, to).
+     */
+    void calculate(DirectionCosines directionCosines, int from, int to, double[] real, double[] imaginary) {
+        if (lattice != null) {
+            lattice.calculate(directionCosines, from, to, real, imaginary);
+            return;
+        }
+        double[] innerReal = new double[innerAxis.size()];
+        double[] innerImaginary = new double[innerAxis.size()];
+        double[] firstReal = new double[firstOuterAxis.size()];
+        double[] firstImaginary = new double[firstOuterAxis.size()];
+        double[] secondReal = new double[secondOuterAxis.size()];
+        double[] secondImaginary = new double[secondOuterAxis.size()];
+        double[] innerCosines = directionCosines.get(innerAxis.axis);
+        double[] firstCosines = directionCosines.get(firstOuterAxis.axis);
+        double[] secondCosines = directionCosines.get(secondOuterAxis.axis);
+        int groups = groupFirstOuterIndex.length;
+        for (int i = from; i < to; i++) {
+            innerAxis.phasors(innerCosines[i], innerReal, innerImaginary);
+            firstOuterAxis.phasors(firstCosines[i], firstReal, firstImaginary);
+            secondOuterAxis.phasors(secondCosines[i], secondReal, secondImaginary);
+            double sumReal = 0;
+            double sumImaginary = 0;
+            for (int g = 0; g < groups; g++) {
+                double groupReal = 0;
+                double groupImaginary = 0;
+                for (int n = groupStart[g]; n < groupStart[g + 1]; n++) {
+                    int k = innerIndex[n];
+                    groupReal += weightReal[n] * innerReal[k] - weightImaginary[n] * innerImaginary[k];
+                    groupImaginary += weightReal[n] * innerImaginary[k] + weightImaginary[n] * innerReal[k];
+                }
+                int a = groupFirstOuterIndex[g];
+                int b = groupSecondOuterIndex[g];
+                double outerReal = firstReal[a] * secondReal[b] - firstImaginary[a] * secondImaginary[b];
+                double outerImaginary = firstReal[a] * secondImaginary[b] + firstImaginary[a] * secondReal[b];
+                sumReal += groupReal * outerReal - groupImaginary * outerImaginary;
+                sumImaginary += groupReal * outerImaginary + groupImaginary * outerReal;
+            }
+            real[i] = sumReal;
+            imaginary[i] = sumImaginary;
+        }
+    }
+
+    /**
+     * Direction cosines of every angle in an angle grid. Regular grids only evaluate trigonometric functions once per
+     * theta and phi angle.
+     */
+    static final class DirectionCosines {
+
+        private final double[][] cosines;
+
+        DirectionCosines(AngleGrid angleGrid) {
+            int size = angleGrid.size();
+            double[] u = new double[size];
+            double[] v = new double[size];
+            double[] w = new double[size];
+            if (angleGrid instanceof RegularAngleGrid) {
+                RegularAngleGrid regularAngleGrid = (RegularAngleGrid) angleGrid;
+                int phiCount = regularAngleGrid.getPhiCount();
+                double[] cosPhi = new double[phiCount];
+                double[] sinPhi = new double[phiCount];
+                for (int j = 0; j < phiCount; j++) {
+                    double phi = regularAngleGrid.getPhiAt(j);
+                    cosPhi[j] = Math.cos(phi);
+                    sinPhi[j] = Math.sin(phi);
+                }
+                for (int t = 0; t < regularAngleGrid.getThetaCount(); t++) {
+                    double theta = regularAngleGrid.getThetaAt(t);
+                    double sinTheta = Math.sin(theta);
+                    double cosTheta = Math.cos(theta);
+                    int offset = t * phiCount;
+                    for (int j = 0; j < phiCount; j++) {
+                        u[offset + j] = sinTheta * cosPhi[j];
+                        v[offset + j] = sinTheta * sinPhi[j];
+                        w[offset + j] = cosTheta;
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    double sinTheta = Math.sin(angleGrid.getTheta(i));
+                    double phi = angleGrid.getPhi(i);
+                    u[i] = sinTheta * Math.cos(phi);
+                    v[i] = sinTheta * Math.sin(phi);
+                    w[i] = Math.cos(angleGrid.getTheta(i));
+                }
+            }
+            this.cosines = new double[][] { u, v, w };
+        }
+
+        double[] get(int axis) {
+            return cosines[axis];
+        }
+
+    }
+
+    /**
+     * Distinct element coordinates, in radians per unit direction cosine, along one axis.
+     */
+    private static final class Axis {
+
+        /** Relative deviation from equal spacing accepted for using the phase recurrence. */
+        private static final double SPACING_TOLERANCE = 1e-12;
+        /** Number of recurrence steps before phase is evaluated directly again to bound rounding errors. */
+        private static final int RECURRENCE_RESTART = 256;
+
+        private final int axis;
+        private final double[] values;
+        private final boolean equallySpaced;
+        private final double step;
+
+        private Axis(int axis, double[] coordinates) {
+            this.axis = axis;
+            double[] sorted = coordinates.clone();
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (count == 0 || Double.compare(sorted[i], sorted[count - 1]) != 0) {
+                    sorted[count++] = sorted[i];
+                }
+            }
+            this.values = Arrays.copyOf(sorted, count);
+            this.step = count > 1 ? (values[count - 1] - values[0]) / (count - 1) : 0;
+            boolean spaced = true;
+            double tolerance = SPACING_TOLERANCE * Math.max(1, Math.abs(values[count - 1] - values[0]));
+            for (int i = 1; i < count && spaced; i++) {
+                spaced = Math.abs(values[i] - (values[0] + i * step)) <= tolerance;
+            }
+            this.equallySpaced = spaced;
+        }
+
+        private int size() {
+            return values.length;
+        }
+
+        private int indexOf(double coordinate) {
+            return Arrays.binarySearch(values, coordinate);
+        }
+
+        private void phasors(double cosine, double[] real, double[] imaginary) {
+            if (!equallySpaced) {
+                for (int i = 0; i < values.length; i++) {
+                    double phase = values[i] * cosine;
+                    real[i] = Math.cos(phase);
+                    imaginary[i] = Math.sin(phase);
+                }
+                return;
+            }
+            double stepPhase = step * cosine;
+            double stepReal = Math.cos(stepPhase);
+            double stepImaginary = Math.sin(stepPhase);
+            for (int i = 0; i < values.length; i++) {
+                if (i % RECURRENCE_RESTART == 0) {
+                    double phase = (values[0] + i * step) * cosine;
+                    real[i] = Math.cos(phase);
+                    imaginary[i] = Math.sin(phase);
+                } else {
+                    real[i] = real[i - 1] * stepReal - imaginary[i - 1] * stepImaginary;
+                    imaginary[i] = real[i - 1] * stepImaginary + imaginary[i - 1] * stepReal;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Element weights summed onto an equally spaced lattice along at most two axes, with their transform.
+     */
+    private static final class Lattice {
+
+        /** Largest number of transform samples, 64 MiB, before falling back to summation. */
+        private static final long MAX_SIZE = 1 << 22;
+
+        private final Axis xAxis;
+        private final Axis yAxis;
+        private final double[] origin = new double[3];
+        private final LatticeSpectrum spectrum;
+
+        private Lattice(Axis xAxis, Axis yAxis, Axis[] axes, double[][] coordinates, List<WeightableElement> elements,
+                int oversampling) {
+            this.xAxis = xAxis;
+            this.yAxis = yAxis;
+            for (int axis = 0; axis < 3; axis++) {
+                origin[axis] = axes[axis].values[0];
+            }
+            int xCount = xAxis.size();
+            int yCount = yAxis != null ? yAxis.size() : 1;
+            double[] real = new double[xCount * yCount];
+            double[] imaginary = new double[xCount * yCount];
+            for (int n = 0; n < elements.size(); n++) {
+                int index = xAxis.indexOf(coordinates[xAxis.axis][n]);
+                if (yAxis != null) {
+                    index += yAxis.indexOf(coordinates[yAxis.axis][n]) * xCount;
+                }
+                Complex weight = elements.get(n).getElementWeight();
+                real[index] += weight.getReal();
+                imaginary[index] += weight.getImaginary();
+            }
+            this.spectrum = new LatticeSpectrum(real, imaginary, xCount, yCount, oversampling);
+        }
+
+        /**
+         * Get lattice of elements, or null if elements are spread along three axes, are not equally spaced along an
+         * axis or the transform would be too large.
+         */
+        private static Lattice detect(Axis[] axes, double[][] coordinates, List<WeightableElement> elements,
+                int oversampling) {
+            Axis[] spread = new Axis[3];
+            int count = 0;
+            for (Axis axis : axes) {
+                if (axis.size() > 1) {
+                    if (!axis.equallySpaced) {
+                        return null;
+                    }
+                    spread[count++] = axis;
+                }
+            }
+            if (count == 0 || count > 2) {
+                return null;
+            }
+            int yCount = count == 2 ? spread[1].size() : 1;
+            if (LatticeSpectrum.size(spread[0].size(), yCount, oversampling) > MAX_SIZE) {
+                return null;
+            }
+            return new Lattice(spread[0], spread[1], axes, coordinates, elements, oversampling);
+        }
+
+        private void calculate(DirectionCosines directionCosines, int from, int to, double[] real, double[] imaginary) {
+            double[] u = directionCosines.get(0);
+            double[] v = directionCosines.get(1);
+            double[] w = directionCosines.get(2);
+            double[] xCosines = directionCosines.get(xAxis.axis);
+            double[] yCosines = yAxis != null ? directionCosines.get(yAxis.axis) : null;
+            double[] taps = new double[16];
+            double[] value = new double[2];
+            for (int i = from; i < to; i++) {
+                double psiY = yAxis != null ? yAxis.step * yCosines[i] : 0;
+                spectrum.interpolate(xAxis.step * xCosines[i], psiY, taps, value, 0);
+                /* Lattice index to element location */
+                double phase = origin[0] * u[i] + origin[1] * v[i] + origin[2] * w[i];
+                double cos = Math.cos(phase);
+                double sin = Math.sin(phase);
+                real[i] = value[0] * cos - value[1] * sin;
+                imaginary[i] = value[0] * sin + value[1] * cos;
+            }
+        }
+
+    }
+
+    /**
+     * Builder for {@link ArrayFactor}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private static final double DEFAULT_FREQUENCY = -1;
+
+        private List<WeightableElement> elements = new ArrayList<>();
+        private ElectricField electricField;
+        private double frequency = DEFAULT_FREQUENCY;
+        private ExecutionPolicy executionPolicy = ExecutionPolicy.sequential();
+        private int fftOversampling;
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set elements, replacing any previously added elements.
+         *
+         * @param elements
+         *            {@link Collection} of {@link WeightableElement} making up the array.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setElements(Collection<? extends WeightableElement> elements) {
+            this.elements = new ArrayList<>(elements);
+            return this;
+        }
+
+        /**
+         * Add element.
+         *
+         * @param element
+         *            {@link WeightableElement} to add.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder addElement(WeightableElement element) {
+            elements.add(element);
+            return this;
+        }
+
+        /**
+         * Set frequency to calculate array factor at.<br>
+         * Element locations are scaled by frequency / design frequency. If not set, each element is used at its design
+         * frequency.
+         *
+         * @param frequency
+         *            frequency to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFrequency(double frequency) {
+            this.frequency = frequency;
+            return this;
+        }
+
+        /**
+         * Set electric field to store array factor as, required. The array factor is complex, so it is typically stored
+         * as the co-polarized component, for example {@link ElectricField#THETA}, and not as
+         * {@link ElectricField#RELATIVE_GAIN} which polarization conversion defines as a real magnitude.
+         *
+         * @param electricField
+         *            {@link ElectricField} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setElectricField(ElectricField electricField) {
+            this.electricField = electricField;
+            return this;
+        }
+
+        /**
+         * Set execution policy used when calculating array factor. Default is {@link ExecutionPolicy#sequential()}.
+         *
+         * @param executionPolicy
+         *            {@link ExecutionPolicy} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setExecutionPolicy(ExecutionPolicy executionPolicy) {
+            this.executionPolicy = executionPolicy;
+            return this;
+        }
+
+        /**
+         * Set oversampling of FFT used when elements lie on an equally spaced linear or planar lattice, elements
+         * missing from lattice points are allowed. Weights are zero padded to at least oversampling times the lattice
+         * size along each axis and the transform is interpolated, with error relative to the sum of weight magnitudes
+         * below 0.025 * (pi / oversampling)^4 along each axis, about 4e-5 for 16. Elements not on such a lattice are
+         * summed directly. Default is 0, always summing directly.
+         *
+         * @param fftOversampling
+         *            oversampling to set, 0 to disable.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFftOversampling(int fftOversampling) {
+            this.fftOversampling = fftOversampling;
+            return this;
+        }
+
+        /**
+         * Build new instance of ArrayFactor using this builder.
+         *
+         * @return new instance of {@link ArrayFactor}.
+         *
+         * @throws AntennaException
+         *             if no elements have been added, FFT oversampling is negative or electric field is not set.
+         */
+        public ArrayFactor build() {
+            return new ArrayFactor(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.Set;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Beam metrics of a {@link Field}: radiated power, directivity, gain, peak direction, half-power beamwidths, sidelobe
+ * level and front-to-back ratio.<br>
+ * Radiation intensity is the sum of |E|^2 over THETA and PHI, LUDWIG3H and LUDWIG3V or PLUS45 and MINUS45, whichever
+ * complete polarization basis is available first, otherwise RELATIVE_GAIN or the single available electric field.
+ * Radiated power and peak are found in a single pass over the angle grid. Power is integrated with trapezoid weights in
+ * phi and exact sin(theta) weighted trapezoid weights in theta, which integrate an isotropic pattern over the full
+ * sphere to 4 pi. Angles need to form a theta by phi grid, for example a {@link RegularAngleGrid}, covering the sphere
+ * for directivity to be relative to all radiated power.<br>
+ * Beamwidths and sidelobe level are taken from the two principal cuts through the peak: the great circle of constant
+ * phi, continued across the poles when phi covers the full circle, and the cut of constant theta. For a peak at a pole
+ * the second cut is the great circle a quarter turn away in phi.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class BeamMetrics {
+
+    private static final ElectricField[][] INTENSITY_BASES = { { ElectricField.THETA, ElectricField.PHI },
+            { ElectricField.LUDWIG3H, ElectricField.LUDWIG3V }, { ElectricField.PLUS45, ElectricField.MINUS45 },
+            { ElectricField.RELATIVE_GAIN } };
+    private static final double POLE_TOLERANCE = 1e-9;
+
+    private final double radiatedPower;
+    private final double peakIntensity;
+    private final int peakIndex;
+    private final ThetaPhi peakDirection;
+    private final double thetaBeamwidth;
+    private final double phiBeamwidth;
+    private final double sidelobeIntensity;
+    private final double backIntensity;
+
+    private BeamMetrics(double radiatedPower, double peakIntensity, int peakIndex, ThetaPhi peakDirection,
+            double thetaBeamwidth, double phiBeamwidth, double sidelobeIntensity, double backIntensity) {
+        this.radiatedPower = radiatedPower;
+        this.peakIntensity = peakIntensity;
+        this.peakIndex = peakIndex;
+        this.peakDirection = peakDirection;
+        this.thetaBeamwidth = thetaBeamwidth;
+        this.phiBeamwidth = phiBeamwidth;
+        this.sidelobeIntensity = sidelobeIntensity;
+        this.backIntensity = backIntensity;
+    }
+
+    /**
+     * Calculate beam metrics of field.
+     *
+     * @param field
+     *            {@link Field} to calculate metrics for.
+     *
+     * @return new instance of {@link BeamMetrics}.
+     *
+     * @throws AntennaException
+     *             if field has no complete polarization basis, RELATIVE_GAIN or single electric field, or if angles are
+     *             not a theta by phi grid.
+     */
+    public static BeamMetrics calculate(Field field) {
+        return calculate(field, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Calculate beam metrics of field.<br>
+     * The angle grid is reduced row by row into partial results which are combined in row order, so results are the
+     * same for all execution policies.
+     *
+     * @param field
+     *            {@link Field} to calculate metrics for.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     *
+     * @return new instance of {@link BeamMetrics}.
+     *
+     * @throws AntennaException
+     *             if field has no complete polarization basis, RELATIVE_GAIN or single electric field, or if angles are
+     *             not a theta by phi grid.
+     */
+    public static BeamMetrics calculate(Field field, ExecutionPolicy policy) {
+        Intensity intensity = new Intensity(field);
+        InterpolationGrid grid = field.getAngleGrid().getInterpolationGrid();
+        int rows = grid.getThetaCount();
+        int columns = grid.getPhiCount();
+        double[] thetaWeights = thetaWeights(grid);
+        double[] phiWeights = phiWeights(grid);
+
+        double[] rowPower = new double[rows];
+        double[] rowPeak = new double[rows];
+        int[] rowPeakColumn = new int[rows];
+        policy.forEachChunk(rows, columns, (from, to) -> {
+            for (int r = from; r < to; r++) {
+                double power = 0;
+                double peak = -1;
+                int peakColumn = 0;
+                for (int c = 0; c < columns; c++) {
+                    double u = intensity.get(grid.index(r, c));
+                    power += phiWeights[c] * u;
+                    if (u > peak) {
+                        peak = u;
+                        peakColumn = c;
+                    }
+                }
+                rowPower[r] = thetaWeights[r] * power;
+                rowPeak[r] = peak;
+                rowPeakColumn[r] = peakColumn;
+            }
+        });
+        double radiatedPower = 0;
+        int peakRow = 0;
+        for (int r = 0; r < rows; r++) {
+            radiatedPower += rowPower[r];
+            if (rowPeak[r] > rowPeak[peakRow]) {
+                peakRow = r;
+            }
+        }
+        int peakColumn = rowPeakColumn[peakRow];
+        double peakIntensity = rowPeak[peakRow];
+        int peakIndex = grid.index(peakRow, peakColumn);
+
+        Cut thetaCut = greatCircleCut(grid, intensity, peakRow, peakColumn);
+        Cut phiCut;
+        if (Math.sin(grid.getTheta(peakRow)) < POLE_TOLERANCE) {
+            int halfTurn = grid.getHalfTurn();
+            phiCut = halfTurn > 0 && halfTurn % 2 == 0
+                    ? greatCircleCut(grid, intensity, peakRow, peakColumn + halfTurn / 2) : null;
+        } else {
+            phiCut = conicalCut(grid, intensity, peakRow, peakColumn);
+        }
+        double sidelobeIntensity = thetaCut.sidelobe;
+        if (phiCut != null) {
+            sidelobeIntensity = Math.max(sidelobeIntensity, phiCut.sidelobe);
+        }
+        ThetaPhi peakDirection = field.getAngleGrid().get(peakIndex);
+        double backIntensity = intensity.interpolate(grid, Math.PI - peakDirection.getTheta(),
+                peakDirection.getPhi() + Math.PI);
+        return new BeamMetrics(radiatedPower, peakIntensity, peakIndex, peakDirection, thetaCut.beamwidth,
+                phiCut != null ? phiCut.beamwidth : Double.NaN, sidelobeIntensity, backIntensity);
+    }
+
+    /**
+     * Create accumulator of radiated power and peak for a field processed chunk by chunk, for example by
+     * {@link FieldStream#forEachChunk(FieldStream.ChunkConsumer)} or
+     * {@link FieldStream#peek(FieldStream.ChunkConsumer)}.
+     *
+     * @param angleGrid
+     *            {@link AngleGrid} of the whole field, a theta by phi grid such as a {@link RegularAngleGrid}.
+     *
+     * @return new instance of {@link Accumulator}.
+     *
+     * @throws AntennaException
+     *             if angles are not a theta by phi grid.
+     */
+    public static Accumulator newAccumulator(AngleGrid angleGrid) {
+        return new Accumulator(angleGrid);
+    }
+
+    /**
+     * Integral of piecewise linear interpolation of each theta row times sin(theta).
+     */
+    private static double[] thetaWeights(InterpolationGrid grid) {
+        int rows = grid.getThetaCount();
+        double[] weights = new double[rows];
+        for (int r = 0; r + 1 < rows; r++) {
+            double a = grid.getTheta(r);
+            double b = grid.getTheta(r + 1);
+            double h = b - a;
+            weights[r] += (Math.sin(a) - Math.sin(b) + h * Math.cos(a)) / h;
+            weights[r + 1] += (Math.sin(b) - Math.sin(a) - h * Math.cos(b)) / h;
+        }
+        return weights;
+    }
+
+    /**
+     * Trapezoid weights of each phi column, wrapping around for rows covering the full circle.
+     */
+    private static double[] phiWeights(InterpolationGrid grid) {
+        int columns = grid.getPhiCount();
+        double[] weights = new double[columns];
+        if (columns == 1) {
+            weights[0] = 2 * Math.PI;
+            return weights;
+        }
+        boolean periodic = grid.isPhiPeriodic();
+        for (int c = 0; c < columns; c++) {
+            double previous = c > 0 ? grid.getPhi(c - 1)
+                    : periodic ? grid.getPhi(columns - 1) - 2 * Math.PI : grid.getPhi(c);
+            double next = c + 1 < columns ? grid.getPhi(c + 1) : periodic ? grid.getPhiEnd() : grid.getPhi(c);
+            weights[c] = 0.5 * (next - previous);
+        }
+        return weights;
+    }
+
+    /**
+     * Cut along column, continued on the opposite column across the poles when available.
+     */
+    private static Cut greatCircleCut(InterpolationGrid grid, Intensity intensity, int peakRow, int column) {
+        int rows = grid.getThetaCount();
+        int halfTurn = grid.getHalfTurn();
+        int opposite = halfTurn > 0 ? column + halfTurn : -1;
+        int first = opposite >= 0 && grid.isPoleAtStart() ? 1 : 0;
+        int last = opposite >= 0 && grid.isPoleAtEnd() ? rows - 2 : rows - 1;
+        int oppositeCount = opposite >= 0 ? Math.max(0, last - first + 1) : 0;
+        double[] angles = new double[oppositeCount + rows];
+        double[] values = new double[oppositeCount + rows];
+        int n = 0;
+        for (int r = last; r >= first && opposite >= 0; r--) {
+            angles[n] = -grid.getTheta(r);
+            values[n++] = intensity.get(grid.index(r, opposite));
+        }
+        int peak = n + peakRow;
+        for (int r = 0; r < rows; r++) {
+            angles[n] = grid.getTheta(r);
+            values[n++] = intensity.get(grid.index(r, column));
+        }
+        boolean periodic = opposite >= 0 && grid.isPoleAtStart() && grid.isPoleAtEnd();
+        return new Cut(angles, values, periodic, peak);
+    }
+
+    /**
+     * Cut along row.
+     */
+    private static Cut conicalCut(InterpolationGrid grid, Intensity intensity, int row, int peakColumn) {
+        int columns = grid.getPhiCount();
+        double[] angles = new double[columns];
+        double[] values = new double[columns];
+        for (int c = 0; c < columns; c++) {
+            angles[c] = grid.getPhi(c);
+            values[c] = intensity.get(grid.index(row, c));
+        }
+        return new Cut(angles, values, grid.isPhiPeriodic(), peakColumn);
+    }
+
+    /**
+     * Get radiated power, radiation intensity integrated over the angle grid.
+     *
+     * @return radiated power.
+     */
+    public double getRadiatedPower() {
+        return radiatedPower;
+    }
+
+    /**
+     * Get directivity, 4 pi times peak radiation intensity over radiated power.
+     *
+     * @return directivity as linear value.
+     */
+    public double getDirectivity() {
+        return 4 * Math.PI * peakIntensity / radiatedPower;
+    }
+
+    /**
+     * Get directivity in dBi.
+     *
+     * @return directivity in dBi.
+     */
+    public double getDirectivityDbi() {
+        return 10 * Math.log10(getDirectivity());
+    }
+
+    /**
+     * Get gain, directivity times radiation efficiency.
+     *
+     * @param radiationEfficiency
+     *            radiation efficiency from 0 to 1.
+     *
+     * @return gain as linear value.
+     */
+    public double getGain(double radiationEfficiency) {
+        return radiationEfficiency * getDirectivity();
+    }
+
+    /**
+     * Get gain in dBi, directivity times radiation efficiency.
+     *
+     * @param radiationEfficiency
+     *            radiation efficiency from 0 to 1.
+     *
+     * @return gain in dBi.
+     */
+    public double getGainDbi(double radiationEfficiency) {
+        return 10 * Math.log10(getGain(radiationEfficiency));
+    }
+
+    /**
+     * Get peak radiation intensity.
+     *
+     * @return peak radiation intensity, |E|^2.
+     */
+    public double getPeakIntensity() {
+        return peakIntensity;
+    }
+
+    /**
+     * Get index of peak, the first angle with highest radiation intensity.
+     *
+     * @return index of peak in angle grid.
+     */
+    public int getPeakIndex() {
+        return peakIndex;
+    }
+
+    /**
+     * Get direction of peak.
+     *
+     * @return {@link ThetaPhi} of peak.
+     */
+    public ThetaPhi getPeakDirection() {
+        return peakDirection;
+    }
+
+    /**
+     * Get half-power beamwidth in the cut of constant phi through the peak.
+     *
+     * @return beamwidth in radians, NaN if radiation intensity does not drop below half of peak on both sides.
+     */
+    public double getThetaBeamwidth() {
+        return thetaBeamwidth;
+    }
+
+    /**
+     * Get half-power beamwidth in the cut of constant theta through the peak, measured in phi. For a peak at a pole
+     * this is the beamwidth of the great circle a quarter turn away from the theta cut.
+     *
+     * @return beamwidth in radians, NaN if radiation intensity does not drop below half of peak on both sides.
+     */
+    public double getPhiBeamwidth() {
+        return phiBeamwidth;
+    }
+
+    /**
+     * Get sidelobe level, the highest radiation intensity outside the main lobe in the principal cuts relative to peak.
+     * The main lobe extends to the first minimum on each side of the peak.
+     *
+     * @return sidelobe level in dB, negative infinity if there are no sidelobes.
+     */
+    public double getSidelobeLevelDb() {
+        return 10 * Math.log10(sidelobeIntensity / peakIntensity);
+    }
+
+    /**
+     * Get front-to-back ratio, peak radiation intensity relative to the opposite direction. The opposite direction is
+     * interpolated bilinearly and clamped to the angle grid.
+     *
+     * @return front-to-back ratio in dB.
+     */
+    public double getFrontToBackRatioDb() {
+        return 10 * Math.log10(peakIntensity / backIntensity);
+    }
+
+    @Override
+    public String toString() {
+        return "directivity: " + getDirectivityDbi() + " dBi, peak: " + peakDirection + ", beamwidth: ("
+                + Math.toDegrees(thetaBeamwidth) + ", " + Math.toDegrees(phiBeamwidth) + "), sidelobe level: "
+                + getSidelobeLevelDb() + " dB, front-to-back ratio: " + getFrontToBackRatioDb() + " dB";
+    }
+
+    /**
+     * Radiated power, directivity and peak of a field accumulated chunk by chunk, with the same weights and intensity
+     * as {@link BeamMetrics#calculate(Field)}. Only the theta and phi weights of the grid are held in memory.
+     * Beamwidths, sidelobe level and front-to-back ratio need the whole field and are not available.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static final class Accumulator implements FieldStream.ChunkConsumer {
+
+        private final AngleGrid angleGrid;
+        private final int rowLength;
+        private final int columns;
+        private final double[] thetaWeights;
+        private final double[] phiWeights;
+        private double radiatedPower;
+        private double peakIntensity = -1;
+        private int peakIndex = -1;
+
+        private Accumulator(AngleGrid angleGrid) {
+            InterpolationGrid grid = angleGrid.getInterpolationGrid();
+            this.angleGrid = angleGrid;
+            this.rowLength = grid.getRowLength();
+            this.columns = grid.getPhiCount();
+            this.thetaWeights = thetaWeights(grid);
+            this.phiWeights = phiWeights(grid);
+        }
+
+        /**
+         * Add chunk of angles to accumulated values.
+         *
+         * @param offset
+         *            index of first angle of chunk in the whole field.
+         * @param chunk
+         *            {@link Field} holding the angles of chunk.
+         *
+         * @throws AntennaException
+         *             if chunk has no complete polarization basis, RELATIVE_GAIN or single electric field.
+         */
+        @Override
+        public void accept(int offset, Field chunk) {
+            Intensity intensity = new Intensity(chunk);
+            for (int i = 0; i < chunk.getAngleGrid().size(); i++) {
+                int index = offset + i;
+                int column = index % rowLength;
+                if (column >= columns) {
+                    /* Repeated first phi angle at end of row */
+                    continue;
+                }
+                double u = intensity.get(i);
+                radiatedPower += thetaWeights[index / rowLength] * phiWeights[column] * u;
+                if (u > peakIntensity) {
+                    peakIntensity = u;
+                    peakIndex = index;
+                }
+            }
+        }
+
+        /**
+         * Get power radiated by angles accumulated so far.
+         *
+         * @return radiated power.
+         */
+        public double getRadiatedPower() {
+            return radiatedPower;
+        }
+
+        /**
+         * Get directivity of angles accumulated so far.
+         *
+         * @return directivity, 4 * pi * peak intensity / radiated power.
+         */
+        public double getDirectivity() {
+            return 4 * Math.PI * peakIntensity / radiatedPower;
+        }
+
+        /**
+         * Get directivity of angles accumulated so far in dBi.
+         *
+         * @return directivity in dBi.
+         */
+        public double getDirectivityDbi() {
+            return 10 * Math.log10(getDirectivity());
+        }
+
+        /**
+         * Get peak radiation intensity of angles accumulated so far.
+         *
+         * @return peak intensity, -1 if nothing has been accumulated.
+         */
+        public double getPeakIntensity() {
+            return peakIntensity;
+        }
+
+        /**
+         * Get index of peak in the whole field.
+         *
+         * @return index of peak, -1 if nothing has been accumulated.
+         */
+        public int getPeakIndex() {
+            return peakIndex;
+        }
+
+        /**
+         * Get direction of peak.
+         *
+         * @return {@link ThetaPhi} of peak, null if nothing has been accumulated.
+         */
+        public ThetaPhi getPeakDirection() {
+            return peakIndex < 0 ? null : angleGrid.get(peakIndex);
+        }
+
+    }
+
+    /**
+     * Radiation intensity of each angle.
+     */
+    private static final class Intensity {
+
+        private final ElectricField[] components;
+        private final ComplexArray[] data;
+
+        private Intensity(Field field) {
+            Set<ElectricField> available = field.getAvailableElectricFields();
+            ElectricField[] selected = null;
+            for (ElectricField[] basis : INTENSITY_BASES) {
+                boolean complete = true;
+                for (ElectricField electricField : basis) {
+                    complete &= available.contains(electricField);
+                }
+                if (complete) {
+                    selected = basis;
+                    break;
+                }
+            }
+            if (selected == null && available.size() == 1) {
+                selected = available.toArray(new ElectricField[1]);
+            }
+            if (selected == null) {
+                throw new AntennaException("Beam metrics require a complete polarization basis, RELATIVE_GAIN or a "
+                        + "single electric field");
+            }
+            this.components = selected;
+            this.data = new ComplexArray[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                data[i] = field.getElectricFieldData(selected[i]);
+                if (data[i].size() != field.getAngleGrid().size()) {
+                    throw new AntennaException("Electric fields need to have one value for each angle");
+                }
+            }
+        }
+
+        private double get(int index) {
+            double u = 0;
+            for (ComplexArray values : data) {
+                double re = values.getReal(index);
+                double im = values.getImaginary(index);
+                u += re * re + im * im;
+            }
+            return u;
+        }
+
+        private double interpolate(InterpolationGrid grid, double theta, double phi) {
+            double[] re = new double[1];
+            double[] im = new double[1];
+            double u = 0;
+            for (int i = 0; i < data.length; i++) {
+                double sign = components[i] == ElectricField.THETA || components[i] == ElectricField.PHI ? -1 : 1;
+                grid.interpolate(data[i], sign, false, theta, phi, re, im, 0);
+                u += re[0] * re[0] + im[0] * im[0];
+            }
+            return u;
+        }
+
+    }
+
+    /**
+     * Radiation intensity along a cut through the peak, with half-power beamwidth and highest sidelobe.
+     */
+    private static final class Cut {
+
+        private final double[] angles;
+        private final double[] values;
+        private final boolean periodic;
+        private final double beamwidth;
+        private final double sidelobe;
+
+        private Cut(double[] angles, double[] values, boolean periodic, int peak) {
+            this.angles = angles;
+            this.values = values;
+            this.periodic = periodic;
+            int n = values.length;
+            double half = 0.5 * values[peak];
+            int[] lobeEnd = new int[2];
+            double[] halfPower = new double[2];
+            int visited = 1;
+            for (int side = 0; side < 2; side++) {
+                int direction = side == 0 ? 1 : -1;
+                int k = peak;
+                double distance = 0;
+                halfPower[side] = Double.NaN;
+                while (visited < n) {
+                    int next = next(k, direction);
+                    if (next < 0) {
+                        break;
+                    }
+                    double delta = step(k, next, direction);
+                    if (Double.isNaN(halfPower[side]) && values[next] < half) {
+                        halfPower[side] = distance + delta * (values[k] - half) / (values[k] - values[next]);
+                    }
+                    if (!Double.isNaN(halfPower[side]) && values[next] > values[k]) {
+                        break;
+                    }
+                    distance += delta;
+                    k = next;
+                    visited++;
+                }
+                lobeEnd[side] = k;
+            }
+            this.beamwidth = halfPower[0] + halfPower[1];
+            double highest = 0;
+            int outside = n - visited;
+            for (int k = next(lobeEnd[0], 1), i = 0; k >= 0 && i < outside; k = next(k, 1), i++) {
+                highest = Math.max(highest, values[k]);
+            }
+            if (!periodic) {
+                for (int k = 0; k < lobeEnd[1]; k++) {
+                    highest = Math.max(highest, values[k]);
+                }
+            }
+            this.sidelobe = highest;
+        }
+
+        private int next(int k, int direction) {
+            int next = k + direction;
+            if (next < 0 || next >= values.length) {
+                return periodic ? Math.floorMod(next, values.length) : -1;
+            }
+            return next;
+        }
+
+        private double step(int k, int next, int direction) {
+            double delta = direction * (angles[next] - angles[k]);
+            return delta < 0 ? delta + 2 * Math.PI : delta;
+        }
+
+    }
+
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Progressive phase steering weights for a fixed element layout.<br>
+ * The weight of each element cancels its array factor phase in the steering direction
+ *
+ * <pre>
+ * w = exp(-j * 2 * pi * (frequency / designFrequency) * (r.u(theta, phi)))
+ * </pre>
+ *
+ * so all elements add up in phase there. Steering vectors are cached in a bounded least recently used cache keyed on
+ * direction and frequency, quantized to the configured resolutions. Weights are always calculated for the quantized
+ * direction and frequency, so results do not depend on cache state. Instances are thread safe.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class BeamSteering {
+
+    private final List<Element> elements;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final double[] designFrequency;
+    private final double angleResolution;
+    private final double frequencyResolution;
+    private final Map<Key, double[][]> cache;
+
+    private BeamSteering(Builder builder) {
+        if (builder.elements.isEmpty()) {
+            throw new AntennaException("At least one element is required");
+        }
+        if (!(builder.angleResolution > 0) || !(builder.frequencyResolution > 0)) {
+            throw new AntennaException("Angle and frequency resolution need to be positive");
+        }
+        if (builder.cacheSize < 0) {
+            throw new AntennaException("Cache size can not be negative");
+        }
+        this.elements = new ArrayList<>(builder.elements);
+        int size = elements.size();
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.designFrequency = new double[size];
+        for (int n = 0; n < size; n++) {
+            Vector3D location = elements.get(n).getElementLocation();
+            x[n] = 2 * Math.PI * location.getX();
+            y[n] = 2 * Math.PI * location.getY();
+            z[n] = 2 * Math.PI * location.getZ();
+            designFrequency[n] = elements.get(n).getDesignFrequency();
+        }
+        this.angleResolution = builder.angleResolution;
+        this.frequencyResolution = builder.frequencyResolution;
+        int cacheSize = builder.cacheSize;
+        this.cache = new LinkedHashMap<Key, double[][]>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, double[][]> eldest) {
+                return size() > cacheSize;
+            }
+
+        };
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Calculate steering weights toward direction.
+     *
+     * @param direction
+     *            {@link ThetaPhi} to steer toward.
+     * @param frequency
+     *            frequency to steer at, or a non-positive value to use each element at its design frequency.
+     * @param real
+     *            destination of real parts, one value for each element in element order.
+     * @param imaginary
+     *            destination of imaginary parts, one value for each element in element order.
+     *
+     * @throws AntennaException
+     *             if destination arrays do not have one value for each element.
+     */
+    public void steer(ThetaPhi direction, double frequency, double[] real, double[] imaginary) {
+        if (real.length != x.length || imaginary.length != x.length) {
+            throw new AntennaException("Destination needs to have one value for each element");
+        }
+        double[][] weights = steeringVector(direction, frequency);
+        System.arraycopy(weights[0], 0, real, 0, x.length);
+        System.arraycopy(weights[1], 0, imaginary, 0, x.length);
+    }
+
+    /**
+     * Calculate steering weights for every direction of a codebook.
+     *
+     * @param codebook
+     *            {@link List} of {@link ThetaPhi} to steer toward.
+     * @param frequency
+     *            frequency to steer at, or a non-positive value to use each element at its design frequency.
+     * @param real
+     *            destination of real parts laid out beam by beam, [beam][element].
+     * @param imaginary
+     *            destination of imaginary parts laid out beam by beam, [beam][element].
+     *
+     * @throws AntennaException
+     *             if destination arrays do not have one value for each beam and element.
+     */
+    public void steer(List<ThetaPhi> codebook, double frequency, double[] real, double[] imaginary) {
+        long length = (long) codebook.size() * x.length;
+        if (real.length != length || imaginary.length != length) {
+            throw new AntennaException("Destination needs to have one value for each beam and element");
+        }
+        int beam = 0;
+        for (ThetaPhi direction : codebook) {
+            double[][] weights = steeringVector(direction, frequency);
+            System.arraycopy(weights[0], 0, real, beam * x.length, x.length);
+            System.arraycopy(weights[1], 0, imaginary, beam * x.length, x.length);
+            beam++;
+        }
+    }
+
+    /**
+     * Create elements weighted to steer toward direction, for example to calculate an {@link ArrayFactor}.
+     *
+     * @param direction
+     *            {@link ThetaPhi} to steer toward.
+     * @param frequency
+     *            frequency to steer at, or a non-positive value to use each element at its design frequency.
+     *
+     * @return new {@link List} of {@link WeightableElement} in element order.
+     */
+    public List<WeightableElement> steerElements(ThetaPhi direction, double frequency) {
+        double[][] weights = steeringVector(direction, frequency);
+        List<WeightableElement> weighted = new ArrayList<>(x.length);
+        for (int n = 0; n < x.length; n++) {
+            Element element = elements.get(n);
+            weighted.add(new WeightableElement(element.getElementLocation(), element.getDesignFrequency(),
+                    new Complex(weights[0][n], weights[1][n])));
+        }
+        return weighted;
+    }
+
+    /**
+     * Get number of elements.
+     *
+     * @return number of elements.
+     */
+    public int getElementCount() {
+        return x.length;
+    }
+
+    /**
+     * Remove all cached steering vectors.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    int getCachedVectorCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private double[][] steeringVector(ThetaPhi direction, double frequency) {
+        Key key = new Key(Math.round(direction.getTheta() / angleResolution),
+                Math.round(direction.getPhi() / angleResolution),
+                frequency > 0 ? Math.round(frequency / frequencyResolution) : -1);
+        double[][] weights;
+        synchronized (cache) {
+            weights = cache.get(key);
+        }
+        if (weights == null) {
+            /* Calculated outside the lock, concurrent misses on the same key calculate the same values */
+            weights = calculate(key.theta * angleResolution, key.phi * angleResolution,
+                    key.frequency * frequencyResolution);
+            synchronized (cache) {
+                cache.put(key, weights);
+            }
+        }
+        return weights;
+    }
+
+    private double[][] calculate(double theta, double phi, double frequency) {
+        double sinTheta = Math.sin(theta);
+        double ux = sinTheta * Math.cos(phi);
+        double uy = sinTheta * Math.sin(phi);
+        double uz = Math.cos(theta);
+        double[] real = new double[x.length];
+        double[] imaginary = new double[x.length];
+        for (int n = 0; n < x.length; n++) {
+            double scale = frequency > 0 ? frequency / designFrequency[n] : 1;
+            double phase = -scale * (x[n] * ux + y[n] * uy + z[n] * uz);
+            real[n] = Math.cos(phase);
+            imaginary[n] = Math.sin(phase);
+        }
+        return new double[][] { real, imaginary };
+    }
+
+    /**
+     * Quantized direction and frequency.
+     */
+    private static final class Key {
+
+        private final long theta;
+        private final long phi;
+        private final long frequency;
+
+        private Key(long theta, long phi, long frequency) {
+            this.theta = theta;
+            this.phi = phi;
+            this.frequency = frequency;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(theta);
+            result = 31 * result + Long.hashCode(phi);
+            return 31 * result + Long.hashCode(frequency);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return theta == other.theta && phi == other.phi && frequency == other.frequency;
+        }
+
+    }
+
+    /**
+     * Builder for {@link BeamSteering}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_CACHE_SIZE = 4096;
+        private static final double DEFAULT_ANGLE_RESOLUTION = Math.toRadians(0.01);
+        private static final double DEFAULT_FREQUENCY_RESOLUTION = 1e3;
+
+        private List<Element> elements = new ArrayList<>();
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        private double angleResolution = DEFAULT_ANGLE_RESOLUTION;
+        private double frequencyResolution = DEFAULT_FREQUENCY_RESOLUTION;
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set elements, replacing any previously added elements. Only element locations and design frequencies are
+         * used.
+         *
+         * @param elements
+         *            {@link Collection} of {@link Element} making up the array.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setElements(Collection<? extends Element> elements) {
+            this.elements = new ArrayList<>(elements);
+            return this;
+        }
+
+        /**
+         * Add element.
+         *
+         * @param element
+         *            {@link Element} to add.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder addElement(Element element) {
+            elements.add(element);
+            return this;
+        }
+
+        /**
+         * Set maximum number of cached steering vectors. Default is {@value #DEFAULT_CACHE_SIZE}.
+         *
+         * @param cacheSize
+         *            maximum number of cached steering vectors, 0 disables caching.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Set resolution steering directions are quantized to. Default is 0.01 degrees.
+         *
+         * @param angleResolution
+         *            resolution in radians.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setAngleResolution(double angleResolution) {
+            this.angleResolution = angleResolution;
+            return this;
+        }
+
+        /**
+         * Set resolution steering frequencies are quantized to. Default is {@value #DEFAULT_FREQUENCY_RESOLUTION}.
+         *
+         * @param frequencyResolution
+         *            resolution in the unit of frequency.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFrequencyResolution(double frequencyResolution) {
+            this.frequencyResolution = frequencyResolution;
+            return this;
+        }
+
+        /**
+         * Build new instance of BeamSteering using this builder.
+         *
+         * @return new instance of {@link BeamSteering}.
+         *
+         * @throws AntennaException
+         *             if no elements are set, resolutions are not positive or cache size is negative.
+         */
+        public BeamSteering build() {
+            return new BeamSteering(this);
+        }
+
+    }
+
+}
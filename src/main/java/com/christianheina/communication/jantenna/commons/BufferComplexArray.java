@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.nio.DoubleBuffer;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * {@link ComplexArray} backed by {@link DoubleBuffer} views, for example of memory mapped file regions.<br>
+ * Read-only buffers are copied to heap buffers on first modification. The copy is made once, under a lock, and both
+ * buffers are swapped together, so chunks of a parallel operation can modify the array concurrently.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class BufferComplexArray extends ComplexArray {
+
+    private volatile Buffers buffers;
+
+    BufferComplexArray(DoubleBuffer real, DoubleBuffer imaginary) {
+        if (real.remaining() != imaginary.remaining()) {
+            throw new AntennaException("Real and imaginary parts need to have the same length");
+        }
+        this.buffers = new Buffers(real.slice(), imaginary.slice());
+    }
+
+    @Override
+    int size() {
+        return buffers.real.capacity();
+    }
+
+    @Override
+    double getReal(int index) {
+        return buffers.real.get(index);
+    }
+
+    @Override
+    double getImaginary(int index) {
+        return buffers.imaginary.get(index);
+    }
+
+    @Override
+    void set(int index, double realValue, double imaginaryValue) {
+        Buffers current = buffers;
+        if (current.real.isReadOnly()) {
+            current = detach();
+        }
+        current.real.put(index, realValue);
+        current.imaginary.put(index, imaginaryValue);
+    }
+
+    private synchronized Buffers detach() {
+        Buffers current = buffers;
+        if (current.real.isReadOnly()) {
+            current = new Buffers(copyOf(current.real), copyOf(current.imaginary));
+            buffers = current;
+        }
+        return current;
+    }
+
+    @Override
+    void copyTo(int srcPos, double[] realDest, double[] imaginaryDest, int destPos, int length) {
+        Buffers current = buffers;
+        DoubleBuffer realView = current.real.duplicate();
+        realView.position(srcPos);
+        realView.get(realDest, destPos, length);
+        DoubleBuffer imaginaryView = current.imaginary.duplicate();
+        imaginaryView.position(srcPos);
+        imaginaryView.get(imaginaryDest, destPos, length);
+    }
+
+    private static DoubleBuffer copyOf(DoubleBuffer buffer) {
+        DoubleBuffer copy = DoubleBuffer.allocate(buffer.capacity());
+        copy.put(buffer.duplicate()).clear();
+        return copy;
+    }
+
+    /**
+     * Real and imaginary buffers, replaced together.
+     */
+    private static final class Buffers {
+
+        private final DoubleBuffer real;
+        private final DoubleBuffer imaginary;
+
+        private Buffers(DoubleBuffer real, DoubleBuffer imaginary) {
+            this.real = real;
+            this.imaginary = imaginary;
+        }
+
+    }
+
+}
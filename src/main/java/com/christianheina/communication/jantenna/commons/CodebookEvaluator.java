@@ -0,0 +1,397 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Evaluates codebooks of beams for a fixed element layout and angle grid.<br>
+ * The element phase term of every angle, exp(j * 2 * pi * (frequency / designFrequency) * (r.u(theta, phi))), is
+ * calculated once when the evaluator is built and kept as an angle by element matrix. The array factor of all beams is
+ * then the matrix product of that matrix with the beam by element weight matrix, calculated in tiles of angles, beams
+ * and elements small enough to stay in cache. The phase matrix holds angles * elements complex values, so memory use
+ * grows with both.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class CodebookEvaluator {
+
+    private static final int ANGLE_TILE = 16;
+    private static final int BEAM_TILE = 16;
+    private static final int ELEMENT_TILE = 256;
+
+    private final AngleGrid angleGrid;
+    private final int angles;
+    private final int elements;
+    private final ExecutionPolicy executionPolicy;
+    private final double[] phaseReal;
+    private final double[] phaseImaginary;
+
+    private CodebookEvaluator(Builder builder) {
+        if (builder.elements.isEmpty()) {
+            throw new AntennaException("At least one element is required");
+        }
+        this.angleGrid = builder.angleGrid;
+        this.angles = angleGrid.size();
+        this.elements = builder.elements.size();
+        this.executionPolicy = builder.executionPolicy;
+        long length = (long) angles * elements;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new AntennaException("Phase matrix too large: " + length + " values");
+        }
+        double[] x = new double[elements];
+        double[] y = new double[elements];
+        double[] z = new double[elements];
+        for (int n = 0; n < elements; n++) {
+            Element element = builder.elements.get(n);
+            double scale = 2 * Math.PI * (builder.frequency > 0 ? builder.frequency / element.getDesignFrequency() : 1);
+            Vector3D location = element.getElementLocation();
+            x[n] = scale * location.getX();
+            y[n] = scale * location.getY();
+            z[n] = scale * location.getZ();
+        }
+        ArrayFactor.DirectionCosines directionCosines = new ArrayFactor.DirectionCosines(angleGrid);
+        double[] u = directionCosines.get(0);
+        double[] v = directionCosines.get(1);
+        double[] w = directionCosines.get(2);
+        this.phaseReal = new double[(int) length];
+        this.phaseImaginary = new double[(int) length];
+        executionPolicy.forEachChunk(angles, elements, (from, to) -> {
+            for (int a = from; a < to; a++) {
+                int row = a * elements;
+                for (int n = 0; n < elements; n++) {
+                    double phase = x[n] * u[a] + y[n] * v[a] + z[n] * w[a];
+                    phaseReal[row + n] = Math.cos(phase);
+                    phaseImaginary[row + n] = Math.sin(phase);
+                }
+            }
+        });
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Calculate gain, |AF|^2, of every beam at every angle.
+     *
+     * @param weightReal
+     *            real parts of beam weights laid out beam by beam, [beam][element].
+     * @param weightImaginary
+     *            imaginary parts of beam weights laid out beam by beam, [beam][element].
+     * @param gain
+     *            destination of gain laid out beam by beam, [beam][angle].
+     *
+     * @throws AntennaException
+     *             if weights are not a whole, non-zero number of beams or gain does not have one value for each beam
+     *             and angle.
+     */
+    public void calculateGain(double[] weightReal, double[] weightImaginary, double[] gain) {
+        int beams = beamCount(weightReal, weightImaginary);
+        if (gain.length != (long) beams * angles) {
+            throw new AntennaException("Destination needs to have one value for each beam and angle");
+        }
+        forEachAngleTile(beams,
+                (from, to) -> synthesize(from, to, beams, weightReal, weightImaginary, gain, null, null));
+    }
+
+    /**
+     * Calculate gain, |AF|^2, of every beam at every angle.
+     *
+     * @param codebook
+     *            {@link List} of beams, each a {@link List} of {@link WeightableElement} in the element order of this
+     *            evaluator. Only element weights are used.
+     *
+     * @return gain laid out beam by beam, [beam][angle].
+     *
+     * @throws AntennaException
+     *             if codebook is empty or a beam does not have one weight for each element.
+     */
+    public double[] calculateGain(List<? extends List<? extends WeightableElement>> codebook) {
+        double[][] weights = weights(codebook);
+        double[] gain = new double[codebook.size() * angles];
+        calculateGain(weights[0], weights[1], gain);
+        return gain;
+    }
+
+    /**
+     * Calculate beam with highest gain, |AF|^2, at every angle. The first beam wins ties.
+     *
+     * @param weightReal
+     *            real parts of beam weights laid out beam by beam, [beam][element].
+     * @param weightImaginary
+     *            imaginary parts of beam weights laid out beam by beam, [beam][element].
+     * @param bestBeam
+     *            destination of best beam index, one value for each angle.
+     * @param bestGain
+     *            destination of gain of best beam, one value for each angle.
+     *
+     * @throws AntennaException
+     *             if weights are not a whole, non-zero number of beams or destinations do not have one value for each
+     *             angle.
+     */
+    public void calculateBestBeam(double[] weightReal, double[] weightImaginary, int[] bestBeam, double[] bestGain) {
+        int beams = beamCount(weightReal, weightImaginary);
+        if (bestBeam.length != angles || bestGain.length != angles) {
+            throw new AntennaException("Destination needs to have one value for each angle");
+        }
+        forEachAngleTile(beams,
+                (from, to) -> synthesize(from, to, beams, weightReal, weightImaginary, null, bestBeam, bestGain));
+    }
+
+    /**
+     * Calculate beam with highest gain, |AF|^2, at every angle. The first beam wins ties.
+     *
+     * @param codebook
+     *            {@link List} of beams, each a {@link List} of {@link WeightableElement} in the element order of this
+     *            evaluator. Only element weights are used.
+     *
+     * @return best beam index, one value for each angle.
+     *
+     * @throws AntennaException
+     *             if codebook is empty or a beam does not have one weight for each element.
+     */
+    public int[] calculateBestBeam(List<? extends List<? extends WeightableElement>> codebook) {
+        double[][] weights = weights(codebook);
+        int[] bestBeam = new int[angles];
+        calculateBestBeam(weights[0], weights[1], bestBeam, new double[angles]);
+        return bestBeam;
+    }
+
+    /**
+     * Get angle grid beams are evaluated at.
+     *
+     * @return {@link AngleGrid}.
+     */
+    public AngleGrid getAngleGrid() {
+        return angleGrid;
+    }
+
+    /**
+     * Get number of elements.
+     *
+     * @return number of elements.
+     */
+    public int getElementCount() {
+        return elements;
+    }
+
+    private int beamCount(double[] weightReal, double[] weightImaginary) {
+        if (weightReal.length != weightImaginary.length || weightReal.length % elements != 0) {
+            throw new AntennaException("Weights need to have one value for each beam and element");
+        }
+        if (weightReal.length == 0) {
+            throw new AntennaException("Codebook needs to have at least one beam");
+        }
+        return weightReal.length / elements;
+    }
+
+    /**
+     * Run action for angle ranges made of whole angle tiles, so chunks of a parallel policy never split a tile.
+     */
+    private void forEachAngleTile(int beams, ExecutionPolicy.RangeAction action) {
+        int tiles = (angles + ANGLE_TILE - 1) / ANGLE_TILE;
+        int tileCost = (int) Math.min(Integer.MAX_VALUE, (long) ANGLE_TILE * beams * elements);
+        executionPolicy.forEachChunk(tiles, tileCost,
+                (from, to) -> action.run(from * ANGLE_TILE, Math.min(angles, to * ANGLE_TILE)));
+    }
+
+    private double[][] weights(List<? extends List<? extends WeightableElement>> codebook) {
+        double[] real = new double[codebook.size() * elements];
+        double[] imaginary = new double[codebook.size() * elements];
+        int offset = 0;
+        for (List<? extends WeightableElement> beam : codebook) {
+            if (beam.size() != elements) {
+                throw new AntennaException("Weights need to have one value for each beam and element");
+            }
+            for (WeightableElement element : beam) {
+                Complex weight = element.getElementWeight();
+                real[offset] = weight.getReal();
+                imaginary[offset++] = weight.getImaginary();
+            }
+        }
+        return new double[][] { real, imaginary };
+    }
+
+    /**
+     * Array factor of all beams for angle range [from, to), as tiled complex matrix product of phase and weight
+     * matrices. Writes gain of every beam, or best beam and its gain, of each angle.
+     */
+    private void synthesize(int from, int to, int beams, double[] weightReal, double[] weightImaginary, double[] gain,
+            int[] bestBeam, double[] bestGain) {
+        double[] sumReal = new double[ANGLE_TILE * BEAM_TILE];
+        double[] sumImaginary = new double[ANGLE_TILE * BEAM_TILE];
+        for (int a0 = from; a0 < to; a0 += ANGLE_TILE) {
+            int a1 = Math.min(to, a0 + ANGLE_TILE);
+            for (int b0 = 0; b0 < beams; b0 += BEAM_TILE) {
+                int b1 = Math.min(beams, b0 + BEAM_TILE);
+                Arrays.fill(sumReal, 0);
+                Arrays.fill(sumImaginary, 0);
+                for (int e0 = 0; e0 < elements; e0 += ELEMENT_TILE) {
+                    int e1 = Math.min(elements, e0 + ELEMENT_TILE);
+                    for (int a = a0; a < a1; a++) {
+                        int phaseRow = a * elements;
+                        int tileRow = (a - a0) * BEAM_TILE;
+                        for (int b = b0; b < b1; b++) {
+                            int weightRow = b * elements;
+                            double re = 0;
+                            double im = 0;
+                            for (int e = e0; e < e1; e++) {
+                                double pr = phaseReal[phaseRow + e];
+                                double pi = phaseImaginary[phaseRow + e];
+                                double wr = weightReal[weightRow + e];
+                                double wi = weightImaginary[weightRow + e];
+                                re += pr * wr - pi * wi;
+                                im += pr * wi + pi * wr;
+                            }
+                            sumReal[tileRow + b - b0] += re;
+                            sumImaginary[tileRow + b - b0] += im;
+                        }
+                    }
+                }
+                for (int a = a0; a < a1; a++) {
+                    int tileRow = (a - a0) * BEAM_TILE;
+                    for (int b = b0; b < b1; b++) {
+                        double re = sumReal[tileRow + b - b0];
+                        double im = sumImaginary[tileRow + b - b0];
+                        double value = re * re + im * im;
+                        if (gain != null) {
+                            gain[b * angles + a] = value;
+                        } else if (b == 0 || value > bestGain[a]) {
+                            bestBeam[a] = b;
+                            bestGain[a] = value;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link CodebookEvaluator}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private static final double DEFAULT_FREQUENCY = -1;
+
+        private List<Element> elements = new ArrayList<>();
+        private AngleGrid angleGrid = new ExplicitAngleGrid(new double[0], new double[0]);
+        private double frequency = DEFAULT_FREQUENCY;
+        private ExecutionPolicy executionPolicy = ExecutionPolicy.sequential();
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set element layout, replacing any previously added elements. Only element locations and design frequencies
+         * are used.
+         *
+         * @param elements
+         *            {@link Collection} of {@link Element} making up the array.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setElements(Collection<? extends Element> elements) {
+            this.elements = new ArrayList<>(elements);
+            return this;
+        }
+
+        /**
+         * Set angle grid to evaluate beams at.
+         *
+         * @param angleGrid
+         *            {@link AngleGrid} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setAngleGrid(AngleGrid angleGrid) {
+            this.angleGrid = angleGrid;
+            return this;
+        }
+
+        /**
+         * Set angles to evaluate beams at.
+         *
+         * @param thetaPhiList
+         *            {@link List} of {@link ThetaPhi} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setThetaPhiList(List<ThetaPhi> thetaPhiList) {
+            this.angleGrid = AngleGrid.fromList(thetaPhiList);
+            return this;
+        }
+
+        /**
+         * Set frequency to evaluate beams at.<br>
+         * Element locations are scaled by frequency / design frequency. If not set, each element is used at its design
+         * frequency.
+         *
+         * @param frequency
+         *            frequency to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFrequency(double frequency) {
+            this.frequency = frequency;
+            return this;
+        }
+
+        /**
+         * Set execution policy used when building the phase matrix and evaluating beams. Default is
+         * {@link ExecutionPolicy#sequential()}.
+         *
+         * @param executionPolicy
+         *            {@link ExecutionPolicy} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setExecutionPolicy(ExecutionPolicy executionPolicy) {
+            this.executionPolicy = executionPolicy;
+            return this;
+        }
+
+        /**
+         * Build new instance of CodebookEvaluator using this builder. The phase matrix is calculated here.
+         *
+         * @return new instance of {@link CodebookEvaluator}.
+         *
+         * @throws AntennaException
+         *             if no elements are set or the phase matrix is too large.
+         */
+        public CodebookEvaluator build() {
+            return new CodebookEvaluator(this);
+        }
+
+    }
+
+}
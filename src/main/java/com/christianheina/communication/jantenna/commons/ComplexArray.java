@@ -0,0 +1,341 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Complex array stored as separate contiguous real and imaginary parts.<br>
+ * Kernels run directly over the primitive arrays when all operands are {@link HeapComplexArray} or all are
+ * {@link FloatComplexArray}, in single precision arithmetic for the latter, and fall back to element accessors for
+ * other storage.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+abstract class ComplexArray {
+
+    static ComplexArray fromList(List<Complex> values) {
+        double[] real = new double[values.size()];
+        double[] imaginary = new double[values.size()];
+        int i = 0;
+        for (Complex value : values) {
+            real[i] = value.getReal();
+            imaginary[i] = value.getImaginary();
+            i++;
+        }
+        return new HeapComplexArray(real, imaginary);
+    }
+
+    abstract int size();
+
+    abstract double getReal(int index);
+
+    abstract double getImaginary(int index);
+
+    abstract void set(int index, double realValue, double imaginaryValue);
+
+    void copyTo(int srcPos, double[] realDest, double[] imaginaryDest, int destPos, int length) {
+        for (int i = 0; i < length; i++) {
+            realDest[destPos + i] = getReal(srcPos + i);
+            imaginaryDest[destPos + i] = getImaginary(srcPos + i);
+        }
+    }
+
+    /**
+     * Get number of bytes held by values.
+     */
+    long byteSize() {
+        return 2L * size() * Double.BYTES;
+    }
+
+    ComplexArray copy() {
+        double[] real = new double[size()];
+        double[] imaginary = new double[size()];
+        copyTo(0, real, imaginary, 0, size());
+        return new HeapComplexArray(real, imaginary);
+    }
+
+    /**
+     * Copy values to double precision heap arrays.
+     */
+    HeapComplexArray toDoublePrecision() {
+        double[] real = new double[size()];
+        double[] imaginary = new double[size()];
+        copyTo(0, real, imaginary, 0, size());
+        return new HeapComplexArray(real, imaginary);
+    }
+
+    /**
+     * Copy values to single precision heap arrays, rounding each value to the nearest float.
+     */
+    FloatComplexArray toSinglePrecision() {
+        float[] real = new float[size()];
+        float[] imaginary = new float[size()];
+        for (int i = 0; i < real.length; i++) {
+            real[i] = (float) getReal(i);
+            imaginary[i] = (float) getImaginary(i);
+        }
+        return new FloatComplexArray(real, imaginary);
+    }
+
+    List<Complex> asList() {
+        return new ComplexListView();
+    }
+
+    private static boolean onHeap(ComplexArray a, ComplexArray b, ComplexArray destination) {
+        return a instanceof HeapComplexArray && b instanceof HeapComplexArray
+                && destination instanceof HeapComplexArray;
+    }
+
+    private static boolean onFloatHeap(ComplexArray a, ComplexArray b, ComplexArray destination) {
+        return a instanceof FloatComplexArray && b instanceof FloatComplexArray
+                && destination instanceof FloatComplexArray;
+    }
+
+    /**
+     * Element by element product, destination = a * b, for indexes in range [from, to).
+     */
+    static void multiply(ComplexArray a, ComplexArray b, ComplexArray destination, int from, int to) {
+        if (onFloatHeap(a, b, destination)) {
+            float[] aRe = ((FloatComplexArray) a).real();
+            float[] aIm = ((FloatComplexArray) a).imaginary();
+            float[] bRe = ((FloatComplexArray) b).real();
+            float[] bIm = ((FloatComplexArray) b).imaginary();
+            float[] dRe = ((FloatComplexArray) destination).real();
+            float[] dIm = ((FloatComplexArray) destination).imaginary();
+            for (int i = from; i < to; i++) {
+                float re = aRe[i] * bRe[i] - aIm[i] * bIm[i];
+                float im = aRe[i] * bIm[i] + aIm[i] * bRe[i];
+                dRe[i] = re;
+                dIm[i] = im;
+            }
+            return;
+        }
+        if (!onHeap(a, b, destination)) {
+            for (int i = from; i < to; i++) {
+                double aRe = a.getReal(i);
+                double aIm = a.getImaginary(i);
+                double bRe = b.getReal(i);
+                double bIm = b.getImaginary(i);
+                destination.set(i, aRe * bRe - aIm * bIm, aRe * bIm + aIm * bRe);
+            }
+            return;
+        }
+        double[] aRe = ((HeapComplexArray) a).real();
+        double[] aIm = ((HeapComplexArray) a).imaginary();
+        double[] bRe = ((HeapComplexArray) b).real();
+        double[] bIm = ((HeapComplexArray) b).imaginary();
+        double[] dRe = ((HeapComplexArray) destination).real();
+        double[] dIm = ((HeapComplexArray) destination).imaginary();
+        for (int i = from; i < to; i++) {
+            double re = aRe[i] * bRe[i] - aIm[i] * bIm[i];
+            double im = aRe[i] * bIm[i] + aIm[i] * bRe[i];
+            dRe[i] = re;
+            dIm[i] = im;
+        }
+    }
+
+    /**
+     * Element by element product with conjugate, destination = a * conj(b), for indexes in range [from, to).
+     */
+    static void conjugateMultiply(ComplexArray a, ComplexArray b, ComplexArray destination, int from, int to) {
+        if (onFloatHeap(a, b, destination)) {
+            float[] aRe = ((FloatComplexArray) a).real();
+            float[] aIm = ((FloatComplexArray) a).imaginary();
+            float[] bRe = ((FloatComplexArray) b).real();
+            float[] bIm = ((FloatComplexArray) b).imaginary();
+            float[] dRe = ((FloatComplexArray) destination).real();
+            float[] dIm = ((FloatComplexArray) destination).imaginary();
+            for (int i = from; i < to; i++) {
+                float re = aRe[i] * bRe[i] + aIm[i] * bIm[i];
+                float im = aIm[i] * bRe[i] - aRe[i] * bIm[i];
+                dRe[i] = re;
+                dIm[i] = im;
+            }
+            return;
+        }
+        if (!onHeap(a, b, destination)) {
+            for (int i = from; i < to; i++) {
+                double aRe = a.getReal(i);
+                double aIm = a.getImaginary(i);
+                double bRe = b.getReal(i);
+                double bIm = b.getImaginary(i);
+                destination.set(i, aRe * bRe + aIm * bIm, aIm * bRe - aRe * bIm);
+            }
+            return;
+        }
+        double[] aRe = ((HeapComplexArray) a).real();
+        double[] aIm = ((HeapComplexArray) a).imaginary();
+        double[] bRe = ((HeapComplexArray) b).real();
+        double[] bIm = ((HeapComplexArray) b).imaginary();
+        double[] dRe = ((HeapComplexArray) destination).real();
+        double[] dIm = ((HeapComplexArray) destination).imaginary();
+        for (int i = from; i < to; i++) {
+            double re = aRe[i] * bRe[i] + aIm[i] * bIm[i];
+            double im = aIm[i] * bRe[i] - aRe[i] * bIm[i];
+            dRe[i] = re;
+            dIm[i] = im;
+        }
+    }
+
+    /**
+     * Element by element sum, destination = a + b, for indexes in range [from, to).
+     */
+    static void add(ComplexArray a, ComplexArray b, ComplexArray destination, int from, int to) {
+        if (onFloatHeap(a, b, destination)) {
+            float[] aRe = ((FloatComplexArray) a).real();
+            float[] aIm = ((FloatComplexArray) a).imaginary();
+            float[] bRe = ((FloatComplexArray) b).real();
+            float[] bIm = ((FloatComplexArray) b).imaginary();
+            float[] dRe = ((FloatComplexArray) destination).real();
+            float[] dIm = ((FloatComplexArray) destination).imaginary();
+            for (int i = from; i < to; i++) {
+                dRe[i] = aRe[i] + bRe[i];
+                dIm[i] = aIm[i] + bIm[i];
+            }
+            return;
+        }
+        if (!onHeap(a, b, destination)) {
+            for (int i = from; i < to; i++) {
+                destination.set(i, a.getReal(i) + b.getReal(i), a.getImaginary(i) + b.getImaginary(i));
+            }
+            return;
+        }
+        double[] aRe = ((HeapComplexArray) a).real();
+        double[] aIm = ((HeapComplexArray) a).imaginary();
+        double[] bRe = ((HeapComplexArray) b).real();
+        double[] bIm = ((HeapComplexArray) b).imaginary();
+        double[] dRe = ((HeapComplexArray) destination).real();
+        double[] dIm = ((HeapComplexArray) destination).imaginary();
+        for (int i = from; i < to; i++) {
+            dRe[i] = aRe[i] + bRe[i];
+            dIm[i] = aIm[i] + bIm[i];
+        }
+    }
+
+    /**
+     * Scale by complex factor, destination = a * factor, for indexes in range [from, to).
+     */
+    static void scale(ComplexArray a, double factorRe, double factorIm, ComplexArray destination, int from, int to) {
+        if (onFloatHeap(a, a, destination)) {
+            float[] aRe = ((FloatComplexArray) a).real();
+            float[] aIm = ((FloatComplexArray) a).imaginary();
+            float[] dRe = ((FloatComplexArray) destination).real();
+            float[] dIm = ((FloatComplexArray) destination).imaginary();
+            float fRe = (float) factorRe;
+            float fIm = (float) factorIm;
+            for (int i = from; i < to; i++) {
+                float re = aRe[i] * fRe - aIm[i] * fIm;
+                float im = aRe[i] * fIm + aIm[i] * fRe;
+                dRe[i] = re;
+                dIm[i] = im;
+            }
+            return;
+        }
+        if (!onHeap(a, a, destination)) {
+            for (int i = from; i < to; i++) {
+                double aRe = a.getReal(i);
+                double aIm = a.getImaginary(i);
+                destination.set(i, aRe * factorRe - aIm * factorIm, aRe * factorIm + aIm * factorRe);
+            }
+            return;
+        }
+        double[] aRe = ((HeapComplexArray) a).real();
+        double[] aIm = ((HeapComplexArray) a).imaginary();
+        double[] dRe = ((HeapComplexArray) destination).real();
+        double[] dIm = ((HeapComplexArray) destination).imaginary();
+        for (int i = from; i < to; i++) {
+            double re = aRe[i] * factorRe - aIm[i] * factorIm;
+            double im = aRe[i] * factorIm + aIm[i] * factorRe;
+            dRe[i] = re;
+            dIm[i] = im;
+        }
+    }
+
+    /**
+     * Fused multiply-accumulate, destination = destination + a * b, for indexes in range [from, to).
+     */
+    static void multiplyAccumulate(ComplexArray a, ComplexArray b, ComplexArray destination, int from, int to) {
+        if (onFloatHeap(a, b, destination)) {
+            float[] aRe = ((FloatComplexArray) a).real();
+            float[] aIm = ((FloatComplexArray) a).imaginary();
+            float[] bRe = ((FloatComplexArray) b).real();
+            float[] bIm = ((FloatComplexArray) b).imaginary();
+            float[] dRe = ((FloatComplexArray) destination).real();
+            float[] dIm = ((FloatComplexArray) destination).imaginary();
+            for (int i = from; i < to; i++) {
+                float re = aRe[i] * bRe[i] - aIm[i] * bIm[i];
+                float im = aRe[i] * bIm[i] + aIm[i] * bRe[i];
+                dRe[i] += re;
+                dIm[i] += im;
+            }
+            return;
+        }
+        if (!onHeap(a, b, destination)) {
+            for (int i = from; i < to; i++) {
+                double aRe = a.getReal(i);
+                double aIm = a.getImaginary(i);
+                double bRe = b.getReal(i);
+                double bIm = b.getImaginary(i);
+                destination.set(i, destination.getReal(i) + aRe * bRe - aIm * bIm,
+                        destination.getImaginary(i) + aRe * bIm + aIm * bRe);
+            }
+            return;
+        }
+        double[] aRe = ((HeapComplexArray) a).real();
+        double[] aIm = ((HeapComplexArray) a).imaginary();
+        double[] bRe = ((HeapComplexArray) b).real();
+        double[] bIm = ((HeapComplexArray) b).imaginary();
+        double[] dRe = ((HeapComplexArray) destination).real();
+        double[] dIm = ((HeapComplexArray) destination).imaginary();
+        for (int i = from; i < to; i++) {
+            double re = aRe[i] * bRe[i] - aIm[i] * bIm[i];
+            double im = aRe[i] * bIm[i] + aIm[i] * bRe[i];
+            dRe[i] += re;
+            dIm[i] += im;
+        }
+    }
+
+    /**
+     * Lazy {@link List} view creating {@link Complex} instances on access. Writes go straight to the backing storage.
+     */
+    private final class ComplexListView extends AbstractList<Complex> implements RandomAccess {
+
+        @Override
+        public Complex get(int index) {
+            return new Complex(getReal(index), getImaginary(index));
+        }
+
+        @Override
+        public Complex set(int index, Complex element) {
+            Complex previous = get(index);
+            ComplexArray.this.set(index, element.getReal(), element.getImaginary());
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return ComplexArray.this.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * {@link ComplexArray} backed by direct buffers outside the garbage collected heap, owned by an
+ * {@link OffHeapFieldStore}.<br>
+ * Buffers are released when the store is closed or the field is released, after which access fails in the releasing
+ * thread and in threads synchronized with it. Released buffers are freed once they are collected, or on request right
+ * away through the cleaner of the runtime where it can be reached, sun.misc.Unsafe on Java 9 and later and the buffer
+ * cleaner on Java 8. Buffer fields are not volatile, so a thread racing with release may still read a buffer that is
+ * freed right away, which can crash the JVM.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class DirectComplexArray extends ComplexArray {
+
+    private static final Cleaner CLEANER = cleaner();
+
+    private final int size;
+    private ByteBuffer realBytes;
+    private ByteBuffer imaginaryBytes;
+    private DoubleBuffer real;
+    private DoubleBuffer imaginary;
+
+    DirectComplexArray(int size) {
+        if ((long) size * Double.BYTES > Integer.MAX_VALUE) {
+            throw new AntennaException("Too many values for one direct buffer: " + size);
+        }
+        this.size = size;
+        this.realBytes = ByteBuffer.allocateDirect(size * Double.BYTES).order(ByteOrder.nativeOrder());
+        this.imaginaryBytes = ByteBuffer.allocateDirect(size * Double.BYTES).order(ByteOrder.nativeOrder());
+        this.real = realBytes.asDoubleBuffer();
+        this.imaginary = imaginaryBytes.asDoubleBuffer();
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    double getReal(int index) {
+        return open(real).get(index);
+    }
+
+    @Override
+    double getImaginary(int index) {
+        return open(imaginary).get(index);
+    }
+
+    @Override
+    void set(int index, double realValue, double imaginaryValue) {
+        open(real).put(index, realValue);
+        open(imaginary).put(index, imaginaryValue);
+    }
+
+    @Override
+    void copyTo(int srcPos, double[] realDest, double[] imaginaryDest, int destPos, int length) {
+        DoubleBuffer realView = open(real).duplicate();
+        realView.position(srcPos);
+        realView.get(realDest, destPos, length);
+        DoubleBuffer imaginaryView = open(imaginary).duplicate();
+        imaginaryView.position(srcPos);
+        imaginaryView.get(imaginaryDest, destPos, length);
+    }
+
+    /**
+     * Copy values of other array of the same size into this array.
+     */
+    void copyFrom(ComplexArray source) {
+        double[] realChunk = new double[Math.min(size, ExecutionPolicy.DEFAULT_CHUNK_SIZE)];
+        double[] imaginaryChunk = new double[realChunk.length];
+        DoubleBuffer realView = open(real).duplicate();
+        DoubleBuffer imaginaryView = open(imaginary).duplicate();
+        for (int from = 0; from < size; from += realChunk.length) {
+            int length = Math.min(realChunk.length, size - from);
+            source.copyTo(from, realChunk, imaginaryChunk, 0, length);
+            realView.put(realChunk, 0, length);
+            imaginaryView.put(imaginaryChunk, 0, length);
+        }
+    }
+
+    @Override
+    long byteSize() {
+        return 2L * size * Double.BYTES;
+    }
+
+    /**
+     * Drop buffers. Releasing a released array has no effect.
+     *
+     * @param free
+     *            true to free buffers right away, false to leave them to the garbage collector.
+     */
+    void release(boolean free) {
+        ByteBuffer[] buffers = { realBytes, imaginaryBytes };
+        real = null;
+        imaginary = null;
+        realBytes = null;
+        imaginaryBytes = null;
+        for (ByteBuffer buffer : buffers) {
+            if (free && buffer != null && CLEANER != null) {
+                CLEANER.clean(buffer);
+            }
+        }
+    }
+
+    private static DoubleBuffer open(DoubleBuffer buffer) {
+        if (buffer == null) {
+            throw new AntennaException("Off-heap field store is closed");
+        }
+        return buffer;
+    }
+
+    /**
+     * Find cleaner of the runtime.
+     *
+     * @return cleaner or null if direct buffers can only be freed by the garbage collector.
+     */
+    private static Cleaner cleaner() {
+        try {
+            /* Java 9 and later */
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            /* Not available, try Java 8 */
+        }
+        try {
+            Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object cleaner = invoke(cleanerMethod, buffer);
+                if (cleaner != null) {
+                    invoke(cleanMethod, cleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Invoke method, returning null if it fails so the buffer is left to the garbage collector.
+     */
+    private static Object invoke(Method method, Object target, Object... arguments) {
+        try {
+            return method.invoke(target, arguments);
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Frees memory of a direct buffer.
+     */
+    @FunctionalInterface
+    private interface Cleaner {
+
+        void clean(ByteBuffer buffer);
+
+    }
+
+}
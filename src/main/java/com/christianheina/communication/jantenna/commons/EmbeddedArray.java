@@ -0,0 +1,236 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Array synthesis from embedded element patterns.<br>
+ * Calculates the field of a set of {@link EmbeddedElement}
+ *
+ * <pre>
+ * E(theta, phi) = sum(w * P(theta, phi) * exp(j * 2 * pi * (frequency / designFrequency) * (r.u(theta, phi))))
+ * </pre>
+ *
+ * for every {@link ElectricField} of the element patterns P, where frequency is the frequency of the patterns. Elements
+ * with the same pattern, either the same instance or identical values, are grouped so each group is reduced to one
+ * {@link ArrayFactor} times the shared pattern. The result is accumulated directly, block of angles by block of angles,
+ * without intermediate fields.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class EmbeddedArray {
+
+    private final List<Field> patterns = new ArrayList<>();
+    private final List<ArrayFactor> arrayFactors = new ArrayList<>();
+    private final int elementCount;
+    private final ExecutionPolicy executionPolicy;
+
+    private EmbeddedArray(Builder builder) {
+        if (builder.elements.isEmpty()) {
+            throw new AntennaException("At least one element is required");
+        }
+        List<List<WeightableElement>> groups = new ArrayList<>();
+        Field first = builder.elements.get(0).getElementPattern();
+        for (EmbeddedElement element : builder.elements) {
+            Field pattern = element.getElementPattern();
+            if (pattern == null) {
+                throw new AntennaException("Element pattern is required for every element");
+            }
+            first.checkCompatible(pattern);
+            if (Double.compare(pattern.getFrequency(), first.getFrequency()) != 0) {
+                throw new AntennaException("Element patterns need to have the same frequency");
+            }
+            int group = groupOf(pattern);
+            if (group < 0) {
+                group = patterns.size();
+                patterns.add(pattern);
+                groups.add(new ArrayList<>());
+            }
+            groups.get(group).add(element);
+        }
+        for (List<WeightableElement> group : groups) {
+            /* Array factors are only calculated into arrays, never stored as a field */
+            arrayFactors.add(ArrayFactor.newBuilder().setElements(group).setElectricField(ElectricField.THETA)
+                    .setFrequency(first.getFrequency()).setFftOversampling(builder.fftOversampling).build());
+        }
+        this.elementCount = builder.elements.size();
+        this.executionPolicy = builder.executionPolicy;
+    }
+
+    private int groupOf(Field pattern) {
+        for (int g = 0; g < patterns.size(); g++) {
+            if (patterns.get(g) == pattern) {
+                return g;
+            }
+        }
+        for (int g = 0; g < patterns.size(); g++) {
+            if (sameValues(patterns.get(g), pattern)) {
+                return g;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameValues(Field a, Field b) {
+        for (ElectricField electricField : a.getAvailableElectricFields()) {
+            ComplexArray aData = a.getElectricFieldData(electricField);
+            ComplexArray bData = b.getElectricFieldData(electricField);
+            for (int i = 0; i < aData.size(); i++) {
+                if (Double.compare(aData.getReal(i), bData.getReal(i)) != 0
+                        || Double.compare(aData.getImaginary(i), bData.getImaginary(i)) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Calculate array field.
+     *
+     * @return new instance with same {@link FieldType}, frequency, angles ({@link ThetaPhi}) and electric fields as the
+     *         element patterns.
+     */
+    public Field calculate() {
+        Field first = patterns.get(0);
+        Field result = first.zeroedCopy();
+        AngleGrid angleGrid = first.getAngleGrid();
+        int size = angleGrid.size();
+        ArrayFactor.DirectionCosines directionCosines = new ArrayFactor.DirectionCosines(angleGrid);
+        /* Shared scratch, chunks only touch their own index range */
+        double[] real = new double[size];
+        double[] imaginary = new double[size];
+        ComplexArray arrayFactor = new HeapComplexArray(real, imaginary);
+        List<ElectricField> electricFields = new ArrayList<>(first.getAvailableElectricFields());
+        executionPolicy.forEachChunk(size, elementCount + electricFields.size() * patterns.size(), (from, to) -> {
+            for (int g = 0; g < patterns.size(); g++) {
+                arrayFactors.get(g).calculate(directionCosines, from, to, real, imaginary);
+                for (ElectricField electricField : electricFields) {
+                    ComplexArray.multiplyAccumulate(patterns.get(g).getElectricFieldData(electricField), arrayFactor,
+                            result.getElectricFieldData(electricField), from, to);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Get number of distinct element patterns after grouping identical patterns.
+     *
+     * @return number of distinct patterns.
+     */
+    public int getPatternCount() {
+        return patterns.size();
+    }
+
+    /**
+     * Builder for {@link EmbeddedArray}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private List<EmbeddedElement> elements = new ArrayList<>();
+        private ExecutionPolicy executionPolicy = ExecutionPolicy.sequential();
+        private int fftOversampling;
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set elements, replacing any previously added elements.
+         *
+         * @param elements
+         *            {@link Collection} of {@link EmbeddedElement} making up the array.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setElements(Collection<? extends EmbeddedElement> elements) {
+            this.elements = new ArrayList<>(elements);
+            return this;
+        }
+
+        /**
+         * Add element.
+         *
+         * @param element
+         *            {@link EmbeddedElement} to add.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder addElement(EmbeddedElement element) {
+            elements.add(element);
+            return this;
+        }
+
+        /**
+         * Set execution policy used when calculating array field. Default is {@link ExecutionPolicy#sequential()}.
+         *
+         * @param executionPolicy
+         *            {@link ExecutionPolicy} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setExecutionPolicy(ExecutionPolicy executionPolicy) {
+            this.executionPolicy = executionPolicy;
+            return this;
+        }
+
+        /**
+         * Set oversampling of FFT used for groups of elements on an equally spaced lattice, see
+         * {@link ArrayFactor.Builder#setFftOversampling(int)}. Default is 0, always summing directly.
+         *
+         * @param fftOversampling
+         *            oversampling to set, 0 to disable.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFftOversampling(int fftOversampling) {
+            this.fftOversampling = fftOversampling;
+            return this;
+        }
+
+        /**
+         * Build new instance of EmbeddedArray using this builder.
+         *
+         * @return new instance of {@link EmbeddedArray}.
+         *
+         * @throws AntennaException
+         *             if no elements have been added, an element has no pattern or patterns do not share
+         *             {@link FieldType}, frequency, angles and electric fields or FFT oversampling is negative.
+         */
+        public EmbeddedArray build() {
+            return new EmbeddedArray(this);
+        }
+
+    }
+
+}
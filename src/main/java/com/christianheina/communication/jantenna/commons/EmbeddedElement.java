@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+/**
+ * Embedded Element Data Model<br>
+ * Weightable element radiating with its own embedded element pattern. Elements may share the same pattern instance.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public class EmbeddedElement extends WeightableElement {
+
+    private Field elementPattern;
+
+    /**
+     * Constructor
+     *
+     * @param elementLocation
+     *            the location of element in wavelengths.
+     * @param designFrequency
+     *            the designed frequency of the element. This determines the distance between elements in meters.
+     * @param elementWeight
+     *            complex weight of element.
+     * @param elementPattern
+     *            embedded pattern of element with phase referenced to element location.
+     */
+    public EmbeddedElement(Vector3D elementLocation, double designFrequency, Complex elementWeight,
+            Field elementPattern) {
+        super(elementLocation, designFrequency, elementWeight);
+        this.elementPattern = elementPattern;
+    }
+
+    /**
+     * Get embedded element pattern.
+     *
+     * @return element pattern.
+     */
+    public Field getElementPattern() {
+        return elementPattern;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Execution policy deciding how angle ranges of field computations are processed.<br>
+ * The sequential policy processes all angles in the calling thread. Parallel policies split angle ranges into chunks
+ * processed by a {@link ForkJoinPool}. Every angle is computed by the same code in either case, so results are
+ * identical regardless of policy.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class ExecutionPolicy {
+
+    /**
+     * Default number of values processed per chunk, sized so that operands of a chunk fit in core local cache.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final ExecutionPolicy SEQUENTIAL = new ExecutionPolicy(null, DEFAULT_CHUNK_SIZE);
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private ExecutionPolicy(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new AntennaException("Chunk size needs to be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get sequential execution policy.
+     *
+     * @return policy processing all angles in the calling thread.
+     */
+    public static ExecutionPolicy sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * Create parallel execution policy using the common pool, see {@link ForkJoinPool#commonPool()}.
+     *
+     * @return new policy processing chunks of {@value #DEFAULT_CHUNK_SIZE} values in parallel.
+     */
+    public static ExecutionPolicy parallel() {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create parallel execution policy.
+     *
+     * @param pool
+     *            {@link ForkJoinPool} to process chunks in.
+     *
+     * @return new policy processing chunks of {@value #DEFAULT_CHUNK_SIZE} values in parallel.
+     */
+    public static ExecutionPolicy parallel(ForkJoinPool pool) {
+        return parallel(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create parallel execution policy.
+     *
+     * @param pool
+     *            {@link ForkJoinPool} to process chunks in.
+     * @param chunkSize
+     *            number of values processed per chunk.
+     *
+     * @return new policy processing chunks in parallel.
+     *
+     * @throws AntennaException
+     *             if chunk size is not positive.
+     */
+    public static ExecutionPolicy parallel(ForkJoinPool pool, int chunkSize) {
+        if (pool == null) {
+            throw new AntennaException("Pool can not be null");
+        }
+        return new ExecutionPolicy(pool, chunkSize);
+    }
+
+    /**
+     * Check if policy processes chunks in parallel.
+     *
+     * @return true if parallel, false if sequential.
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Get number of values processed per chunk.
+     *
+     * @return chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Run action for all indices in [0, size) split into chunks of at most chunk size values.
+     */
+    void forEachChunk(int size, RangeAction action) {
+        forEachChunk(size, 1, action);
+    }
+
+    /**
+     * Run action for all indices in [0, size) where processing an index costs about {@code cost} values, so chunks are
+     * made correspondingly shorter.
+     */
+    void forEachChunk(int size, int cost, RangeAction action) {
+        int chunkLength = Math.max(1, chunkSize / Math.max(1, cost));
+        if (pool == null || size <= chunkLength) {
+            action.run(0, size);
+        } else {
+            pool.invoke(new ChunkTask(action, 0, size, chunkLength));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isParallel() ? "parallel(" + pool.getParallelism() + ", " + chunkSize + ")" : "sequential";
+    }
+
+    /**
+     * Action processing an index range [from, to).
+     */
+    @FunctionalInterface
+    interface RangeAction {
+
+        void run(int from, int to);
+
+    }
+
+    /**
+     * Task splitting an index range in halves until it is no longer than chunk length.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeAction action;
+        private final int from;
+        private final int to;
+        private final int chunkLength;
+
+        private ChunkTask(RangeAction action, int from, int to, int chunkLength) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.chunkLength = chunkLength;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkLength) {
+                action.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(action, from, middle, chunkLength), new ChunkTask(action, middle, to, chunkLength));
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.Arrays;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Angle grid holding explicit theta and phi arrays in radians, used for irregular samplings.<br>
+ * Angle lookups use a hash index of all angles which is built on first lookup.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class ExplicitAngleGrid extends AngleGrid {
+
+    private static final int LINEAR_SEARCH_LIMIT = 16;
+
+    private final double[] theta;
+    private final double[] phi;
+    private int hash;
+    private volatile int[] index;
+
+    ExplicitAngleGrid(double[] theta, double[] phi) {
+        if (theta.length != phi.length) {
+            throw new AntennaException("Theta and phi angles need to have the same length");
+        }
+        this.theta = theta;
+        this.phi = phi;
+    }
+
+    @Override
+    public int size() {
+        return theta.length;
+    }
+
+    @Override
+    long byteSize() {
+        return 2L * theta.length * Double.BYTES;
+    }
+
+    @Override
+    public double getTheta(int index) {
+        return theta[index];
+    }
+
+    @Override
+    public double getPhi(int index) {
+        return phi[index];
+    }
+
+    @Override
+    public int indexOf(double thetaValue, double phiValue) {
+        if (theta.length < LINEAR_SEARCH_LIMIT) {
+            for (int i = 0; i < theta.length; i++) {
+                if (matches(i, thetaValue, phiValue)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int[] table = index();
+        int mask = table.length - 1;
+        for (int slot = hash(thetaValue, phiValue) & mask;; slot = (slot + 1) & mask) {
+            int i = table[slot];
+            if (i < 0 || matches(i, thetaValue, phiValue)) {
+                return i;
+            }
+        }
+    }
+
+    private boolean matches(int i, double thetaValue, double phiValue) {
+        return Double.compare(theta[i], thetaValue) == 0 && Double.compare(phi[i], phiValue) == 0;
+    }
+
+    /**
+     * Get open addressing table of angle indices, -1 marking free slots. Only the first of duplicate angles is added,
+     * giving the same result as a linear search.
+     */
+    private int[] index() {
+        int[] table = index;
+        if (table == null) {
+            synchronized (this) {
+                table = index;
+                if (table == null) {
+                    table = new int[Integer.highestOneBit(Math.max(1, theta.length)) << 2];
+                    Arrays.fill(table, -1);
+                    int mask = table.length - 1;
+                    for (int i = 0; i < theta.length; i++) {
+                        int slot = hash(theta[i], phi[i]) & mask;
+                        while (table[slot] >= 0 && !matches(table[slot], theta[i], phi[i])) {
+                            slot = (slot + 1) & mask;
+                        }
+                        if (table[slot] < 0) {
+                            table[slot] = i;
+                        }
+                    }
+                    index = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static int hash(double thetaValue, double phiValue) {
+        long bits = Double.doubleToLongBits(thetaValue) * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(phiValue);
+        bits *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ExplicitAngleGrid) {
+            ExplicitAngleGrid other = (ExplicitAngleGrid) o;
+            return Arrays.equals(theta, other.theta) && Arrays.equals(phi, other.phi);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = super.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * In place iterative radix-2 fast Fourier transform of split real and imaginary arrays.<br>
+ * Transforms are unnormalized, X(q) = sum(x(n) * exp(sign * j * 2 * pi * q * n / N)).
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class Fft {
+
+    private Fft() {
+        /* Hidden Constructor */ }
+
+    /**
+     * Get smallest power of two not less than value.
+     */
+    static int powerOfTwo(int value) {
+        if (value > 1 << 30) {
+            throw new AntennaException("Transform length too large: " + value);
+        }
+        int length = 1;
+        while (length < value) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * Transform count sequences of length values, sequence s starting at offset + s * sequenceStride and holding every
+     * stride:th value.
+     */
+    static void transform(double[] real, double[] imaginary, int offset, int length, int stride, int count,
+            int sequenceStride, int sign) {
+        if (Integer.bitCount(length) != 1) {
+            throw new AntennaException("Transform length needs to be a power of two: " + length);
+        }
+        double[] cos = new double[length / 2];
+        double[] sin = new double[length / 2];
+        for (int i = 0; i < cos.length; i++) {
+            double angle = sign * 2 * Math.PI * i / length;
+            cos[i] = Math.cos(angle);
+            sin[i] = Math.sin(angle);
+        }
+        for (int s = 0; s < count; s++) {
+            transform(real, imaginary, offset + s * sequenceStride, length, stride, cos, sin);
+        }
+    }
+
+    /**
+     * Transform rows by columns values laid out row by row along both directions.
+     */
+    static void transform2d(double[] real, double[] imaginary, int rows, int columns, int sign) {
+        transform(real, imaginary, 0, columns, 1, rows, columns, sign);
+        transform(real, imaginary, 0, rows, columns, columns, 1, sign);
+    }
+
+    private static void transform(double[] real, double[] imaginary, int offset, int length, int stride, double[] cos,
+            double[] sin) {
+        /* Bit reversal permutation */
+        for (int i = 1, j = 0; i < length; i++) {
+            int bit = length >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                swap(real, offset + i * stride, offset + j * stride);
+                swap(imaginary, offset + i * stride, offset + j * stride);
+            }
+        }
+        for (int size = 2; size <= length; size <<= 1) {
+            int half = size >> 1;
+            int twiddleStep = length / size;
+            for (int start = 0; start < length; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * twiddleStep];
+                    double wi = sin[k * twiddleStep];
+                    int a = offset + (start + k) * stride;
+                    int b = a + half * stride;
+                    double br = real[b] * wr - imaginary[b] * wi;
+                    double bi = real[b] * wi + imaginary[b] * wr;
+                    real[b] = real[a] - br;
+                    imaginary[b] = imaginary[a] - bi;
+                    real[a] += br;
+                    imaginary[a] += bi;
+                }
+            }
+        }
+    }
+
+    private static void swap(double[] values, int a, int b) {
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+}
@@ -16,13 +16,20 @@
 
 package com.christianheina.communication.jantenna.commons;
 
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,22 +39,30 @@ import org.apache.commons.math3.complex.Complex;
 import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
- * Field Data Model
+ * Field Data Model<br>
+ * Electric field values are stored as contiguous primitive arrays of real and imaginary parts for each
+ * {@link ElectricField}. {@link Complex} instances are only created when accessed through the {@link List} view
+ * returned by {@link #getElectricField(ElectricField) getElectricField}. Values can optionally be stored in single
+ * precision, see {@link #toSinglePrecision()}.
  * 
  * @author Christian Heina (developer@christianheina.com)
  */
+@JsonAdapter(FieldJsonAdapter.class)
 public class Field {
 
     private FieldType fieldType = FieldType.FARFIELD;
-    private List<ThetaPhi> thetaPhiList;
-    private Map<ElectricField, List<Complex>> electricFieldMap;
+    private AngleGrid angleGrid;
+    private Map<ElectricField, ComplexArray> electricFieldMap;
     private double frequency;
 
     private Field(Builder builder) {
         this.fieldType = builder.fieldType;
-        this.thetaPhiList = builder.thetaPhiList;
+        this.angleGrid = builder.angleGrid;
         this.electricFieldMap = builder.electricFieldMap;
         this.frequency = builder.frequency;
     }
@@ -78,31 +93,444 @@ public class Field {
      *             {@link FieldType} is not the same.
      */
     public Field multiply(Field toMultiplyWith) {
-        if (!getThetaPhiList().equals(toMultiplyWith.getThetaPhiList())) {
+        checkCompatible(toMultiplyWith);
+        return multiply(toMultiplyWith, newResultField(toMultiplyWith));
+    }
+
+    /**
+     * Multiply field by other field writing the result into destination field.<br>
+     * Multiplication is done for each {@link ElectricField}, angle ({@link ThetaPhi}) by angle, without allocating any
+     * intermediate data. Destination may be this field or the field to multiply with.
+     * 
+     * @param toMultiplyWith
+     *            field to multiply with.
+     * @param destination
+     *            field receiving multiplied results. {@link FieldType} and frequency of destination are left as is.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field multiply(Field toMultiplyWith, Field destination) {
+        return multiply(toMultiplyWith, destination, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Multiply field by other field writing the result into destination field.<br>
+     * Multiplication is done for each {@link ElectricField}, angle ({@link ThetaPhi}) by angle, without allocating any
+     * intermediate data. Destination may be this field or the field to multiply with.
+     * 
+     * @param toMultiplyWith
+     *            field to multiply with.
+     * @param destination
+     *            field receiving multiplied results. {@link FieldType} and frequency of destination are left as is.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field multiply(Field toMultiplyWith, Field destination, ExecutionPolicy policy) {
+        checkCompatible(toMultiplyWith);
+        checkCompatible(destination);
+        apply(this, toMultiplyWith, destination, policy, ComplexArray::multiply);
+        return destination;
+    }
+
+    /**
+     * Multiply field by complex conjugate of other field.<br>
+     * Multiplication is done for each {@link ElectricField}, angle ({@link ThetaPhi}) by angle.
+     * 
+     * @param toMultiplyWith
+     *            field which complex conjugate is multiplied with.
+     * 
+     * @return new instance containing multiplied results, see {@link #multiply(Field)}.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same or
+     *             {@link FieldType} is not the same.
+     */
+    public Field conjugateMultiply(Field toMultiplyWith) {
+        checkCompatible(toMultiplyWith);
+        return conjugateMultiply(toMultiplyWith, newResultField(toMultiplyWith));
+    }
+
+    /**
+     * Multiply field by complex conjugate of other field writing the result into destination field.<br>
+     * Destination may be this field or the field to multiply with.
+     * 
+     * @param toMultiplyWith
+     *            field which complex conjugate is multiplied with.
+     * @param destination
+     *            field receiving multiplied results. {@link FieldType} and frequency of destination are left as is.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field conjugateMultiply(Field toMultiplyWith, Field destination) {
+        return conjugateMultiply(toMultiplyWith, destination, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Multiply field by complex conjugate of other field writing the result into destination field.<br>
+     * Destination may be this field or the field to multiply with.
+     * 
+     * @param toMultiplyWith
+     *            field which complex conjugate is multiplied with.
+     * @param destination
+     *            field receiving multiplied results. {@link FieldType} and frequency of destination are left as is.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field conjugateMultiply(Field toMultiplyWith, Field destination, ExecutionPolicy policy) {
+        checkCompatible(toMultiplyWith);
+        checkCompatible(destination);
+        apply(this, toMultiplyWith, destination, policy, ComplexArray::conjugateMultiply);
+        return destination;
+    }
+
+    /**
+     * Add other field to this field.<br>
+     * Addition is done for each {@link ElectricField}, angle ({@link ThetaPhi}) by angle.
+     * 
+     * @param toAdd
+     *            field to add.
+     * 
+     * @return new instance containing added results, see {@link #multiply(Field)}.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same or
+     *             {@link FieldType} is not the same.
+     */
+    public Field add(Field toAdd) {
+        checkCompatible(toAdd);
+        return add(toAdd, newResultField(toAdd));
+    }
+
+    /**
+     * Add other field to this field writing the result into destination field.<br>
+     * Destination may be this field or the field to add.
+     * 
+     * @param toAdd
+     *            field to add.
+     * @param destination
+     *            field receiving added results. {@link FieldType} and frequency of destination are left as is.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field add(Field toAdd, Field destination) {
+        return add(toAdd, destination, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Add other field to this field writing the result into destination field.<br>
+     * Destination may be this field or the field to add.
+     * 
+     * @param toAdd
+     *            field to add.
+     * @param destination
+     *            field receiving added results. {@link FieldType} and frequency of destination are left as is.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field add(Field toAdd, Field destination, ExecutionPolicy policy) {
+        checkCompatible(toAdd);
+        checkCompatible(destination);
+        apply(this, toAdd, destination, policy, ComplexArray::add);
+        return destination;
+    }
+
+    /**
+     * Scale field by complex factor.
+     * 
+     * @param factor
+     *            factor to scale all electric field values with.
+     * 
+     * @return new instance containing scaled results with same {@link FieldType}, frequency, electric fields
+     *         ({@link ElectricField}) and angles ({@link ThetaPhi}).
+     */
+    public Field scale(Complex factor) {
+        return scale(factor, zeroedCopy());
+    }
+
+    /**
+     * Scale field by complex factor writing the result into destination field.<br>
+     * Destination may be this field.
+     * 
+     * @param factor
+     *            factor to scale all electric field values with.
+     * @param destination
+     *            field receiving scaled results. {@link FieldType} and frequency of destination are left as is.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field scale(Complex factor, Field destination) {
+        return scale(factor, destination, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Scale field by complex factor writing the result into destination field.<br>
+     * Destination may be this field.
+     * 
+     * @param factor
+     *            factor to scale all electric field values with.
+     * @param destination
+     *            field receiving scaled results. {@link FieldType} and frequency of destination are left as is.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     * 
+     * @return destination field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field scale(Complex factor, Field destination, ExecutionPolicy policy) {
+        checkCompatible(destination);
+        double factorRe = factor.getReal();
+        double factorIm = factor.getImaginary();
+        apply(this, this, destination, policy,
+                (a, b, result, from, to) -> ComplexArray.scale(a, factorRe, factorIm, result, from, to));
+        return destination;
+    }
+
+    /**
+     * Multiply two fields and add the product to this field in place, this = this + a * b.<br>
+     * Multiplication and addition is done in a single pass for each {@link ElectricField}, angle ({@link ThetaPhi}) by
+     * angle.
+     * 
+     * @param a
+     *            first factor.
+     * @param b
+     *            second factor.
+     * 
+     * @return this field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field multiplyAccumulate(Field a, Field b) {
+        return multiplyAccumulate(a, b, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Multiply two fields and add the product to this field in place, this = this + a * b.<br>
+     * Multiplication and addition is done in a single pass for each {@link ElectricField}, angle ({@link ThetaPhi}) by
+     * angle.
+     * 
+     * @param a
+     *            first factor.
+     * @param b
+     *            second factor.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     * 
+     * @return this field.
+     * 
+     * @throws AntennaException
+     *             {@link ThetaPhi} angles are not the same, available {@link ElectricField} are not the same,
+     *             {@link FieldType} is not the same or number of values are not the same.
+     */
+    public Field multiplyAccumulate(Field a, Field b, ExecutionPolicy policy) {
+        checkCompatible(a);
+        checkCompatible(b);
+        apply(a, b, this, policy, ComplexArray::multiplyAccumulate);
+        return this;
+    }
+
+    /**
+     * Convert field to other polarization bases.<br>
+     * Target electric fields are derived from THETA and PHI, LUDWIG3H and LUDWIG3V or PLUS45 and MINUS45, whichever is
+     * available first, in one pass over all angles:
+     * 
+     * <pre>
+     * LUDWIG3H      = THETA * cos(phi) - PHI * sin(phi)
+     * LUDWIG3V      = THETA * sin(phi) + PHI * cos(phi)
+     * PLUS45        = (LUDWIG3H + LUDWIG3V) / sqrt(2)
+     * MINUS45       = (LUDWIG3H - LUDWIG3V) / sqrt(2)
+     * RELATIVE_GAIN = sqrt(|THETA|^2 + |PHI|^2)
+     * </pre>
+     * 
+     * @param targets
+     *            {@link ElectricField} values to create.
+     * 
+     * @return new instance with same {@link FieldType}, frequency and angles ({@link ThetaPhi}) holding target electric
+     *         fields. Targets which are already available are copied.
+     * 
+     * @throws AntennaException
+     *             if a target needs to be computed and no complete polarization basis is available.
+     */
+    public Field convertPolarization(Set<ElectricField> targets) {
+        return convertPolarization(targets, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Convert field to other polarization bases, see {@link #convertPolarization(Set)}.
+     * 
+     * @param targets
+     *            {@link ElectricField} values to create.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     * 
+     * @return new instance with same {@link FieldType}, frequency and angles ({@link ThetaPhi}) holding target electric
+     *         fields. Targets which are already available are copied.
+     * 
+     * @throws AntennaException
+     *             if a target needs to be computed and no complete polarization basis is available.
+     */
+    public Field convertPolarization(Set<ElectricField> targets, ExecutionPolicy policy) {
+        return PolarizationConverter.convert(this, targets, policy);
+    }
+
+    /**
+     * Create deep copy of this field.
+     * 
+     * @return new instance with same {@link FieldType}, frequency, angles ({@link ThetaPhi}) and copied electric field
+     *         values.
+     */
+    public Field copy() {
+        Builder builder = newBuilder().setFieldType(getFieldType()).setAngleGrid(getAngleGrid())
+                .setFreqency(getFrequency());
+        for (Map.Entry<ElectricField, ComplexArray> entry : electricFieldMap.entrySet()) {
+            builder.addElectricFieldData(entry.getKey(), entry.getValue().copy());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create single precision copy of this field.<br>
+     * Electric field values are rounded to float and stored in half the memory. Operations on single precision fields
+     * calculate in single precision and create single precision results.
+     * 
+     * @return new instance with same {@link FieldType}, frequency, angles ({@link ThetaPhi}) and electric field values
+     *         rounded to single precision.
+     */
+    public Field toSinglePrecision() {
+        Builder builder = newBuilder().setFieldType(getFieldType()).setAngleGrid(getAngleGrid())
+                .setFreqency(getFrequency());
+        for (Map.Entry<ElectricField, ComplexArray> entry : electricFieldMap.entrySet()) {
+            builder.addElectricFieldData(entry.getKey(), entry.getValue().toSinglePrecision());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create double precision copy of this field.
+     * 
+     * @return new instance with same {@link FieldType}, frequency, angles ({@link ThetaPhi}) and electric field values
+     *         stored in double precision.
+     */
+    public Field toDoublePrecision() {
+        Builder builder = newBuilder().setFieldType(getFieldType()).setAngleGrid(getAngleGrid())
+                .setFreqency(getFrequency());
+        for (Map.Entry<ElectricField, ComplexArray> entry : electricFieldMap.entrySet()) {
+            builder.addElectricFieldData(entry.getKey(), entry.getValue().toDoublePrecision());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Check if electric field values are stored in single precision.
+     * 
+     * @return true if all electric fields are stored in single precision, false otherwise.
+     */
+    public boolean isSinglePrecision() {
+        if (electricFieldMap.isEmpty()) {
+            return false;
+        }
+        for (ComplexArray electricFieldData : electricFieldMap.values()) {
+            if (!(electricFieldData instanceof FloatComplexArray)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create copy of this field with all electric field values set to zero.<br>
+     * Useful as reusable destination for operations such as {@link #multiply(Field, Field)}.
+     * 
+     * @return new instance with same {@link FieldType}, frequency, angles ({@link ThetaPhi}) and electric fields.
+     */
+    public Field zeroedCopy() {
+        return newResultBuilder(getFrequency()).build();
+    }
+
+    private Field newResultField(Field other) {
+        return newResultBuilder(getFrequency() == other.getFrequency() ? getFrequency() : Builder.DEFAULT_FREQUENCY)
+                .build();
+    }
+
+    private Builder newResultBuilder(double resultFrequency) {
+        Builder builder = newBuilder().setFieldType(getFieldType()).setAngleGrid(getAngleGrid())
+                .setFreqency(resultFrequency);
+        for (Map.Entry<ElectricField, ComplexArray> entry : electricFieldMap.entrySet()) {
+            int size = entry.getValue().size();
+            if (entry.getValue() instanceof FloatComplexArray) {
+                builder.addElectricField(entry.getKey(), new float[size], new float[size]);
+            } else {
+                builder.addElectricField(entry.getKey(), new double[size], new double[size]);
+            }
+        }
+        return builder;
+    }
+
+    private static void apply(Field a, Field b, Field destination, ExecutionPolicy policy, RangeKernel kernel) {
+        for (Map.Entry<ElectricField, ComplexArray> entry : a.electricFieldMap.entrySet()) {
+            ComplexArray aData = entry.getValue();
+            ComplexArray bData = b.electricFieldMap.get(entry.getKey());
+            ComplexArray destinationData = destination.electricFieldMap.get(entry.getKey());
+            policy.forEachChunk(aData.size(), (from, to) -> kernel.apply(aData, bData, destinationData, from, to));
+        }
+    }
+
+    void checkCompatible(Field other) {
+        if (other == this) {
+            return;
+        }
+        if (!getAngleGrid().equals(other.getAngleGrid())) {
             throw new AntennaException("Fields needs to have the same angles");
         }
-        if (!getAvailableElectricFields().equals(toMultiplyWith.getAvailableElectricFields())) {
+        if (!getAvailableElectricFields().equals(other.getAvailableElectricFields())) {
             throw new AntennaException("Fields needs to have the same electrical fields");
         }
-        if (getFieldType() != toMultiplyWith.getFieldType()) {
+        if (getFieldType() != other.getFieldType()) {
             throw new AntennaException("Fields needs to have the same field type");
         }
-
-        Builder builder = newBuilder().setFieldType(getFieldType()).setThetaPhiList(getThetaPhiList());
-        if (getFrequency() == toMultiplyWith.getFrequency()) {
-            builder.setFreqency(getFrequency());
-        }
-        for (ElectricField electricField : getAvailableElectricFields()) {
-            List<Complex> multipliedElectricFieldData = new ArrayList<>();
-            List<Complex> thisElectricFieldData = getElectricField(electricField);
-            List<Complex> toMultiplyElectricFieldData = toMultiplyWith.getElectricField(electricField);
-            for (int i = 0; i < getElectricField(electricField).size(); i++) {
-                multipliedElectricFieldData
-                        .add(thisElectricFieldData.get(i).multiply(toMultiplyElectricFieldData.get(i)));
+        for (Map.Entry<ElectricField, ComplexArray> entry : electricFieldMap.entrySet()) {
+            if (entry.getValue().size() != other.electricFieldMap.get(entry.getKey()).size()) {
+                throw new AntennaException("Fields needs to have the same number of electrical field values");
             }
-            builder.addElectricField(electricField, multipliedElectricFieldData);
         }
-        return builder.build();
     }
 
     /**
@@ -117,11 +545,47 @@ public class Field {
      *             if an I/O error occurs opening the file
      */
     public static Field loadJson(String filename) throws IOException {
-        try (Reader reader = Files.newBufferedReader(Paths.get(filename))) {
-            return new Gson().fromJson(reader, Field.class);
+        return loadJson(Paths.get(filename));
+    }
+
+    /**
+     * Load json data to field.<br>
+     * Data is streamed straight into the field without building an intermediate json tree.
+     * 
+     * @param path
+     *            path of file to load
+     * 
+     * @return new instance of field containing json data.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs opening or reading the file
+     */
+    public static Field loadJson(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return loadJson(reader);
         }
     }
 
+    /**
+     * Load json data to field from stream.<br>
+     * Data is read as UTF-8 and streamed straight into the field. The stream is not closed.
+     * 
+     * @param inputStream
+     *            stream to read json data from
+     * 
+     * @return new instance of field containing json data.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs reading the stream
+     */
+    public static Field loadJson(InputStream inputStream) throws IOException {
+        return loadJson(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+    }
+
+    private static Field loadJson(Reader reader) throws IOException {
+        return new FieldJsonAdapter().read(new JsonReader(reader));
+    }
+
     /**
      * Save field data to json file.
      * 
@@ -133,11 +597,46 @@ public class Field {
      *             created, or cannot be opened for any other reason
      */
     public void saveJson(String filename) throws IOException {
-        try (FileWriter writer = new FileWriter(filename)) {
-            new Gson().toJson(toJson(), writer);
+        saveJson(Paths.get(filename));
+    }
+
+    /**
+     * Save field data to json file.<br>
+     * Data is streamed from the field through a buffered writer without building an intermediate json tree.
+     * 
+     * @param path
+     *            path of saved file
+     * 
+     * @throws IOException
+     *             if the file exists but is a directory rather than a regular file, does not exist but cannot be
+     *             created, or cannot be opened for any other reason
+     */
+    public void saveJson(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            saveJson(writer);
         }
     }
 
+    /**
+     * Save field data as json to stream.<br>
+     * Data is written as UTF-8 through a buffered writer which is flushed, but the stream is not closed.
+     * 
+     * @param outputStream
+     *            stream to write json data to
+     * 
+     * @throws IOException
+     *             if an I/O error occurs writing to the stream
+     */
+    public void saveJson(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        saveJson(writer);
+        writer.flush();
+    }
+
+    private void saveJson(Writer writer) throws IOException {
+        new FieldJsonAdapter().write(new JsonWriter(writer), this);
+    }
+
     /**
      * Convert field data to json.
      * 
@@ -147,6 +646,133 @@ public class Field {
         return new Gson().toJsonTree(this);
     }
 
+    /**
+     * Load binary field file.
+     * 
+     * @param filename
+     *            name of file to load
+     * 
+     * @return new instance of field backed by memory mapped file data, see {@link #loadBinary(Path)}.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs opening the file or the file is not a valid field binary file
+     */
+    public static Field loadBinary(String filename) throws IOException {
+        return loadBinary(Paths.get(filename));
+    }
+
+    /**
+     * Load binary field file.<br>
+     * Electric field data is memory mapped rather than read, so the file opens without reading its data and pages are
+     * only loaded when values are accessed. Modifying the returned field copies the modified electric field to heap and
+     * never changes the file. Use {@link #copy()} to get a field fully held on heap.
+     * 
+     * @param path
+     *            path of file to load
+     * 
+     * @return new instance of field backed by memory mapped file data.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs opening the file or the file is not a valid field binary file
+     */
+    public static Field loadBinary(Path path) throws IOException {
+        return FieldBinaryFormat.read(path);
+    }
+
+    /**
+     * Load binary field file, decoding frames of blocks saved with a compressing {@link FieldCodec} according to
+     * policy.<br>
+     * Raw electric field data is memory mapped as with {@link #loadBinary(Path)}, compressed electric fields are
+     * decoded to heap.
+     * 
+     * @param path
+     *            path of file to load
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how frames are decoded.
+     * 
+     * @return new instance of field.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs opening the file or the file is not a valid field binary file
+     */
+    public static Field loadBinary(Path path, ExecutionPolicy policy) throws IOException {
+        return FieldBinaryFormat.read(path, policy);
+    }
+
+    /**
+     * Save field data to binary file.
+     * 
+     * @param filename
+     *            name of saved file
+     * 
+     * @throws IOException
+     *             if the file cannot be created or written
+     */
+    public void saveBinary(String filename) throws IOException {
+        saveBinary(Paths.get(filename));
+    }
+
+    /**
+     * Save field data to binary file.<br>
+     * The versioned format stores a small header (field type, frequency, angles and available electric fields) followed
+     * by raw little-endian double arrays for each electric field.<br>
+     * The file is written next to path and moved over it once complete, so fields loaded from path keep their data and
+     * a failed save leaves path unchanged.
+     * 
+     * @param path
+     *            path of saved file
+     * 
+     * @throws IOException
+     *             if the file cannot be created or written
+     */
+    public void saveBinary(Path path) throws IOException {
+        FieldBinaryFormat.write(this, path);
+    }
+
+    /**
+     * Save field data to binary file, encoding all electric fields with codec.
+     * 
+     * @param path
+     *            path of saved file
+     * @param codec
+     *            {@link FieldCodec} of all electric fields.
+     * 
+     * @throws IOException
+     *             if the file cannot be created or written
+     * @throws AntennaException
+     *             if a lossy codec is below {@link FieldCodec#MIN_SINGLE_PRECISION_ERROR_DB} of a single precision
+     *             field
+     */
+    public void saveBinary(Path path, FieldCodec codec) throws IOException {
+        Map<ElectricField, FieldCodec> codecs = new EnumMap<>(ElectricField.class);
+        for (ElectricField electricField : getAvailableElectricFields()) {
+            codecs.put(electricField, codec);
+        }
+        saveBinary(path, codecs, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Save field data to binary file, encoding each electric field with its own codec.
+     * 
+     * @param path
+     *            path of saved file
+     * @param codecs
+     *            {@link FieldCodec} of each electric field, electric fields without codec are saved
+     *            {@link FieldCodec#raw() raw}.
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how frames are encoded.
+     * 
+     * @throws IOException
+     *             if the file cannot be created or written
+     * @throws AntennaException
+     *             if a lossy codec is below {@link FieldCodec#MIN_SINGLE_PRECISION_ERROR_DB} of a single precision
+     *             field
+     */
+    public void saveBinary(Path path, Map<ElectricField, FieldCodec> codecs, ExecutionPolicy policy)
+            throws IOException {
+        FieldBinaryFormat.write(this, path, codecs, policy);
+    }
+
     /**
      * Get field type.
      * 
@@ -161,10 +787,129 @@ public class Field {
      * Each value corresponds to complex electric field value with same index in {@link #getElectricField(ElectricField)
      * getElectricField}.
      * 
-     * @return {@link List} of {@link ThetaPhi}.
+     * @return unmodifiable {@link List} view of {@link #getAngleGrid() angle grid}.
      */
     public List<ThetaPhi> getThetaPhiList() {
-        return thetaPhiList;
+        return angleGrid.asList();
+    }
+
+    /**
+     * Get field angle grid.<br>
+     * Each angle corresponds to complex electric field value with same index in {@link #getElectricField(ElectricField)
+     * getElectricField}.
+     * 
+     * @return {@link AngleGrid} of field.
+     */
+    public AngleGrid getAngleGrid() {
+        return angleGrid;
+    }
+
+    /**
+     * Find index of angle.<br>
+     * The lookup uses the {@link #getAngleGrid() angle grid} index, which is constant time for regular grids and a hash
+     * index built on first lookup for other grids.
+     * 
+     * @param thetaPhi
+     *            angle to find.
+     * 
+     * @return index of angle or -1 if angle is not part of field.
+     */
+    public int indexOf(ThetaPhi thetaPhi) {
+        return angleGrid.indexOf(thetaPhi);
+    }
+
+    /**
+     * Get electrical field value at angle.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to retrieve value from.
+     * @param thetaPhi
+     *            angle of value, see {@link #indexOf(ThetaPhi) indexOf}.
+     * 
+     * @return new instance of {@link Complex} holding value.
+     * 
+     * @throws AntennaException
+     *             if electric field or angle is not available.
+     */
+    public Complex getElectricFieldValue(ElectricField electricField, ThetaPhi thetaPhi) {
+        ComplexArray electricFieldData = getElectricFieldData(electricField);
+        int index = indexOf(thetaPhi);
+        if (index < 0) {
+            throw new AntennaException("Angle not available: " + thetaPhi);
+        }
+        return new Complex(electricFieldData.getReal(index), electricFieldData.getImaginary(index));
+    }
+
+    /**
+     * Interpolate electrical field value at angle.<br>
+     * Angles need to form a theta by phi grid, for example a {@link RegularAngleGrid}. Phi wraps around when grid
+     * covers the full circle and directions beyond the poles are reflected, see
+     * {@link #interpolate(ElectricField, double[], double[], double[], double[], InterpolationMethod) interpolate}.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to interpolate.
+     * @param thetaPhi
+     *            angle to interpolate value at.
+     * @param method
+     *            {@link InterpolationMethod} to use.
+     * 
+     * @return new instance of {@link Complex} holding interpolated value.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available or angles are not a theta by phi grid.
+     */
+    public Complex interpolate(ElectricField electricField, ThetaPhi thetaPhi, InterpolationMethod method) {
+        double[] real = new double[1];
+        double[] imaginary = new double[1];
+        interpolate(electricField, new double[] { thetaPhi.getTheta() }, new double[] { thetaPhi.getPhi() }, real,
+                imaginary, method);
+        return new Complex(real[0], imaginary[0]);
+    }
+
+    /**
+     * Interpolate electrical field values at angles into caller provided buffers, without allocating any data.<br>
+     * Angles need to form a theta by phi grid of increasing theta rows each holding the same increasing phi angles, for
+     * example a {@link RegularAngleGrid}. Cells are found in constant time for equally spaced grids. Phi wraps around
+     * when grid covers the full circle, otherwise angles outside the grid are clamped to the grid edge. Directions
+     * beyond the poles are reflected to theta in [0, pi] and phi + pi, where {@link ElectricField#THETA} and
+     * {@link ElectricField#PHI} values change sign.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to interpolate.
+     * @param theta
+     *            theta angles in radians.
+     * @param phi
+     *            phi angles in radians, same length as theta.
+     * @param real
+     *            buffer receiving real parts, at least as long as theta.
+     * @param imaginary
+     *            buffer receiving imaginary parts, at least as long as theta.
+     * @param method
+     *            {@link InterpolationMethod} to use.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available or angles are not a theta by phi grid.
+     */
+    public void interpolate(ElectricField electricField, double[] theta, double[] phi, double[] real,
+            double[] imaginary, InterpolationMethod method) {
+        if (phi.length != theta.length) {
+            throw new AntennaException("Theta and phi angles need to have the same length");
+        }
+        ComplexArray electricFieldData = getElectricFieldData(electricField);
+        InterpolationGrid interpolationGrid = angleGrid.getInterpolationGrid();
+        double componentSign = componentSign(electricField);
+        boolean cubic = method == InterpolationMethod.BICUBIC;
+        for (int i = 0; i < theta.length; i++) {
+            interpolationGrid.interpolate(electricFieldData, componentSign, cubic, theta[i], phi[i], real, imaginary,
+                    i);
+        }
+    }
+
+    /**
+     * Sign change of electric field component when crossing a pole, where theta and phi unit vectors flip direction.
+     */
+    private static double componentSign(ElectricField electricField) {
+        return electricField == ElectricField.THETA || electricField == ElectricField.PHI ? -1 : 1;
     }
 
     /**
@@ -174,10 +919,124 @@ public class Field {
      * @param electricField
      *            the {@link ElectricField} to retrieve.
      * 
-     * @return {@link List} of {@link Complex} representing the field.
+     * @return {@link List} of {@link Complex} representing the field, or null if electric field is not available. The
+     *         list is a view of the underlying primitive data and creates {@link Complex} instances on access.
      */
     public List<Complex> getElectricField(ElectricField electricField) {
-        return electricFieldMap.get(electricField);
+        ComplexArray electricFieldData = electricFieldMap.get(electricField);
+        return electricFieldData == null ? null : electricFieldData.asList();
+    }
+
+    /**
+     * Get real part of electrical field value.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to retrieve value from.
+     * @param index
+     *            index of value, corresponds to angle with same index in {@link #getThetaPhiList() getThetaPhiList}.
+     * 
+     * @return real part of value.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available.
+     */
+    public double getReal(ElectricField electricField, int index) {
+        return getElectricFieldData(electricField).getReal(index);
+    }
+
+    /**
+     * Get imaginary part of electrical field value.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to retrieve value from.
+     * @param index
+     *            index of value, corresponds to angle with same index in {@link #getThetaPhiList() getThetaPhiList}.
+     * 
+     * @return imaginary part of value.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available.
+     */
+    public double getImaginary(ElectricField electricField, int index) {
+        return getElectricFieldData(electricField).getImaginary(index);
+    }
+
+    /**
+     * Copy all electrical field values into caller provided buffers.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to copy.
+     * @param real
+     *            buffer receiving real parts, must be at least {@link #getElectricFieldSize(ElectricField)
+     *            getElectricFieldSize} long.
+     * @param imaginary
+     *            buffer receiving imaginary parts, must be at least {@link #getElectricFieldSize(ElectricField)
+     *            getElectricFieldSize} long.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available.
+     */
+    public void copyElectricField(ElectricField electricField, double[] real, double[] imaginary) {
+        ComplexArray electricFieldData = getElectricFieldData(electricField);
+        electricFieldData.copyTo(0, real, imaginary, 0, electricFieldData.size());
+    }
+
+    /**
+     * Copy range of electrical field values into caller provided buffers.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to copy.
+     * @param srcPos
+     *            first index to copy.
+     * @param real
+     *            buffer receiving real parts.
+     * @param imaginary
+     *            buffer receiving imaginary parts.
+     * @param destPos
+     *            position in buffers of first copied value.
+     * @param length
+     *            number of values to copy.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available.
+     */
+    public void copyElectricField(ElectricField electricField, int srcPos, double[] real, double[] imaginary,
+            int destPos, int length) {
+        getElectricFieldData(electricField).copyTo(srcPos, real, imaginary, destPos, length);
+    }
+
+    /**
+     * Get number of values in electrical field.
+     * 
+     * @param electricField
+     *            the {@link ElectricField} to get size of.
+     * 
+     * @return number of values.
+     * 
+     * @throws AntennaException
+     *             if electric field is not available.
+     */
+    public int getElectricFieldSize(ElectricField electricField) {
+        return getElectricFieldData(electricField).size();
+    }
+
+    /**
+     * Get number of bytes held by electric field values and angles.
+     */
+    long byteSize() {
+        long byteSize = angleGrid.byteSize();
+        for (ComplexArray electricFieldData : electricFieldMap.values()) {
+            byteSize += electricFieldData.byteSize();
+        }
+        return byteSize;
+    }
+
+    ComplexArray getElectricFieldData(ElectricField electricField) {
+        ComplexArray electricFieldData = electricFieldMap.get(electricField);
+        if (electricFieldData == null) {
+            throw new AntennaException("Electric field not available: " + electricField);
+        }
+        return electricFieldData;
     }
 
     /**
@@ -198,6 +1057,16 @@ public class Field {
         return frequency;
     }
 
+    /**
+     * Elementwise kernel over index range [from, to) of electric field data.
+     */
+    @FunctionalInterface
+    private interface RangeKernel {
+
+        void apply(ComplexArray a, ComplexArray b, ComplexArray destination, int from, int to);
+
+    }
+
     /**
      * Builder for {@link Field}.
      * 
@@ -209,8 +1078,8 @@ public class Field {
         private static final double DEFAULT_FREQUENCY = -1;
 
         private FieldType fieldType = DEFAULT_FIELD_TYPE;
-        private List<ThetaPhi> thetaPhiList = new ArrayList<>();
-        private Map<ElectricField, List<Complex>> electricFieldMap = new HashMap<>();
+        private AngleGrid angleGrid = new ExplicitAngleGrid(new double[0], new double[0]);
+        private Map<ElectricField, ComplexArray> electricFieldMap = new EnumMap<>(ElectricField.class);
         private double frequency = DEFAULT_FREQUENCY;
 
         private Builder() {
@@ -235,12 +1104,28 @@ public class Field {
          * @param thetaPhiList
          *            {@link List} of {@link ThetaPhi} to set. <br>
          *            Each value corresponds to complex electric field value added in
-         *            {@link #addElectricField(ElectricField, List) addElectricField} with same index in list.
+         *            {@link #addElectricField(ElectricField, List) addElectricField} with same index in list.<br>
+         *            Equally spaced angles are detected and kept as a {@link RegularAngleGrid}.
          * 
          * @return this instance of {@link Builder}.
          */
         public Builder setThetaPhiList(List<ThetaPhi> thetaPhiList) {
-            this.thetaPhiList = thetaPhiList;
+            this.angleGrid = AngleGrid.fromList(thetaPhiList);
+            return this;
+        }
+
+        /**
+         * Set angle grid.
+         * 
+         * @param angleGrid
+         *            {@link AngleGrid} to set. <br>
+         *            Each angle corresponds to complex electric field value added in
+         *            {@link #addElectricField(ElectricField, List) addElectricField} with same index.
+         * 
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setAngleGrid(AngleGrid angleGrid) {
+            this.angleGrid = angleGrid;
             return this;
         }
 
@@ -257,6 +1142,61 @@ public class Field {
          * @return this instance of {@link Builder}.
          */
         public Builder addElectricField(ElectricField electricField, List<Complex> electricFieldData) {
+            electricFieldMap.put(electricField, ComplexArray.fromList(electricFieldData));
+            return this;
+        }
+
+        /**
+         * Add electrical field from primitive arrays.<br>
+         * Arrays are used as is without copying.
+         * 
+         * @param electricField
+         *            {@link ElectricField} to add.
+         * @param real
+         *            real parts of the field values to add.
+         * @param imaginary
+         *            imaginary parts of the field values to add.<br>
+         *            Each value corresponds to angle set in {@link #setThetaPhiList(List) setThetaPhiList} with same
+         *            index.
+         * 
+         * @return this instance of {@link Builder}.
+         * 
+         * @throws AntennaException
+         *             if real and imaginary arrays do not have the same length.
+         */
+        public Builder addElectricField(ElectricField electricField, double[] real, double[] imaginary) {
+            electricFieldMap.put(electricField, new HeapComplexArray(real, imaginary));
+            return this;
+        }
+
+        /**
+         * Add electrical field from single precision primitive arrays.<br>
+         * Arrays are used as is without copying, see {@link Field#toSinglePrecision()}.
+         * 
+         * @param electricField
+         *            {@link ElectricField} to add.
+         * @param real
+         *            real parts of the field values to add.
+         * @param imaginary
+         *            imaginary parts of the field values to add.<br>
+         *            Each value corresponds to angle set in {@link #setThetaPhiList(List) setThetaPhiList} with same
+         *            index.
+         * 
+         * @return this instance of {@link Builder}.
+         * 
+         * @throws AntennaException
+         *             if real and imaginary arrays do not have the same length.
+         */
+        public Builder addElectricField(ElectricField electricField, float[] real, float[] imaginary) {
+            electricFieldMap.put(electricField, new FloatComplexArray(real, imaginary));
+            return this;
+        }
+
+        AngleGrid getAngleGrid() {
+            return angleGrid;
+        }
+
+        Builder addElectricFieldData(ElectricField electricField, ComplexArray electricFieldData) {
             electricFieldMap.put(electricField, electricFieldData);
             return this;
         }
@@ -0,0 +1,839 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Binary file format for {@link Field}.<br>
+ * All values are little-endian. The file starts with a header followed by 8 byte aligned blocks of raw doubles, or raw
+ * floats for single precision fields, and blocks of electric fields encoded with a {@link FieldCodec}:
+ *
+ * <pre>
+ * int    magic "JAFB"
+ * int    format version
+ * int    header length in bytes, multiple of 8
+ * string field type name, int length followed by UTF-8 bytes, length -1 when not set
+ * double frequency
+ * byte   electric field value size in bytes, 8 for double and 4 for float values
+ * byte   angle grid kind, 0 = explicit list, 1 = regular grid
+ * int    number of angles
+ *        for regular grid: double theta start, double theta step, int theta count, double phi start,
+ *        double phi step, int phi count, all angles in degrees
+ * int    number of electric fields
+ *        for each electric field: string name, int number of values, byte codec, 0 = raw, 1 = lossless, 2 = lossy,
+ *        double largest error in dB, long block length in bytes
+ * pad    zero bytes up to header length
+ *        for explicit list: double theta[number of angles], phi[number of angles]
+ *        for each electric field:
+ *            raw: real[number of values], imaginary[number of values], each zero padded to a multiple of 8 bytes
+ *            encoded: long frame end[number of frames], relative to block start, followed by the frames, zero padded
+ *            to a multiple of 8 bytes. Each frame holds {@value #FRAME_VALUES} values, the last frame the rest.
+ * </pre>
+ *
+ * Files of any other format version are rejected. Reading maps every raw block read-only with
+ * {@link FileChannel#map(MapMode, long, long) FileChannel.map}, so a file opens without reading its data and pages are
+ * only loaded when touched. A block is copied to heap the first time it is modified. Single precision blocks are read
+ * into heap float arrays. Encoded blocks are decoded to heap frame by frame, in parallel with a parallel
+ * {@link ExecutionPolicy}.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class FieldBinaryFormat {
+
+    static final int MAGIC = 'J' | 'A' << 8 | 'F' << 16 | 'B' << 24;
+    static final int VERSION = 1;
+    /** Number of values in each frame of an encoded block. */
+    static final int FRAME_VALUES = 16384;
+
+    private static final byte EXPLICIT_ANGLE_GRID = 0;
+    private static final byte REGULAR_ANGLE_GRID = 1;
+    private static final int PREAMBLE_LENGTH = 12;
+    private static final int WRITE_BUFFER_DOUBLES = 8192;
+
+    private FieldBinaryFormat() {
+        /* Hidden Constructor */ }
+
+    static void write(Field field, Path path) throws IOException {
+        write(field, path, Collections.emptyMap(), ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Write field with codec of each electric field, raw for electric fields without codec. Frames are encoded
+     * according to policy.
+     */
+    static void write(Field field, Path path, Map<ElectricField, FieldCodec> codecs, ExecutionPolicy policy)
+            throws IOException {
+        Map<ElectricField, ComplexArray> data = new EnumMap<>(ElectricField.class);
+        for (ElectricField electricField : field.getAvailableElectricFields()) {
+            data.put(electricField, field.getElectricFieldData(electricField));
+        }
+        boolean singlePrecision = field.isSinglePrecision();
+        int valueSize = singlePrecision ? Float.BYTES : Double.BYTES;
+        ElectricField[] electricFields = data.keySet().toArray(new ElectricField[0]);
+        int[] sizes = new int[electricFields.length];
+        FieldCodec[] blockCodecs = new FieldCodec[electricFields.length];
+        long[] blockLengths = new long[electricFields.length];
+        for (int i = 0; i < electricFields.length; i++) {
+            sizes[i] = data.get(electricFields[i]).size();
+            blockCodecs[i] = codecs.getOrDefault(electricFields[i], FieldCodec.raw());
+            if (!blockCodecs[i].supports(singlePrecision)) {
+                throw new AntennaException("Maximum error of single precision fields needs to be at least "
+                        + FieldCodec.MIN_SINGLE_PRECISION_ERROR_DB + " dB");
+            }
+            blockLengths[i] = blockCodecs[i].isCompressed() ? 0 : rawBlockLength(sizes[i], valueSize);
+        }
+        /* Written next to path and moved over it, so mappings of the replaced file stay valid */
+        Path temporary = createTemporaryFile(path);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                AngleGrid angleGrid = field.getAngleGrid();
+                /* Encoded block lengths are only known once written, header is rewritten with them at the end */
+                writeFully(channel, createHeader(field.getFieldType(), field.getFrequency(), singlePrecision, angleGrid,
+                        angleGrid.size(), electricFields, sizes, blockCodecs, blockLengths));
+                DataWriter dataWriter = new DataWriter(channel);
+                if (!(angleGrid instanceof RegularAngleGrid)) {
+                    for (int i = 0; i < angleGrid.size(); i++) {
+                        dataWriter.put(angleGrid.getTheta(i));
+                    }
+                    for (int i = 0; i < angleGrid.size(); i++) {
+                        dataWriter.put(angleGrid.getPhi(i));
+                    }
+                }
+                boolean encoded = false;
+                for (int f = 0; f < electricFields.length; f++) {
+                    ComplexArray electricFieldData = data.get(electricFields[f]);
+                    if (blockCodecs[f].isCompressed()) {
+                        blockLengths[f] = writeEncoded(dataWriter, electricFieldData, blockCodecs[f], singlePrecision,
+                                policy);
+                        encoded = true;
+                    } else if (singlePrecision) {
+                        for (int i = 0; i < electricFieldData.size(); i++) {
+                            dataWriter.putFloat((float) electricFieldData.getReal(i));
+                        }
+                        dataWriter.align();
+                        for (int i = 0; i < electricFieldData.size(); i++) {
+                            dataWriter.putFloat((float) electricFieldData.getImaginary(i));
+                        }
+                        dataWriter.align();
+                    } else {
+                        for (int i = 0; i < electricFieldData.size(); i++) {
+                            dataWriter.put(electricFieldData.getReal(i));
+                        }
+                        for (int i = 0; i < electricFieldData.size(); i++) {
+                            dataWriter.put(electricFieldData.getImaginary(i));
+                        }
+                    }
+                }
+                dataWriter.flush();
+                if (encoded) {
+                    ByteBuffer header = createHeader(field.getFieldType(), field.getFrequency(), singlePrecision,
+                            angleGrid, angleGrid.size(), electricFields, sizes, blockCodecs, blockLengths);
+                    while (header.hasRemaining()) {
+                        channel.write(header, header.position());
+                    }
+                }
+            }
+            replace(temporary, path);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Create empty file in directory of path, to be moved over path with {@link #replace(Path, Path)} once written.
+     */
+    static Path createTemporaryFile(Path path) throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path directory = absolutePath.getParent();
+        String prefix = "." + absolutePath.getFileName() + ".";
+        while (true) {
+            Path temporary = directory.resolve(prefix + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+            try {
+                return Files.createFile(temporary);
+            } catch (FileAlreadyExistsException e) {
+                /* Try another name */
+            }
+        }
+    }
+
+    /**
+     * Move written temporary file over path. Fields mapping the replaced file keep reading the replaced data, and path
+     * never holds a partly written file.
+     */
+    static void replace(Path temporary, Path path) throws IOException {
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Encode frames of electric field data according to policy and write block.
+     *
+     * @return block length in bytes.
+     */
+    private static long writeEncoded(DataWriter dataWriter, ComplexArray data, FieldCodec codec,
+            boolean singlePrecision, ExecutionPolicy policy) throws IOException {
+        int size = data.size();
+        byte[][] frames = new byte[frameCount(size)][];
+        policy.forEachChunk(frames.length, FRAME_VALUES, (from, to) -> {
+            for (int frame = from; frame < to; frame++) {
+                int start = frame * FRAME_VALUES;
+                frames[frame] = codec.encode(data, start, Math.min(size, start + FRAME_VALUES), singlePrecision);
+            }
+        });
+        long end = (long) frames.length * Long.BYTES;
+        for (byte[] frame : frames) {
+            end += frame.length;
+            dataWriter.putLong(end);
+        }
+        for (byte[] frame : frames) {
+            dataWriter.putBytes(frame);
+        }
+        dataWriter.align();
+        return alignedLength(end);
+    }
+
+    static Field read(Path path) throws IOException {
+        return read(path, ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Read field, decoding frames of encoded blocks according to policy.
+     */
+    static Field read(Path path, ExecutionPolicy policy) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Layout layout = readLayout(channel, path);
+            Field.Builder builder = Field.newBuilder().setFieldType(layout.fieldType).setFreqency(layout.frequency);
+            if (layout.regularAngleGrid != null) {
+                builder.setAngleGrid(layout.regularAngleGrid);
+            } else {
+                double[] theta = new double[layout.angleCount];
+                double[] phi = new double[layout.angleCount];
+                map(channel, layout.thetaPosition, layout.angleCount).get(theta);
+                map(channel, layout.phiPosition, layout.angleCount).get(phi);
+                builder.setAngleGrid(new ExplicitAngleGrid(theta, phi));
+            }
+            int fields = layout.electricFields.length;
+            double[][] decodedReal = new double[fields][];
+            double[][] decodedImaginary = new double[fields][];
+            decode(channel, layout, decodedReal, decodedImaginary, policy);
+            for (int i = 0; i < fields; i++) {
+                int size = layout.sizes[i];
+                if (decodedReal[i] != null && layout.valueSize == Float.BYTES) {
+                    float[] real = new float[size];
+                    float[] imaginary = new float[size];
+                    for (int j = 0; j < size; j++) {
+                        real[j] = (float) decodedReal[i][j];
+                        imaginary[j] = (float) decodedImaginary[i][j];
+                    }
+                    builder.addElectricField(layout.electricFields[i], real, imaginary);
+                } else if (decodedReal[i] != null) {
+                    builder.addElectricField(layout.electricFields[i], decodedReal[i], decodedImaginary[i]);
+                } else if (layout.valueSize == Float.BYTES) {
+                    float[] real = new float[size];
+                    float[] imaginary = new float[size];
+                    mapFloats(channel, layout.realPositions[i], size).get(real);
+                    mapFloats(channel, layout.imaginaryPositions[i], size).get(imaginary);
+                    builder.addElectricField(layout.electricFields[i], real, imaginary);
+                } else {
+                    DoubleBuffer real = map(channel, layout.realPositions[i], size);
+                    DoubleBuffer imaginary = map(channel, layout.imaginaryPositions[i], size);
+                    builder.addElectricFieldData(layout.electricFields[i], new BufferComplexArray(real, imaginary));
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Decode all frames of encoded blocks into new arrays at the index of the block, according to policy.
+     */
+    private static void decode(FileChannel channel, Layout layout, double[][] real, double[][] imaginary,
+            ExecutionPolicy policy) throws IOException {
+        BlockReader[] readers = new BlockReader[layout.electricFields.length];
+        int frameCount = 0;
+        for (int i = 0; i < readers.length; i++) {
+            if (layout.codecs[i].isCompressed()) {
+                readers[i] = new BlockReader(channel, layout, i);
+                real[i] = new double[layout.sizes[i]];
+                imaginary[i] = new double[layout.sizes[i]];
+                frameCount += readers[i].getFrameCount();
+            }
+        }
+        int[] frameBlocks = new int[frameCount];
+        int[] frames = new int[frameCount];
+        int task = 0;
+        for (int i = 0; i < readers.length; i++) {
+            for (int frame = 0; readers[i] != null && frame < readers[i].getFrameCount(); frame++) {
+                frameBlocks[task] = i;
+                frames[task++] = frame;
+            }
+        }
+        try {
+            policy.forEachChunk(frameCount, FRAME_VALUES, (from, to) -> {
+                for (int t = from; t < to; t++) {
+                    int i = frameBlocks[t];
+                    try {
+                        readers[i].decodeFrame(frames[t], real[i], imaginary[i], frames[t] * FRAME_VALUES);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Read header of open file and check that the file holds all data blocks.
+     */
+    static Layout readLayout(FileChannel channel, Path path) throws IOException {
+        try {
+            if (channel.size() < PREAMBLE_LENGTH) {
+                throw new IOException("Not a field binary file: " + path);
+            }
+            ByteBuffer preamble = channel.map(MapMode.READ_ONLY, 0, PREAMBLE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            if (preamble.getInt() != MAGIC) {
+                throw new IOException("Not a field binary file: " + path);
+            }
+            int version = preamble.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported field binary file version: " + version);
+            }
+            int headerLength = preamble.getInt();
+            if (headerLength < PREAMBLE_LENGTH || headerLength > channel.size()) {
+                throw new IOException("Invalid field binary file: " + path);
+            }
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, headerLength).order(ByteOrder.LITTLE_ENDIAN);
+            header.position(PREAMBLE_LENGTH);
+            Layout layout = new Layout(header, headerLength);
+            if (layout.regularAngleGrid != null && layout.regularAngleGrid.size() != layout.angleCount) {
+                throw new IOException("Invalid field binary file: " + path);
+            }
+            if (layout.length > channel.size()) {
+                throw new IOException("Field binary file is truncated: " + path);
+            }
+            return layout;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Invalid field binary file: " + path, e);
+        }
+    }
+
+    private static ByteBuffer createHeader(FieldType fieldType, double frequency, boolean singlePrecision,
+            AngleGrid angleGrid, int angleCount, ElectricField[] electricFields, int[] sizes, FieldCodec[] codecs,
+            long[] blockLengths) {
+        byte[] fieldTypeName = fieldType == null ? null : fieldType.name().getBytes(StandardCharsets.UTF_8);
+        byte[][] electricFieldNames = new byte[electricFields.length][];
+        int length = PREAMBLE_LENGTH + Integer.BYTES + (fieldTypeName == null ? 0 : fieldTypeName.length) + Double.BYTES
+                + 1 + 1 + Integer.BYTES + Integer.BYTES;
+        if (angleGrid instanceof RegularAngleGrid) {
+            length += 4 * Double.BYTES + 2 * Integer.BYTES;
+        }
+        for (int i = 0; i < electricFields.length; i++) {
+            electricFieldNames[i] = electricFields[i].name().getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + electricFieldNames[i].length + Integer.BYTES + 1 + Double.BYTES + Long.BYTES;
+        }
+        int headerLength = (length + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(headerLength);
+        writeString(header, fieldTypeName);
+        header.putDouble(frequency);
+        header.put((byte) (singlePrecision ? Float.BYTES : Double.BYTES));
+        if (angleGrid instanceof RegularAngleGrid) {
+            RegularAngleGrid regularAngleGrid = (RegularAngleGrid) angleGrid;
+            header.put(REGULAR_ANGLE_GRID).putInt(angleCount);
+            header.putDouble(regularAngleGrid.getThetaStartDegrees()).putDouble(regularAngleGrid.getThetaStepDegrees())
+                    .putInt(regularAngleGrid.getThetaCount());
+            header.putDouble(regularAngleGrid.getPhiStartDegrees()).putDouble(regularAngleGrid.getPhiStepDegrees())
+                    .putInt(regularAngleGrid.getPhiCount());
+        } else {
+            header.put(EXPLICIT_ANGLE_GRID).putInt(angleCount);
+        }
+        header.putInt(electricFields.length);
+        for (int i = 0; i < electricFields.length; i++) {
+            writeString(header, electricFieldNames[i]);
+            header.putInt(sizes[i]);
+            header.put(codecs[i].getId()).putDouble(codecs[i].getMaxErrorDb()).putLong(blockLengths[i]);
+        }
+        header.rewind();
+        return header;
+    }
+
+    private static long alignedLength(long length) {
+        return (length + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    private static long rawBlockLength(int size, int valueSize) {
+        return 2 * alignedLength((long) size * valueSize);
+    }
+
+    static int frameCount(int size) {
+        return (int) (((long) size + FRAME_VALUES - 1) / FRAME_VALUES);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length).put(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            /* Corrupt length, do not allocate for it */
+            throw new BufferUnderflowException();
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static DoubleBuffer map(FileChannel channel, long position, int size) throws IOException {
+        return channel.map(MapMode.READ_ONLY, position, (long) size * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+    }
+
+    private static FloatBuffer mapFloats(FileChannel channel, long position, int size) throws IOException {
+        return channel.map(MapMode.READ_ONLY, position, (long) size * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read count values starting at file position into values[0, count), through buffer.
+     */
+    static void readValues(FileChannel channel, long position, int valueSize, double[] values, int count,
+            ByteBuffer buffer) throws IOException {
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, buffer.capacity() / valueSize);
+            buffer.clear();
+            buffer.limit(n * valueSize);
+            long at = position + (long) done * valueSize;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, at + buffer.position()) < 0) {
+                    throw new IOException("Field binary file is truncated");
+                }
+            }
+            buffer.flip();
+            for (int i = 0; i < n; i++) {
+                values[done + i] = valueSize == Float.BYTES ? buffer.getFloat() : buffer.getDouble();
+            }
+            done += n;
+        }
+    }
+
+    private static void writeValues(FileChannel channel, long position, double[] values, int count, ByteBuffer buffer)
+            throws IOException {
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, buffer.capacity() / Double.BYTES);
+            buffer.clear();
+            for (int i = 0; i < n; i++) {
+                buffer.putDouble(values[done + i]);
+            }
+            buffer.flip();
+            long at = position + (long) done * Double.BYTES;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, at + buffer.position());
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Header of a field binary file with position of every data block.
+     */
+    static final class Layout {
+
+        final FieldType fieldType;
+        final double frequency;
+        final int valueSize;
+        /** Angle grid of files holding a regular grid, null for explicit angle lists. */
+        final RegularAngleGrid regularAngleGrid;
+        final int angleCount;
+        final long thetaPosition;
+        final long phiPosition;
+        final ElectricField[] electricFields;
+        final int[] sizes;
+        final FieldCodec[] codecs;
+        /** Position of raw real blocks, -1 for encoded blocks. */
+        final long[] realPositions;
+        /** Position of raw imaginary blocks, -1 for encoded blocks. */
+        final long[] imaginaryPositions;
+        final long[] blockPositions;
+        final long[] blockLengths;
+        /** Position after last data block. */
+        final long length;
+
+        private Layout(ByteBuffer header, int headerLength) throws IOException {
+            String fieldTypeName = readString(header);
+            this.fieldType = fieldTypeName == null ? null : FieldType.valueOf(fieldTypeName);
+            this.frequency = header.getDouble();
+            this.valueSize = header.get();
+            if (valueSize != Double.BYTES && valueSize != Float.BYTES) {
+                throw new IOException("Unsupported electric field value size: " + valueSize);
+            }
+            byte angleGridKind = header.get();
+            this.angleCount = header.getInt();
+            long position = headerLength;
+            if (angleGridKind == REGULAR_ANGLE_GRID) {
+                this.regularAngleGrid = RegularAngleGrid.fromDegrees(header.getDouble(), header.getDouble(),
+                        header.getInt(), header.getDouble(), header.getDouble(), header.getInt());
+                this.thetaPosition = -1;
+                this.phiPosition = -1;
+            } else if (angleGridKind == EXPLICIT_ANGLE_GRID) {
+                this.regularAngleGrid = null;
+                this.thetaPosition = position;
+                this.phiPosition = position + (long) angleCount * Double.BYTES;
+                position += 2L * angleCount * Double.BYTES;
+            } else {
+                throw new IOException("Unsupported angle grid kind: " + angleGridKind);
+            }
+            int electricFieldCount = header.getInt();
+            this.electricFields = new ElectricField[electricFieldCount];
+            this.sizes = new int[electricFieldCount];
+            this.codecs = new FieldCodec[electricFieldCount];
+            this.realPositions = new long[electricFieldCount];
+            this.imaginaryPositions = new long[electricFieldCount];
+            this.blockPositions = new long[electricFieldCount];
+            this.blockLengths = new long[electricFieldCount];
+            for (int i = 0; i < electricFieldCount; i++) {
+                electricFields[i] = ElectricField.valueOf(readString(header));
+                sizes[i] = header.getInt();
+                byte codecId = header.get();
+                double maxErrorDb = header.getDouble();
+                codecs[i] = FieldCodec.of(codecId, maxErrorDb);
+                if (codecs[i] == null || !codecs[i].supports(valueSize == Float.BYTES)) {
+                    throw new IOException("Unsupported electric field codec: " + codecId);
+                }
+                blockLengths[i] = header.getLong();
+                if (codecs[i].isCompressed() ? blockLengths[i] < 0 || blockLengths[i] % Double.BYTES != 0
+                        : blockLengths[i] != rawBlockLength(sizes[i], valueSize)) {
+                    throw new IOException("Invalid electric field block length: " + blockLengths[i]);
+                }
+                blockPositions[i] = position;
+                realPositions[i] = codecs[i].isCompressed() ? -1 : position;
+                imaginaryPositions[i] = codecs[i].isCompressed() ? -1 : position + blockLengths[i] / 2;
+                position += blockLengths[i];
+            }
+            this.length = position;
+        }
+
+    }
+
+    /**
+     * Reads frames of an encoded electric field block. Frames are read with positional reads, so frames can be decoded
+     * concurrently, except with {@link #read(int, double[], double[], int)} which keeps the last decoded frame.
+     */
+    static final class BlockReader {
+
+        private final FileChannel channel;
+        private final FieldCodec codec;
+        private final boolean singlePrecision;
+        private final int size;
+        private final long position;
+        private final long[] frameEnds;
+        private double[] frameReal;
+        private double[] frameImaginary;
+        private int decodedFrame = -1;
+
+        /**
+         * Read frame table of encoded block at index of layout.
+         */
+        BlockReader(FileChannel channel, Layout layout, int index) throws IOException {
+            this.channel = channel;
+            this.codec = layout.codecs[index];
+            this.singlePrecision = layout.valueSize == Float.BYTES;
+            this.size = layout.sizes[index];
+            this.position = layout.blockPositions[index];
+            this.frameEnds = new long[frameCount(size)];
+            long tableLength = (long) frameEnds.length * Long.BYTES;
+            if (tableLength > layout.blockLengths[index]) {
+                throw new IOException("Invalid electric field block length: " + layout.blockLengths[index]);
+            }
+            if (frameEnds.length > 0) {
+                LongBuffer table = channel.map(MapMode.READ_ONLY, position, tableLength).order(ByteOrder.LITTLE_ENDIAN)
+                        .asLongBuffer();
+                table.get(frameEnds);
+            }
+            long previous = tableLength;
+            for (long frameEnd : frameEnds) {
+                if (frameEnd <= previous || frameEnd - previous > Integer.MAX_VALUE
+                        || frameEnd > layout.blockLengths[index]) {
+                    throw new IOException("Invalid electric field frame end: " + frameEnd);
+                }
+                previous = frameEnd;
+            }
+        }
+
+        int getFrameCount() {
+            return frameEnds.length;
+        }
+
+        /**
+         * Decode frame into real and imaginary from destPos.
+         */
+        void decodeFrame(int frame, double[] real, double[] imaginary, int destPos) throws IOException {
+            long start = frame == 0 ? (long) frameEnds.length * Long.BYTES : frameEnds[frame - 1];
+            ByteBuffer buffer = ByteBuffer.allocate((int) (frameEnds[frame] - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + start + buffer.position()) < 0) {
+                    throw new IOException("Field binary file is truncated");
+                }
+            }
+            buffer.flip();
+            int count = Math.min(size - frame * FRAME_VALUES, FRAME_VALUES);
+            try {
+                codec.decode(buffer, real, imaginary, destPos, count, singlePrecision);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Invalid electric field frame: " + frame, e);
+            }
+        }
+
+        /**
+         * Read count values starting at offset into real and imaginary [0, count), decoding frames as needed. The last
+         * decoded frame is kept, so reading consecutive ranges decodes every frame once.
+         */
+        void read(int offset, double[] real, double[] imaginary, int count) throws IOException {
+            int done = 0;
+            while (done < count) {
+                int index = offset + done;
+                int frame = index / FRAME_VALUES;
+                if (frame != decodedFrame) {
+                    if (frameReal == null) {
+                        frameReal = new double[Math.min(size, FRAME_VALUES)];
+                        frameImaginary = new double[frameReal.length];
+                    }
+                    decodeFrame(frame, frameReal, frameImaginary, 0);
+                    decodedFrame = frame;
+                }
+                int start = index - frame * FRAME_VALUES;
+                int n = Math.min(count - done, Math.min(size - frame * FRAME_VALUES, FRAME_VALUES) - start);
+                System.arraycopy(frameReal, start, real, done, n);
+                System.arraycopy(frameImaginary, start, imaginary, done, n);
+                done += n;
+            }
+        }
+
+    }
+
+    /**
+     * Writes a double precision field file chunk of angles by chunk of angles, at any position and in any order. Every
+     * electric field has one value for each angle. The file is written next to path and only moved over path by
+     * {@link #commit()}, so sources reading path keep their data and an incomplete file never replaces path.
+     */
+    static final class ChunkWriter implements Closeable {
+
+        private final Path path;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final Layout layout;
+        private boolean committed;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_DOUBLES * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Create temporary file and write header. Angles are written with the values unless angle grid is a
+         * {@link RegularAngleGrid}, which is stored in the header.
+         */
+        ChunkWriter(Path path, FieldType fieldType, double frequency, AngleGrid angleGrid, int angleCount,
+                Set<ElectricField> electricFields) throws IOException {
+            ElectricField[] fields = electricFields.toArray(new ElectricField[0]);
+            int[] sizes = new int[fields.length];
+            FieldCodec[] codecs = new FieldCodec[fields.length];
+            long[] blockLengths = new long[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                sizes[i] = angleCount;
+                codecs[i] = FieldCodec.raw();
+                blockLengths[i] = rawBlockLength(angleCount, Double.BYTES);
+            }
+            ByteBuffer header = createHeader(fieldType, frequency, false, angleGrid, angleCount, fields, sizes, codecs,
+                    blockLengths);
+            this.path = path;
+            this.temporary = createTemporaryFile(path);
+            try {
+                this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            try {
+                writeFully(channel, header);
+                header.position(PREAMBLE_LENGTH);
+                this.layout = new Layout(header, header.capacity());
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Write chunk holding angles offset to offset + chunk size.
+         */
+        void write(int offset, Field chunk) throws IOException {
+            AngleGrid angleGrid = chunk.getAngleGrid();
+            int size = angleGrid.size();
+            double[] real = new double[size];
+            double[] imaginary = new double[size];
+            if (layout.regularAngleGrid == null) {
+                for (int i = 0; i < size; i++) {
+                    real[i] = angleGrid.getTheta(i);
+                    imaginary[i] = angleGrid.getPhi(i);
+                }
+                writeValues(channel, layout.thetaPosition + (long) offset * Double.BYTES, real, size, buffer);
+                writeValues(channel, layout.phiPosition + (long) offset * Double.BYTES, imaginary, size, buffer);
+            }
+            for (int i = 0; i < layout.electricFields.length; i++) {
+                chunk.copyElectricField(layout.electricFields[i], real, imaginary);
+                writeValues(channel, layout.realPositions[i] + (long) offset * Double.BYTES, real, size, buffer);
+                writeValues(channel, layout.imaginaryPositions[i] + (long) offset * Double.BYTES, imaginary, size,
+                        buffer);
+            }
+        }
+
+        /**
+         * Close file and move it over path, once all chunks are written.
+         */
+        void commit() throws IOException {
+            channel.close();
+            replace(temporary, path);
+            committed = true;
+        }
+
+        /**
+         * Close file and delete it unless committed.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                if (!committed) {
+                    Files.deleteIfExists(temporary);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Buffers doubles and floats in a little-endian direct buffer before writing them to channel.
+     */
+    private static final class DataWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_DOUBLES * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        private DataWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void put(double value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putDouble(value);
+        }
+
+        private void putFloat(float value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putFloat(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putLong(value);
+        }
+
+        /**
+         * Put bytes, only flushing a full buffer so the buffer stays aligned with the file.
+         */
+        private void putBytes(byte[] values) throws IOException {
+            int done = 0;
+            while (done < values.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(values.length - done, buffer.remaining());
+                buffer.put(values, done, n);
+                done += n;
+            }
+        }
+
+        /**
+         * Pad with zero bytes up to a multiple of 8 bytes, buffer capacity is a multiple of 8 bytes.
+         */
+        private void align() throws IOException {
+            while (buffer.position() % Double.BYTES != 0) {
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+
+    }
+
+}
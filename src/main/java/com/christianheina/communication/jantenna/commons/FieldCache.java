@@ -0,0 +1,488 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Cache of {@link Field} instances loaded from files.<br>
+ * Files are identified by path, modification time and size, so a file changed on disk is loaded again on next access.
+ * Cached fields are kept within a memory budget counted from the bytes held by their electric field values and angles
+ * and evicted by the configured {@link EvictionPolicy} when the budget is exceeded. Concurrent requests for a file that
+ * is being loaded wait for that load instead of reading the file again. Instances are thread safe.<br>
+ * Returned fields are shared between all callers and must not be modified, use {@link Field#copy()} to get a private
+ * copy.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class FieldCache {
+
+    private final long maximumBytes;
+    private final EvictionPolicy evictionPolicy;
+    private final Loader jsonLoader;
+    private final Loader binaryLoader;
+    private final Map<Source, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, CompletableFuture<Field>> loads = new HashMap<>();
+    private long byteSize;
+    private long hitCount;
+    private long missCount;
+    private long loadCount;
+    private long evictionCount;
+
+    private FieldCache(Builder builder) {
+        if (builder.maximumBytes < 0) {
+            throw new AntennaException("Maximum bytes can not be negative");
+        }
+        this.maximumBytes = builder.maximumBytes;
+        this.evictionPolicy = builder.evictionPolicy;
+        this.jsonLoader = builder.jsonLoader;
+        this.binaryLoader = builder.binaryLoader;
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Get field from json file, loading it with {@link Field#loadJson(Path)} if not cached.
+     *
+     * @param path
+     *            {@link Path} to json file.
+     *
+     * @return cached or newly loaded {@link Field}.
+     *
+     * @throws IOException
+     *             if file can not be read.
+     */
+    public Field loadJson(Path path) throws IOException {
+        return get(path, Format.JSON);
+    }
+
+    /**
+     * Get field from binary file, loading it with {@link Field#loadBinary(Path)} if not cached.<br>
+     * Cached binary fields memory map their file. Files need to be replaced rather than rewritten in place, as
+     * {@link Field#saveBinary(Path)} does, so callers holding a field loaded before the change keep reading the old
+     * data.
+     *
+     * @param path
+     *            {@link Path} to binary file.
+     *
+     * @return cached or newly loaded {@link Field}.
+     *
+     * @throws IOException
+     *             if file can not be read.
+     */
+    public Field loadBinary(Path path) throws IOException {
+        return get(path, Format.BINARY);
+    }
+
+    /**
+     * Remove cached fields of file.
+     *
+     * @param path
+     *            {@link Path} to file.
+     */
+    public void invalidate(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        synchronized (entries) {
+            for (Format format : Format.values()) {
+                remove(new Source(normalized, format));
+            }
+        }
+    }
+
+    /**
+     * Remove all cached fields.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            byteSize = 0;
+        }
+    }
+
+    /**
+     * Get number of cached fields.
+     *
+     * @return number of cached fields.
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get number of bytes held by cached fields.
+     *
+     * @return number of bytes, never more than maximum bytes.
+     */
+    public long getByteSize() {
+        synchronized (entries) {
+            return byteSize;
+        }
+    }
+
+    /**
+     * Get maximum number of bytes held by cached fields.
+     *
+     * @return maximum number of bytes.
+     */
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    /**
+     * Get number of requests served from cache.
+     *
+     * @return number of hits.
+     */
+    public long getHitCount() {
+        synchronized (entries) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Get number of requests not served from cache, including requests waiting for a concurrent load of the same file.
+     *
+     * @return number of misses.
+     */
+    public long getMissCount() {
+        synchronized (entries) {
+            return missCount;
+        }
+    }
+
+    /**
+     * Get number of times a file was read.
+     *
+     * @return number of loads.
+     */
+    public long getLoadCount() {
+        synchronized (entries) {
+            return loadCount;
+        }
+    }
+
+    /**
+     * Get number of fields evicted to stay within maximum bytes.
+     *
+     * @return number of evictions.
+     */
+    public long getEvictionCount() {
+        synchronized (entries) {
+            return evictionCount;
+        }
+    }
+
+    private Field get(Path path, Format format) throws IOException {
+        Path normalized = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(normalized, BasicFileAttributes.class);
+        Key key = new Key(new Source(normalized, format), attributes.lastModifiedTime().toMillis(), attributes.size());
+        CompletableFuture<Field> load = new CompletableFuture<>();
+        CompletableFuture<Field> pending;
+        synchronized (entries) {
+            Entry entry = entries.get(key.source);
+            if (entry != null && entry.key.equals(key)) {
+                hitCount++;
+                entry.useCount++;
+                return entry.field;
+            }
+            missCount++;
+            pending = loads.putIfAbsent(key, load);
+        }
+        if (pending != null) {
+            /* Another thread is reading the same file */
+            return await(pending);
+        }
+        try {
+            Field field = (format == Format.JSON ? jsonLoader : binaryLoader).load(normalized);
+            store(key, field);
+            load.complete(field);
+            return field;
+        } catch (Throwable e) {
+            /* Errors too, waiting threads would otherwise wait forever */
+            synchronized (entries) {
+                loads.remove(key);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Field await(CompletableFuture<Field> load) throws IOException {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void store(Key key, Field field) {
+        long fieldByteSize = field.byteSize();
+        synchronized (entries) {
+            loads.remove(key);
+            loadCount++;
+            remove(key.source);
+            if (fieldByteSize > maximumBytes) {
+                return;
+            }
+            entries.put(key.source, new Entry(key, field, fieldByteSize));
+            byteSize += fieldByteSize;
+            while (byteSize > maximumBytes) {
+                remove(victim(key.source));
+                evictionCount++;
+            }
+        }
+    }
+
+    private Source victim(Source keep) {
+        /* Iteration order is least recently used first, so frequency ties evict the least recently used */
+        Source victim = null;
+        long victimUseCount = Long.MAX_VALUE;
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            Entry entry = iterator.next();
+            if (entry.key.source.equals(keep)) {
+                continue;
+            }
+            if (evictionPolicy == EvictionPolicy.LEAST_RECENTLY_USED) {
+                return entry.key.source;
+            }
+            if (entry.useCount < victimUseCount) {
+                victim = entry.key.source;
+                victimUseCount = entry.useCount;
+            }
+        }
+        return victim;
+    }
+
+    private void remove(Source source) {
+        Entry entry = entries.remove(source);
+        if (entry != null) {
+            byteSize -= entry.byteSize;
+        }
+    }
+
+    /**
+     * Policy selecting which cached field to evict when the memory budget is exceeded.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evict field that was accessed longest ago.
+         */
+        LEAST_RECENTLY_USED,
+        /**
+         * Evict field that was accessed the fewest times, the least recently used of those on ties.
+         */
+        LEAST_FREQUENTLY_USED
+    }
+
+    private enum Format {
+        JSON, BINARY
+    }
+
+    /**
+     * Reads field from file.
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        Field load(Path path) throws IOException;
+
+    }
+
+    /**
+     * File and format a field is loaded from.
+     */
+    private static final class Source {
+
+        private final Path path;
+        private final Format format;
+
+        private Source(Path path, Format format) {
+            this.path = path;
+            this.format = format;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + format.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Source)) {
+                return false;
+            }
+            Source other = (Source) obj;
+            return path.equals(other.path) && format == other.format;
+        }
+
+    }
+
+    /**
+     * Version of a file, identified by modification time and size.
+     */
+    private static final class Key {
+
+        private final Source source;
+        private final long lastModified;
+        private final long size;
+
+        private Key(Source source, long lastModified, long size) {
+            this.source = source;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = source.hashCode();
+            result = 31 * result + Long.hashCode(lastModified);
+            return 31 * result + Long.hashCode(size);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return source.equals(other.source) && lastModified == other.lastModified && size == other.size;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final Key key;
+        private final Field field;
+        private final long byteSize;
+        private long useCount = 1;
+
+        private Entry(Key key, Field field, long byteSize) {
+            this.key = key;
+            this.field = field;
+            this.byteSize = byteSize;
+        }
+
+    }
+
+    /**
+     * Builder for {@link FieldCache}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private static final long DEFAULT_MAXIMUM_BYTES = 256L * 1024 * 1024;
+
+        private long maximumBytes = DEFAULT_MAXIMUM_BYTES;
+        private EvictionPolicy evictionPolicy = EvictionPolicy.LEAST_RECENTLY_USED;
+        private Loader jsonLoader = Field::loadJson;
+        private Loader binaryLoader = Field::loadBinary;
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set maximum number of bytes held by cached fields. Default is 256 MiB. Fields larger than the maximum are
+         * returned without being cached.
+         *
+         * @param maximumBytes
+         *            maximum number of bytes.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setMaximumBytes(long maximumBytes) {
+            this.maximumBytes = maximumBytes;
+            return this;
+        }
+
+        /**
+         * Set eviction policy. Default is {@link EvictionPolicy#LEAST_RECENTLY_USED}.
+         *
+         * @param evictionPolicy
+         *            {@link EvictionPolicy} to use.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setEvictionPolicy(EvictionPolicy evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+            return this;
+        }
+
+        /**
+         * Set loader of json files, for tests.
+         */
+        Builder setJsonLoader(Loader jsonLoader) {
+            this.jsonLoader = jsonLoader;
+            return this;
+        }
+
+        /**
+         * Set loader of binary files, for tests.
+         */
+        Builder setBinaryLoader(Loader binaryLoader) {
+            this.binaryLoader = binaryLoader;
+            return this;
+        }
+
+        /**
+         * Build new instance of FieldCache using this builder.
+         *
+         * @return new instance of {@link FieldCache}.
+         *
+         * @throws AntennaException
+         *             if maximum bytes is negative.
+         */
+        public FieldCache build() {
+            return new FieldCache(this);
+        }
+
+    }
+
+}
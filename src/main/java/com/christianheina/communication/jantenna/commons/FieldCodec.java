@@ -0,0 +1,209 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.nio.ByteBuffer;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Encoding of electric field blocks in binary field files, see
+ * {@link Field#saveBinary(java.nio.file.Path, FieldCodec)}. <br>
+ * Compressed blocks are split into frames of a fixed number of values which are encoded and decoded independently, so
+ * frames can be decoded in parallel when loading a file and one at a time when streaming it with
+ * {@link FieldStream#ofBinary(java.nio.file.Path)}.
+ * <ul>
+ * <li>{@link #raw()} stores plain values, which are memory mapped when loading the file.</li>
+ * <li>{@link #lossless()} XORs each value with a prediction from the previous values and stores only the bits that
+ * differ, in the style of the FPC and Gorilla floating point compressors. Values are restored bit for bit.</li>
+ * <li>{@link #lossy(double)} quantizes log magnitude and phase, so every value is restored within a given error in dB.
+ * </li>
+ * </ul>
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class FieldCodec {
+
+    /** Smallest error bound of lossy codecs, below which lossless compression is smaller. */
+    public static final double MIN_ERROR_DB = 1e-6;
+    /**
+     * Smallest error bound of lossy codecs for single precision fields, whose restored values are rounded to float.
+     */
+    public static final double MIN_SINGLE_PRECISION_ERROR_DB = 1e-5;
+
+    static final byte RAW_ID = 0;
+    static final byte LOSSLESS_ID = 1;
+    static final byte LOSSY_ID = 2;
+
+    private static final FieldCodec RAW = new FieldCodec(RAW_ID, 0);
+    private static final FieldCodec LOSSLESS = new FieldCodec(LOSSLESS_ID, 0);
+
+    private final byte id;
+    private final double maxErrorDb;
+
+    private FieldCodec(byte id, double maxErrorDb) {
+        this.id = id;
+        this.maxErrorDb = maxErrorDb;
+    }
+
+    /**
+     * Get codec storing plain values.
+     *
+     * @return raw codec.
+     */
+    public static FieldCodec raw() {
+        return RAW;
+    }
+
+    /**
+     * Get lossless codec storing XOR of values and predicted values.
+     *
+     * @return lossless codec.
+     */
+    public static FieldCodec lossless() {
+        return LOSSLESS;
+    }
+
+    /**
+     * Get lossy codec restoring every value v as a value v' where |v' - v| &lt;= (1 - 10^(-maxErrorDb / 20)) * |v|, so
+     * magnitude of v' is within maxErrorDb of magnitude of v and phase is within asin(1 - 10^(-maxErrorDb / 20)) of
+     * phase of v. Zeros are restored as zeros and values with infinite or NaN components are stored as they are. The
+     * bound includes rounding of restored values of single precision fields, which need a maxErrorDb of at least
+     * {@link #MIN_SINGLE_PRECISION_ERROR_DB}.
+     *
+     * @param maxErrorDb
+     *            largest error in dB, at least {@link #MIN_ERROR_DB}.
+     *
+     * @return lossy codec.
+     *
+     * @throws AntennaException
+     *             if maxErrorDb is below {@link #MIN_ERROR_DB} or not finite.
+     */
+    public static FieldCodec lossy(double maxErrorDb) {
+        if (!(maxErrorDb >= MIN_ERROR_DB) || Double.isInfinite(maxErrorDb)) {
+            throw new AntennaException("Maximum error needs to be finite and at least " + MIN_ERROR_DB + " dB");
+        }
+        return new FieldCodec(LOSSY_ID, maxErrorDb);
+    }
+
+    /**
+     * Get codec stored in a binary field file.
+     *
+     * @return codec or null if id is unknown.
+     */
+    static FieldCodec of(byte id, double maxErrorDb) {
+        if (id == RAW_ID) {
+            return RAW;
+        } else if (id == LOSSLESS_ID) {
+            return LOSSLESS;
+        } else if (id == LOSSY_ID && maxErrorDb >= MIN_ERROR_DB && !Double.isInfinite(maxErrorDb)) {
+            return new FieldCodec(LOSSY_ID, maxErrorDb);
+        }
+        return null;
+    }
+
+    byte getId() {
+        return id;
+    }
+
+    /**
+     * Check if values of a field of given precision can be encoded within the error bound.
+     *
+     * @return false for {@link #lossy(double)} below {@link #MIN_SINGLE_PRECISION_ERROR_DB} of single precision fields,
+     *         true otherwise.
+     */
+    boolean supports(boolean singlePrecision) {
+        return id != LOSSY_ID || !singlePrecision || maxErrorDb >= MIN_SINGLE_PRECISION_ERROR_DB;
+    }
+
+    /**
+     * Check if values are stored in frames of encoded values.
+     *
+     * @return false for {@link #raw()}, true otherwise.
+     */
+    public boolean isCompressed() {
+        return id != RAW_ID;
+    }
+
+    /**
+     * Check if values are restored exactly.
+     *
+     * @return false for {@link #lossy(double)}, true otherwise.
+     */
+    public boolean isLossless() {
+        return id != LOSSY_ID;
+    }
+
+    /**
+     * Get largest error of restored values.
+     *
+     * @return largest error in dB, 0 for lossless codecs.
+     */
+    public double getMaxErrorDb() {
+        return maxErrorDb;
+    }
+
+    /**
+     * Encode values [from, to) of electric field data into one frame.
+     */
+    byte[] encode(ComplexArray data, int from, int to, boolean singlePrecision) {
+        if (id == LOSSY_ID) {
+            return new LogPolarQuantization(maxErrorDb, singlePrecision).encode(data, from, to);
+        }
+        return XorCompression.encode(data, from, to, singlePrecision);
+    }
+
+    /**
+     * Decode count values of frame, from frame position to frame limit, into real and imaginary from destPos.
+     *
+     * @throws java.nio.BufferUnderflowException
+     *             if frame ends before all values are decoded.
+     */
+    void decode(ByteBuffer frame, double[] real, double[] imaginary, int destPos, int count, boolean singlePrecision) {
+        if (id == LOSSY_ID) {
+            new LogPolarQuantization(maxErrorDb, singlePrecision).decode(frame, real, imaginary, destPos, count);
+        } else {
+            XorCompression.decode(frame, real, imaginary, destPos, count, singlePrecision);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FieldCodec)) {
+            return false;
+        }
+        FieldCodec other = (FieldCodec) obj;
+        return id == other.id && Double.compare(maxErrorDb, other.maxErrorDb) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id + Double.hashCode(maxErrorDb);
+    }
+
+    @Override
+    public String toString() {
+        if (id == RAW_ID) {
+            return "raw";
+        }
+        return id == LOSSLESS_ID ? "lossless" : "lossy(" + maxErrorDb + " dB)";
+    }
+
+}
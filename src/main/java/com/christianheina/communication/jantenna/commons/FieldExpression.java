@@ -0,0 +1,609 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.math3.complex.Complex;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Lazy expression over {@link Field} instances.<br>
+ * Operations only record what to calculate. Terminal operations such as {@link #materialize()} evaluate the whole
+ * expression in a single pass over the angle grid, block by block, so no intermediate fields are allocated. Operands
+ * are read when the expression is evaluated, not when it is built. An operand with a single electric field, such as an
+ * {@link ArrayFactor}, multiplies every electric field of the other operand.
+ *
+ * <pre>
+ * Field pattern = FieldExpression.of(elementPattern).multiply(arrayFactor).scale(taper).rotatePolarization(angle)
+ *         .materialize();
+ * </pre>
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public abstract class FieldExpression {
+
+    /** Number of angles evaluated at a time, small enough for operands of a block to stay in cache. */
+    private static final int BLOCK_SIZE = 1024;
+    private static final double DEFAULT_FREQUENCY = -1;
+
+    private final AngleGrid angleGrid;
+    private final Set<ElectricField> electricFields;
+    /** Electric fields in order of the value arrays of {@link #evaluate}, the same in all nodes of an expression. */
+    private final ElectricField[] electricFieldOrder;
+    private final FieldType fieldType;
+    private final double frequency;
+
+    private FieldExpression(AngleGrid angleGrid, Set<ElectricField> electricFields, FieldType fieldType,
+            double frequency) {
+        this.angleGrid = angleGrid;
+        this.electricFields = electricFields;
+        this.electricFieldOrder = electricFields.toArray(new ElectricField[0]);
+        this.fieldType = fieldType;
+        this.frequency = frequency;
+    }
+
+    /**
+     * Create expression of field.
+     *
+     * @param field
+     *            {@link Field} to start from.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             if field does not have one electric field value for each angle.
+     */
+    public static FieldExpression of(Field field) {
+        return new Source(field);
+    }
+
+    /**
+     * Multiply by other expression, angle by angle for each {@link ElectricField}. An operand with a single electric
+     * field multiplies every electric field of the other operand.
+     *
+     * @param other
+     *            expression to multiply with.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             angles or {@link FieldType} are not the same, or available {@link ElectricField} are not the same and
+     *             neither operand has a single electric field.
+     */
+    public FieldExpression multiply(FieldExpression other) {
+        return new Binary(this, other, Binary.MULTIPLY);
+    }
+
+    /**
+     * Multiply by field, angle by angle for each {@link ElectricField}. An operand with a single electric field, such
+     * as the result of {@link ArrayFactor#calculate(AngleGrid)}, multiplies every electric field of the other operand.
+     *
+     * @param other
+     *            {@link Field} to multiply with.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             angles or {@link FieldType} are not the same, or available {@link ElectricField} are not the same and
+     *             neither operand has a single electric field.
+     */
+    public FieldExpression multiply(Field other) {
+        return multiply(of(other));
+    }
+
+    /**
+     * Multiply by complex conjugate of other expression, angle by angle for each {@link ElectricField}. An operand with
+     * a single electric field multiplies every electric field of the other operand.
+     *
+     * @param other
+     *            expression to conjugate and multiply with.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             angles or {@link FieldType} are not the same, or available {@link ElectricField} are not the same and
+     *             neither operand has a single electric field.
+     */
+    public FieldExpression conjugateMultiply(FieldExpression other) {
+        return new Binary(this, other, Binary.CONJUGATE_MULTIPLY);
+    }
+
+    /**
+     * Multiply by complex conjugate of field, angle by angle for each {@link ElectricField}. An operand with a single
+     * electric field multiplies every electric field of the other operand.
+     *
+     * @param other
+     *            {@link Field} to conjugate and multiply with.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             angles or {@link FieldType} are not the same, or available {@link ElectricField} are not the same and
+     *             neither operand has a single electric field.
+     */
+    public FieldExpression conjugateMultiply(Field other) {
+        return conjugateMultiply(of(other));
+    }
+
+    /**
+     * Add other expression, angle by angle for each {@link ElectricField}.
+     *
+     * @param other
+     *            expression to add.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             angles, available {@link ElectricField} or {@link FieldType} are not the same.
+     */
+    public FieldExpression add(FieldExpression other) {
+        return new Binary(this, other, Binary.ADD);
+    }
+
+    /**
+     * Add field, angle by angle for each {@link ElectricField}.
+     *
+     * @param other
+     *            {@link Field} to add.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             angles, available {@link ElectricField} or {@link FieldType} are not the same.
+     */
+    public FieldExpression add(Field other) {
+        return add(of(other));
+    }
+
+    /**
+     * Scale by complex factor.
+     *
+     * @param factor
+     *            {@link Complex} factor to scale with.
+     *
+     * @return new instance of {@link FieldExpression}.
+     */
+    public FieldExpression scale(Complex factor) {
+        return new Scale(this, factor.getReal(), factor.getImaginary());
+    }
+
+    /**
+     * Rotate polarization by angle around the direction of propagation. Each available pair of THETA and PHI, LUDWIG3H
+     * and LUDWIG3V or PLUS45 and MINUS45 is rotated, first = first * cos(angle) - second * sin(angle) and second =
+     * first * sin(angle) + second * cos(angle). RELATIVE_GAIN is not affected.
+     *
+     * @param angle
+     *            rotation angle in radians.
+     *
+     * @return new instance of {@link FieldExpression}.
+     *
+     * @throws AntennaException
+     *             if an electric field is available without the other electric field of its pair.
+     */
+    public FieldExpression rotatePolarization(double angle) {
+        return new Rotation(this, angle);
+    }
+
+    /**
+     * Evaluate expression into new field.
+     *
+     * @return new instance of {@link Field}.
+     */
+    public Field materialize() {
+        return materialize(ExecutionPolicy.sequential());
+    }
+
+    /**
+     * Evaluate expression into new field.
+     *
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angle blocks are processed.
+     *
+     * @return new instance of {@link Field}.
+     */
+    public Field materialize(ExecutionPolicy policy) {
+        int size = angleGrid.size();
+        ElectricField[] targets = electricFieldOrder;
+        double[][] real = new double[targets.length][size];
+        double[][] imaginary = new double[targets.length][size];
+        policy.forEachChunk(size, targets.length, (from, to) -> {
+            Workspace workspace = new Workspace(targets.length);
+            for (int start = from; start < to; start += BLOCK_SIZE) {
+                evaluate(start, Math.min(to, start + BLOCK_SIZE), real, imaginary, start, workspace);
+            }
+        });
+        Field.Builder builder = Field.newBuilder().setFieldType(fieldType).setAngleGrid(angleGrid)
+                .setFreqency(frequency);
+        for (int t = 0; t < targets.length; t++) {
+            builder.addElectricField(targets[t], real[t], imaginary[t]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Evaluate expression and save result to binary file, see {@link Field#saveBinary(Path)}.
+     *
+     * @param path
+     *            path of saved file
+     *
+     * @throws IOException
+     *             if the file cannot be created or written
+     */
+    public void saveBinary(Path path) throws IOException {
+        materialize().saveBinary(path);
+    }
+
+    /**
+     * Evaluate expression and save result to json file, see {@link Field#saveJson(Path)}.
+     *
+     * @param path
+     *            path of saved file
+     *
+     * @throws IOException
+     *             if the file cannot be created or written
+     */
+    public void saveJson(Path path) throws IOException {
+        materialize().saveJson(path);
+    }
+
+    /**
+     * Evaluate expression and calculate its beam metrics, see {@link BeamMetrics#calculate(Field, ExecutionPolicy)}.
+     *
+     * @param policy
+     *            {@link ExecutionPolicy} deciding how angles are processed.
+     *
+     * @return new instance of {@link BeamMetrics}.
+     */
+    public BeamMetrics calculateBeamMetrics(ExecutionPolicy policy) {
+        return BeamMetrics.calculate(materialize(policy), policy);
+    }
+
+    /**
+     * Get angles of expression.
+     *
+     * @return {@link AngleGrid}.
+     */
+    public AngleGrid getAngleGrid() {
+        return angleGrid;
+    }
+
+    /**
+     * Get electric fields of expression.
+     *
+     * @return unmodifiable {@link Set} of {@link ElectricField}.
+     */
+    public Set<ElectricField> getAvailableElectricFields() {
+        return electricFields;
+    }
+
+    /**
+     * Get field type of expression.
+     *
+     * @return {@link FieldType}.
+     */
+    public FieldType getFieldType() {
+        return fieldType;
+    }
+
+    /**
+     * Get frequency of expression. Operations on two expressions keep frequency if it is the same and otherwise use
+     * default frequency, the same way as {@link Field#multiply(Field)}.
+     *
+     * @return frequency.
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Evaluate all electric fields for angles [from, to) into destination starting at destPos, one array of real and
+     * imaginary for each electric field in order of the available electric fields.
+     */
+    abstract void evaluate(int from, int to, double[][] real, double[][] imaginary, int destPos, Workspace workspace);
+
+    /**
+     * Field operand.
+     */
+    private static final class Source extends FieldExpression {
+
+        private final Field field;
+
+        private Source(Field field) {
+            super(field.getAngleGrid(), electricFields(field), field.getFieldType(), field.getFrequency());
+            for (ElectricField electricField : field.getAvailableElectricFields()) {
+                if (field.getElectricFieldSize(electricField) != field.getAngleGrid().size()) {
+                    throw new AntennaException("Electric fields need to have one value for each angle");
+                }
+            }
+            this.field = field;
+        }
+
+        private static Set<ElectricField> electricFields(Field field) {
+            Set<ElectricField> electricFields = EnumSet.noneOf(ElectricField.class);
+            electricFields.addAll(field.getAvailableElectricFields());
+            return Collections.unmodifiableSet(electricFields);
+        }
+
+        @Override
+        void evaluate(int from, int to, double[][] real, double[][] imaginary, int destPos, Workspace workspace) {
+            ElectricField[] order = super.electricFieldOrder;
+            for (int f = 0; f < order.length; f++) {
+                field.getElectricFieldData(order[f]).copyTo(from, real[f], imaginary[f], destPos, to - from);
+            }
+        }
+
+    }
+
+    /**
+     * Angle by angle operation on two expressions. For multiplication an operand with a single electric field is
+     * broadcast to every electric field of the other operand.
+     */
+    private static final class Binary extends FieldExpression {
+
+        private static final int MULTIPLY = 0;
+        private static final int CONJUGATE_MULTIPLY = 1;
+        private static final int ADD = 2;
+
+        private final FieldExpression left;
+        private final FieldExpression right;
+        private final int operation;
+        private final boolean leftBroadcast;
+        private final boolean rightBroadcast;
+
+        private Binary(FieldExpression left, FieldExpression right, int operation) {
+            super(left.angleGrid, electricFields(left, right, operation), left.fieldType,
+                    left.frequency == right.frequency ? left.frequency : DEFAULT_FREQUENCY);
+            if (!left.angleGrid.equals(right.angleGrid)) {
+                throw new AntennaException("Fields needs to have the same angles");
+            }
+            if (left.fieldType != right.fieldType) {
+                throw new AntennaException("Fields needs to have the same field type");
+            }
+            this.left = left;
+            this.right = right;
+            this.operation = operation;
+            this.leftBroadcast = !left.electricFields.equals(getAvailableElectricFields());
+            this.rightBroadcast = !right.electricFields.equals(getAvailableElectricFields());
+        }
+
+        /**
+         * Get electric fields of result, those of the other operand if an operand of a multiplication has a single
+         * electric field and the operands differ.
+         */
+        private static Set<ElectricField> electricFields(FieldExpression left, FieldExpression right, int operation) {
+            if (left.electricFields.equals(right.electricFields)) {
+                return left.electricFields;
+            }
+            if (operation != ADD && right.electricFields.size() == 1) {
+                return left.electricFields;
+            }
+            if (operation != ADD && left.electricFields.size() == 1) {
+                return right.electricFields;
+            }
+            throw new AntennaException("Fields needs to have the same electrical fields");
+        }
+
+        @Override
+        void evaluate(int from, int to, double[][] real, double[][] imaginary, int destPos, Workspace workspace) {
+            int length = to - from;
+            if (leftBroadcast) {
+                int leftSlot = workspace.push();
+                left.evaluate(from, to, workspace.real[leftSlot], workspace.imaginary[leftSlot], 0, workspace);
+                for (int f = 0; f < real.length; f++) {
+                    System.arraycopy(workspace.real[leftSlot][0], 0, real[f], destPos, length);
+                    System.arraycopy(workspace.imaginary[leftSlot][0], 0, imaginary[f], destPos, length);
+                }
+                workspace.pop();
+            } else {
+                left.evaluate(from, to, real, imaginary, destPos, workspace);
+            }
+            int slot = workspace.push();
+            right.evaluate(from, to, workspace.real[slot], workspace.imaginary[slot], 0, workspace);
+            for (int f = 0; f < real.length; f++) {
+                int other = rightBroadcast ? 0 : f;
+                apply(length, real[f], imaginary[f], destPos, workspace.real[slot][other],
+                        workspace.imaginary[slot][other]);
+            }
+            workspace.pop();
+        }
+
+        private void apply(int length, double[] real, double[] imaginary, int destPos, double[] otherReal,
+                double[] otherImaginary) {
+            switch (operation) {
+            case MULTIPLY:
+                for (int i = 0; i < length; i++) {
+                    double aRe = real[destPos + i];
+                    double aIm = imaginary[destPos + i];
+                    real[destPos + i] = aRe * otherReal[i] - aIm * otherImaginary[i];
+                    imaginary[destPos + i] = aRe * otherImaginary[i] + aIm * otherReal[i];
+                }
+                break;
+            case CONJUGATE_MULTIPLY:
+                for (int i = 0; i < length; i++) {
+                    double aRe = real[destPos + i];
+                    double aIm = imaginary[destPos + i];
+                    real[destPos + i] = aRe * otherReal[i] + aIm * otherImaginary[i];
+                    imaginary[destPos + i] = aIm * otherReal[i] - aRe * otherImaginary[i];
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    real[destPos + i] += otherReal[i];
+                    imaginary[destPos + i] += otherImaginary[i];
+                }
+                break;
+            }
+        }
+
+    }
+
+    /**
+     * Scaling by complex factor.
+     */
+    private static final class Scale extends FieldExpression {
+
+        private final FieldExpression operand;
+        private final double factorReal;
+        private final double factorImaginary;
+
+        private Scale(FieldExpression operand, double factorReal, double factorImaginary) {
+            super(operand.angleGrid, operand.electricFields, operand.fieldType, operand.frequency);
+            this.operand = operand;
+            this.factorReal = factorReal;
+            this.factorImaginary = factorImaginary;
+        }
+
+        @Override
+        void evaluate(int from, int to, double[][] real, double[][] imaginary, int destPos, Workspace workspace) {
+            operand.evaluate(from, to, real, imaginary, destPos, workspace);
+            for (int f = 0; f < real.length; f++) {
+                double[] fieldReal = real[f];
+                double[] fieldImaginary = imaginary[f];
+                for (int i = destPos; i < destPos + to - from; i++) {
+                    double re = fieldReal[i];
+                    double im = fieldImaginary[i];
+                    fieldReal[i] = re * factorReal - im * factorImaginary;
+                    fieldImaginary[i] = re * factorImaginary + im * factorReal;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Polarization rotation of electric field pairs.
+     */
+    private static final class Rotation extends FieldExpression {
+
+        private final FieldExpression operand;
+        private final double cos;
+        private final double sin;
+        /** Indices of first and second electric field of each rotated pair. */
+        private final int[] firstIndices;
+        private final int[] secondIndices;
+
+        private Rotation(FieldExpression operand, double angle) {
+            super(operand.angleGrid, operand.electricFields, operand.fieldType, operand.frequency);
+            for (ElectricField electricField : operand.electricFields) {
+                ElectricField partner = partner(electricField);
+                if (partner != null && !operand.electricFields.contains(partner)) {
+                    throw new AntennaException("Polarization rotation requires both " + electricField + " and "
+                            + partner + " electric fields");
+                }
+            }
+            this.operand = operand;
+            this.cos = Math.cos(angle);
+            this.sin = Math.sin(angle);
+            List<ElectricField> order = Arrays.asList(operand.electricFieldOrder);
+            int[] first = new int[order.size()];
+            int[] second = new int[order.size()];
+            int pairs = 0;
+            for (int f = 0; f < order.size(); f++) {
+                if (isFirst(order.get(f))) {
+                    first[pairs] = f;
+                    second[pairs] = order.indexOf(partner(order.get(f)));
+                    pairs++;
+                }
+            }
+            this.firstIndices = Arrays.copyOf(first, pairs);
+            this.secondIndices = Arrays.copyOf(second, pairs);
+        }
+
+        @Override
+        void evaluate(int from, int to, double[][] real, double[][] imaginary, int destPos, Workspace workspace) {
+            /* Both electric fields of each pair are evaluated once and rotated together */
+            operand.evaluate(from, to, real, imaginary, destPos, workspace);
+            for (int p = 0; p < firstIndices.length; p++) {
+                rotate(real[firstIndices[p]], real[secondIndices[p]], destPos, to - from);
+                rotate(imaginary[firstIndices[p]], imaginary[secondIndices[p]], destPos, to - from);
+            }
+        }
+
+        private void rotate(double[] first, double[] second, int destPos, int length) {
+            for (int i = destPos; i < destPos + length; i++) {
+                double a = first[i];
+                double b = second[i];
+                first[i] = cos * a - sin * b;
+                second[i] = sin * a + cos * b;
+            }
+        }
+
+        private static ElectricField partner(ElectricField electricField) {
+            switch (electricField) {
+            case THETA:
+                return ElectricField.PHI;
+            case PHI:
+                return ElectricField.THETA;
+            case LUDWIG3H:
+                return ElectricField.LUDWIG3V;
+            case LUDWIG3V:
+                return ElectricField.LUDWIG3H;
+            case PLUS45:
+                return ElectricField.MINUS45;
+            case MINUS45:
+                return ElectricField.PLUS45;
+            default:
+                return null;
+            }
+        }
+
+        private static boolean isFirst(ElectricField electricField) {
+            return electricField == ElectricField.THETA || electricField == ElectricField.LUDWIG3H
+                    || electricField == ElectricField.PLUS45;
+        }
+
+    }
+
+    /**
+     * Stack of block sized scratch buffers for operands of one evaluation thread.
+     */
+    static final class Workspace {
+
+        private final int electricFieldCount;
+        private double[][][] real = new double[0][][];
+        private double[][][] imaginary = new double[0][][];
+        private int top;
+
+        private Workspace(int electricFieldCount) {
+            this.electricFieldCount = electricFieldCount;
+        }
+
+        private int push() {
+            if (top == real.length) {
+                real = Arrays.copyOf(real, top + 1);
+                imaginary = Arrays.copyOf(imaginary, top + 1);
+                real[top] = new double[electricFieldCount][BLOCK_SIZE];
+                imaginary[top] = new double[electricFieldCount][BLOCK_SIZE];
+            }
+            return top++;
+        }
+
+        private void pop() {
+            top--;
+        }
+
+    }
+
+}
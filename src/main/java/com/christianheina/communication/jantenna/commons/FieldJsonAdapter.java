@@ -0,0 +1,286 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streaming json codec for {@link Field}.<br>
+ * Reads and writes field data directly between {@link JsonReader}/{@link JsonWriter} and the primitive electric field
+ * buffers without building an intermediate json tree. The json layout is:
+ *
+ * <pre>
+ * {"fieldType":"FARFIELD","thetaPhiList":[{"theta":0.0,"phi":0.0},...],
+ *  "electricFieldMap":{"THETA":[{"imaginary":0.0,"real":1.0},...],...},"frequency":2.8E10}
+ * </pre>
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class FieldJsonAdapter extends TypeAdapter<Field> {
+
+    static final String FIELD_TYPE = "fieldType";
+    static final String THETA_PHI_LIST = "thetaPhiList";
+    static final String ELECTRIC_FIELD_MAP = "electricFieldMap";
+    static final String FREQUENCY = "frequency";
+    static final String THETA = "theta";
+    static final String PHI = "phi";
+    static final String REAL = "real";
+    static final String IMAGINARY = "imaginary";
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Override
+    public void write(JsonWriter out, Field field) throws IOException {
+        if (field == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (field.getFieldType() != null) {
+            out.name(FIELD_TYPE).value(field.getFieldType().name());
+        }
+        out.name(THETA_PHI_LIST).beginArray();
+        AngleGrid angleGrid = field.getAngleGrid();
+        for (int i = 0; i < angleGrid.size(); i++) {
+            out.beginObject().name(THETA).value(angleGrid.getTheta(i)).name(PHI).value(angleGrid.getPhi(i)).endObject();
+        }
+        out.endArray();
+        out.name(ELECTRIC_FIELD_MAP).beginObject();
+        for (ElectricField electricField : field.getAvailableElectricFields()) {
+            ComplexArray electricFieldData = field.getElectricFieldData(electricField);
+            out.name(electricField.name()).beginArray();
+            for (int i = 0; i < electricFieldData.size(); i++) {
+                out.beginObject().name(IMAGINARY).value(electricFieldData.getImaginary(i)).name(REAL)
+                        .value(electricFieldData.getReal(i)).endObject();
+            }
+            out.endArray();
+        }
+        out.endObject();
+        out.name(FREQUENCY).value(field.getFrequency());
+        out.endObject();
+    }
+
+    @Override
+    public Field read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            Field.Builder builder = Field.newBuilder();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if (FIELD_TYPE.equals(name)) {
+                    builder.setFieldType(FieldType.valueOf(in.nextString()));
+                } else if (THETA_PHI_LIST.equals(name)) {
+                    builder.setAngleGrid(readAngleGrid(in));
+                } else if (ELECTRIC_FIELD_MAP.equals(name)) {
+                    readElectricFieldMap(in, builder);
+                } else if (FREQUENCY.equals(name)) {
+                    builder.setFreqency(in.nextDouble());
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return builder.build();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static AngleGrid readAngleGrid(JsonReader in) throws IOException {
+        double[] theta = new double[INITIAL_CAPACITY];
+        double[] phi = new double[INITIAL_CAPACITY];
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == theta.length) {
+                theta = Arrays.copyOf(theta, size * 2);
+                phi = Arrays.copyOf(phi, size * 2);
+            }
+            readAngle(in, theta, phi, size);
+            size++;
+        }
+        in.endArray();
+        return AngleGrid.fromArrays(Arrays.copyOf(theta, size), Arrays.copyOf(phi, size));
+    }
+
+    private static void readElectricFieldMap(JsonReader in, Field.Builder builder) throws IOException {
+        double[] real = new double[INITIAL_CAPACITY];
+        double[] imaginary = new double[INITIAL_CAPACITY];
+        in.beginObject();
+        while (in.hasNext()) {
+            ElectricField electricField = ElectricField.valueOf(in.nextName());
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == real.length) {
+                    real = Arrays.copyOf(real, size * 2);
+                    imaginary = Arrays.copyOf(imaginary, size * 2);
+                }
+                readValue(in, real, imaginary, size);
+                size++;
+            }
+            in.endArray();
+            builder.addElectricField(electricField, Arrays.copyOf(real, size), Arrays.copyOf(imaginary, size));
+            Arrays.fill(real, 0, size, 0);
+            Arrays.fill(imaginary, 0, size, 0);
+        }
+        in.endObject();
+    }
+
+    private static void readAngle(JsonReader in, double[] theta, double[] phi, int index) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (THETA.equals(name)) {
+                theta[index] = in.nextDouble();
+            } else if (PHI.equals(name)) {
+                phi[index] = in.nextDouble();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static void readValue(JsonReader in, double[] real, double[] imaginary, int index) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (REAL.equals(name)) {
+                real[index] = in.nextDouble();
+            } else if (IMAGINARY.equals(name)) {
+                imaginary[index] = in.nextDouble();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * Read field type, frequency and number of angles and electric field values of a json field, skipping over the
+     * values themselves.
+     */
+    static Header readHeader(JsonReader in) throws IOException {
+        Header header = new Header();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (FIELD_TYPE.equals(name)) {
+                header.fieldType = FieldType.valueOf(in.nextString());
+            } else if (THETA_PHI_LIST.equals(name)) {
+                header.angleCount = count(in);
+            } else if (ELECTRIC_FIELD_MAP.equals(name)) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    ElectricField electricField = ElectricField.valueOf(in.nextName());
+                    header.sizes.put(electricField, count(in));
+                }
+                in.endObject();
+            } else if (FREQUENCY.equals(name)) {
+                header.frequency = in.nextDouble();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return header;
+    }
+
+    private static int count(JsonReader in) throws IOException {
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            in.skipValue();
+            count++;
+        }
+        in.endArray();
+        return count;
+    }
+
+    /**
+     * Move reader to first angle of the angle list.
+     */
+    static void moveToAngles(JsonReader in) throws IOException {
+        moveTo(in, THETA_PHI_LIST);
+        in.beginArray();
+    }
+
+    /**
+     * Move reader to first value of electric field.
+     */
+    static void moveToValues(JsonReader in, ElectricField electricField) throws IOException {
+        moveTo(in, ELECTRIC_FIELD_MAP);
+        moveTo(in, electricField.name());
+        in.beginArray();
+    }
+
+    private static void moveTo(JsonReader in, String member) throws IOException {
+        in.beginObject();
+        while (!member.equals(in.nextName())) {
+            in.skipValue();
+        }
+    }
+
+    /**
+     * Read next count angles of the angle list into zeroed theta and phi.
+     */
+    static void readAngles(JsonReader in, double[] theta, double[] phi, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readAngle(in, theta, phi, i);
+        }
+    }
+
+    /**
+     * Read next count values of an electric field into zeroed real and imaginary.
+     */
+    static void readValues(JsonReader in, double[] real, double[] imaginary, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readValue(in, real, imaginary, i);
+        }
+    }
+
+    /**
+     * Field type, frequency and sizes of a json field.
+     */
+    static final class Header {
+
+        FieldType fieldType;
+        double frequency = -1;
+        int angleCount;
+        final Map<ElectricField, Integer> sizes = new EnumMap<>(ElectricField.class);
+
+    }
+
+}
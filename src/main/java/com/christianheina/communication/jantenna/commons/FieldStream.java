@@ -0,0 +1,859 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.math3.complex.Complex;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Chunked, incremental processing of a {@link Field} too large to hold in memory.<br>
+ * A stream reads its source, a json or binary file, an in memory field or a generator, a chunk of consecutive angles at
+ * a time and passes every chunk through its operations to a terminal operation such as {@link #saveBinary(Path)} or
+ * {@link #forEachChunk(ChunkConsumer)}. Chunks are {@link Field} instances holding the values of their angles only, so
+ * memory use is bounded by the chunk size rather than the size of the field.
+ *
+ * <pre>
+ * try (FieldStream stream = FieldStream.ofBinary(measured).multiply(FieldStream.ofBinary(correction))
+ *         .convertPolarization(EnumSet.of(ElectricField.LUDWIG3H, ElectricField.LUDWIG3V))) {
+ *     stream.saveBinary(corrected);
+ * }
+ * </pre>
+ *
+ * A stream is consumed by its terminal operation, or by being used as operand of another stream, and can not be used
+ * again. Closing a stream closes the files of all its sources. Every electric field of a source needs to have one value
+ * for each angle. Json files store values electric field by electric field, so a json source reads the file once to
+ * find its layout and keeps one reader open for the angles and each electric field.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public abstract class FieldStream implements Closeable {
+
+    /** Default number of angles in each chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 65536;
+
+    private static final int READ_BUFFER_BYTES = 65536;
+
+    private final FieldType fieldType;
+    private final double frequency;
+    private final int size;
+    private final Set<ElectricField> electricFields;
+    private final AngleGrid angleGrid;
+    private int position;
+    private boolean consumed;
+
+    private FieldStream(FieldType fieldType, double frequency, int size, Set<ElectricField> electricFields,
+            AngleGrid angleGrid) {
+        this.fieldType = fieldType;
+        this.frequency = frequency;
+        this.size = size;
+        this.electricFields = Collections.unmodifiableSet(electricFields);
+        this.angleGrid = angleGrid;
+    }
+
+    private FieldStream(FieldStream source, Set<ElectricField> electricFields) {
+        this(source.fieldType, source.frequency, source.size, electricFields, source.angleGrid);
+    }
+
+    /**
+     * Create stream of in memory field, for example to combine with a stream of a file.
+     *
+     * @param field
+     *            {@link Field} to stream.
+     *
+     * @return new instance of {@link FieldStream}.
+     *
+     * @throws AntennaException
+     *             if field does not have one electric field value for each angle.
+     */
+    public static FieldStream of(Field field) {
+        return new InMemory(field);
+    }
+
+    /**
+     * Create stream of field binary file, see {@link Field#saveBinary(Path)}. Angles and values are read chunk by
+     * chunk, single precision values are widened to double. Blocks encoded with a {@link FieldCodec} are decoded one
+     * frame at a time.
+     *
+     * @param path
+     *            {@link Path} of file to stream.
+     *
+     * @return new instance of {@link FieldStream}, holding the file open until closed.
+     *
+     * @throws IOException
+     *             if file can not be read or is not a field binary file.
+     * @throws AntennaException
+     *             if electric fields do not have one value for each angle.
+     */
+    public static FieldStream ofBinary(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new Binary(channel, FieldBinaryFormat.readLayout(channel, path));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create stream of field json file, see {@link Field#saveJson(Path)}.
+     *
+     * @param path
+     *            {@link Path} of file to stream.
+     *
+     * @return new instance of {@link FieldStream}, holding the file open until closed.
+     *
+     * @throws IOException
+     *             if file can not be read or is not a field json file.
+     * @throws AntennaException
+     *             if electric fields do not have one value for each angle.
+     */
+    public static FieldStream ofJson(Path path) throws IOException {
+        FieldJsonAdapter.Header header;
+        try (JsonReader in = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            header = FieldJsonAdapter.readHeader(in);
+        } catch (IllegalStateException | IllegalArgumentException | JsonParseException e) {
+            throw new IOException("Invalid field json file: " + path, e);
+        }
+        return new Json(path, header);
+    }
+
+    /**
+     * Create stream generating values chunk by chunk, for example from a model or simulation.
+     *
+     * @param fieldType
+     *            {@link FieldType} of generated field.
+     * @param frequency
+     *            frequency of generated field.
+     * @param angleGrid
+     *            {@link AngleGrid} of generated field, a {@link RegularAngleGrid} does not hold any angles in memory.
+     * @param electricFields
+     *            {@link Set} of {@link ElectricField} generated.
+     * @param generator
+     *            {@link ChunkGenerator} creating the values of each chunk.
+     *
+     * @return new instance of {@link FieldStream}.
+     */
+    public static FieldStream generate(FieldType fieldType, double frequency, AngleGrid angleGrid,
+            Set<ElectricField> electricFields, ChunkGenerator generator) {
+        return new Generated(fieldType, frequency, angleGrid, copyOf(electricFields), generator);
+    }
+
+    private static Set<ElectricField> copyOf(Set<ElectricField> electricFields) {
+        Set<ElectricField> copy = EnumSet.noneOf(ElectricField.class);
+        copy.addAll(electricFields);
+        return copy;
+    }
+
+    /**
+     * Get field type of stream.
+     *
+     * @return {@link FieldType} of stream.
+     */
+    public FieldType getFieldType() {
+        return fieldType;
+    }
+
+    /**
+     * Get frequency of stream.
+     *
+     * @return frequency.
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Get number of angles in stream.
+     *
+     * @return number of angles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get electric fields of stream.
+     *
+     * @return unmodifiable {@link Set} of {@link ElectricField}.
+     */
+    public Set<ElectricField> getElectricFields() {
+        return electricFields;
+    }
+
+    /**
+     * Multiply by other stream, angle by angle for each {@link ElectricField}. Both streams are read in step.
+     *
+     * @param other
+     *            stream to multiply with, consumed by the new stream.
+     *
+     * @return new instance of {@link FieldStream}, closing both streams when closed.
+     *
+     * @throws AntennaException
+     *             if number of angles, available {@link ElectricField} or {@link FieldType} are not the same, or if
+     *             either stream has already been consumed. Chunks with different angles fail when processed.
+     */
+    public FieldStream multiply(FieldStream other) {
+        if (size != other.size || !electricFields.equals(other.electricFields) || fieldType != other.fieldType) {
+            throw new AntennaException("Streams need to have the same angles, electric fields and field type");
+        }
+        return new Product(this, other);
+    }
+
+    /**
+     * Multiply by in memory field, angle by angle for each {@link ElectricField}.
+     *
+     * @param other
+     *            {@link Field} to multiply with.
+     *
+     * @return new instance of {@link FieldStream}.
+     *
+     * @throws AntennaException
+     *             see {@link #multiply(FieldStream)}.
+     */
+    public FieldStream multiply(Field other) {
+        return multiply(of(other));
+    }
+
+    /**
+     * Scale every value by complex factor.
+     *
+     * @param factor
+     *            {@link Complex} to scale with.
+     *
+     * @return new instance of {@link FieldStream}.
+     *
+     * @throws AntennaException
+     *             if stream has already been consumed.
+     */
+    public FieldStream scale(Complex factor) {
+        return new Mapped(this, electricFields, (offset, chunk) -> chunk.scale(factor));
+    }
+
+    /**
+     * Convert polarization of every chunk, see {@link Field#convertPolarization(Set)}.
+     *
+     * @param targets
+     *            {@link Set} of {@link ElectricField} the new stream holds.
+     *
+     * @return new instance of {@link FieldStream}.
+     *
+     * @throws AntennaException
+     *             if stream has already been consumed. Conversion fails when processed if a target is neither available
+     *             nor computable.
+     */
+    public FieldStream convertPolarization(Set<ElectricField> targets) {
+        Set<ElectricField> copy = copyOf(targets);
+        return new Mapped(this, copy, (offset, chunk) -> chunk.convertPolarization(copy));
+    }
+
+    /**
+     * Apply user defined operation to every chunk.
+     *
+     * @param operator
+     *            {@link ChunkOperator} returning a chunk with the same angles and electric fields.
+     *
+     * @return new instance of {@link FieldStream}.
+     *
+     * @throws AntennaException
+     *             if stream has already been consumed. Processing fails if operator changes number of angles or
+     *             electric fields.
+     */
+    public FieldStream map(ChunkOperator operator) {
+        return new Mapped(this, electricFields, operator);
+    }
+
+    /**
+     * Pass every chunk to consumer as it flows by, for example to accumulate metrics while saving a stream.
+     *
+     * @param consumer
+     *            {@link ChunkConsumer} receiving chunks, which should not modify them.
+     *
+     * @return new instance of {@link FieldStream}.
+     *
+     * @throws AntennaException
+     *             if stream has already been consumed.
+     */
+    public FieldStream peek(ChunkConsumer consumer) {
+        return new Peek(this, consumer);
+    }
+
+    /**
+     * Pass every chunk to consumer, in order, using {@link #DEFAULT_CHUNK_SIZE}.
+     *
+     * @param consumer
+     *            {@link ChunkConsumer} receiving chunks.
+     *
+     * @throws IOException
+     *             if a source can not be read or consumer fails to write.
+     * @throws AntennaException
+     *             if stream has already been consumed or a chunk can not be processed.
+     */
+    public void forEachChunk(ChunkConsumer consumer) throws IOException {
+        forEachChunk(DEFAULT_CHUNK_SIZE, consumer);
+    }
+
+    /**
+     * Pass every chunk to consumer, in order.
+     *
+     * @param chunkSize
+     *            largest number of angles in a chunk.
+     * @param consumer
+     *            {@link ChunkConsumer} receiving chunks.
+     *
+     * @throws IOException
+     *             if a source can not be read or consumer fails to write.
+     * @throws AntennaException
+     *             if chunk size is not positive, stream has already been consumed or a chunk can not be processed.
+     */
+    public void forEachChunk(int chunkSize, ChunkConsumer consumer) throws IOException {
+        if (chunkSize < 1) {
+            throw new AntennaException("Chunk size needs to be positive");
+        }
+        consume();
+        for (int offset = 0; offset < size; offset += chunkSize) {
+            consumer.accept(offset, next(Math.min(chunkSize, size - offset)));
+        }
+    }
+
+    /**
+     * Save stream to field binary file using {@link #DEFAULT_CHUNK_SIZE}, see {@link #saveBinary(Path, int)}.
+     *
+     * @param path
+     *            {@link Path} of file to write.
+     *
+     * @throws IOException
+     *             if a source can not be read or file can not be written.
+     * @throws AntennaException
+     *             if stream has already been consumed or a chunk can not be processed.
+     */
+    public void saveBinary(Path path) throws IOException {
+        saveBinary(path, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Save stream to field binary file, chunk by chunk, in double precision. The file can be read with
+     * {@link Field#loadBinary(Path)} or streamed again with {@link #ofBinary(Path)}. The file is written next to path
+     * and moved over it once complete, so path can also be a source of the stream.
+     *
+     * @param path
+     *            {@link Path} of file to write.
+     * @param chunkSize
+     *            largest number of angles in a chunk.
+     *
+     * @throws IOException
+     *             if a source can not be read or file can not be written.
+     * @throws AntennaException
+     *             if chunk size is not positive, stream has already been consumed or a chunk can not be processed.
+     */
+    public void saveBinary(Path path, int chunkSize) throws IOException {
+        try (FieldBinaryFormat.ChunkWriter writer = new FieldBinaryFormat.ChunkWriter(path, fieldType, frequency,
+                angleGrid, size, electricFields)) {
+            forEachChunk(chunkSize, writer::write);
+            writer.commit();
+        }
+    }
+
+    /**
+     * Collect stream into a field held in memory, for results small enough to fit.
+     *
+     * @return new instance of {@link Field}.
+     *
+     * @throws IOException
+     *             if a source can not be read.
+     * @throws AntennaException
+     *             if stream has already been consumed or a chunk can not be processed.
+     */
+    public Field materialize() throws IOException {
+        double[] theta = angleGrid == null ? new double[size] : null;
+        double[] phi = angleGrid == null ? new double[size] : null;
+        ElectricField[] fields = electricFields.toArray(new ElectricField[0]);
+        double[][] real = new double[fields.length][size];
+        double[][] imaginary = new double[fields.length][size];
+        forEachChunk((offset, chunk) -> {
+            int count = chunk.getAngleGrid().size();
+            if (theta != null) {
+                for (int i = 0; i < count; i++) {
+                    theta[offset + i] = chunk.getAngleGrid().getTheta(i);
+                    phi[offset + i] = chunk.getAngleGrid().getPhi(i);
+                }
+            }
+            for (int f = 0; f < fields.length; f++) {
+                chunk.copyElectricField(fields[f], 0, real[f], imaginary[f], offset, count);
+            }
+        });
+        Field.Builder builder = Field.newBuilder().setFieldType(fieldType).setFreqency(frequency)
+                .setAngleGrid(angleGrid != null ? angleGrid : AngleGrid.fromArrays(theta, phi));
+        for (int f = 0; f < fields.length; f++) {
+            builder.addElectricField(fields[f], real[f], imaginary[f]);
+        }
+        return builder.build();
+    }
+
+    private void consume() {
+        if (consumed) {
+            throw new AntennaException("Field stream has already been consumed");
+        }
+        consumed = true;
+    }
+
+    private Field next(int count) throws IOException {
+        Field chunk = read(position, count);
+        position += count;
+        return chunk;
+    }
+
+    /**
+     * Read chunk of count angles starting at offset. Chunks are read in order, each starting where the previous ended.
+     */
+    abstract Field read(int offset, int count) throws IOException;
+
+    /**
+     * Create chunk with angles and one value array pair for each electric field, in electric field order.
+     */
+    private static Field chunk(FieldType fieldType, double frequency, double[] theta, double[] phi,
+            ElectricField[] electricFields, double[][] real, double[][] imaginary) {
+        Field.Builder builder = Field.newBuilder().setFieldType(fieldType).setFreqency(frequency)
+                .setAngleGrid(new ExplicitAngleGrid(theta, phi));
+        for (int f = 0; f < electricFields.length; f++) {
+            builder.addElectricField(electricFields[f], real[f], imaginary[f]);
+        }
+        return builder.build();
+    }
+
+    private static void checkSizes(Map<ElectricField, Integer> sizes, int angleCount) {
+        for (int size : sizes.values()) {
+            if (size != angleCount) {
+                throw new AntennaException("Electric fields need to have one value for each angle");
+            }
+        }
+    }
+
+    private static void checkChunk(Field chunk, int count, Set<ElectricField> electricFields) {
+        if (chunk.getAngleGrid().size() != count || !chunk.getAvailableElectricFields().equals(electricFields)) {
+            throw new AntennaException("Chunks need to keep their angles and electric fields");
+        }
+        for (ElectricField electricField : electricFields) {
+            if (chunk.getElectricFieldSize(electricField) != count) {
+                throw new AntennaException("Electric fields need to have one value for each angle");
+            }
+        }
+    }
+
+    private static IOException closeQuietly(Closeable closeable, IOException failure) {
+        if (closeable == null) {
+            return failure;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                return e;
+            }
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * Creator of the values of a generated stream.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    @FunctionalInterface
+    public interface ChunkGenerator {
+
+        /**
+         * Generate chunk.
+         *
+         * @param offset
+         *            index of first angle of chunk in stream.
+         * @param angleGrid
+         *            {@link AngleGrid} of the angles of chunk.
+         *
+         * @return new {@link Field} on angle grid holding the electric fields of the stream.
+         */
+        Field generate(int offset, AngleGrid angleGrid);
+
+    }
+
+    /**
+     * Operation applied to every chunk of a stream.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    @FunctionalInterface
+    public interface ChunkOperator {
+
+        /**
+         * Apply operation to chunk.
+         *
+         * @param offset
+         *            index of first angle of chunk in stream.
+         * @param chunk
+         *            {@link Field} holding the angles of chunk.
+         *
+         * @return {@link Field} with the same angles and electric fields, chunk itself or a new instance.
+         */
+        Field apply(int offset, Field chunk);
+
+    }
+
+    /**
+     * Receiver of the chunks of a stream.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+
+        /**
+         * Accept chunk.
+         *
+         * @param offset
+         *            index of first angle of chunk in stream.
+         * @param chunk
+         *            {@link Field} holding the angles of chunk.
+         *
+         * @throws IOException
+         *             if chunk can not be written.
+         */
+        void accept(int offset, Field chunk) throws IOException;
+
+    }
+
+    /**
+     * Stream of in memory field.
+     */
+    private static final class InMemory extends FieldStream {
+
+        private final Field field;
+        private final ElectricField[] fields;
+
+        private InMemory(Field field) {
+            super(field.getFieldType(), field.getFrequency(), field.getAngleGrid().size(),
+                    copyOf(field.getAvailableElectricFields()), field.getAngleGrid());
+            this.field = field;
+            this.fields = getElectricFields().toArray(new ElectricField[0]);
+            for (ElectricField electricField : fields) {
+                if (field.getElectricFieldSize(electricField) != size()) {
+                    throw new AntennaException("Electric fields need to have one value for each angle");
+                }
+            }
+        }
+
+        @Override
+        Field read(int offset, int count) {
+            AngleGrid angleGrid = field.getAngleGrid();
+            double[] theta = new double[count];
+            double[] phi = new double[count];
+            for (int i = 0; i < count; i++) {
+                theta[i] = angleGrid.getTheta(offset + i);
+                phi[i] = angleGrid.getPhi(offset + i);
+            }
+            double[][] real = new double[fields.length][count];
+            double[][] imaginary = new double[fields.length][count];
+            for (int f = 0; f < fields.length; f++) {
+                field.copyElectricField(fields[f], offset, real[f], imaginary[f], 0, count);
+            }
+            return chunk(getFieldType(), getFrequency(), theta, phi, fields, real, imaginary);
+        }
+
+        @Override
+        public void close() {
+            /* Nothing to release */
+        }
+
+    }
+
+    /**
+     * Stream of field binary file, read with positional reads through one buffer, and encoded blocks frame by frame.
+     */
+    private static final class Binary extends FieldStream {
+
+        private final FileChannel channel;
+        private final FieldBinaryFormat.Layout layout;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        /** Reader of each encoded block, null for raw blocks. */
+        private final FieldBinaryFormat.BlockReader[] blockReaders;
+
+        private Binary(FileChannel channel, FieldBinaryFormat.Layout layout) throws IOException {
+            super(layout.fieldType, layout.frequency, layout.angleCount, electricFields(layout),
+                    layout.regularAngleGrid);
+            this.channel = channel;
+            this.layout = layout;
+            for (int size : layout.sizes) {
+                if (size != layout.angleCount) {
+                    throw new AntennaException("Electric fields need to have one value for each angle");
+                }
+            }
+            this.blockReaders = new FieldBinaryFormat.BlockReader[layout.electricFields.length];
+            for (int f = 0; f < blockReaders.length; f++) {
+                if (layout.codecs[f].isCompressed()) {
+                    blockReaders[f] = new FieldBinaryFormat.BlockReader(channel, layout, f);
+                }
+            }
+        }
+
+        private static Set<ElectricField> electricFields(FieldBinaryFormat.Layout layout) {
+            Set<ElectricField> electricFields = EnumSet.noneOf(ElectricField.class);
+            Collections.addAll(electricFields, layout.electricFields);
+            return electricFields;
+        }
+
+        @Override
+        Field read(int offset, int count) throws IOException {
+            double[] theta = new double[count];
+            double[] phi = new double[count];
+            if (layout.regularAngleGrid != null) {
+                for (int i = 0; i < count; i++) {
+                    theta[i] = layout.regularAngleGrid.getTheta(offset + i);
+                    phi[i] = layout.regularAngleGrid.getPhi(offset + i);
+                }
+            } else {
+                FieldBinaryFormat.readValues(channel, layout.thetaPosition + (long) offset * Double.BYTES, Double.BYTES,
+                        theta, count, buffer);
+                FieldBinaryFormat.readValues(channel, layout.phiPosition + (long) offset * Double.BYTES, Double.BYTES,
+                        phi, count, buffer);
+            }
+            int fields = layout.electricFields.length;
+            double[][] real = new double[fields][count];
+            double[][] imaginary = new double[fields][count];
+            long skip = (long) offset * layout.valueSize;
+            for (int f = 0; f < fields; f++) {
+                if (blockReaders[f] != null) {
+                    blockReaders[f].read(offset, real[f], imaginary[f], count);
+                    continue;
+                }
+                FieldBinaryFormat.readValues(channel, layout.realPositions[f] + skip, layout.valueSize, real[f], count,
+                        buffer);
+                FieldBinaryFormat.readValues(channel, layout.imaginaryPositions[f] + skip, layout.valueSize,
+                        imaginary[f], count, buffer);
+            }
+            return chunk(getFieldType(), getFrequency(), theta, phi, layout.electricFields, real, imaginary);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    /**
+     * Stream of field json file, with one reader for the angle list and one for each electric field.
+     */
+    private static final class Json extends FieldStream {
+
+        private final Path path;
+        private final ElectricField[] fields;
+        private final JsonReader angleReader;
+        private final JsonReader[] valueReaders;
+
+        private Json(Path path, FieldJsonAdapter.Header header) throws IOException {
+            super(header.fieldType, header.frequency, header.angleCount, copyOf(header.sizes.keySet()), null);
+            checkSizes(header.sizes, header.angleCount);
+            this.path = path;
+            this.fields = getElectricFields().toArray(new ElectricField[0]);
+            this.valueReaders = new JsonReader[fields.length];
+            this.angleReader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+            try {
+                FieldJsonAdapter.moveToAngles(angleReader);
+                for (int f = 0; f < fields.length; f++) {
+                    valueReaders[f] = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+                    FieldJsonAdapter.moveToValues(valueReaders[f], fields[f]);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        Field read(int offset, int count) throws IOException {
+            double[] theta = new double[count];
+            double[] phi = new double[count];
+            double[][] real = new double[fields.length][count];
+            double[][] imaginary = new double[fields.length][count];
+            try {
+                FieldJsonAdapter.readAngles(angleReader, theta, phi, count);
+                for (int f = 0; f < fields.length; f++) {
+                    FieldJsonAdapter.readValues(valueReaders[f], real[f], imaginary[f], count);
+                }
+            } catch (IllegalStateException | NumberFormatException e) {
+                throw new IOException("Invalid field json file: " + path, e);
+            }
+            return chunk(getFieldType(), getFrequency(), theta, phi, fields, real, imaginary);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (JsonReader reader : valueReaders) {
+                failure = closeQuietly(reader, failure);
+            }
+            failure = closeQuietly(angleReader, failure);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+    }
+
+    /**
+     * Stream of values created by a generator.
+     */
+    private static final class Generated extends FieldStream {
+
+        private final AngleGrid angleGrid;
+        private final ChunkGenerator generator;
+
+        private Generated(FieldType fieldType, double frequency, AngleGrid angleGrid, Set<ElectricField> electricFields,
+                ChunkGenerator generator) {
+            super(fieldType, frequency, angleGrid.size(), electricFields, angleGrid);
+            this.angleGrid = angleGrid;
+            this.generator = generator;
+        }
+
+        @Override
+        Field read(int offset, int count) {
+            double[] theta = new double[count];
+            double[] phi = new double[count];
+            for (int i = 0; i < count; i++) {
+                theta[i] = angleGrid.getTheta(offset + i);
+                phi[i] = angleGrid.getPhi(offset + i);
+            }
+            Field chunk = generator.generate(offset, new ExplicitAngleGrid(theta, phi));
+            checkChunk(chunk, count, getElectricFields());
+            return chunk;
+        }
+
+        @Override
+        public void close() {
+            /* Nothing to release */
+        }
+
+    }
+
+    /**
+     * Stream multiplying two streams angle by angle.
+     */
+    private static final class Product extends FieldStream {
+
+        private final FieldStream first;
+        private final FieldStream second;
+
+        private Product(FieldStream first, FieldStream second) {
+            super(first, first.electricFields);
+            first.consume();
+            second.consume();
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        Field read(int offset, int count) throws IOException {
+            Field chunk = first.next(count);
+            return chunk.multiply(second.next(count), chunk);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = closeQuietly(first, null);
+            failure = closeQuietly(second, failure);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+    }
+
+    /**
+     * Stream applying an operator to every chunk of another stream.
+     */
+    private static final class Mapped extends FieldStream {
+
+        private final FieldStream source;
+        private final ChunkOperator operator;
+
+        private Mapped(FieldStream source, Set<ElectricField> electricFields, ChunkOperator operator) {
+            super(source, electricFields);
+            source.consume();
+            this.source = source;
+            this.operator = operator;
+        }
+
+        @Override
+        Field read(int offset, int count) throws IOException {
+            Field chunk = operator.apply(offset, source.next(count));
+            checkChunk(chunk, count, getElectricFields());
+            return chunk;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+    }
+
+    /**
+     * Stream passing every chunk of another stream to a consumer.
+     */
+    private static final class Peek extends FieldStream {
+
+        private final FieldStream source;
+        private final ChunkConsumer consumer;
+
+        private Peek(FieldStream source, ChunkConsumer consumer) {
+            super(source, source.electricFields);
+            source.consume();
+            this.source = source;
+            this.consumer = consumer;
+        }
+
+        @Override
+        Field read(int offset, int count) throws IOException {
+            Field chunk = source.next(count);
+            consumer.accept(offset, chunk);
+            return chunk;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+    }
+
+}
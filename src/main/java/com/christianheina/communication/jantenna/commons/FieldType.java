@@ -25,6 +25,10 @@ public enum FieldType {
     /**
      * Far field type of field.
      */
-    FARFIELD;
+    FARFIELD,
+    /**
+     * Near field type of field, tangential field sampled on a sphere around the antenna.
+     */
+    NEARFIELD;
 
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * {@link ComplexArray} backed by heap float arrays, using half the memory of {@link HeapComplexArray}.<br>
+ * Values are widened to double on read and rounded to float on write.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class FloatComplexArray extends ComplexArray {
+
+    private final float[] real;
+    private final float[] imaginary;
+
+    FloatComplexArray(float[] real, float[] imaginary) {
+        if (real.length != imaginary.length) {
+            throw new AntennaException("Real and imaginary parts need to have the same length");
+        }
+        this.real = real;
+        this.imaginary = imaginary;
+    }
+
+    @Override
+    int size() {
+        return real.length;
+    }
+
+    @Override
+    double getReal(int index) {
+        return real[index];
+    }
+
+    @Override
+    double getImaginary(int index) {
+        return imaginary[index];
+    }
+
+    @Override
+    void set(int index, double realValue, double imaginaryValue) {
+        real[index] = (float) realValue;
+        imaginary[index] = (float) imaginaryValue;
+    }
+
+    @Override
+    long byteSize() {
+        return 2L * real.length * Float.BYTES;
+    }
+
+    @Override
+    ComplexArray copy() {
+        return new FloatComplexArray(real.clone(), imaginary.clone());
+    }
+
+    @Override
+    FloatComplexArray toSinglePrecision() {
+        return new FloatComplexArray(real.clone(), imaginary.clone());
+    }
+
+    float[] real() {
+        return real;
+    }
+
+    float[] imaginary() {
+        return imaginary;
+    }
+
+}
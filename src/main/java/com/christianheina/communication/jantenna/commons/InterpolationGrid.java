@@ -0,0 +1,337 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.Arrays;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Theta by phi layout of an {@link AngleGrid} used to interpolate field values at arbitrary angles.<br>
+ * Grid values are laid out row by row, one row of phi angles for each theta angle. Phi is wrapped around when the phi
+ * angles cover the full circle. Directions beyond the poles are reflected to theta in [0, pi] and phi + pi, where the
+ * theta and phi unit vectors, and so {@link ElectricField#THETA} and {@link ElectricField#PHI} values, change sign.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class InterpolationGrid {
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double ANGLE_TOLERANCE = 1e-9;
+
+    private final Axis theta;
+    private final Axis phi;
+    private final int rowLength;
+    private final boolean poleAtStart;
+    private final boolean poleAtEnd;
+    private final int halfTurn;
+
+    private InterpolationGrid(Axis theta, Axis phi, int rowLength) {
+        this.theta = theta;
+        this.phi = phi;
+        this.rowLength = rowLength;
+        this.halfTurn = phi.periodic && phi.regular && phi.size % 2 == 0 ? phi.size / 2 : -1;
+        this.poleAtStart = halfTurn > 0 && Math.abs(theta.values[0]) < ANGLE_TOLERANCE;
+        this.poleAtEnd = halfTurn > 0 && Math.abs(theta.values[theta.size - 1] - Math.PI) < ANGLE_TOLERANCE;
+    }
+
+    /**
+     * Create interpolation layout of angle grid.
+     *
+     * @throws AntennaException
+     *             if angles are not a grid of increasing theta rows each holding the same increasing phi angles.
+     */
+    static InterpolationGrid of(AngleGrid angleGrid) {
+        if (angleGrid.size() == 0) {
+            throw new AntennaException("Interpolation requires at least one angle");
+        }
+        if (angleGrid instanceof RegularAngleGrid) {
+            RegularAngleGrid grid = (RegularAngleGrid) angleGrid;
+            double[] thetas = new double[grid.getThetaCount()];
+            for (int i = 0; i < thetas.length; i++) {
+                thetas[i] = grid.getThetaAt(i);
+            }
+            double[] phis = new double[grid.getPhiCount()];
+            for (int j = 0; j < phis.length; j++) {
+                phis[j] = grid.getPhiAt(j);
+            }
+            return new InterpolationGrid(new Axis(thetas, false), new Axis(phis, true), phis.length);
+        }
+        int size = angleGrid.size();
+        int rowLength = 1;
+        while (rowLength < size && Double.compare(angleGrid.getTheta(rowLength), angleGrid.getTheta(0)) == 0) {
+            rowLength++;
+        }
+        if (size % rowLength != 0) {
+            throw new AntennaException("Interpolation requires angles on a theta by phi grid");
+        }
+        double[] thetas = new double[size / rowLength];
+        double[] phis = new double[rowLength];
+        for (int j = 0; j < rowLength; j++) {
+            phis[j] = angleGrid.getPhi(j);
+        }
+        for (int i = 0; i < thetas.length; i++) {
+            thetas[i] = angleGrid.getTheta(i * rowLength);
+            for (int j = 0; j < rowLength; j++) {
+                int index = i * rowLength + j;
+                if (Double.compare(angleGrid.getTheta(index), thetas[i]) != 0
+                        || Double.compare(angleGrid.getPhi(index), phis[j]) != 0) {
+                    throw new AntennaException("Interpolation requires angles on a theta by phi grid");
+                }
+            }
+        }
+        return new InterpolationGrid(new Axis(thetas, false), new Axis(phis, true), rowLength);
+    }
+
+    int getThetaCount() {
+        return theta.size;
+    }
+
+    double getTheta(int row) {
+        return theta.values[row];
+    }
+
+    /**
+     * Get number of distinct phi angles, excluding a repeated first angle at the end of rows covering the full circle.
+     */
+    int getPhiCount() {
+        return phi.size;
+    }
+
+    double getPhi(int column) {
+        return phi.values[column];
+    }
+
+    /**
+     * Get angle where phi axis ends, first phi angle + 2 pi for rows covering the full circle.
+     */
+    double getPhiEnd() {
+        return phi.end;
+    }
+
+    boolean isPhiPeriodic() {
+        return phi.periodic;
+    }
+
+    /**
+     * Get number of phi columns in half a turn, or -1 if phi angles can not be reflected across the poles.
+     */
+    int getHalfTurn() {
+        return halfTurn;
+    }
+
+    boolean isPoleAtStart() {
+        return poleAtStart;
+    }
+
+    boolean isPoleAtEnd() {
+        return poleAtEnd;
+    }
+
+    /**
+     * Get number of grid values in each theta row, including a repeated first phi angle at the end of the row.
+     */
+    int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * Get grid index of theta row and phi column. Columns outside the row are wrapped around or clamped.
+     */
+    int index(int row, int column) {
+        return row * rowLength + phi.neighbour(column);
+    }
+
+    /**
+     * Interpolate value of electric field data laid out on this grid.
+     *
+     * @param data
+     *            electric field values.
+     * @param componentSign
+     *            -1 for theta and phi components, which change sign across poles, 1 otherwise.
+     * @param cubic
+     *            true for bicubic, false for bilinear interpolation.
+     */
+    void interpolate(ComplexArray data, double componentSign, boolean cubic, double thetaValue, double phiValue,
+            double[] real, double[] imaginary, int destPos) {
+        double sign = 1;
+        double t = thetaValue % TWO_PI;
+        if (t < 0) {
+            t += TWO_PI;
+        }
+        double p = phiValue;
+        if (t > Math.PI) {
+            t = TWO_PI - t;
+            p += Math.PI;
+            sign = componentSign;
+        }
+        int row = theta.locate(t);
+        double rowFraction = theta.fraction(t, row);
+        int column = phi.locate(p);
+        double columnFraction = phi.fraction(p, column);
+
+        double sumReal = 0;
+        double sumImaginary = 0;
+        int first = cubic ? -1 : 0;
+        int last = cubic ? 2 : 1;
+        for (int k = first; k <= last; k++) {
+            double rowWeight = cubic ? cubicWeight(k, rowFraction) : linearWeight(k, rowFraction);
+            if (rowWeight == 0) {
+                continue;
+            }
+            int r = row + k;
+            int shift = 0;
+            double rowSign = 1;
+            if (r < 0 && poleAtStart) {
+                r = -r;
+                shift = halfTurn;
+                rowSign = componentSign;
+            } else if (r >= theta.size && poleAtEnd) {
+                r = 2 * (theta.size - 1) - r;
+                shift = halfTurn;
+                rowSign = componentSign;
+            }
+            r = Math.max(0, Math.min(theta.size - 1, r));
+            double rowReal = 0;
+            double rowImaginary = 0;
+            for (int l = first; l <= last; l++) {
+                double columnWeight = cubic ? cubicWeight(l, columnFraction) : linearWeight(l, columnFraction);
+                if (columnWeight == 0) {
+                    continue;
+                }
+                int index = r * rowLength + phi.neighbour(column + l + shift);
+                rowReal += columnWeight * data.getReal(index);
+                rowImaginary += columnWeight * data.getImaginary(index);
+            }
+            sumReal += rowSign * rowWeight * rowReal;
+            sumImaginary += rowSign * rowWeight * rowImaginary;
+        }
+        real[destPos] = sign * sumReal;
+        imaginary[destPos] = sign * sumImaginary;
+    }
+
+    private static double linearWeight(int k, double t) {
+        return k == 0 ? 1 - t : t;
+    }
+
+    /**
+     * Catmull-Rom cubic convolution weight of sample k, k = -1 to 2, at fraction t between sample 0 and 1.
+     */
+    private static double cubicWeight(int k, double t) {
+        double t2 = t * t;
+        double t3 = t2 * t;
+        switch (k) {
+        case -1:
+            return 0.5 * (-t3 + 2 * t2 - t);
+        case 0:
+            return 0.5 * (3 * t3 - 5 * t2 + 2);
+        case 1:
+            return 0.5 * (-3 * t3 + 4 * t2 + t);
+        default:
+            return 0.5 * (t3 - t2);
+        }
+    }
+
+    /**
+     * Increasing angles along one grid direction. Regular axes locate cells in constant time, others by binary search.
+     */
+    private static final class Axis {
+
+        private final double[] values;
+        private final int size;
+        private final boolean wrap;
+        private final boolean periodic;
+        private final boolean regular;
+        private final double start;
+        private final double step;
+        private final double end;
+
+        private Axis(double[] angles, boolean wrap) {
+            for (int i = 1; i < angles.length; i++) {
+                if (!(angles[i] > angles[i - 1])) {
+                    throw new AntennaException("Interpolation requires increasing theta and phi angles");
+                }
+            }
+            int count = angles.length;
+            double span = angles[count - 1] - angles[0];
+            double averageStep = count > 1 ? span / (count - 1) : 0;
+            boolean equallySpaced = count > 1;
+            for (int i = 1; i < count && equallySpaced; i++) {
+                equallySpaced = Math.abs(angles[i] - (angles[0] + i * averageStep)) <= ANGLE_TOLERANCE;
+            }
+            /* Full circle either repeats first angle at the end or continues one step past the last angle */
+            boolean repeated = wrap && count > 2 && Math.abs(span - TWO_PI) < ANGLE_TOLERANCE;
+            this.wrap = wrap;
+            this.periodic = repeated
+                    || wrap && equallySpaced && Math.abs(span + averageStep - TWO_PI) < ANGLE_TOLERANCE;
+            this.size = repeated ? count - 1 : count;
+            this.values = Arrays.copyOf(angles, size);
+            this.regular = equallySpaced;
+            this.start = angles[0];
+            this.step = averageStep;
+            this.end = periodic ? start + TWO_PI : angles[count - 1];
+        }
+
+        /**
+         * Get index of cell holding angle. Angles outside axis are wrapped around for periodic axes and clamped to axis
+         * range otherwise.
+         */
+        private int locate(double angle) {
+            double x = position(angle);
+            if (size == 1) {
+                return 0;
+            }
+            int cells = periodic ? size : size - 1;
+            int cell;
+            if (regular) {
+                cell = (int) ((x - start) / step);
+            } else {
+                cell = Arrays.binarySearch(values, x);
+                cell = cell >= 0 ? cell : -cell - 2;
+            }
+            return Math.max(0, Math.min(cells - 1, cell));
+        }
+
+        private double fraction(double angle, int cell) {
+            if (size == 1) {
+                return 0;
+            }
+            double x = position(angle);
+            double low = values[cell];
+            double high = cell + 1 < size ? values[cell + 1] : end;
+            return Math.max(0, Math.min(1, (x - low) / (high - low)));
+        }
+
+        private double position(double angle) {
+            double x = angle;
+            if (periodic) {
+                x -= TWO_PI * Math.floor((x - start) / TWO_PI);
+            } else if (wrap) {
+                /* Closest turn of angle to center of axis so angles outside axis are clamped to the nearest end */
+                double center = 0.5 * (start + end);
+                x -= TWO_PI * Math.floor((x - center + Math.PI) / TWO_PI);
+            }
+            return Math.max(start, Math.min(end, x));
+        }
+
+        private int neighbour(int index) {
+            return periodic ? Math.floorMod(index, size) : Math.max(0, Math.min(size - 1, index));
+        }
+
+    }
+
+}
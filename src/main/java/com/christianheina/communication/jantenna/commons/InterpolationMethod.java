@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+/**
+ * Interpolation method used to get field values between grid angles.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public enum InterpolationMethod {
+    /**
+     * Bilinear interpolation of the four surrounding grid values.
+     */
+    BILINEAR,
+    /**
+     * Bicubic (Catmull-Rom cubic convolution) interpolation of the sixteen surrounding grid values.
+     */
+    BICUBIC;
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+/**
+ * Spectrum of complex values on an equally spaced lattice of xCount by yCount points
+ *
+ * <pre>
+ * S(psiX, psiY) = sum(value(m, n) * exp(j * (m * psiX + n * psiY)))
+ * </pre>
+ *
+ * where m and n are lattice indices. S is sampled by a zero padded {@link Fft} and interpolated between samples with
+ * four point cubic Lagrange interpolation along each axis. The lattice is shifted to its center before interpolating,
+ * so the interpolated function varies as slowly as possible, and shifted back afterwards. Interpolation error relative
+ * to sum(|value|) is below 0.025 * (pi / oversampling)^4 along each axis.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class LatticeSpectrum {
+
+    /** Approximate cost of one interpolated value, in multiply accumulate operations. */
+    static final int INTERPOLATION_COST = 16;
+
+    private final int columns;
+    private final int rows;
+    private final double[] real;
+    private final double[] imaginary;
+    private final Shift xShift;
+    private final Shift yShift;
+
+    /**
+     * Transform values laid out row by row, index = n * xCount + m. Arrays are not modified.
+     */
+    LatticeSpectrum(double[] real, double[] imaginary, int xCount, int yCount, int oversampling) {
+        this.columns = length(xCount, oversampling);
+        this.rows = length(yCount, oversampling);
+        this.real = new double[rows * columns];
+        this.imaginary = new double[rows * columns];
+        for (int n = 0; n < yCount; n++) {
+            System.arraycopy(real, n * xCount, this.real, n * columns, xCount);
+            System.arraycopy(imaginary, n * xCount, this.imaginary, n * columns, xCount);
+        }
+        Fft.transform2d(this.real, this.imaginary, rows, columns, 1);
+        this.xShift = new Shift(xCount, columns);
+        this.yShift = new Shift(yCount, rows);
+    }
+
+    /**
+     * Get number of transform samples, along both axes, used for a lattice.
+     */
+    static long size(int xCount, int yCount, int oversampling) {
+        return (long) length(xCount, oversampling) * length(yCount, oversampling);
+    }
+
+    private static int length(int count, int oversampling) {
+        /* Single point has a constant spectrum along that axis, nothing to interpolate */
+        return count == 1 ? 1 : Fft.powerOfTwo(Math.max(4, (int) Math.min(1 << 30, (long) oversampling * count)));
+    }
+
+    /**
+     * Interpolate S(psiX, psiY), writing real part to value[offset] and imaginary part to value[offset + 1]. Taps is
+     * scratch space of at least 16 values.
+     */
+    void interpolate(double psiX, double psiY, double[] taps, double[] value, int offset) {
+        int xCell = xShift.taps(psiX, taps, 0);
+        int yCell = yShift.taps(psiY, taps, 8);
+        int xTaps = columns == 1 ? 1 : 4;
+        int yTaps = rows == 1 ? 1 : 4;
+        double re = 0;
+        double im = 0;
+        for (int b = 0; b < yTaps; b++) {
+            int row = Math.floorMod(yCell + b, rows) * columns;
+            double rowRe = 0;
+            double rowIm = 0;
+            for (int a = 0; a < xTaps; a++) {
+                int index = row + Math.floorMod(xCell + a, columns);
+                double tapRe = taps[2 * a];
+                double tapIm = taps[2 * a + 1];
+                rowRe += tapRe * real[index] - tapIm * imaginary[index];
+                rowIm += tapRe * imaginary[index] + tapIm * real[index];
+            }
+            double tapRe = taps[8 + 2 * b];
+            double tapIm = taps[8 + 2 * b + 1];
+            re += tapRe * rowRe - tapIm * rowIm;
+            im += tapRe * rowIm + tapIm * rowRe;
+        }
+        value[offset] = re;
+        value[offset + 1] = im;
+    }
+
+    /**
+     * Interpolation along one axis. Sample q of the centered spectrum is exp(-j * center * h * q) * S(h * q), with h =
+     * 2 * pi / length, and S(psi) = exp(j * center * psi) * centered(psi). Combining both shifts, the tap for sample
+     * cell + a - 1 is weight(a) * exp(j * center * h * (t + 1 - a)), where t is the position within the cell.
+     */
+    private static final class Shift {
+
+        private final int length;
+        private final double center;
+        private final double sampleStep;
+        private final double stepReal;
+        private final double stepImaginary;
+
+        private Shift(int count, int length) {
+            this.length = length;
+            this.center = 0.5 * (count - 1);
+            this.sampleStep = 2 * Math.PI / length;
+            this.stepReal = Math.cos(center * sampleStep);
+            this.stepImaginary = -Math.sin(center * sampleStep);
+        }
+
+        /**
+         * Write four complex taps to taps[offset, offset + 8) and return index of the sample of the first tap.
+         */
+        private int taps(double psi, double[] taps, int offset) {
+            if (length == 1) {
+                taps[offset] = 1;
+                taps[offset + 1] = 0;
+                return 0;
+            }
+            double position = psi / sampleStep;
+            int cell = (int) Math.floor(position);
+            double t = position - cell;
+            double phase = center * sampleStep * (t + 1);
+            double shiftReal = Math.cos(phase);
+            double shiftImaginary = Math.sin(phase);
+            double tm1 = t - 1;
+            double tm2 = t - 2;
+            double tp1 = t + 1;
+            for (int a = 0; a < 4; a++) {
+                double weight;
+                if (a == 0) {
+                    weight = -t * tm1 * tm2 / 6;
+                } else if (a == 1) {
+                    weight = tp1 * tm1 * tm2 / 2;
+                } else if (a == 2) {
+                    weight = -tp1 * t * tm2 / 2;
+                } else {
+                    weight = tp1 * t * tm1 / 6;
+                }
+                taps[offset + 2 * a] = weight * shiftReal;
+                taps[offset + 2 * a + 1] = weight * shiftImaginary;
+                double nextReal = shiftReal * stepReal - shiftImaginary * stepImaginary;
+                shiftImaginary = shiftReal * stepImaginary + shiftImaginary * stepReal;
+                shiftReal = nextReal;
+            }
+            return cell - 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Lossy encoding of complex values as quantized natural log magnitude and phase. Quantizing both with an error of at
+ * most d gives a restored value v * exp(z) with |z| &lt;= sqrt(2) * d, so the relative error |exp(z) - 1| stays below
+ * exp(sqrt(2) * d) - 1, which is kept below the allowed relative error. Restored values of single precision fields are
+ * rounded to float, which adds a relative error of at most sqrt(2) * 2^-24 and is subtracted from the allowed relative
+ * error first. Each value is stored as variable length integers, least significant 7 bits first:
+ *
+ * <pre>
+ * 0                                            zero
+ * 1 real(8) imaginary(8)                       raw little-endian doubles, for values that can not be quantized
+ * zigzag(magnitude delta) + 2, zigzag(phase delta)   change from previous quantized value
+ * </pre>
+ *
+ * Phase deltas are wrapped to the shortest turn, so smooth patterns have small deltas stored in one or two bytes.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class LogPolarQuantization {
+
+    /** Margin for rounding errors of quantization, far larger than rounding errors at the smallest error bound. */
+    private static final double ROUNDING_MARGIN = 0.999;
+    /** Magnitudes above this are stored raw so restoring them can not overflow. */
+    private static final double LARGEST_MAGNITUDE = 1e300;
+    /** Bound of relative error of rounding restored values to float, sqrt(2) * 2^-24 with room for the value error. */
+    private static final double FLOAT_ROUNDING = 0x1p-22;
+    private static final long ZERO = 0;
+    private static final long RAW = 1;
+    private static final long QUANTIZED = 2;
+
+    private final double magnitudeStep;
+    private final long phaseLevels;
+    private final double phaseStep;
+
+    LogPolarQuantization(double maxErrorDb, boolean singlePrecision) {
+        double relativeError = -Math.expm1(-maxErrorDb / 20 * Math.log(10)) - (singlePrecision ? FLOAT_ROUNDING : 0);
+        double maxQuantizationError = ROUNDING_MARGIN * Math.log1p(relativeError) / Math.sqrt(2);
+        this.magnitudeStep = 2 * maxQuantizationError;
+        this.phaseLevels = (long) Math.ceil(2 * Math.PI / magnitudeStep);
+        this.phaseStep = 2 * Math.PI / phaseLevels;
+    }
+
+    byte[] encode(ComplexArray data, int from, int to) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((to - from) * 3);
+        long previousMagnitude = 0;
+        long previousPhase = 0;
+        for (int i = from; i < to; i++) {
+            double real = data.getReal(i);
+            double imaginary = data.getImaginary(i);
+            double magnitude = Math.hypot(real, imaginary);
+            if (magnitude == 0) {
+                writeVarLong(out, ZERO);
+            } else if (!(magnitude <= LARGEST_MAGNITUDE)) {
+                writeVarLong(out, RAW);
+                writeDouble(out, real);
+                writeDouble(out, imaginary);
+            } else {
+                long quantizedMagnitude = Math.round(Math.log(magnitude) / magnitudeStep);
+                long quantizedPhase = Math.floorMod(Math.round(Math.atan2(imaginary, real) / phaseStep), phaseLevels);
+                long phaseDelta = Math.floorMod(quantizedPhase - previousPhase, phaseLevels);
+                if (phaseDelta > phaseLevels / 2) {
+                    phaseDelta -= phaseLevels;
+                }
+                writeVarLong(out, zigzag(quantizedMagnitude - previousMagnitude) + QUANTIZED);
+                writeVarLong(out, zigzag(phaseDelta));
+                previousMagnitude = quantizedMagnitude;
+                previousPhase = quantizedPhase;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    void decode(ByteBuffer frame, double[] real, double[] imaginary, int destPos, int count) {
+        ByteBuffer in = frame.duplicate();
+        long previousMagnitude = 0;
+        long previousPhase = 0;
+        for (int i = destPos; i < destPos + count; i++) {
+            long token = readVarLong(in);
+            if (token == ZERO) {
+                real[i] = 0;
+                imaginary[i] = 0;
+            } else if (token == RAW) {
+                real[i] = Double.longBitsToDouble(readLong(in));
+                imaginary[i] = Double.longBitsToDouble(readLong(in));
+            } else {
+                previousMagnitude += unzigzag(token - QUANTIZED);
+                previousPhase = Math.floorMod(previousPhase + unzigzag(readVarLong(in)), phaseLevels);
+                double magnitude = Math.exp(previousMagnitude * magnitudeStep);
+                double phase = previousPhase * phaseStep;
+                real[i] = magnitude * Math.cos(phase);
+                imaginary[i] = magnitude * Math.sin(phase);
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            out.write((int) (rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write((int) rest);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7FL) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    private static void writeDouble(ByteArrayOutputStream out, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < Double.BYTES; i++) {
+            out.write((int) (bits >>> 8 * i));
+        }
+    }
+
+    private static long readLong(ByteBuffer in) {
+        long bits = 0;
+        for (int i = 0; i < Double.BYTES; i++) {
+            bits |= (in.get() & 0xFFL) << 8 * i;
+        }
+        return bits;
+    }
+
+}
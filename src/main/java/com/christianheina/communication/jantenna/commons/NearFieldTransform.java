@@ -0,0 +1,324 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Near field to far field transformation.<br>
+ * Planar measurements, {@link PlanarNearField}, are transformed to their plane wave spectrum with a zero padded fast
+ * Fourier transform, interpolated at k * (sin(theta) * cos(phi), sin(theta) * sin(phi)) for every far field angle with
+ * theta below 90 degrees:
+ *
+ * <pre>
+ * A(kx, ky)  = sum(E(x, y) * exp(j * (kx * x + ky * y))) * dx * dy
+ * E(theta)   = j * k / (2 * pi) * exp(j * k * cos(theta) * z) * (Ax * cos(phi) + Ay * sin(phi))
+ * E(phi)     = j * k / (2 * pi) * exp(j * k * cos(theta) * z) * cos(theta) * (Ay * cos(phi) - Ax * sin(phi))
+ * </pre>
+ *
+ * Spherical measurements, {@link Field} of {@link FieldType#NEARFIELD} sampled on a sphere, are expanded in spherical
+ * waves, see {@link SphericalWaveExpansion}, and every wave is propagated from the measurement radius to infinity.<br>
+ * Far field values are r * exp(j * k * r) * E as r goes to infinity, with phase referenced to the origin. Probe
+ * correction is not applied. Transforms of several frequencies are processed in parallel according to the
+ * {@link ExecutionPolicy}, and for planar measurements both field components are transformed in parallel too.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class NearFieldTransform {
+
+    private final AngleGrid angleGrid;
+    private final int oversampling;
+    private final double measurementRadius;
+    private final int maxDegree;
+    private final ExecutionPolicy executionPolicy;
+
+    private NearFieldTransform(Builder builder) {
+        if (builder.oversampling < 1) {
+            throw new AntennaException("Oversampling needs to be at least 1");
+        }
+        this.angleGrid = builder.angleGrid;
+        this.oversampling = builder.oversampling;
+        this.measurementRadius = builder.measurementRadius;
+        this.maxDegree = builder.maxDegree;
+        this.executionPolicy = builder.executionPolicy;
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Transform planar near field to far field.
+     *
+     * @param nearField
+     *            {@link PlanarNearField} to transform.
+     *
+     * @return new far field instance on the configured {@link AngleGrid} holding THETA and PHI.
+     *
+     * @throws AntennaException
+     *             if no angle grid is configured.
+     */
+    public Field transform(PlanarNearField nearField) {
+        return transformPlanar(Collections.singletonList(nearField)).get(0);
+    }
+
+    /**
+     * Transform planar near fields, typically one for each frequency of a measurement, to far fields.
+     *
+     * @param nearFields
+     *            {@link List} of {@link PlanarNearField} to transform.
+     *
+     * @return new {@link List} of far fields in the order of near fields, each on the configured {@link AngleGrid}
+     *         holding THETA and PHI.
+     *
+     * @throws AntennaException
+     *             if no angle grid is configured.
+     */
+    public List<Field> transformPlanar(List<PlanarNearField> nearFields) {
+        if (angleGrid == null) {
+            throw new AntennaException("Angle grid is required for planar near field transform");
+        }
+        int count = nearFields.size();
+        LatticeSpectrum[][] spectra = new LatticeSpectrum[count][2];
+        /* One task for each near field and component */
+        executionPolicy.forEachChunk(2 * count, executionPolicy.getChunkSize(), (from, to) -> {
+            for (int task = from; task < to; task++) {
+                PlanarNearField nearField = nearFields.get(task / 2);
+                int component = task % 2;
+                spectra[task / 2][component] = new LatticeSpectrum(nearField.getReal(component),
+                        nearField.getImaginary(component), nearField.getXCount(), nearField.getYCount(), oversampling);
+            }
+        });
+        List<Field> farFields = new ArrayList<>(count);
+        for (int f = 0; f < count; f++) {
+            farFields.add(farField(nearFields.get(f), spectra[f][0], spectra[f][1]));
+        }
+        return farFields;
+    }
+
+    private Field farField(PlanarNearField nearField, LatticeSpectrum x, LatticeSpectrum y) {
+        int size = angleGrid.size();
+        double[] thetaReal = new double[size];
+        double[] thetaImaginary = new double[size];
+        double[] phiReal = new double[size];
+        double[] phiImaginary = new double[size];
+        double k = 2 * Math.PI / Util.calculateLambda(nearField.getFrequency());
+        double area = nearField.getXStep() * nearField.getYStep();
+        executionPolicy.forEachChunk(size, 2 * LatticeSpectrum.INTERPOLATION_COST, (from, to) -> {
+            double[] taps = new double[16];
+            double[] value = new double[4];
+            for (int i = from; i < to; i++) {
+                double theta = angleGrid.getTheta(i);
+                double cosTheta = Math.cos(theta);
+                if (!(cosTheta > 0)) {
+                    continue;
+                }
+                double phi = angleGrid.getPhi(i);
+                double cosPhi = Math.cos(phi);
+                double sinPhi = Math.sin(phi);
+                double kx = k * Math.sin(theta) * cosPhi;
+                double ky = k * Math.sin(theta) * sinPhi;
+                x.interpolate(kx * nearField.getXStep(), ky * nearField.getYStep(), taps, value, 0);
+                y.interpolate(kx * nearField.getXStep(), ky * nearField.getYStep(), taps, value, 2);
+                /* j * k / (2 * pi) * dx * dy * exp(j * (kx * x0 + ky * y0 + kz * z)), lattice index to position */
+                double phase = kx * nearField.getXStart() + ky * nearField.getYStart()
+                        + k * cosTheta * nearField.getDistance();
+                double scale = k / (2 * Math.PI) * area;
+                double factorRe = -scale * Math.sin(phase);
+                double factorIm = scale * Math.cos(phase);
+                double re = value[0] * cosPhi + value[2] * sinPhi;
+                double im = value[1] * cosPhi + value[3] * sinPhi;
+                thetaReal[i] = factorRe * re - factorIm * im;
+                thetaImaginary[i] = factorRe * im + factorIm * re;
+                re = cosTheta * (value[2] * cosPhi - value[0] * sinPhi);
+                im = cosTheta * (value[3] * cosPhi - value[1] * sinPhi);
+                phiReal[i] = factorRe * re - factorIm * im;
+                phiImaginary[i] = factorRe * im + factorIm * re;
+            }
+        });
+        return Field.newBuilder().setFieldType(FieldType.FARFIELD).setAngleGrid(angleGrid)
+                .setFreqency(nearField.getFrequency()).addElectricField(ElectricField.THETA, thetaReal, thetaImaginary)
+                .addElectricField(ElectricField.PHI, phiReal, phiImaginary).build();
+    }
+
+    /**
+     * Transform spherical near field to far field.
+     *
+     * @param nearField
+     *            {@link Field} of {@link FieldType#NEARFIELD} sampled on a sphere of the configured measurement radius,
+     *            on theta rows of equally spaced phi angles covering the full circle.
+     *
+     * @return new far field instance holding THETA and PHI, on the configured {@link AngleGrid} or, if not configured,
+     *         the angles of the near field.
+     *
+     * @throws AntennaException
+     *             if field is not a near field, frequency or measurement radius is not positive or angles can not be
+     *             expanded, see {@link SphericalWaveExpansion#fit(Field, int)}.
+     */
+    public Field transform(Field nearField) {
+        return transformSpherical(Collections.singletonList(nearField)).get(0);
+    }
+
+    /**
+     * Transform spherical near fields, typically one for each frequency of a measurement, to far fields.
+     *
+     * @param nearFields
+     *            {@link List} of {@link Field} of {@link FieldType#NEARFIELD}, see {@link #transform(Field)}.
+     *
+     * @return new {@link List} of far fields in the order of near fields.
+     *
+     * @throws AntennaException
+     *             if a field can not be transformed, see {@link #transform(Field)}.
+     */
+    public List<Field> transformSpherical(List<Field> nearFields) {
+        if (!(measurementRadius > 0)) {
+            throw new AntennaException("Measurement radius needs to be positive for spherical near field transform");
+        }
+        for (Field nearField : nearFields) {
+            if (nearField.getFieldType() != FieldType.NEARFIELD) {
+                throw new AntennaException("Spherical near field transform requires near fields");
+            }
+            if (!(nearField.getFrequency() > 0)) {
+                throw new AntennaException("Near field frequency needs to be positive");
+            }
+        }
+        Field[] farFields = new Field[nearFields.size()];
+        executionPolicy.forEachChunk(farFields.length, executionPolicy.getChunkSize(), (from, to) -> {
+            for (int f = from; f < to; f++) {
+                Field nearField = nearFields.get(f);
+                int degree = maxDegree > 0 ? maxDegree
+                        : (nearField.getAngleGrid().getInterpolationGrid().getPhiCount() - 1) / 2;
+                double k = 2 * Math.PI / Util.calculateLambda(nearField.getFrequency());
+                SphericalWaveExpansion expansion = SphericalWaveExpansion.expand(nearField, degree)
+                        .propagateToFarField(k, measurementRadius);
+                farFields[f] = expansion.toField(angleGrid != null ? angleGrid : nearField.getAngleGrid());
+            }
+        });
+        return Arrays.asList(farFields);
+    }
+
+    /**
+     * Builder for {@link NearFieldTransform}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_OVERSAMPLING = 4;
+
+        private AngleGrid angleGrid;
+        private int oversampling = DEFAULT_OVERSAMPLING;
+        private double measurementRadius;
+        private int maxDegree;
+        private ExecutionPolicy executionPolicy = ExecutionPolicy.sequential();
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set angles of far field. Required for planar near fields, spherical near fields default to their own angles.
+         *
+         * @param angleGrid
+         *            {@link AngleGrid} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setAngleGrid(AngleGrid angleGrid) {
+            this.angleGrid = angleGrid;
+            return this;
+        }
+
+        /**
+         * Set factor planar near fields are zero padded by before transforming, giving a denser spectrum to
+         * interpolate. Default is {@value #DEFAULT_OVERSAMPLING}.
+         *
+         * @param oversampling
+         *            padding factor, at least 1.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setOversampling(int oversampling) {
+            this.oversampling = oversampling;
+            return this;
+        }
+
+        /**
+         * Set radius of sphere spherical near fields are sampled on.
+         *
+         * @param measurementRadius
+         *            radius in meters.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setMeasurementRadius(double measurementRadius) {
+            this.measurementRadius = measurementRadius;
+            return this;
+        }
+
+        /**
+         * Set maximum degree of spherical wave expansion of spherical near fields. Default is the largest degree
+         * resolved by the phi angles of each near field.
+         *
+         * @param maxDegree
+         *            maximum degree.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setMaxDegree(int maxDegree) {
+            this.maxDegree = maxDegree;
+            return this;
+        }
+
+        /**
+         * Set execution policy used to process frequencies, components and angles. Default is
+         * {@link ExecutionPolicy#sequential()}.
+         *
+         * @param executionPolicy
+         *            {@link ExecutionPolicy} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setExecutionPolicy(ExecutionPolicy executionPolicy) {
+            this.executionPolicy = executionPolicy;
+            return this;
+        }
+
+        /**
+         * Build new instance of NearFieldTransform using this builder.
+         *
+         * @return new instance of {@link NearFieldTransform}.
+         *
+         * @throws AntennaException
+         *             if oversampling is below 1.
+         */
+        public NearFieldTransform build() {
+            return new NearFieldTransform(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Store keeping electric field values of {@link Field} instances in direct buffers outside the garbage collected heap.
+ * <br>
+ * Fields created by a store have the same API as heap backed fields and can be used as destination of field operations,
+ * for example {@link Field#multiply(Field, Field)}. Only small bookkeeping objects live on the heap, so large pattern
+ * libraries neither fill the heap nor lengthen garbage collection pauses.<br>
+ * Closing the store releases all of its buffers, after which access to values of its fields fails with an
+ * {@link AntennaException} in the closing thread and in threads synchronized with it. Single fields can be released
+ * with {@link #release(Field)}. Direct memory of released buffers is freed once the buffers are collected, or right
+ * away for stores created with {@link #create(boolean)}. A store must not be closed, nor a field released, while other
+ * threads still use its fields; with memory freed right away such access can crash the JVM.
+ *
+ * <pre>
+ * try (OffHeapFieldStore store = OffHeapFieldStore.create()) {
+ *     Field pattern = store.copyOf(Field.loadBinary(path));
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class OffHeapFieldStore implements AutoCloseable {
+
+    private final Set<DirectComplexArray> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final boolean freeOnRelease;
+    private long allocatedBytes;
+    private boolean closed;
+
+    private OffHeapFieldStore(boolean freeOnRelease) {
+        this.freeOnRelease = freeOnRelease;
+    }
+
+    /**
+     * Create new empty store leaving direct memory of released buffers to the garbage collector.
+     *
+     * @return new instance of {@link OffHeapFieldStore}.
+     */
+    public static OffHeapFieldStore create() {
+        return new OffHeapFieldStore(false);
+    }
+
+    /**
+     * Create new empty store.
+     *
+     * @param freeOnRelease
+     *            true to free direct memory of released buffers right away where the runtime allows it, false to leave
+     *            it to the garbage collector. Only free right away if no thread can access a field after it is
+     *            released, such access reads freed memory and can crash the JVM.
+     *
+     * @return new instance of {@link OffHeapFieldStore}.
+     */
+    public static OffHeapFieldStore create(boolean freeOnRelease) {
+        return new OffHeapFieldStore(freeOnRelease);
+    }
+
+    /**
+     * Copy field into store.
+     *
+     * @param field
+     *            {@link Field} to copy.
+     *
+     * @return new instance with same {@link FieldType}, frequency, angles ({@link ThetaPhi}) and electric field values
+     *         stored off-heap in this store.
+     *
+     * @throws AntennaException
+     *             if store is closed.
+     */
+    public Field copyOf(Field field) {
+        Field.Builder builder = Field.newBuilder().setFieldType(field.getFieldType()).setAngleGrid(field.getAngleGrid())
+                .setFreqency(field.getFrequency());
+        for (ElectricField electricField : field.getAvailableElectricFields()) {
+            ComplexArray source = field.getElectricFieldData(electricField);
+            DirectComplexArray data = register(new DirectComplexArray(source.size()));
+            data.copyFrom(source);
+            builder.addElectricFieldData(electricField, data);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Allocate field in store with all electric field values set to zero.
+     *
+     * @param fieldType
+     *            {@link FieldType} of field.
+     * @param angleGrid
+     *            {@link AngleGrid} of field.
+     * @param frequency
+     *            frequency of field.
+     * @param electricFields
+     *            {@link Set} of {@link ElectricField} to allocate, each with one value for each angle.
+     *
+     * @return new instance with electric field values stored off-heap in this store.
+     *
+     * @throws AntennaException
+     *             if store is closed.
+     */
+    public Field allocate(FieldType fieldType, AngleGrid angleGrid, double frequency,
+            Set<ElectricField> electricFields) {
+        Field.Builder builder = Field.newBuilder().setFieldType(fieldType).setAngleGrid(angleGrid)
+                .setFreqency(frequency);
+        for (ElectricField electricField : electricFields) {
+            builder.addElectricFieldData(electricField, register(new DirectComplexArray(angleGrid.size())));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get number of bytes of electric field values held by this store.
+     *
+     * @return allocated bytes, 0 after store is closed.
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Check if store is closed.
+     *
+     * @return true if closed, false otherwise.
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Release buffers of field, for example to drop one pattern of a library without closing the store. Values of field
+     * can no longer be accessed, see {@link OffHeapFieldStore} for access from other threads. Electric field values not
+     * held by this store, such as those of heap fields or of released fields, are not affected.
+     *
+     * @param field
+     *            {@link Field} created by this store.
+     */
+    public synchronized void release(Field field) {
+        for (ElectricField electricField : field.getAvailableElectricFields()) {
+            ComplexArray data = field.getElectricFieldData(electricField);
+            if (arrays.remove(data)) {
+                allocatedBytes -= data.byteSize();
+                ((DirectComplexArray) data).release(freeOnRelease);
+            }
+        }
+    }
+
+    /**
+     * Release all buffers of this store. Values of fields created by this store can no longer be accessed. Closing a
+     * closed store has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        for (DirectComplexArray array : arrays) {
+            array.release(freeOnRelease);
+        }
+        arrays.clear();
+        allocatedBytes = 0;
+        closed = true;
+    }
+
+    private synchronized DirectComplexArray register(DirectComplexArray array) {
+        if (closed) {
+            /* Never handed out, safe to free */
+            array.release(true);
+            throw new AntennaException("Off-heap field store is closed");
+        }
+        arrays.add(array);
+        allocatedBytes += array.byteSize();
+        return array;
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Near field measured on a plane in front of an antenna.<br>
+ * Tangential x and y components of the electric field are sampled on an equally spaced grid in the plane z = distance,
+ * with the antenna radiating toward positive z. Values are laid out row by row, index = yIndex * xCount + xIndex.
+ * Positions are in meters.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class PlanarNearField {
+
+    private final double frequency;
+    private final double xStart;
+    private final double xStep;
+    private final int xCount;
+    private final double yStart;
+    private final double yStep;
+    private final int yCount;
+    private final double distance;
+    private final double[] xReal;
+    private final double[] xImaginary;
+    private final double[] yReal;
+    private final double[] yImaginary;
+
+    private PlanarNearField(Builder builder) {
+        if (!(builder.frequency > 0)) {
+            throw new AntennaException("Frequency needs to be positive");
+        }
+        if (builder.xCount < 1 || builder.yCount < 1 || !(builder.xStep > 0) || !(builder.yStep > 0)) {
+            throw new AntennaException("Sample grid needs positive steps and at least one sample along each axis");
+        }
+        long size = (long) builder.xCount * builder.yCount;
+        if (size > Integer.MAX_VALUE) {
+            throw new AntennaException("Too many samples: " + size);
+        }
+        if (builder.xReal == null || builder.xImaginary == null || builder.yReal == null || builder.yImaginary == null
+                || builder.xReal.length != size || builder.xImaginary.length != size || builder.yReal.length != size
+                || builder.yImaginary.length != size) {
+            throw new AntennaException("X and y components need one value for each sample");
+        }
+        this.frequency = builder.frequency;
+        this.xStart = builder.xStart;
+        this.xStep = builder.xStep;
+        this.xCount = builder.xCount;
+        this.yStart = builder.yStart;
+        this.yStep = builder.yStep;
+        this.yCount = builder.yCount;
+        this.distance = builder.distance;
+        this.xReal = builder.xReal;
+        this.xImaginary = builder.xImaginary;
+        this.yReal = builder.yReal;
+        this.yImaginary = builder.yImaginary;
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Get frequency.
+     *
+     * @return frequency.
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Get x position of first sample.
+     *
+     * @return x position in meters.
+     */
+    public double getXStart() {
+        return xStart;
+    }
+
+    /**
+     * Get distance between samples along x.
+     *
+     * @return step in meters.
+     */
+    public double getXStep() {
+        return xStep;
+    }
+
+    /**
+     * Get number of samples along x.
+     *
+     * @return number of samples.
+     */
+    public int getXCount() {
+        return xCount;
+    }
+
+    /**
+     * Get y position of first sample.
+     *
+     * @return y position in meters.
+     */
+    public double getYStart() {
+        return yStart;
+    }
+
+    /**
+     * Get distance between samples along y.
+     *
+     * @return step in meters.
+     */
+    public double getYStep() {
+        return yStep;
+    }
+
+    /**
+     * Get number of samples along y.
+     *
+     * @return number of samples.
+     */
+    public int getYCount() {
+        return yCount;
+    }
+
+    /**
+     * Get distance from antenna origin to measurement plane.
+     *
+     * @return distance along z in meters.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * Get x or y component values, 0 for x and 1 for y.
+     */
+    double[] getReal(int component) {
+        return component == 0 ? xReal : yReal;
+    }
+
+    /**
+     * Get x or y component values, 0 for x and 1 for y.
+     */
+    double[] getImaginary(int component) {
+        return component == 0 ? xImaginary : yImaginary;
+    }
+
+    /**
+     * Builder for {@link PlanarNearField}.
+     *
+     * @author Christian Heina (developer@christianheina.com)
+     */
+    public static class Builder {
+
+        private double frequency;
+        private double xStart;
+        private double xStep;
+        private int xCount;
+        private double yStart;
+        private double yStep;
+        private int yCount;
+        private double distance;
+        private double[] xReal;
+        private double[] xImaginary;
+        private double[] yReal;
+        private double[] yImaginary;
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set frequency of measurement.
+         *
+         * @param frequency
+         *            frequency to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFrequency(double frequency) {
+            this.frequency = frequency;
+            return this;
+        }
+
+        /**
+         * Set sample positions along x.
+         *
+         * @param start
+         *            position of first sample in meters.
+         * @param step
+         *            distance between samples in meters.
+         * @param count
+         *            number of samples.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setXAxis(double start, double step, int count) {
+            this.xStart = start;
+            this.xStep = step;
+            this.xCount = count;
+            return this;
+        }
+
+        /**
+         * Set sample positions along y.
+         *
+         * @param start
+         *            position of first sample in meters.
+         * @param step
+         *            distance between samples in meters.
+         * @param count
+         *            number of samples.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setYAxis(double start, double step, int count) {
+            this.yStart = start;
+            this.yStep = step;
+            this.yCount = count;
+            return this;
+        }
+
+        /**
+         * Set distance from antenna origin to measurement plane.
+         *
+         * @param distance
+         *            distance along z in meters.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setDistance(double distance) {
+            this.distance = distance;
+            return this;
+        }
+
+        /**
+         * Set x component of electric field. Arrays are used as is, without copying.
+         *
+         * @param real
+         *            real parts laid out row by row.
+         * @param imaginary
+         *            imaginary parts laid out row by row.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setXComponent(double[] real, double[] imaginary) {
+            this.xReal = real;
+            this.xImaginary = imaginary;
+            return this;
+        }
+
+        /**
+         * Set y component of electric field. Arrays are used as is, without copying.
+         *
+         * @param real
+         *            real parts laid out row by row.
+         * @param imaginary
+         *            imaginary parts laid out row by row.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setYComponent(double[] real, double[] imaginary) {
+            this.yReal = real;
+            this.yImaginary = imaginary;
+            return this;
+        }
+
+        /**
+         * Build new instance of PlanarNearField using this builder.
+         *
+         * @return new instance of {@link PlanarNearField}.
+         *
+         * @throws AntennaException
+         *             if frequency is not positive, sample grid is empty or has more than {@link Integer#MAX_VALUE}
+         *             samples, or components do not have one value for each sample.
+         */
+        public PlanarNearField build() {
+            return new PlanarNearField(this);
+        }
+
+    }
+
+}
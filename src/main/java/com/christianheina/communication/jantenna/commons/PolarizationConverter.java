@@ -0,0 +1,213 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Conversion between {@link ElectricField} polarization bases.<br>
+ * Values of a complete source basis are turned into theta and phi components, which are then projected onto every
+ * requested target, angle by angle in a single pass:
+ *
+ * <pre>
+ * LUDWIG3H      = THETA * cos(phi) - PHI * sin(phi)
+ * LUDWIG3V      = THETA * sin(phi) + PHI * cos(phi)
+ * PLUS45        = (LUDWIG3H + LUDWIG3V) / sqrt(2)
+ * MINUS45       = (LUDWIG3H - LUDWIG3V) / sqrt(2)
+ * RELATIVE_GAIN = sqrt(|THETA|^2 + |PHI|^2)
+ * </pre>
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class PolarizationConverter {
+
+    private static final double SQRT_HALF = Math.sqrt(0.5);
+
+    /** Complete polarization bases, in order of preference as conversion source. */
+    private static final ElectricField[][] SOURCE_BASES = { { ElectricField.THETA, ElectricField.PHI },
+            { ElectricField.LUDWIG3H, ElectricField.LUDWIG3V }, { ElectricField.PLUS45, ElectricField.MINUS45 } };
+
+    private PolarizationConverter() {
+        /* Hidden Constructor */ }
+
+    /**
+     * Create field holding target electric fields. Targets already available are copied, others are computed.
+     */
+    static Field convert(Field field, Set<ElectricField> targets, ExecutionPolicy policy) {
+        Map<ElectricField, ComplexArray> computed = new EnumMap<>(ElectricField.class);
+        Field.Builder builder = Field.newBuilder().setFieldType(field.getFieldType()).setAngleGrid(field.getAngleGrid())
+                .setFreqency(field.getFrequency());
+        for (ElectricField target : targets) {
+            if (field.getAvailableElectricFields().contains(target)) {
+                builder.addElectricFieldData(target, field.getElectricFieldData(target).copy());
+            } else {
+                int size = field.getAngleGrid().size();
+                HeapComplexArray data = new HeapComplexArray(new double[size], new double[size]);
+                computed.put(target, data);
+                builder.addElectricFieldData(target, data);
+            }
+        }
+        if (!computed.isEmpty()) {
+            ElectricField[] basis = sourceBasis(field);
+            HeapComplexArray first = onHeap(field.getElectricFieldData(basis[0]));
+            HeapComplexArray second = onHeap(field.getElectricFieldData(basis[1]));
+            if (first.size() != field.getAngleGrid().size() || second.size() != first.size()) {
+                throw new AntennaException("Electric fields need to have one value for each angle");
+            }
+            Sweep sweep = new Sweep(basis[0], first, second, field.getAngleGrid().getPhiTrigonometry(), computed);
+            policy.forEachChunk(first.size(), 1 + computed.size(), sweep::run);
+        }
+        return builder.build();
+    }
+
+    private static ElectricField[] sourceBasis(Field field) {
+        Set<ElectricField> available = field.getAvailableElectricFields();
+        for (ElectricField[] basis : SOURCE_BASES) {
+            if (available.contains(basis[0]) && available.contains(basis[1])) {
+                return basis;
+            }
+        }
+        throw new AntennaException("Polarization conversion requires THETA and PHI, LUDWIG3H and LUDWIG3V or PLUS45 "
+                + "and MINUS45 electric fields");
+    }
+
+    private static HeapComplexArray onHeap(ComplexArray data) {
+        return data instanceof HeapComplexArray ? (HeapComplexArray) data : data.toDoublePrecision();
+    }
+
+    /**
+     * Fused conversion of an angle range from source basis to all target bases.
+     */
+    private static final class Sweep {
+
+        private final ElectricField sourceBasis;
+        private final double[] firstReal;
+        private final double[] firstImaginary;
+        private final double[] secondReal;
+        private final double[] secondImaginary;
+        private final double[] cosPhi;
+        private final double[] sinPhi;
+        private final double[][] targetReal = new double[ElectricField.values().length][];
+        private final double[][] targetImaginary = new double[ElectricField.values().length][];
+
+        private Sweep(ElectricField sourceBasis, HeapComplexArray first, HeapComplexArray second,
+                AngleGrid.PhiTrigonometry phiTrigonometry, Map<ElectricField, ComplexArray> targets) {
+            this.sourceBasis = sourceBasis;
+            this.firstReal = first.real();
+            this.firstImaginary = first.imaginary();
+            this.secondReal = second.real();
+            this.secondImaginary = second.imaginary();
+            this.cosPhi = phiTrigonometry.cos();
+            this.sinPhi = phiTrigonometry.sin();
+            for (Map.Entry<ElectricField, ComplexArray> entry : targets.entrySet()) {
+                HeapComplexArray data = (HeapComplexArray) entry.getValue();
+                targetReal[entry.getKey().ordinal()] = data.real();
+                targetImaginary[entry.getKey().ordinal()] = data.imaginary();
+            }
+        }
+
+        private void run(int from, int to) {
+            double[] thetaRe = targetReal[ElectricField.THETA.ordinal()];
+            double[] thetaIm = targetImaginary[ElectricField.THETA.ordinal()];
+            double[] phiRe = targetReal[ElectricField.PHI.ordinal()];
+            double[] phiIm = targetImaginary[ElectricField.PHI.ordinal()];
+            double[] hRe = targetReal[ElectricField.LUDWIG3H.ordinal()];
+            double[] hIm = targetImaginary[ElectricField.LUDWIG3H.ordinal()];
+            double[] vRe = targetReal[ElectricField.LUDWIG3V.ordinal()];
+            double[] vIm = targetImaginary[ElectricField.LUDWIG3V.ordinal()];
+            double[] plusRe = targetReal[ElectricField.PLUS45.ordinal()];
+            double[] plusIm = targetImaginary[ElectricField.PLUS45.ordinal()];
+            double[] minusRe = targetReal[ElectricField.MINUS45.ordinal()];
+            double[] minusIm = targetImaginary[ElectricField.MINUS45.ordinal()];
+            double[] gainRe = targetReal[ElectricField.RELATIVE_GAIN.ordinal()];
+            boolean toLudwig3 = hRe != null || vRe != null || plusRe != null || minusRe != null;
+            for (int i = from; i < to; i++) {
+                double c = cosPhi[i];
+                double s = sinPhi[i];
+                double er;
+                double ei;
+                double pr;
+                double pi;
+                double hr;
+                double hi;
+                double vr;
+                double vi;
+                if (sourceBasis == ElectricField.THETA) {
+                    er = firstReal[i];
+                    ei = firstImaginary[i];
+                    pr = secondReal[i];
+                    pi = secondImaginary[i];
+                    hr = er * c - pr * s;
+                    hi = ei * c - pi * s;
+                    vr = er * s + pr * c;
+                    vi = ei * s + pi * c;
+                } else {
+                    if (sourceBasis == ElectricField.LUDWIG3H) {
+                        hr = firstReal[i];
+                        hi = firstImaginary[i];
+                        vr = secondReal[i];
+                        vi = secondImaginary[i];
+                    } else {
+                        hr = (firstReal[i] + secondReal[i]) * SQRT_HALF;
+                        hi = (firstImaginary[i] + secondImaginary[i]) * SQRT_HALF;
+                        vr = (firstReal[i] - secondReal[i]) * SQRT_HALF;
+                        vi = (firstImaginary[i] - secondImaginary[i]) * SQRT_HALF;
+                    }
+                    er = hr * c + vr * s;
+                    ei = hi * c + vi * s;
+                    pr = vr * c - hr * s;
+                    pi = vi * c - hi * s;
+                }
+                if (thetaRe != null) {
+                    thetaRe[i] = er;
+                    thetaIm[i] = ei;
+                }
+                if (phiRe != null) {
+                    phiRe[i] = pr;
+                    phiIm[i] = pi;
+                }
+                if (toLudwig3) {
+                    if (hRe != null) {
+                        hRe[i] = hr;
+                        hIm[i] = hi;
+                    }
+                    if (vRe != null) {
+                        vRe[i] = vr;
+                        vIm[i] = vi;
+                    }
+                    if (plusRe != null) {
+                        plusRe[i] = (hr + vr) * SQRT_HALF;
+                        plusIm[i] = (hi + vi) * SQRT_HALF;
+                    }
+                    if (minusRe != null) {
+                        minusRe[i] = (hr - vr) * SQRT_HALF;
+                        minusIm[i] = (hi - vi) * SQRT_HALF;
+                    }
+                }
+                if (gainRe != null) {
+                    gainRe[i] = Math.sqrt(er * er + ei * ei + pr * pr + pi * pi);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Regular angle grid with equally spaced theta and phi angles.<br>
+ * The grid is described by start, step and count for theta and phi and holds no per angle data. Angles are ordered
+ * theta by theta, with all phi angles for each theta, which is the same order as
+ * {@link ThetaPhi#equallySpacedSphere(int)}. Grid parameters are kept in degrees so that angles are exactly the same as
+ * {@link ThetaPhi#fromDegrees(double, double) ThetaPhi.fromDegrees} of the corresponding degree values.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class RegularAngleGrid extends AngleGrid {
+
+    /**
+     * Largest distance, in steps, between an angle and a grid angle for {@link #indexOf(double, double) indexOf} to
+     * consider them the same.
+     */
+    private static final double INDEX_TOLERANCE = 1e-6;
+    private static final double SINGLE_ANGLE_TOLERANCE = 1e-9;
+    private static final double DETECTION_RESOLUTION = 1e9;
+
+    private final double thetaStart;
+    private final double thetaStep;
+    private final int thetaCount;
+    private final double phiStart;
+    private final double phiStep;
+    private final int phiCount;
+    private int hash;
+
+    private RegularAngleGrid(double thetaStart, double thetaStep, int thetaCount, double phiStart, double phiStep,
+            int phiCount) {
+        if (thetaCount < 0 || phiCount < 0) {
+            throw new AntennaException("Angle count can not be negative");
+        }
+        if ((long) thetaCount * phiCount > Integer.MAX_VALUE) {
+            throw new AntennaException("Angle grid is too large");
+        }
+        if (thetaCount > 1 && (thetaStep == 0 || !Double.isFinite(thetaStep))
+                || phiCount > 1 && (phiStep == 0 || !Double.isFinite(phiStep))) {
+            throw new AntennaException("Angle step needs to be finite and non zero");
+        }
+        this.thetaStart = thetaStart;
+        this.thetaStep = thetaCount > 1 ? thetaStep : 0;
+        this.thetaCount = thetaCount;
+        this.phiStart = phiStart;
+        this.phiStep = phiCount > 1 ? phiStep : 0;
+        this.phiCount = phiCount;
+    }
+
+    /**
+     * Create new instance from degrees.
+     *
+     * @param thetaStart
+     *            first theta angle in degrees.
+     * @param thetaStep
+     *            theta spacing in degrees.
+     * @param thetaCount
+     *            number of theta angles.
+     * @param phiStart
+     *            first phi angle in degrees.
+     * @param phiStep
+     *            phi spacing in degrees.
+     * @param phiCount
+     *            number of phi angles.
+     *
+     * @return new instance of {@link RegularAngleGrid}.
+     *
+     * @throws AntennaException
+     *             if a count is negative, a step is zero or grid has more than {@link Integer#MAX_VALUE} angles.
+     */
+    public static RegularAngleGrid fromDegrees(double thetaStart, double thetaStep, int thetaCount, double phiStart,
+            double phiStep, int phiCount) {
+        return new RegularAngleGrid(thetaStart, thetaStep, thetaCount, phiStart, phiStep, phiCount);
+    }
+
+    /**
+     * Create new instance from radians.<br>
+     * These values will be converted to degrees.
+     *
+     * @param thetaStart
+     *            first theta angle in radians.
+     * @param thetaStep
+     *            theta spacing in radians.
+     * @param thetaCount
+     *            number of theta angles.
+     * @param phiStart
+     *            first phi angle in radians.
+     * @param phiStep
+     *            phi spacing in radians.
+     * @param phiCount
+     *            number of phi angles.
+     *
+     * @return new instance of {@link RegularAngleGrid}.
+     *
+     * @throws AntennaException
+     *             if a count is negative, a step is zero or grid has more than {@link Integer#MAX_VALUE} angles.
+     */
+    public static RegularAngleGrid fromRadians(double thetaStart, double thetaStep, int thetaCount, double phiStart,
+            double phiStep, int phiCount) {
+        return new RegularAngleGrid(Math.toDegrees(thetaStart), Math.toDegrees(thetaStep), thetaCount,
+                Math.toDegrees(phiStart), Math.toDegrees(phiStep), phiCount);
+    }
+
+    /**
+     * Create grid of equally spaced theta and phi values covering the sphere using provided spacing.<br>
+     * Theta goes from 0 to 180 degrees and phi from -180 to 180 degrees. {@link #asList()} gives the same angles as
+     * {@link ThetaPhi#equallySpacedSphere(int)} as an unmodifiable view.
+     *
+     * @param spacing
+     *            spacing in degrees to use.
+     *
+     * @return new instance of {@link RegularAngleGrid}.
+     */
+    public static RegularAngleGrid equallySpacedSphere(int spacing) {
+        return new RegularAngleGrid(0, spacing, 180 / spacing + 1, -180, spacing, 360 / spacing + 1);
+    }
+
+    /**
+     * Detect regular grid in theta and phi arrays in radians.
+     *
+     * @return regular grid with exactly the same angles or null if angles are not equally spaced.
+     */
+    static RegularAngleGrid detect(double[] theta, double[] phi) {
+        int size = theta.length;
+        if (size < 2 || phi.length != size) {
+            return null;
+        }
+        int phiCount = 1;
+        while (phiCount < size && Double.compare(theta[phiCount], theta[0]) == 0) {
+            phiCount++;
+        }
+        if (size % phiCount != 0) {
+            return null;
+        }
+        int thetaCount = size / phiCount;
+        double thetaStart = snap(Math.toDegrees(theta[0]));
+        double thetaStep = thetaCount > 1 ? snap(Math.toDegrees(theta[phiCount]) - Math.toDegrees(theta[0])) : 0;
+        double phiStart = snap(Math.toDegrees(phi[0]));
+        double phiStep = phiCount > 1 ? snap(Math.toDegrees(phi[1]) - Math.toDegrees(phi[0])) : 0;
+        if (thetaCount > 1 && thetaStep == 0 || phiCount > 1 && phiStep == 0) {
+            return null;
+        }
+        RegularAngleGrid candidate = new RegularAngleGrid(thetaStart, thetaStep, thetaCount, phiStart, phiStep,
+                phiCount);
+        double[] phiValues = new double[phiCount];
+        for (int j = 0; j < phiCount; j++) {
+            phiValues[j] = candidate.getPhiAt(j);
+        }
+        for (int i = 0; i < thetaCount; i++) {
+            double thetaValue = candidate.getThetaAt(i);
+            for (int j = 0; j < phiCount; j++) {
+                int index = i * phiCount + j;
+                if (Double.compare(theta[index], thetaValue) != 0 || Double.compare(phi[index], phiValues[j]) != 0) {
+                    return null;
+                }
+            }
+        }
+        return candidate;
+    }
+
+    private static double snap(double degrees) {
+        return Math.round(degrees * DETECTION_RESOLUTION) / DETECTION_RESOLUTION;
+    }
+
+    @Override
+    public int size() {
+        return thetaCount * phiCount;
+    }
+
+    @Override
+    public double getTheta(int index) {
+        return getThetaAt(index / phiCount);
+    }
+
+    @Override
+    public double getPhi(int index) {
+        return getPhiAt(index % phiCount);
+    }
+
+    /**
+     * Get theta angle in radians by theta index.
+     *
+     * @param thetaIndex
+     *            index of theta angle, from 0 to {@link #getThetaCount()} - 1.
+     *
+     * @return theta angle.
+     */
+    public double getThetaAt(int thetaIndex) {
+        return Math.toRadians(thetaStart + thetaIndex * thetaStep);
+    }
+
+    /**
+     * Get phi angle in radians by phi index.
+     *
+     * @param phiIndex
+     *            index of phi angle, from 0 to {@link #getPhiCount()} - 1.
+     *
+     * @return phi angle.
+     */
+    public double getPhiAt(int phiIndex) {
+        return Math.toRadians(phiStart + phiIndex * phiStep);
+    }
+
+    /**
+     * Get grid index of theta and phi index.
+     *
+     * @param thetaIndex
+     *            index of theta angle.
+     * @param phiIndex
+     *            index of phi angle.
+     *
+     * @return grid index.
+     */
+    public int toIndex(int thetaIndex, int phiIndex) {
+        return thetaIndex * phiCount + phiIndex;
+    }
+
+    /**
+     * Find index of angle in constant time.<br>
+     * Angles within a millionth of a step from a grid angle are considered to be that grid angle.
+     */
+    @Override
+    public int indexOf(double theta, double phi) {
+        int thetaIndex = nearestIndex(Math.toDegrees(theta), thetaStart, thetaStep, thetaCount);
+        int phiIndex = nearestIndex(Math.toDegrees(phi), phiStart, phiStep, phiCount);
+        if (thetaIndex < 0 || phiIndex < 0) {
+            return -1;
+        }
+        return toIndex(thetaIndex, phiIndex);
+    }
+
+    private static int nearestIndex(double value, double start, double step, int count) {
+        if (count == 0) {
+            return -1;
+        }
+        if (count == 1) {
+            return Math.abs(value - start) <= SINGLE_ANGLE_TOLERANCE * Math.max(1, Math.abs(start)) ? 0 : -1;
+        }
+        double position = (value - start) / step;
+        long index = Math.round(position);
+        if (index < 0 || index >= count || Math.abs(position - index) > INDEX_TOLERANCE) {
+            return -1;
+        }
+        return (int) index;
+    }
+
+    /**
+     * Get first theta angle.
+     *
+     * @return first theta angle in degrees.
+     */
+    public double getThetaStartDegrees() {
+        return thetaStart;
+    }
+
+    /**
+     * Get theta spacing.
+     *
+     * @return theta spacing in degrees, 0 if grid has less than two theta angles.
+     */
+    public double getThetaStepDegrees() {
+        return thetaStep;
+    }
+
+    /**
+     * Get number of theta angles.
+     *
+     * @return number of theta angles.
+     */
+    public int getThetaCount() {
+        return thetaCount;
+    }
+
+    /**
+     * Get first phi angle.
+     *
+     * @return first phi angle in degrees.
+     */
+    public double getPhiStartDegrees() {
+        return phiStart;
+    }
+
+    /**
+     * Get phi spacing.
+     *
+     * @return phi spacing in degrees, 0 if grid has less than two phi angles.
+     */
+    public double getPhiStepDegrees() {
+        return phiStep;
+    }
+
+    /**
+     * Get number of phi angles.
+     *
+     * @return number of phi angles.
+     */
+    public int getPhiCount() {
+        return phiCount;
+    }
+
+    /**
+     * Compare with other grid. Two regular grids are compared by their descriptors in constant time.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof RegularAngleGrid)) {
+            return super.equals(o);
+        }
+        RegularAngleGrid other = (RegularAngleGrid) o;
+        if (size() == 0 || other.size() == 0) {
+            return size() == other.size();
+        }
+        return thetaCount == other.thetaCount && phiCount == other.phiCount
+                && Double.compare(thetaStart, other.thetaStart) == 0 && Double.compare(thetaStep, other.thetaStep) == 0
+                && Double.compare(phiStart, other.phiStart) == 0 && Double.compare(phiStep, other.phiStep) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = super.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "theta: " + thetaCount + " angles from " + thetaStart + " step " + thetaStep + ", phi: " + phiCount
+                + " angles from " + phiStart + " step " + phiStep;
+    }
+
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularMatrixException;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Spherical wave expansion of a far field.<br>
+ * The field is represented by coefficients of orthonormal vector spherical harmonics up to a maximum degree N
+ *
+ * <pre>
+ * E(theta, phi) = sum(TE(n, m) * K1(n, m, theta, phi) + TM(n, m) * K2(n, m, theta, phi)), n = 1..N, m = -n..n
+ * K1 = (j * m * P(n, |m|) / sin(theta) * theta_hat - dP(n, |m|) / dtheta * phi_hat) * exp(j * m * phi) / c(n)
+ * K2 = (dP(n, |m|) / dtheta * theta_hat + j * m * P(n, |m|) / sin(theta) * phi_hat) * exp(j * m * phi) / c(n)
+ * c(n) = sqrt(n * (n + 1))
+ * </pre>
+ *
+ * where P are fully normalized associated Legendre functions evaluated by recurrence. The 2 * N * (N + 2) coefficients
+ * replace one value per angle and polarization, and the field can be evaluated in any direction without interpolation.
+ * Since the harmonics are orthonormal, the integral of |E|^2 over the sphere is the sum of all |coefficient|^2.<br>
+ * Fitting transforms each theta row over phi and solves one small least squares problem per azimuthal order m, so the
+ * field needs theta rows of equally spaced phi angles covering the full circle.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class SphericalWaveExpansion {
+
+    private static final double ANGLE_TOLERANCE = 1e-9;
+    private static final Set<ElectricField> THETA_PHI = EnumSet.of(ElectricField.THETA, ElectricField.PHI);
+
+    private final int maxDegree;
+    private final double frequency;
+    private final double[] teReal;
+    private final double[] teImaginary;
+    private final double[] tmReal;
+    private final double[] tmImaginary;
+
+    private SphericalWaveExpansion(int maxDegree, double frequency) {
+        this.maxDegree = maxDegree;
+        this.frequency = frequency;
+        int count = maxDegree * (maxDegree + 2);
+        this.teReal = new double[count];
+        this.teImaginary = new double[count];
+        this.tmReal = new double[count];
+        this.tmImaginary = new double[count];
+    }
+
+    /**
+     * Fit spherical wave expansion to far field.
+     *
+     * @param field
+     *            far field {@link Field} holding THETA and PHI, or another complete polarization basis which is
+     *            converted first.
+     * @param maxDegree
+     *            maximum degree N of the expansion, at least 1.
+     *
+     * @return new instance of {@link SphericalWaveExpansion} with the frequency of the field.
+     *
+     * @throws AntennaException
+     *             if field is not a far field, angles are not theta rows of equally spaced phi angles covering the full
+     *             circle, there are fewer than 2 * N + 1 phi angles or too few theta angles to determine the
+     *             coefficients.
+     */
+    public static SphericalWaveExpansion fit(Field field, int maxDegree) {
+        if (field.getFieldType() != FieldType.FARFIELD) {
+            throw new AntennaException("Spherical wave expansion requires a far field");
+        }
+        return expand(field, maxDegree);
+    }
+
+    /**
+     * Fit harmonics to tangential field of any field type.
+     */
+    static SphericalWaveExpansion expand(Field field, int maxDegree) {
+        if (maxDegree < 1) {
+            throw new AntennaException("Maximum degree needs to be at least 1");
+        }
+        InterpolationGrid grid = field.getAngleGrid().getInterpolationGrid();
+        int phiCount = grid.getPhiCount();
+        boolean equallySpaced = grid.isPhiPeriodic();
+        for (int j = 0; j < phiCount && equallySpaced; j++) {
+            equallySpaced = Math.abs(grid.getPhi(j) - grid.getPhi(0) - 2 * Math.PI * j / phiCount) < ANGLE_TOLERANCE;
+        }
+        if (!equallySpaced) {
+            throw new AntennaException(
+                    "Spherical wave expansion requires equally spaced phi angles over the full circle");
+        }
+        if (phiCount < 2 * maxDegree + 1) {
+            throw new AntennaException("Spherical wave expansion of degree " + maxDegree + " requires at least "
+                    + (2 * maxDegree + 1) + " phi angles");
+        }
+        Field thetaPhi = field.getAvailableElectricFields().containsAll(THETA_PHI) ? field
+                : field.convertPolarization(THETA_PHI);
+        ComplexArray theta = thetaPhi.getElectricFieldData(ElectricField.THETA);
+        ComplexArray phi = thetaPhi.getElectricFieldData(ElectricField.PHI);
+
+        /* Azimuthal spectrum a[row][m + N] of each theta row */
+        int thetaCount = grid.getThetaCount();
+        int orders = 2 * maxDegree + 1;
+        double[][] thetaReal = new double[thetaCount][orders];
+        double[][] thetaImaginary = new double[thetaCount][orders];
+        double[][] phiReal = new double[thetaCount][orders];
+        double[][] phiImaginary = new double[thetaCount][orders];
+        for (int j = 0; j < phiCount; j++) {
+            double angle = grid.getPhi(j);
+            for (int m = -maxDegree; m <= maxDegree; m++) {
+                double c = Math.cos(m * angle) / phiCount;
+                double s = -Math.sin(m * angle) / phiCount;
+                for (int row = 0; row < thetaCount; row++) {
+                    int index = grid.index(row, j);
+                    double re = theta.getReal(index);
+                    double im = theta.getImaginary(index);
+                    thetaReal[row][m + maxDegree] += re * c - im * s;
+                    thetaImaginary[row][m + maxDegree] += re * s + im * c;
+                    re = phi.getReal(index);
+                    im = phi.getImaginary(index);
+                    phiReal[row][m + maxDegree] += re * c - im * s;
+                    phiImaginary[row][m + maxDegree] += re * s + im * c;
+                }
+            }
+        }
+
+        Legendre[] legendre = new Legendre[thetaCount];
+        for (int row = 0; row < thetaCount; row++) {
+            legendre[row] = new Legendre(maxDegree, grid.getTheta(row));
+        }
+        SphericalWaveExpansion expansion = new SphericalWaveExpansion(maxDegree, thetaPhi.getFrequency());
+        for (int m = -maxDegree; m <= maxDegree; m++) {
+            int firstDegree = Math.max(1, Math.abs(m));
+            int unknowns = maxDegree - firstDegree + 1;
+            /*
+             * Real form of the complex system, rows [theta re, theta im, phi re, phi im], columns [te re, te im, tm re,
+             * tm im]
+             */
+            double[][] matrix = new double[4 * thetaCount][4 * unknowns];
+            double[] values = new double[4 * thetaCount];
+            for (int row = 0; row < thetaCount; row++) {
+                int r = 4 * row;
+                values[r] = thetaReal[row][m + maxDegree];
+                values[r + 1] = thetaImaginary[row][m + maxDegree];
+                values[r + 2] = phiReal[row][m + maxDegree];
+                values[r + 3] = phiImaginary[row][m + maxDegree];
+                for (int k = 0; k < unknowns; k++) {
+                    int n = firstDegree + k;
+                    double mp = legendre[row].scaledDividedBySine(n, m);
+                    double dp = legendre[row].scaledDerivative(n, m);
+                    /* theta = j * m * p * te + dp * tm */
+                    setComplex(matrix, r, 4 * k, 0, mp);
+                    setComplex(matrix, r, 4 * k + 2, dp, 0);
+                    /* phi = -dp * te + j * m * p * tm */
+                    setComplex(matrix, r + 2, 4 * k, -dp, 0);
+                    setComplex(matrix, r + 2, 4 * k + 2, 0, mp);
+                }
+            }
+            RealVector solution;
+            try {
+                solution = new QRDecomposition(new Array2DRowRealMatrix(matrix, false)).getSolver()
+                        .solve(new ArrayRealVector(values, false));
+            } catch (SingularMatrixException e) {
+                throw new AntennaException("Too few theta angles for spherical wave expansion of degree " + maxDegree);
+            }
+            for (int k = 0; k < unknowns; k++) {
+                int index = index(firstDegree + k, m);
+                expansion.teReal[index] = solution.getEntry(4 * k);
+                expansion.teImaginary[index] = solution.getEntry(4 * k + 1);
+                expansion.tmReal[index] = solution.getEntry(4 * k + 2);
+                expansion.tmImaginary[index] = solution.getEntry(4 * k + 3);
+            }
+        }
+        return expansion;
+    }
+
+    /**
+     * Set coefficient c = re + j * im acting on unknown x = [x re, x im] in rows [re, im].
+     */
+    private static void setComplex(double[][] matrix, int row, int column, double re, double im) {
+        matrix[row][column] = re;
+        matrix[row][column + 1] = -im;
+        matrix[row + 1][column] = im;
+        matrix[row + 1][column + 1] = re;
+    }
+
+    /**
+     * Propagate expansion of tangential field sampled on a sphere to far field, r * exp(j * k * r) * E as r goes to
+     * infinity. Each TE harmonic grows with the spherical Hankel function h(n)(k * r) of the second kind and each TM
+     * harmonic with (1 / (k * r)) * d(k * r * h(n)(k * r)) / d(k * r).
+     */
+    SphericalWaveExpansion propagateToFarField(double waveNumber, double radius) {
+        double x = waveNumber * radius;
+        /* Upward recurrence is stable since h(n) is dominated by the growing Neumann function */
+        Complex[] hankel = new Complex[maxDegree + 1];
+        hankel[0] = new Complex(Math.sin(x), Math.cos(x)).divide(x);
+        hankel[1] = new Complex(Math.sin(x) / (x * x) - Math.cos(x) / x, Math.cos(x) / (x * x) + Math.sin(x) / x);
+        for (int n = 1; n < maxDegree; n++) {
+            hankel[n + 1] = hankel[n].multiply((2.0 * n + 1) / x).subtract(hankel[n - 1]);
+        }
+        SphericalWaveExpansion farField = new SphericalWaveExpansion(maxDegree, frequency);
+        for (int n = 1; n <= maxDegree; n++) {
+            /* Asymptotically h(n)(x) = j^(n + 1) * exp(-j * x) / x */
+            Complex te = power(n + 1).divide(hankel[n].multiply(waveNumber));
+            Complex tm = power(n).divide(hankel[n - 1].subtract(hankel[n].multiply(n / x)).multiply(waveNumber));
+            for (int m = -n; m <= n; m++) {
+                int index = index(n, m);
+                Complex teValue = new Complex(teReal[index], teImaginary[index]).multiply(te);
+                Complex tmValue = new Complex(tmReal[index], tmImaginary[index]).multiply(tm);
+                farField.teReal[index] = teValue.getReal();
+                farField.teImaginary[index] = teValue.getImaginary();
+                farField.tmReal[index] = tmValue.getReal();
+                farField.tmImaginary[index] = tmValue.getImaginary();
+            }
+        }
+        return farField;
+    }
+
+    private static Complex power(int n) {
+        switch (n % 4) {
+        case 0:
+            return Complex.ONE;
+        case 1:
+            return Complex.I;
+        case 2:
+            return Complex.ONE.negate();
+        default:
+            return Complex.I.negate();
+        }
+    }
+
+    private static int index(int n, int m) {
+        return n * n - 1 + m + n;
+    }
+
+    /**
+     * Get maximum degree N of expansion.
+     *
+     * @return maximum degree.
+     */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Get frequency of expanded field.
+     *
+     * @return frequency.
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Get number of coefficients, 2 * N * (N + 2).
+     *
+     * @return number of coefficients.
+     */
+    public int getCoefficientCount() {
+        return 2 * teReal.length;
+    }
+
+    /**
+     * Get coefficient of transverse electric harmonic K1.
+     *
+     * @param n
+     *            degree, 1 to N.
+     * @param m
+     *            order, -n to n.
+     *
+     * @return coefficient.
+     *
+     * @throws AntennaException
+     *             if degree or order is out of range.
+     */
+    public Complex getTeCoefficient(int n, int m) {
+        int index = checkedIndex(n, m);
+        return new Complex(teReal[index], teImaginary[index]);
+    }
+
+    /**
+     * Get coefficient of transverse magnetic harmonic K2.
+     *
+     * @param n
+     *            degree, 1 to N.
+     * @param m
+     *            order, -n to n.
+     *
+     * @return coefficient.
+     *
+     * @throws AntennaException
+     *             if degree or order is out of range.
+     */
+    public Complex getTmCoefficient(int n, int m) {
+        int index = checkedIndex(n, m);
+        return new Complex(tmReal[index], tmImaginary[index]);
+    }
+
+    private int checkedIndex(int n, int m) {
+        if (n < 1 || n > maxDegree || Math.abs(m) > n) {
+            throw new AntennaException("No spherical harmonic of degree " + n + " and order " + m);
+        }
+        return index(n, m);
+    }
+
+    /**
+     * Get integral of |E|^2 over the sphere.
+     *
+     * @return sum of squared magnitudes of all coefficients.
+     */
+    public double getRadiatedPower() {
+        double power = 0;
+        for (int i = 0; i < teReal.length; i++) {
+            power += teReal[i] * teReal[i] + teImaginary[i] * teImaginary[i] + tmReal[i] * tmReal[i]
+                    + tmImaginary[i] * tmImaginary[i];
+        }
+        return power;
+    }
+
+    /**
+     * Evaluate field in direction.
+     *
+     * @param electricField
+     *            {@link ElectricField#THETA} or {@link ElectricField#PHI}.
+     * @param thetaPhi
+     *            direction to evaluate.
+     *
+     * @return field value.
+     *
+     * @throws AntennaException
+     *             if electric field is not THETA or PHI.
+     */
+    public Complex evaluate(ElectricField electricField, ThetaPhi thetaPhi) {
+        if (!THETA_PHI.contains(electricField)) {
+            throw new AntennaException("Spherical wave expansion holds THETA and PHI only, not " + electricField);
+        }
+        double[] real = new double[2];
+        double[] imaginary = new double[2];
+        evaluate(thetaPhi.getTheta(), thetaPhi.getPhi(), real, imaginary);
+        int component = electricField == ElectricField.THETA ? 0 : 1;
+        return new Complex(real[component], imaginary[component]);
+    }
+
+    /**
+     * Evaluate theta and phi components of field in direction.
+     *
+     * @param theta
+     *            theta angle in radians.
+     * @param phi
+     *            phi angle in radians.
+     * @param real
+     *            destination of real parts, theta component at index 0 and phi component at index 1.
+     * @param imaginary
+     *            destination of imaginary parts, theta component at index 0 and phi component at index 1.
+     */
+    public void evaluate(double theta, double phi, double[] real, double[] imaginary) {
+        double[] spectrum = new double[4 * (2 * maxDegree + 1)];
+        spectrum(new Legendre(maxDegree, theta), spectrum);
+        synthesize(spectrum, Math.cos(phi), Math.sin(phi), real, imaginary);
+    }
+
+    /**
+     * Convert expansion to field.
+     *
+     * @param angleGrid
+     *            {@link AngleGrid} to evaluate field on.
+     *
+     * @return new far field instance holding THETA and PHI with the frequency of the expansion.
+     */
+    public Field toField(AngleGrid angleGrid) {
+        int size = angleGrid.size();
+        double[] thetaReal = new double[size];
+        double[] thetaImaginary = new double[size];
+        double[] phiReal = new double[size];
+        double[] phiImaginary = new double[size];
+        double[] spectrum = new double[4 * (2 * maxDegree + 1)];
+        double[] real = new double[2];
+        double[] imaginary = new double[2];
+        if (angleGrid instanceof RegularAngleGrid) {
+            /* Legendre functions and azimuthal spectrum once per theta row */
+            RegularAngleGrid grid = (RegularAngleGrid) angleGrid;
+            for (int t = 0; t < grid.getThetaCount(); t++) {
+                spectrum(new Legendre(maxDegree, grid.getThetaAt(t)), spectrum);
+                for (int p = 0; p < grid.getPhiCount(); p++) {
+                    double phi = grid.getPhiAt(p);
+                    synthesize(spectrum, Math.cos(phi), Math.sin(phi), real, imaginary);
+                    int index = grid.toIndex(t, p);
+                    thetaReal[index] = real[0];
+                    thetaImaginary[index] = imaginary[0];
+                    phiReal[index] = real[1];
+                    phiImaginary[index] = imaginary[1];
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                evaluate(angleGrid.getTheta(i), angleGrid.getPhi(i), real, imaginary);
+                thetaReal[i] = real[0];
+                thetaImaginary[i] = imaginary[0];
+                phiReal[i] = real[1];
+                phiImaginary[i] = imaginary[1];
+            }
+        }
+        return Field.newBuilder().setFieldType(FieldType.FARFIELD).setAngleGrid(angleGrid).setFreqency(frequency)
+                .addElectricField(ElectricField.THETA, thetaReal, thetaImaginary)
+                .addElectricField(ElectricField.PHI, phiReal, phiImaginary).build();
+    }
+
+    /**
+     * Sum harmonics over degree for every order m at one theta angle, laid out as [theta re, theta im, phi re, phi im]
+     * for each m from -N to N.
+     */
+    private void spectrum(Legendre legendre, double[] spectrum) {
+        for (int m = -maxDegree; m <= maxDegree; m++) {
+            double thetaRe = 0;
+            double thetaIm = 0;
+            double phiRe = 0;
+            double phiIm = 0;
+            for (int n = Math.max(1, Math.abs(m)); n <= maxDegree; n++) {
+                int index = index(n, m);
+                double mp = legendre.scaledDividedBySine(n, m);
+                double dp = legendre.scaledDerivative(n, m);
+                /* theta = j * m * p * te + dp * tm, phi = -dp * te + j * m * p * tm */
+                thetaRe += -mp * teImaginary[index] + dp * tmReal[index];
+                thetaIm += mp * teReal[index] + dp * tmImaginary[index];
+                phiRe += -dp * teReal[index] - mp * tmImaginary[index];
+                phiIm += -dp * teImaginary[index] + mp * tmReal[index];
+            }
+            int k = 4 * (m + maxDegree);
+            spectrum[k] = thetaRe;
+            spectrum[k + 1] = thetaIm;
+            spectrum[k + 2] = phiRe;
+            spectrum[k + 3] = phiIm;
+        }
+    }
+
+    /**
+     * Sum spectrum times exp(j * m * phi) over order m, powers of exp(j * phi) by recurrence.
+     */
+    private void synthesize(double[] spectrum, double cosPhi, double sinPhi, double[] real, double[] imaginary) {
+        int center = 4 * maxDegree;
+        double thetaRe = spectrum[center];
+        double thetaIm = spectrum[center + 1];
+        double phiRe = spectrum[center + 2];
+        double phiIm = spectrum[center + 3];
+        double c = 1;
+        double s = 0;
+        for (int m = 1; m <= maxDegree; m++) {
+            double next = c * cosPhi - s * sinPhi;
+            s = c * sinPhi + s * cosPhi;
+            c = next;
+            int positive = center + 4 * m;
+            int negative = center - 4 * m;
+            /* exp(j * m * phi) = c + j * s and exp(-j * m * phi) = c - j * s */
+            thetaRe += spectrum[positive] * c - spectrum[positive + 1] * s + spectrum[negative] * c
+                    + spectrum[negative + 1] * s;
+            thetaIm += spectrum[positive] * s + spectrum[positive + 1] * c - spectrum[negative] * s
+                    + spectrum[negative + 1] * c;
+            phiRe += spectrum[positive + 2] * c - spectrum[positive + 3] * s + spectrum[negative + 2] * c
+                    + spectrum[negative + 3] * s;
+            phiIm += spectrum[positive + 2] * s + spectrum[positive + 3] * c - spectrum[negative + 2] * s
+                    + spectrum[negative + 3] * c;
+        }
+        real[0] = thetaRe;
+        imaginary[0] = thetaIm;
+        real[1] = phiRe;
+        imaginary[1] = phiIm;
+    }
+
+    /**
+     * Fully normalized associated Legendre functions P(n, m)(cos(theta)), without Condon-Shortley phase, of one theta
+     * angle. Values are kept divided by sin(theta) for m &gt; 0 so the poles need no special handling, and combined
+     * into the terms of the harmonics divided by sqrt(n * (n + 1)).
+     */
+    private static final class Legendre {
+
+        private final double[] dividedBySine;
+        private final double[] derivative;
+
+        private Legendre(int maxDegree, double theta) {
+            double cosTheta = Math.cos(theta);
+            double sinTheta = Math.sin(theta);
+            int count = (maxDegree + 1) * (maxDegree + 2) / 2;
+            /* p(n, m) = P(n, m) / sin(theta) for m > 0, P(n, 0) for m = 0 */
+            double[] p = new double[count];
+            this.dividedBySine = new double[count];
+            this.derivative = new double[count];
+            double seed = Math.sqrt(0.25 / Math.PI);
+            for (int m = 0; m <= maxDegree; m++) {
+                if (m == 1) {
+                    seed *= Math.sqrt(1.5);
+                } else if (m > 1) {
+                    seed *= Math.sqrt((2.0 * m + 1) / (2.0 * m)) * sinTheta;
+                }
+                p[triangle(m, m)] = seed;
+                if (m < maxDegree) {
+                    p[triangle(m + 1, m)] = Math.sqrt(2.0 * m + 3) * cosTheta * seed;
+                }
+                for (int n = m + 2; n <= maxDegree; n++) {
+                    double a = Math.sqrt((4.0 * n * n - 1) / ((double) n * n - (double) m * m));
+                    double b = Math.sqrt(((n - 1.0) * (n - 1.0) - (double) m * m) / (4.0 * (n - 1.0) * (n - 1.0) - 1));
+                    p[triangle(n, m)] = a * (cosTheta * p[triangle(n - 1, m)] - b * p[triangle(n - 2, m)]);
+                }
+            }
+            for (int n = 1; n <= maxDegree; n++) {
+                double norm = 1 / Math.sqrt(n * (n + 1.0));
+                /* dP(n, 0) / dtheta = -sqrt(n * (n + 1)) * P(n, 1), scaled by norm */
+                derivative[triangle(n, 0)] = -sinTheta * p[triangle(n, 1)];
+                for (int m = 1; m <= n; m++) {
+                    double previous = n > m ? p[triangle(n - 1, m)] : 0;
+                    double dp = n * cosTheta * p[triangle(n, m)]
+                            - Math.sqrt((2.0 * n + 1) * ((double) n * n - (double) m * m) / (2.0 * n - 1)) * previous;
+                    derivative[triangle(n, m)] = dp * norm;
+                    dividedBySine[triangle(n, m)] = m * p[triangle(n, m)] * norm;
+                }
+            }
+        }
+
+        private static int triangle(int n, int m) {
+            return n * (n + 1) / 2 + m;
+        }
+
+        /**
+         * Get m * P(n, |m|) / sin(theta) / sqrt(n * (n + 1)).
+         */
+        private double scaledDividedBySine(int n, int m) {
+            double value = dividedBySine[triangle(n, Math.abs(m))];
+            return m < 0 ? -value : value;
+        }
+
+        /**
+         * Get dP(n, |m|) / dtheta / sqrt(n * (n + 1)).
+         */
+        private double scaledDerivative(int n, int m) {
+            return derivative[triangle(n, Math.abs(m))];
+        }
+
+    }
+
+}
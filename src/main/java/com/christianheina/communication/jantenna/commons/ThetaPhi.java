@@ -16,8 +16,11 @@
 
 package com.christianheina.communication.jantenna.commons;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Theta Phi Data Model.<br>
@@ -27,6 +30,8 @@ import java.util.List;
  */
 public class ThetaPhi {
 
+    private static final Map<ThetaPhi, WeakReference<ThetaPhi>> INTERNED = new WeakHashMap<>();
+
     private double theta;
     private double phi;
 
@@ -88,7 +93,9 @@ public class ThetaPhi {
     }
 
     /**
-     * Create list of equally spaced theta and phi values using provided spacing.
+     * Create list of equally spaced theta and phi values using provided spacing.<br>
+     * Theta goes from 0 to 180 degrees and phi from -180 to 180 degrees. See
+     * {@link RegularAngleGrid#equallySpacedSphere(int)} for the same angles without per angle instances.
      * 
      * @param spacing
      *            spacing in degrees to use.
@@ -96,13 +103,7 @@ public class ThetaPhi {
      * @return {@link List} of {@link ThetaPhi}.
      */
     public static List<ThetaPhi> equallySpacedSphere(int spacing) {
-        List<ThetaPhi> angleList = new ArrayList<>();
-        for (int i = 0; i <= 180; i += spacing) {
-            for (int j = -180; j <= 180; j += spacing) {
-                angleList.add(ThetaPhi.fromDegrees(i, j));
-            }
-        }
-        return angleList;
+        return new ArrayList<>(RegularAngleGrid.equallySpacedSphere(spacing).asList());
     }
 
     @Override
@@ -119,4 +120,33 @@ public class ThetaPhi {
         return Double.compare(getPhi(), p.getPhi()) == 0 && Double.compare(getTheta(), p.getTheta()) == 0;
     }
 
+    /**
+     * Hash code consistent with {@link #equals(Object)}, which compares angles as
+     * {@link Double#compare(double, double)} does.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(theta) + Double.hashCode(phi);
+    }
+
+    /**
+     * Get canonical instance of this angle.<br>
+     * Equal angles give the same instance for as long as it is referenced elsewhere, so grids of repeatedly used angles
+     * can share instances and be compared by identity. Canonical instances are held weakly and do not prevent garbage
+     * collection.
+     * 
+     * @return canonical {@link ThetaPhi} equal to this angle.
+     */
+    public ThetaPhi intern() {
+        synchronized (INTERNED) {
+            WeakReference<ThetaPhi> reference = INTERNED.get(this);
+            ThetaPhi interned = reference != null ? reference.get() : null;
+            if (interned == null) {
+                interned = this;
+                INTERNED.put(this, new WeakReference<>(this));
+            }
+            return interned;
+        }
+    }
+
 }
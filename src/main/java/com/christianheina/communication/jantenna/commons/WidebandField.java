@@ -0,0 +1,378 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Frequency swept field sharing one angle grid.<br>
+ * Electric field values of all frequencies are stored in one contiguous block of real and one of imaginary parts,
+ * indexed as [frequency][electric field][angle] with electric fields in {@link ElectricField} order. Each frequency is
+ * available as a {@link Field} view of the block, so writes through a view are visible in the wideband field.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+public final class WidebandField {
+
+    private final FieldType fieldType;
+    private final AngleGrid angleGrid;
+    private final double[] frequencies;
+    private final ElectricField[] electricFields;
+    private final int[] electricFieldIndex = new int[ElectricField.values().length];
+    private final double[] real;
+    private final double[] imaginary;
+
+    private WidebandField(Builder builder) {
+        this.fieldType = builder.fieldType;
+        this.angleGrid = builder.angleGrid;
+        this.frequencies = builder.frequencies.clone();
+        this.electricFields = builder.electricFields.toArray(new ElectricField[0]);
+        Arrays.fill(electricFieldIndex, -1);
+        for (int p = 0; p < electricFields.length; p++) {
+            electricFieldIndex[electricFields[p].ordinal()] = p;
+        }
+        long length = (long) frequencies.length * electricFields.length * angleGrid.size();
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new AntennaException("Wideband field too large: " + length + " values");
+        }
+        this.real = new double[(int) length];
+        this.imaginary = new double[(int) length];
+    }
+
+    /**
+     * Create new builder.
+     *
+     * @return new instance of {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Create wideband field from single frequency fields. Values are copied.
+     *
+     * @param fields
+     *            {@link List} of {@link Field} in increasing frequency order.
+     *
+     * @return new instance of {@link WidebandField}.
+     *
+     * @throws AntennaException
+     *             if list is empty, frequencies are not increasing or fields do not have the same {@link FieldType},
+     *             angles and available {@link ElectricField}.
+     */
+    public static WidebandField fromFields(List<Field> fields) {
+        if (fields.isEmpty()) {
+            throw new AntennaException("At least one field is required");
+        }
+        Field first = fields.get(0);
+        double[] frequencies = new double[fields.size()];
+        for (int f = 0; f < frequencies.length; f++) {
+            Field field = fields.get(f);
+            if (field.getFieldType() != first.getFieldType() || !field.getAngleGrid().equals(first.getAngleGrid())
+                    || !field.getAvailableElectricFields().equals(first.getAvailableElectricFields())) {
+                throw new AntennaException("Fields need to have the same field type, angles and electric fields");
+            }
+            frequencies[f] = field.getFrequency();
+        }
+        WidebandField wideband = newBuilder().setFieldType(first.getFieldType()).setAngleGrid(first.getAngleGrid())
+                .setFrequencies(frequencies).setElectricFields(first.getAvailableElectricFields()).build();
+        int size = wideband.angleGrid.size();
+        for (int f = 0; f < frequencies.length; f++) {
+            for (ElectricField electricField : wideband.electricFields) {
+                ComplexArray data = fields.get(f).getElectricFieldData(electricField);
+                if (data.size() != size) {
+                    throw new AntennaException("Electric fields need to have one value for each angle");
+                }
+                data.copyTo(0, wideband.real, wideband.imaginary, wideband.offset(f, electricField), size);
+            }
+        }
+        return wideband;
+    }
+
+    /**
+     * Get {@link Field} view of one frequency. Values are not copied, writes through the view change this wideband
+     * field.
+     *
+     * @param frequencyIndex
+     *            index of frequency.
+     *
+     * @return new {@link Field} view.
+     */
+    public Field getField(int frequencyIndex) {
+        Field.Builder builder = Field.newBuilder().setFieldType(fieldType).setAngleGrid(angleGrid)
+                .setFreqency(frequencies[frequencyIndex]);
+        int size = angleGrid.size();
+        for (ElectricField electricField : electricFields) {
+            int offset = offset(frequencyIndex, electricField);
+            builder.addElectricFieldData(electricField, new BufferComplexArray(DoubleBuffer.wrap(real, offset, size),
+                    DoubleBuffer.wrap(imaginary, offset, size)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Interpolate field linearly in frequency between the two closest frequency points. Frequencies outside the swept
+     * range are clamped to the first or last frequency.
+     *
+     * @param frequency
+     *            frequency to interpolate at.
+     *
+     * @return new instance of {@link Field} with frequency set to requested frequency.
+     */
+    public Field interpolate(double frequency) {
+        int upper = Arrays.binarySearch(frequencies, frequency);
+        int lower;
+        double weight;
+        if (upper >= 0) {
+            lower = upper;
+            weight = 0;
+        } else {
+            upper = -upper - 1;
+            if (upper == 0 || upper == frequencies.length) {
+                upper = Math.min(upper, frequencies.length - 1);
+                lower = upper;
+                weight = 0;
+            } else {
+                lower = upper - 1;
+                weight = (frequency - frequencies[lower]) / (frequencies[upper] - frequencies[lower]);
+            }
+        }
+        Field.Builder builder = Field.newBuilder().setFieldType(fieldType).setAngleGrid(angleGrid)
+                .setFreqency(frequency);
+        int size = angleGrid.size();
+        for (ElectricField electricField : electricFields) {
+            int lowerOffset = offset(lower, electricField);
+            int upperOffset = offset(upper, electricField);
+            double[] interpolatedReal = new double[size];
+            double[] interpolatedImaginary = new double[size];
+            for (int i = 0; i < size; i++) {
+                interpolatedReal[i] = real[lowerOffset + i] + weight * (real[upperOffset + i] - real[lowerOffset + i]);
+                interpolatedImaginary[i] = imaginary[lowerOffset + i]
+                        + weight * (imaginary[upperOffset + i] - imaginary[lowerOffset + i]);
+            }
+            builder.addElectricField(electricField, interpolatedReal, interpolatedImaginary);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Set electric field values of one frequency. Values are copied.
+     *
+     * @param frequencyIndex
+     *            index of frequency.
+     * @param electricField
+     *            {@link ElectricField} to set.
+     * @param realValues
+     *            real parts, one value for each angle.
+     * @param imaginaryValues
+     *            imaginary parts, one value for each angle.
+     *
+     * @throws AntennaException
+     *             if electric field is not available or arrays do not have one value for each angle.
+     */
+    public void setElectricField(int frequencyIndex, ElectricField electricField, double[] realValues,
+            double[] imaginaryValues) {
+        int size = angleGrid.size();
+        if (realValues.length != size || imaginaryValues.length != size) {
+            throw new AntennaException("Electric fields need to have one value for each angle");
+        }
+        int offset = offset(frequencyIndex, electricField);
+        System.arraycopy(realValues, 0, real, offset, size);
+        System.arraycopy(imaginaryValues, 0, imaginary, offset, size);
+    }
+
+    private int offset(int frequencyIndex, ElectricField electricField) {
+        int p = electricFieldIndex[electricField.ordinal()];
+        if (p < 0) {
+            throw new AntennaException("Electric field not available: " + electricField);
+        }
+        if (frequencyIndex < 0 || frequencyIndex >= frequencies.length) {
+            throw new IndexOutOfBoundsException("Frequency index: " + frequencyIndex);
+        }
+        return (frequencyIndex * electricFields.length + p) * angleGrid.size();
+    }
+
+    /**
+     * Get field type.
+     *
+     * @return {@link FieldType}.
+     */
+    public FieldType getFieldType() {
+        return fieldType;
+    }
+
+    /**
+     * Get angle grid shared by all frequencies.
+     *
+     * @return {@link AngleGrid}.
+     */
+    public AngleGrid getAngleGrid() {
+        return angleGrid;
+    }
+
+    /**
+     * Get number of frequencies.
+     *
+     * @return number of frequencies.
+     */
+    public int getFrequencyCount() {
+        return frequencies.length;
+    }
+
+    /**
+     * Get frequency.
+     *
+     * @param frequencyIndex
+     *            index of frequency.
+     *
+     * @return frequency.
+     */
+    public double getFrequency(int frequencyIndex) {
+        return frequencies[frequencyIndex];
+    }
+
+    /**
+     * Get all frequencies.
+     *
+     * @return copy of frequencies in increasing order.
+     */
+    public double[] getFrequencies() {
+        return frequencies.clone();
+    }
+
+    /**
+     * Get available electrical fields.
+     *
+     * @return unmodifiable {@link Set} of {@link ElectricField}.
+     */
+    public Set<ElectricField> getAvailableElectricFields() {
+        Set<ElectricField> available = EnumSet.noneOf(ElectricField.class);
+        Collections.addAll(available, electricFields);
+        return Collections.unmodifiableSet(available);
+    }
+
+    /**
+     * Builder for {@link WidebandField}. Electric field values start at zero.
+     *
+     * @author Christian Heina
+     */
+    public static final class Builder {
+
+        private FieldType fieldType = FieldType.FARFIELD;
+        private AngleGrid angleGrid = new ExplicitAngleGrid(new double[0], new double[0]);
+        private double[] frequencies = new double[0];
+        private Set<ElectricField> electricFields = EnumSet.noneOf(ElectricField.class);
+
+        private Builder() {
+            /* Hidden Constructor */}
+
+        /**
+         * Set field type.
+         *
+         * @param fieldType
+         *            {@link FieldType} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFieldType(FieldType fieldType) {
+            this.fieldType = fieldType;
+            return this;
+        }
+
+        /**
+         * Set angle grid shared by all frequencies.
+         *
+         * @param angleGrid
+         *            {@link AngleGrid} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setAngleGrid(AngleGrid angleGrid) {
+            this.angleGrid = angleGrid;
+            return this;
+        }
+
+        /**
+         * Set theta and phi list shared by all frequencies.
+         *
+         * @param thetaPhiList
+         *            {@link List} of {@link ThetaPhi} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setThetaPhiList(List<ThetaPhi> thetaPhiList) {
+            this.angleGrid = AngleGrid.fromList(thetaPhiList);
+            return this;
+        }
+
+        /**
+         * Set frequencies.
+         *
+         * @param frequencies
+         *            frequencies in increasing order.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setFrequencies(double[] frequencies) {
+            this.frequencies = frequencies.clone();
+            return this;
+        }
+
+        /**
+         * Set available electric fields.
+         *
+         * @param electricFields
+         *            {@link Set} of {@link ElectricField} to set.
+         *
+         * @return this instance of {@link Builder}.
+         */
+        public Builder setElectricFields(Set<ElectricField> electricFields) {
+            this.electricFields = electricFields.isEmpty() ? EnumSet.noneOf(ElectricField.class)
+                    : EnumSet.copyOf(electricFields);
+            return this;
+        }
+
+        /**
+         * Build new instance of WidebandField using this builder.
+         *
+         * @return new instance of {@link WidebandField}.
+         *
+         * @throws AntennaException
+         *             if no frequencies are set or frequencies are not increasing.
+         */
+        public WidebandField build() {
+            if (frequencies.length == 0) {
+                throw new AntennaException("At least one frequency is required");
+            }
+            for (int f = 1; f < frequencies.length; f++) {
+                if (!(frequencies[f] > frequencies[f - 1])) {
+                    throw new AntennaException("Frequencies need to be increasing");
+                }
+            }
+            return new WidebandField(this);
+        }
+
+    }
+
+}
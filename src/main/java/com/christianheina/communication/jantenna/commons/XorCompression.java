@@ -0,0 +1,234 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Lossless XOR encoding of values against a prediction from the previous values, in the style of the FPC and Gorilla
+ * floating point compressors. Real parts are encoded followed by imaginary parts, as one big-endian bit stream. Each
+ * value is predicted by quadratic extrapolation of the three previous values of the series, fewer at the start, and
+ * stored as the XOR of its bits with the bits of the prediction:
+ *
+ * <pre>
+ * leading(6) bits[64 - leading]     double values, leading zeros of XOR up to 63
+ * leading(5) bits[32 - leading]     single precision values, leading zeros of XOR up to 31
+ * </pre>
+ *
+ * Close predictions of smooth patterns share sign, exponent and leading mantissa bits with the value, which XOR to
+ * leading zeros. Single precision values are predicted in float arithmetic and encoded as their 32 bits. Decoding
+ * repeats the same predictions from the restored values, so values are restored bit for bit.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+final class XorCompression {
+
+    private XorCompression() {
+        /* Hidden Constructor */ }
+
+    static byte[] encode(ComplexArray data, int from, int to, boolean singlePrecision) {
+        BitWriter writer = new BitWriter((to - from) * 2 * Double.BYTES);
+        Series real = new Series(singlePrecision);
+        for (int i = from; i < to; i++) {
+            real.encode(data.getReal(i), writer);
+        }
+        Series imaginary = new Series(singlePrecision);
+        for (int i = from; i < to; i++) {
+            imaginary.encode(data.getImaginary(i), writer);
+        }
+        return writer.toByteArray();
+    }
+
+    static void decode(ByteBuffer frame, double[] real, double[] imaginary, int destPos, int count,
+            boolean singlePrecision) {
+        BitReader reader = new BitReader(frame);
+        Series realSeries = new Series(singlePrecision);
+        for (int i = 0; i < count; i++) {
+            real[destPos + i] = realSeries.decode(reader);
+        }
+        Series imaginarySeries = new Series(singlePrecision);
+        for (int i = 0; i < count; i++) {
+            imaginary[destPos + i] = imaginarySeries.decode(reader);
+        }
+    }
+
+    /**
+     * State of one series of values, the three previous values.
+     */
+    private static final class Series {
+
+        private final boolean singlePrecision;
+        private final int width;
+        private final int leadingBits;
+        private int count;
+        private double previous1;
+        private double previous2;
+        private double previous3;
+
+        private Series(boolean singlePrecision) {
+            this.singlePrecision = singlePrecision;
+            this.width = singlePrecision ? 32 : 64;
+            this.leadingBits = singlePrecision ? 5 : 6;
+        }
+
+        private void encode(double value, BitWriter writer) {
+            long xor = bits(value) ^ bits(predict());
+            int leading = Math.min(Long.numberOfLeadingZeros(xor) - (64 - width), width - 1);
+            writer.write(leading, leadingBits);
+            writer.write(xor, width - leading);
+            update(value);
+        }
+
+        private double decode(BitReader reader) {
+            int leading = (int) reader.read(leadingBits);
+            if (leading >= width) {
+                throw new BufferUnderflowException();
+            }
+            long valueBits = reader.read(width - leading) ^ bits(predict());
+            double value = singlePrecision ? Float.intBitsToFloat((int) valueBits) : Double.longBitsToDouble(valueBits);
+            update(value);
+            return value;
+        }
+
+        private double predict() {
+            if (singlePrecision) {
+                float a = (float) previous1;
+                float b = (float) previous2;
+                float c = (float) previous3;
+                return count == 0 ? 0 : count == 1 ? a : count == 2 ? 2 * a - b : 3 * a - 3 * b + c;
+            }
+            return count == 0 ? 0 : count == 1 ? previous1
+                    : count == 2 ? 2 * previous1 - previous2 : 3 * previous1 - 3 * previous2 + previous3;
+        }
+
+        private void update(double value) {
+            previous3 = previous2;
+            previous2 = previous1;
+            previous1 = value;
+            count = Math.min(count + 1, 3);
+        }
+
+        private long bits(double value) {
+            return singlePrecision ? Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL
+                    : Double.doubleToRawLongBits(value);
+        }
+
+    }
+
+    /**
+     * Writes bit fields, most significant bit first, to a growing byte array.
+     */
+    private static final class BitWriter {
+
+        private byte[] bytes;
+        private int size;
+        private long word;
+        private int free = 64;
+
+        private BitWriter(int capacity) {
+            this.bytes = new byte[Math.max(Double.BYTES, capacity)];
+        }
+
+        /**
+         * Write count, 1 to 64, lowest bits of value.
+         */
+        private void write(long value, int count) {
+            long bits = count == 64 ? value : value & (1L << count) - 1;
+            if (count < free) {
+                word |= bits << free - count;
+                free -= count;
+                return;
+            }
+            int rest = count - free;
+            word |= bits >>> rest;
+            flushWord();
+            word = rest == 0 ? 0 : bits << 64 - rest;
+            free = 64 - rest;
+        }
+
+        private void flushWord() {
+            if (size + Double.BYTES > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + Double.BYTES));
+            }
+            for (int i = 0; i < Double.BYTES; i++) {
+                bytes[size++] = (byte) (word >>> 56 - 8 * i);
+            }
+        }
+
+        private byte[] toByteArray() {
+            int used = (64 - free + 7) / 8;
+            flushWord();
+            return Arrays.copyOf(bytes, size - Double.BYTES + used);
+        }
+
+    }
+
+    /**
+     * Reads bit fields, most significant bit first, from buffer position to buffer limit.
+     */
+    private static final class BitReader {
+
+        private final ByteBuffer buffer;
+        private int position;
+        private long word;
+        private int available;
+
+        private BitReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.position = buffer.position();
+        }
+
+        /**
+         * Read count, 1 to 64, bits.
+         *
+         * @throws BufferUnderflowException
+         *             if buffer ends before count bits.
+         */
+        private long read(int count) {
+            if (count <= available) {
+                long value = word >>> 64 - count;
+                word = count == 64 ? 0 : word << count;
+                available -= count;
+                return value;
+            }
+            long value = available == 0 ? 0 : word >>> 64 - available;
+            int rest = count - available;
+            load();
+            value = (rest == 64 ? 0 : value << rest) | word >>> 64 - rest;
+            word = rest == 64 ? 0 : word << rest;
+            available = 64 - rest;
+            return value;
+        }
+
+        private void load() {
+            int limit = buffer.limit();
+            if (position >= limit) {
+                throw new BufferUnderflowException();
+            }
+            int count = Math.min(Double.BYTES, limit - position);
+            word = 0;
+            for (int i = 0; i < count; i++) {
+                word |= (buffer.get(position + i) & 0xFFL) << 56 - 8 * i;
+            }
+            position += count;
+        }
+
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link ArrayFactor}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class ArrayFactorTest {
+
+    private static final double FREQUENCY = 28e9;
+
+    @Test
+    public void panelTest() {
+        List<WeightableElement> elements = panel(8, 4, FREQUENCY, 0);
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA).build()
+                .calculate(RegularAngleGrid.equallySpacedSphere(3));
+        assertField(field, elements, 1, ElectricField.THETA);
+        Assert.assertEquals(field.getFrequency(), FREQUENCY);
+        Assert.assertEquals(field.getFieldType(), FieldType.FARFIELD);
+        /* Uniform weights add up in phase at broadside */
+        int broadside = field.getAngleGrid().indexOf(ThetaPhi.fromDegrees(0, 0));
+        Assert.assertEquals(field.getReal(ElectricField.THETA, broadside), 32, 1e-9);
+    }
+
+    @Test
+    public void irregularArrayTest() {
+        List<WeightableElement> elements = new ArrayList<>();
+        elements.add(new WeightableElement(new Vector3D(0, 0, 0), FREQUENCY, new Complex(1, 0.5)));
+        elements.add(new WeightableElement(new Vector3D(0.37, -1.2, 0.1), FREQUENCY, new Complex(-0.3, 2)));
+        elements.add(new WeightableElement(new Vector3D(1.9, 0.25, -0.7), FREQUENCY, new Complex(0.8, -0.1)));
+        elements.add(new WeightableElement(new Vector3D(0.37, 0.25, 0.1), FREQUENCY, new Complex(0, 1)));
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            thetaPhiList.add(ThetaPhi.fromRadians(i * 0.061, i * 0.13 - 3));
+        }
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA).build()
+                .calculate(thetaPhiList);
+        assertField(field, elements, 1, ElectricField.THETA);
+    }
+
+    @Test
+    public void frequencyScalingTest() {
+        List<WeightableElement> elements = panel(4, 4, FREQUENCY, 0.3);
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA)
+                .setFrequency(2 * FREQUENCY).build().calculate(RegularAngleGrid.equallySpacedSphere(5));
+        assertField(field, elements, 2, ElectricField.THETA);
+        Assert.assertEquals(field.getFrequency(), 2 * FREQUENCY);
+    }
+
+    @Test
+    public void largePanelTest() {
+        List<WeightableElement> elements = panel(32, 32, FREQUENCY, 0.3);
+        ArrayFactor arrayFactor = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA)
+                .build();
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(1);
+        Field field = arrayFactor.calculate(angleGrid);
+        Assert.assertEquals(field.getElectricFieldSize(ElectricField.THETA), angleGrid.size());
+        for (int i = 0; i < angleGrid.size(); i += 1009) {
+            Complex expected = reference(elements, angleGrid.get(i), 1);
+            Assert.assertEquals(field.getReal(ElectricField.THETA, i), expected.getReal(), 1e-9);
+            Assert.assertEquals(field.getImaginary(ElectricField.THETA, i), expected.getImaginary(), 1e-9);
+        }
+    }
+
+    @Test
+    public void parallelTest() {
+        List<WeightableElement> elements = panel(16, 16, FREQUENCY, 0.3);
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(2);
+        Field sequential = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA).build()
+                .calculate(angleGrid);
+        Field parallel = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA)
+                .setExecutionPolicy(ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 2048)).build()
+                .calculate(angleGrid);
+        for (int i = 0; i < angleGrid.size(); i++) {
+            Assert.assertEquals(parallel.getReal(ElectricField.THETA, i), sequential.getReal(ElectricField.THETA, i));
+            Assert.assertEquals(parallel.getImaginary(ElectricField.THETA, i),
+                    sequential.getImaginary(ElectricField.THETA, i));
+        }
+    }
+
+    @Test
+    public void fftPanelTest() {
+        /* Panel with one element missing from its lattice, lifted off the xy plane */
+        List<WeightableElement> elements = new ArrayList<>();
+        for (WeightableElement element : panel(32, 16, FREQUENCY, 0.3)) {
+            elements.add(new WeightableElement(element.getElementLocation().add(new Vector3D(-3, 1, 0.25)), FREQUENCY,
+                    element.getElementWeight()));
+        }
+        elements.remove(37);
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(2);
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA)
+                .setFftOversampling(16).build().calculate(angleGrid);
+        /* Interpolation error bound is 0.025 * (pi / 16)^4 per axis relative to sum of weight magnitudes */
+        double tolerance = 2 * 0.025 * Math.pow(Math.PI / 16, 4) * elements.size();
+        for (int i = 0; i < angleGrid.size(); i++) {
+            Complex expected = reference(elements, angleGrid.get(i), 1);
+            Assert.assertEquals(field.getReal(ElectricField.THETA, i), expected.getReal(), tolerance);
+            Assert.assertEquals(field.getImaginary(ElectricField.THETA, i), expected.getImaginary(), tolerance);
+        }
+    }
+
+    @Test
+    public void fftLinearTest() {
+        List<WeightableElement> elements = new ArrayList<>();
+        for (int n = 0; n < 20; n++) {
+            elements.add(new WeightableElement(new Vector3D(0.5, 0, 0.7 * n), FREQUENCY,
+                    new Complex(Math.cos(0.4 * n), Math.sin(0.4 * n))));
+        }
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(3);
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA)
+                .setFrequency(1.5 * FREQUENCY).setFftOversampling(32).build().calculate(angleGrid);
+        double tolerance = 0.025 * Math.pow(Math.PI / 32, 4) * elements.size();
+        for (int i = 0; i < angleGrid.size(); i++) {
+            Complex expected = reference(elements, angleGrid.get(i), 1.5);
+            Assert.assertEquals(field.getReal(ElectricField.THETA, i), expected.getReal(), tolerance);
+            Assert.assertEquals(field.getImaginary(ElectricField.THETA, i), expected.getImaginary(), tolerance);
+        }
+    }
+
+    @Test
+    public void fftIrregularArrayTest() {
+        /* Elements spread along three axes are summed directly */
+        List<WeightableElement> elements = panel(4, 4, FREQUENCY, 0.3);
+        elements.add(new WeightableElement(new Vector3D(0.5, 0.5, 0.5), FREQUENCY, Complex.ONE));
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA)
+                .setFftOversampling(8).build().calculate(RegularAngleGrid.equallySpacedSphere(10));
+        assertField(field, elements, 1, ElectricField.THETA);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void negativeFftOversamplingExceptionTest() {
+        ArrayFactor.newBuilder().setElements(panel(2, 2, FREQUENCY, 0)).setElectricField(ElectricField.THETA)
+                .setFftOversampling(-1).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void electricFieldNotSetExceptionTest() {
+        ArrayFactor.newBuilder().setElements(panel(2, 2, FREQUENCY, 0)).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void noElementsExceptionTest() {
+        ArrayFactor.newBuilder().build();
+    }
+
+    private static List<WeightableElement> panel(int columns, int rows, double designFrequency, double phaseSlope) {
+        List<WeightableElement> elements = new ArrayList<>();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                double phase = phaseSlope * (x - 2 * y);
+                elements.add(new WeightableElement(new Vector3D(0.5 * x, 0.5 * y, 0), designFrequency,
+                        new Complex(Math.cos(phase), Math.sin(phase))));
+            }
+        }
+        return elements;
+    }
+
+    private static void assertField(Field field, List<WeightableElement> elements, double frequencyScale,
+            ElectricField electricField) {
+        AngleGrid angleGrid = field.getAngleGrid();
+        for (int i = 0; i < angleGrid.size(); i++) {
+            Complex expected = reference(elements, angleGrid.get(i), frequencyScale);
+            Assert.assertEquals(field.getReal(electricField, i), expected.getReal(), 1e-9);
+            Assert.assertEquals(field.getImaginary(electricField, i), expected.getImaginary(), 1e-9);
+        }
+    }
+
+    private static Complex reference(List<WeightableElement> elements, ThetaPhi thetaPhi, double frequencyScale) {
+        Vector3D direction = new Vector3D(Math.sin(thetaPhi.getTheta()) * Math.cos(thetaPhi.getPhi()),
+                Math.sin(thetaPhi.getTheta()) * Math.sin(thetaPhi.getPhi()), Math.cos(thetaPhi.getTheta()));
+        Complex sum = Complex.ZERO;
+        for (WeightableElement element : elements) {
+            double phase = 2 * Math.PI * frequencyScale * element.getElementLocation().dotProduct(direction);
+            sum = sum.add(element.getElementWeight().multiply(new Complex(0, phase).exp()));
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link BeamMetrics}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class BeamMetricsTest {
+
+    @Test
+    public void isotropicTest() {
+        BeamMetrics metrics = BeamMetrics.calculate(sphereField(2, (theta, phi) -> 1, ElectricField.RELATIVE_GAIN));
+        Assert.assertEquals(metrics.getRadiatedPower(), 4 * Math.PI, 1e-9);
+        Assert.assertEquals(metrics.getDirectivity(), 1, 1e-9);
+        Assert.assertEquals(metrics.getDirectivityDbi(), 0, 1e-9);
+        Assert.assertEquals(metrics.getGainDbi(0.5), 10 * Math.log10(0.5), 1e-9);
+        Assert.assertEquals(metrics.getPeakIndex(), 0);
+        Assert.assertTrue(Double.isNaN(metrics.getThetaBeamwidth()));
+        Assert.assertEquals(metrics.getSidelobeLevelDb(), Double.NEGATIVE_INFINITY);
+        Assert.assertEquals(metrics.getFrontToBackRatioDb(), 0, 1e-9);
+    }
+
+    @Test
+    public void dipoleTest() {
+        /* Short dipole along z, directivity 1.5 and half-power beamwidth 90 degrees */
+        BeamMetrics metrics = BeamMetrics
+                .calculate(sphereField(1, (theta, phi) -> Math.sin(theta), ElectricField.THETA));
+        Assert.assertEquals(metrics.getDirectivity(), 1.5, 1e-3);
+        Assert.assertEquals(metrics.getPeakDirection().getTheta(), Math.PI / 2, 1e-12);
+        Assert.assertEquals(Math.toDegrees(metrics.getThetaBeamwidth()), 90, 0.1);
+        /* Omnidirectional in phi */
+        Assert.assertTrue(Double.isNaN(metrics.getPhiBeamwidth()));
+        Assert.assertEquals(metrics.getFrontToBackRatioDb(), 0, 1e-9);
+    }
+
+    @Test
+    public void polarizationBasisTest() {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(3);
+        double[] thetaReal = new double[angleGrid.size()];
+        double[] phiReal = new double[angleGrid.size()];
+        for (int i = 0; i < angleGrid.size(); i++) {
+            thetaReal[i] = Math.cos(angleGrid.getTheta(i)) * Math.cos(angleGrid.getPhi(i));
+            phiReal[i] = -Math.sin(angleGrid.getPhi(i)) * (1 + Math.sin(angleGrid.getTheta(i)));
+        }
+        Field field = Field.newBuilder().setAngleGrid(angleGrid)
+                .addElectricField(ElectricField.THETA, thetaReal, new double[angleGrid.size()])
+                .addElectricField(ElectricField.PHI, phiReal, new double[angleGrid.size()]).build();
+        Field converted = field.convertPolarization(
+                EnumSet.of(ElectricField.LUDWIG3H, ElectricField.LUDWIG3V, ElectricField.RELATIVE_GAIN));
+        BeamMetrics expected = BeamMetrics.calculate(field);
+        BeamMetrics metrics = BeamMetrics.calculate(converted);
+        Assert.assertEquals(metrics.getRadiatedPower(), expected.getRadiatedPower(), 1e-9);
+        Assert.assertEquals(metrics.getDirectivity(), expected.getDirectivity(), 1e-9);
+        Assert.assertEquals(metrics.getPeakIndex(), expected.getPeakIndex());
+    }
+
+    @Test
+    public void uniformArrayTest() {
+        /*
+         * Eight elements half a wavelength apart along x, first sidelobe at -12.8 dB. Upper half sphere only, the array
+         * factor is mirrored in the xy plane.
+         */
+        List<WeightableElement> elements = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            elements.add(new WeightableElement(new Vector3D(0.5 * i, 0, 0), 28e9, Complex.ONE));
+        }
+        Field field = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA).build()
+                .calculate(RegularAngleGrid.fromDegrees(0, 0.25, 361, -180, 1, 361));
+        BeamMetrics metrics = BeamMetrics.calculate(field);
+        Assert.assertEquals(metrics.getPeakIntensity(), 64, 1e-9);
+        Assert.assertEquals(metrics.getPeakDirection().getTheta(), 0, 1e-12);
+        Assert.assertEquals(metrics.getSidelobeLevelDb(), -12.8, 0.05);
+        /* 0.886 / (N d) radians */
+        Assert.assertEquals(metrics.getThetaBeamwidth(), 0.886 * 2 / 8, 5e-3);
+        /* Omnidirectional in the yz plane */
+        Assert.assertTrue(Double.isNaN(metrics.getPhiBeamwidth()));
+    }
+
+    @Test
+    public void parallelTest() {
+        Field field = sphereField(1, (theta, phi) -> Math.sin(theta) * (1 + Math.cos(phi)) * Math.cos(3 * theta),
+                ElectricField.PLUS45);
+        BeamMetrics sequential = BeamMetrics.calculate(field);
+        BeamMetrics parallel = BeamMetrics.calculate(field, ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 64));
+        Assert.assertEquals(parallel.getRadiatedPower(), sequential.getRadiatedPower());
+        Assert.assertEquals(parallel.getPeakIndex(), sequential.getPeakIndex());
+        Assert.assertEquals(parallel.getThetaBeamwidth(), sequential.getThetaBeamwidth());
+        Assert.assertEquals(parallel.getPhiBeamwidth(), sequential.getPhiBeamwidth());
+        Assert.assertEquals(parallel.getSidelobeLevelDb(), sequential.getSidelobeLevelDb());
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void incompleteBasisExceptionTest() {
+        Field field = sphereField(5, (theta, phi) -> 1, ElectricField.THETA);
+        ComplexArray data = field.getElectricFieldData(ElectricField.THETA);
+        BeamMetrics.calculate(
+                Field.newBuilder().setAngleGrid(field.getAngleGrid()).addElectricFieldData(ElectricField.THETA, data)
+                        .addElectricFieldData(ElectricField.LUDWIG3H, data).build());
+    }
+
+    private static Field sphereField(int spacing, DoubleBinaryOperator function, ElectricField electricField) {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(spacing);
+        double[] real = new double[angleGrid.size()];
+        double[] imaginary = new double[angleGrid.size()];
+        for (int i = 0; i < angleGrid.size(); i++) {
+            real[i] = function.applyAsDouble(angleGrid.getTheta(i), angleGrid.getPhi(i));
+        }
+        return Field.newBuilder().setAngleGrid(angleGrid).addElectricField(electricField, real, imaginary).build();
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link BeamSteering}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class BeamSteeringTest {
+
+    private static final double FREQUENCY = 28e9;
+
+    @Test
+    public void steerTest() {
+        BeamSteering steering = BeamSteering.newBuilder().setElements(FieldFixtures.panel(8, 4, FREQUENCY)).build();
+        ThetaPhi direction = ThetaPhi.fromDegrees(30, 45);
+        for (double frequency : new double[] { -1, 1.5 * FREQUENCY }) {
+            Field field = ArrayFactor.newBuilder().setElements(steering.steerElements(direction, frequency))
+                    .setElectricField(ElectricField.THETA).setFrequency(frequency).build()
+                    .calculate(Collections.singletonList(direction));
+            /* All elements add up in phase in steering direction */
+            Assert.assertEquals(field.getReal(ElectricField.THETA, 0), 32, 1e-9);
+            Assert.assertEquals(field.getImaginary(ElectricField.THETA, 0), 0, 1e-9);
+        }
+    }
+
+    @Test
+    public void codebookTest() {
+        BeamSteering steering = BeamSteering.newBuilder().setElements(FieldFixtures.panel(4, 4, FREQUENCY)).build();
+        List<ThetaPhi> codebook = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            codebook.add(ThetaPhi.fromDegrees(5 * i, 36 * i - 180));
+        }
+        double[] real = new double[codebook.size() * 16];
+        double[] imaginary = new double[codebook.size() * 16];
+        steering.steer(codebook, FREQUENCY, real, imaginary);
+        double[] beamReal = new double[16];
+        double[] beamImaginary = new double[16];
+        for (int b = 0; b < codebook.size(); b++) {
+            steering.steer(codebook.get(b), FREQUENCY, beamReal, beamImaginary);
+            for (int n = 0; n < 16; n++) {
+                Assert.assertEquals(real[b * 16 + n], beamReal[n]);
+                Assert.assertEquals(imaginary[b * 16 + n], beamImaginary[n]);
+            }
+        }
+    }
+
+    @Test
+    public void cacheTest() {
+        BeamSteering steering = BeamSteering.newBuilder().setElements(FieldFixtures.panel(4, 2, FREQUENCY))
+                .setCacheSize(2).setAngleResolution(Math.toRadians(1)).build();
+        double[] real = new double[8];
+        double[] imaginary = new double[8];
+        double[] otherReal = new double[8];
+        double[] otherImaginary = new double[8];
+        steering.steer(ThetaPhi.fromDegrees(20.2, 10), FREQUENCY, real, imaginary);
+        /* Same quantized direction */
+        steering.steer(ThetaPhi.fromDegrees(19.9, 10.3), FREQUENCY, otherReal, otherImaginary);
+        Assert.assertEquals(otherReal, real);
+        Assert.assertEquals(otherImaginary, imaginary);
+        Assert.assertEquals(steering.getCachedVectorCount(), 1);
+        steering.steer(ThetaPhi.fromDegrees(40, 10), FREQUENCY, otherReal, otherImaginary);
+        steering.steer(ThetaPhi.fromDegrees(60, 10), FREQUENCY, otherReal, otherImaginary);
+        Assert.assertEquals(steering.getCachedVectorCount(), 2);
+        /* Evicted vector is recalculated to the same values */
+        steering.steer(ThetaPhi.fromDegrees(20, 10), FREQUENCY, otherReal, otherImaginary);
+        Assert.assertEquals(otherReal, real);
+        steering.clearCache();
+        Assert.assertEquals(steering.getCachedVectorCount(), 0);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void destinationSizeExceptionTest() {
+        BeamSteering.newBuilder().setElements(FieldFixtures.panel(2, 2, FREQUENCY)).build()
+                .steer(ThetaPhi.fromDegrees(0, 0), FREQUENCY, new double[3], new double[3]);
+    }
+
+    @Test
+    public void builderReuseTest() {
+        BeamSteering.Builder builder = BeamSteering.newBuilder().setElements(FieldFixtures.panel(2, 2, FREQUENCY));
+        BeamSteering steering = builder.build();
+        builder.addElement(new Element(Vector3D.PLUS_I, FREQUENCY));
+        Assert.assertEquals(steering.getElementCount(), 4);
+        Assert.assertEquals(steering.steerElements(ThetaPhi.fromDegrees(10, 20), FREQUENCY).size(), 4);
+        Assert.assertEquals(builder.build().getElementCount(), 5);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void negativeCacheSizeExceptionTest() {
+        BeamSteering.newBuilder().setElements(FieldFixtures.panel(2, 2, FREQUENCY)).setCacheSize(-1).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void noElementsExceptionTest() {
+        BeamSteering.newBuilder().build();
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link CodebookEvaluator}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class CodebookEvaluatorTest {
+
+    private static final double FREQUENCY = 28e9;
+
+    @Test
+    public void gainTest() {
+        List<Element> layout = FieldFixtures.panel(20, 15, FREQUENCY);
+        List<List<WeightableElement>> codebook = codebook(layout, 37);
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(10);
+        CodebookEvaluator evaluator = CodebookEvaluator.newBuilder().setElements(layout).setAngleGrid(angleGrid)
+                .setFrequency(1.2 * FREQUENCY).build();
+        double[] gain = evaluator.calculateGain(codebook);
+        for (int b = 0; b < codebook.size(); b++) {
+            Field field = ArrayFactor.newBuilder().setElements(codebook.get(b)).setElectricField(ElectricField.THETA)
+                    .setFrequency(1.2 * FREQUENCY).build().calculate(angleGrid);
+            for (int a = 0; a < angleGrid.size(); a++) {
+                double re = field.getReal(ElectricField.THETA, a);
+                double im = field.getImaginary(ElectricField.THETA, a);
+                Assert.assertEquals(gain[b * angleGrid.size() + a], re * re + im * im, 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void bestBeamTest() {
+        List<Element> layout = FieldFixtures.panel(8, 8, FREQUENCY);
+        List<List<WeightableElement>> codebook = codebook(layout, 21);
+        CodebookEvaluator evaluator = CodebookEvaluator.newBuilder().setElements(layout)
+                .setAngleGrid(RegularAngleGrid.equallySpacedSphere(5)).build();
+        int angles = evaluator.getAngleGrid().size();
+        double[] gain = evaluator.calculateGain(codebook);
+        int[] bestBeam = evaluator.calculateBestBeam(codebook);
+        for (int a = 0; a < angles; a++) {
+            int expected = 0;
+            for (int b = 1; b < codebook.size(); b++) {
+                if (gain[b * angles + a] > gain[expected * angles + a]) {
+                    expected = b;
+                }
+            }
+            Assert.assertEquals(bestBeam[a], expected);
+        }
+    }
+
+    @Test
+    public void parallelTest() {
+        List<Element> layout = FieldFixtures.panel(8, 4, FREQUENCY);
+        BeamSteering steering = BeamSteering.newBuilder().setElements(layout).build();
+        List<ThetaPhi> directions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            directions.add(ThetaPhi.fromDegrees(2 * i, 9 * i - 180));
+        }
+        double[] weightReal = new double[directions.size() * layout.size()];
+        double[] weightImaginary = new double[directions.size() * layout.size()];
+        steering.steer(directions, FREQUENCY, weightReal, weightImaginary);
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(3);
+        CodebookEvaluator sequential = CodebookEvaluator.newBuilder().setElements(layout).setAngleGrid(angleGrid)
+                .build();
+        CodebookEvaluator parallel = CodebookEvaluator.newBuilder().setElements(layout).setAngleGrid(angleGrid)
+                .setExecutionPolicy(ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 4096)).build();
+        double[] expected = new double[weightReal.length / layout.size() * angleGrid.size()];
+        double[] actual = new double[expected.length];
+        sequential.calculateGain(weightReal, weightImaginary, expected);
+        parallel.calculateGain(weightReal, weightImaginary, actual);
+        Assert.assertEquals(actual, expected);
+        int[] bestBeam = new int[angleGrid.size()];
+        double[] bestGain = new double[angleGrid.size()];
+        parallel.calculateBestBeam(weightReal, weightImaginary, bestBeam, bestGain);
+        /* Steered beams reach full array gain in their own direction */
+        int index = angleGrid.indexOf(ThetaPhi.fromDegrees(18, -99));
+        Assert.assertEquals(bestGain[index], 32.0 * 32.0, 1e-6);
+        Assert.assertEquals(bestBeam[index], 9);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void weightSizeExceptionTest() {
+        CodebookEvaluator.newBuilder().setElements(FieldFixtures.panel(2, 2, FREQUENCY))
+                .setAngleGrid(RegularAngleGrid.equallySpacedSphere(30)).build()
+                .calculateGain(new double[6], new double[6], new double[0]);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void emptyCodebookExceptionTest() {
+        CodebookEvaluator.newBuilder().setElements(FieldFixtures.panel(2, 2, FREQUENCY))
+                .setAngleGrid(RegularAngleGrid.equallySpacedSphere(30)).build()
+                .calculateBestBeam(Collections.emptyList());
+    }
+
+    private static List<List<WeightableElement>> codebook(List<Element> layout, int beams) {
+        BeamSteering steering = BeamSteering.newBuilder().setElements(layout).build();
+        List<List<WeightableElement>> codebook = new ArrayList<>();
+        for (int b = 0; b < beams; b++) {
+            codebook.add(steering.steerElements(ThetaPhi.fromDegrees(3 * b, 17 * b), FREQUENCY));
+        }
+        return codebook;
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link EmbeddedArray}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class EmbeddedArrayTest {
+
+    private static final double FREQUENCY = 28e9;
+    private static final RegularAngleGrid ANGLE_GRID = RegularAngleGrid.equallySpacedSphere(5);
+
+    @Test
+    public void sharedPatternTest() {
+        Field pattern = pattern(1, FREQUENCY);
+        List<EmbeddedElement> elements = new ArrayList<>();
+        for (int n = 0; n < 8; n++) {
+            elements.add(new EmbeddedElement(new Vector3D(0.5 * n, 0.25 * (n % 2), 0), FREQUENCY,
+                    new Complex(Math.cos(0.3 * n), Math.sin(0.3 * n)), pattern));
+        }
+        EmbeddedArray embeddedArray = EmbeddedArray.newBuilder().setElements(elements).build();
+        Assert.assertEquals(embeddedArray.getPatternCount(), 1);
+        Field field = embeddedArray.calculate();
+        Field arrayFactor = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA).build()
+                .calculate(ANGLE_GRID);
+        Assert.assertEquals(field.getFrequency(), FREQUENCY);
+        Assert.assertEquals(field.getAngleGrid(), ANGLE_GRID);
+        Assert.assertEquals(field.getAvailableElectricFields(), pattern.getAvailableElectricFields());
+        for (ElectricField electricField : pattern.getAvailableElectricFields()) {
+            for (int i = 0; i < ANGLE_GRID.size(); i++) {
+                Complex expected = new Complex(pattern.getReal(electricField, i),
+                        pattern.getImaginary(electricField, i))
+                                .multiply(new Complex(arrayFactor.getReal(ElectricField.THETA, i),
+                                        arrayFactor.getImaginary(ElectricField.THETA, i)));
+                Assert.assertEquals(field.getReal(electricField, i), expected.getReal(), 1e-12);
+                Assert.assertEquals(field.getImaginary(electricField, i), expected.getImaginary(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void individualPatternTest() {
+        List<EmbeddedElement> elements = new ArrayList<>();
+        for (int n = 0; n < 4; n++) {
+            elements.add(new EmbeddedElement(new Vector3D(0, 0.5 * n, 0.1 * n), FREQUENCY,
+                    new Complex(1 - 0.1 * n, 0.2), pattern(n, 1.2 * FREQUENCY)));
+        }
+        /* Identical values in a separate instance are deduplicated */
+        elements.add(new EmbeddedElement(new Vector3D(0, 2, 0), FREQUENCY, Complex.ONE, pattern(0, 1.2 * FREQUENCY)));
+        EmbeddedArray embeddedArray = EmbeddedArray.newBuilder().setElements(elements)
+                .setExecutionPolicy(ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 64)).build();
+        Assert.assertEquals(embeddedArray.getPatternCount(), 4);
+        Field field = embeddedArray.calculate();
+        for (int i = 0; i < ANGLE_GRID.size(); i += 7) {
+            ThetaPhi thetaPhi = ANGLE_GRID.get(i);
+            double sinTheta = Math.sin(thetaPhi.getTheta());
+            Vector3D u = new Vector3D(sinTheta * Math.cos(thetaPhi.getPhi()), sinTheta * Math.sin(thetaPhi.getPhi()),
+                    Math.cos(thetaPhi.getTheta()));
+            for (ElectricField electricField : field.getAvailableElectricFields()) {
+                Complex expected = Complex.ZERO;
+                for (EmbeddedElement element : elements) {
+                    Field pattern = element.getElementPattern();
+                    double phase = 2 * Math.PI * 1.2 * element.getElementLocation().dotProduct(u);
+                    expected = expected.add(element.getElementWeight()
+                            .multiply(new Complex(pattern.getReal(electricField, i),
+                                    pattern.getImaginary(electricField, i)))
+                            .multiply(new Complex(Math.cos(phase), Math.sin(phase))));
+                }
+                Assert.assertEquals(field.getReal(electricField, i), expected.getReal(), 1e-9);
+                Assert.assertEquals(field.getImaginary(electricField, i), expected.getImaginary(), 1e-9);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void incompatiblePatternExceptionTest() {
+        Field other = Field.newBuilder().setAngleGrid(RegularAngleGrid.equallySpacedSphere(10)).setFreqency(FREQUENCY)
+                .addElectricField(ElectricField.THETA, new double[703], new double[703])
+                .addElectricField(ElectricField.PHI, new double[703], new double[703]).build();
+        EmbeddedArray.newBuilder()
+                .addElement(new EmbeddedElement(Vector3D.ZERO, FREQUENCY, Complex.ONE, pattern(1, FREQUENCY)))
+                .addElement(new EmbeddedElement(Vector3D.PLUS_I, FREQUENCY, Complex.ONE, other)).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void frequencyMismatchExceptionTest() {
+        EmbeddedArray.newBuilder()
+                .addElement(new EmbeddedElement(Vector3D.ZERO, FREQUENCY, Complex.ONE, pattern(1, FREQUENCY)))
+                .addElement(new EmbeddedElement(Vector3D.PLUS_I, FREQUENCY, Complex.ONE, pattern(1, 2 * FREQUENCY)))
+                .build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void noElementsExceptionTest() {
+        EmbeddedArray.newBuilder().build();
+    }
+
+    private static Field pattern(int seed, double frequency) {
+        return FieldFixtures.field(ANGLE_GRID, frequency, seed, ElectricField.THETA, ElectricField.PHI);
+    }
+
+}
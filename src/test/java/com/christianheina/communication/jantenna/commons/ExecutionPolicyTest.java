@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link ExecutionPolicy}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class ExecutionPolicyTest {
+
+    @Test
+    public void sequentialTest() {
+        ExecutionPolicy policy = ExecutionPolicy.sequential();
+        Assert.assertFalse(policy.isParallel());
+        Assert.assertSame(policy, ExecutionPolicy.sequential());
+        int[] calls = new int[1];
+        policy.forEachChunk(100000, (from, to) -> {
+            Assert.assertEquals(from, 0);
+            Assert.assertEquals(to, 100000);
+            calls[0]++;
+        });
+        Assert.assertEquals(calls[0], 1);
+    }
+
+    @Test
+    public void parallelChunksTest() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ExecutionPolicy policy = ExecutionPolicy.parallel(pool, 100);
+            Assert.assertTrue(policy.isParallel());
+            Assert.assertEquals(policy.getChunkSize(), 100);
+            AtomicIntegerArray visits = new AtomicIntegerArray(10007);
+            policy.forEachChunk(visits.length(), (from, to) -> {
+                Assert.assertTrue(to - from <= 100);
+                for (int i = from; i < to; i++) {
+                    visits.incrementAndGet(i);
+                }
+            });
+            for (int i = 0; i < visits.length(); i++) {
+                Assert.assertEquals(visits.get(i), 1);
+            }
+            policy.forEachChunk(1000, 50, (from, to) -> Assert.assertTrue(to - from <= 2));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void parallelExceptionTest() {
+        ExecutionPolicy.parallel().forEachChunk(100000, (from, to) -> {
+            if (from == 0) {
+                throw new AntennaException("Failed");
+            }
+        });
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void chunkSizeExceptionTest() {
+        ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 0);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link Fft}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class FftTest {
+
+    @Test
+    public void transform2dTest() {
+        int rows = 8;
+        int columns = 16;
+        double[] real = new double[rows * columns];
+        double[] imaginary = new double[rows * columns];
+        for (int i = 0; i < real.length; i++) {
+            real[i] = Math.sin(0.37 * i);
+            imaginary[i] = Math.cos(0.11 * i * i);
+        }
+        double[] transformedReal = real.clone();
+        double[] transformedImaginary = imaginary.clone();
+        Fft.transform2d(transformedReal, transformedImaginary, rows, columns, 1);
+        for (int p = 0; p < rows; p++) {
+            for (int q = 0; q < columns; q++) {
+                double re = 0;
+                double im = 0;
+                for (int y = 0; y < rows; y++) {
+                    for (int x = 0; x < columns; x++) {
+                        double angle = 2 * Math.PI * ((double) p * y / rows + (double) q * x / columns);
+                        re += real[y * columns + x] * Math.cos(angle) - imaginary[y * columns + x] * Math.sin(angle);
+                        im += real[y * columns + x] * Math.sin(angle) + imaginary[y * columns + x] * Math.cos(angle);
+                    }
+                }
+                Assert.assertEquals(transformedReal[p * columns + q], re, 1e-10);
+                Assert.assertEquals(transformedImaginary[p * columns + q], im, 1e-10);
+            }
+        }
+        /* Inverse transform gives back input scaled by number of values */
+        Fft.transform2d(transformedReal, transformedImaginary, rows, columns, -1);
+        for (int i = 0; i < real.length; i++) {
+            Assert.assertEquals(transformedReal[i] / real.length, real[i], 1e-12);
+            Assert.assertEquals(transformedImaginary[i] / real.length, imaginary[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void powerOfTwoTest() {
+        Assert.assertEquals(Fft.powerOfTwo(1), 1);
+        Assert.assertEquals(Fft.powerOfTwo(5), 8);
+        Assert.assertEquals(Fft.powerOfTwo(64), 64);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void lengthExceptionTest() {
+        Fft.transform(new double[6], new double[6], 0, 6, 1, 1, 6, 1);
+    }
+
+}
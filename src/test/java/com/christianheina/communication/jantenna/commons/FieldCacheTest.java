@@ -0,0 +1,246 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link FieldCache}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class FieldCacheTest {
+
+    private static final RegularAngleGrid ANGLE_GRID = RegularAngleGrid.equallySpacedSphere(10);
+    private static final long FIELD_BYTES = 2L * ANGLE_GRID.size() * Double.BYTES;
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("fieldcache");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        FieldFixtures.deleteDirectory(directory);
+    }
+
+    @Test
+    public void hitAndMissTest() throws IOException {
+        Path json = save(1, ".json");
+        Path binary = save(2, ".bin");
+        FieldCache cache = FieldCache.newBuilder().build();
+        Field first = cache.loadJson(json);
+        Assert.assertEquals(first.getElectricField(ElectricField.THETA),
+                field(1).getElectricField(ElectricField.THETA));
+        Assert.assertSame(cache.loadJson(directory.resolve("..").resolve(directory.getFileName()).resolve("1.json")),
+                first);
+        Assert.assertEquals(cache.loadBinary(binary).getElectricField(ElectricField.THETA),
+                field(2).getElectricField(ElectricField.THETA));
+        Assert.assertEquals(cache.getHitCount(), 1);
+        Assert.assertEquals(cache.getMissCount(), 2);
+        Assert.assertEquals(cache.getLoadCount(), 2);
+        Assert.assertEquals(cache.getSize(), 2);
+        Assert.assertEquals(cache.getByteSize(), 2 * FIELD_BYTES);
+        cache.invalidate(json);
+        Assert.assertEquals(cache.getSize(), 1);
+        cache.invalidateAll();
+        Assert.assertEquals(cache.getSize(), 0);
+        Assert.assertEquals(cache.getByteSize(), 0);
+    }
+
+    @Test
+    public void reloadModifiedFileTest() throws IOException {
+        Path path = save(1, ".bin");
+        FieldCache cache = FieldCache.newBuilder().build();
+        Field first = cache.loadBinary(path);
+        field(3).saveBinary(path);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 10000));
+        Field second = cache.loadBinary(path);
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(second.getElectricField(ElectricField.THETA),
+                field(3).getElectricField(ElectricField.THETA));
+        /* Field loaded before the rewrite keeps its data */
+        Assert.assertEquals(first.getElectricField(ElectricField.THETA),
+                field(1).getElectricField(ElectricField.THETA));
+        Assert.assertEquals(cache.getLoadCount(), 2);
+        Assert.assertEquals(cache.getSize(), 1);
+        Assert.assertEquals(cache.getByteSize(), FIELD_BYTES);
+        Assert.assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    @Test
+    public void leastRecentlyUsedEvictionTest() throws IOException {
+        FieldCache cache = FieldCache.newBuilder().setMaximumBytes(2 * FIELD_BYTES).build();
+        Path a = save(1, ".bin");
+        Path b = save(2, ".bin");
+        Path c = save(3, ".bin");
+        Field fieldA = cache.loadBinary(a);
+        cache.loadBinary(b);
+        cache.loadBinary(a);
+        cache.loadBinary(c);
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+        Assert.assertEquals(cache.getSize(), 2);
+        Assert.assertSame(cache.loadBinary(a), fieldA);
+        cache.loadBinary(b);
+        Assert.assertEquals(cache.getLoadCount(), 4);
+        Assert.assertTrue(cache.getByteSize() <= cache.getMaximumBytes());
+    }
+
+    @Test
+    public void leastFrequentlyUsedEvictionTest() throws IOException {
+        FieldCache cache = FieldCache.newBuilder().setMaximumBytes(2 * FIELD_BYTES)
+                .setEvictionPolicy(FieldCache.EvictionPolicy.LEAST_FREQUENTLY_USED).build();
+        Path a = save(1, ".bin");
+        Path b = save(2, ".bin");
+        Path c = save(3, ".bin");
+        Field fieldA = cache.loadBinary(a);
+        cache.loadBinary(a);
+        cache.loadBinary(a);
+        cache.loadBinary(b);
+        /* b is the most recently used but the least frequently used */
+        cache.loadBinary(c);
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+        Assert.assertSame(cache.loadBinary(a), fieldA);
+        Assert.assertEquals(cache.getLoadCount(), 3);
+        cache.loadBinary(b);
+        Assert.assertEquals(cache.getLoadCount(), 4);
+    }
+
+    @Test
+    public void tooLargeFieldTest() throws IOException {
+        FieldCache cache = FieldCache.newBuilder().setMaximumBytes(FIELD_BYTES - 1).build();
+        Path path = save(1, ".bin");
+        Assert.assertNotNull(cache.loadBinary(path));
+        Assert.assertEquals(cache.getSize(), 0);
+        Assert.assertEquals(cache.getByteSize(), 0);
+        cache.loadBinary(path);
+        Assert.assertEquals(cache.getLoadCount(), 2);
+    }
+
+    @Test
+    public void singleFlightTest() throws Exception {
+        Path path = save(1, ".json");
+        FieldCache cache = FieldCache.newBuilder().build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Field>> tasks = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                tasks.add(() -> cache.loadJson(path));
+            }
+            List<Future<Field>> results = executor.invokeAll(tasks);
+            Field first = results.get(0).get();
+            for (Future<Field> result : results) {
+                Assert.assertSame(result.get(), first);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(cache.getLoadCount(), 1);
+        Assert.assertEquals(cache.getHitCount() + cache.getMissCount(), 32);
+    }
+
+    @Test(timeOut = 10000)
+    public void loadErrorTest() throws Exception {
+        Path path = save(1, ".json");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        FieldCache cache = FieldCache.newBuilder().setJsonLoader(p -> {
+            if (loads.getAndIncrement() == 0) {
+                loading.countDown();
+                try {
+                    fail.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                throw new OutOfMemoryError("Test");
+            }
+            return Field.loadJson(p);
+        }).build();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Field> first = executor.submit(() -> cache.loadJson(path));
+            loading.await();
+            /* Waits for the failing load, or loads again if it arrives after the failure */
+            Future<Field> second = executor.submit(() -> cache.loadJson(path));
+            Thread.sleep(100);
+            fail.countDown();
+            try {
+                first.get();
+                Assert.fail("Expected OutOfMemoryError");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof OutOfMemoryError);
+            }
+            try {
+                second.get();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof OutOfMemoryError);
+            }
+            Assert.assertEquals(cache.loadJson(path).getElectricField(ElectricField.THETA),
+                    field(1).getElectricField(ElectricField.THETA));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void missingFileExceptionTest() throws IOException {
+        FieldCache.newBuilder().build().loadJson(directory.resolve("missing.json"));
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void negativeMaximumBytesExceptionTest() {
+        FieldCache.newBuilder().setMaximumBytes(-1).build();
+    }
+
+    private Path save(int seed, String suffix) throws IOException {
+        Path path = directory.resolve(seed + suffix);
+        if (suffix.equals(".json")) {
+            field(seed).saveJson(path);
+        } else {
+            field(seed).saveBinary(path);
+        }
+        return path;
+    }
+
+    private static Field field(int seed) {
+        return FieldFixtures.field(ANGLE_GRID, 28e9, seed, ElectricField.THETA);
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link FieldCodec}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class FieldCodecTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("fieldcodec");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        FieldFixtures.deleteDirectory(directory);
+    }
+
+    @Test
+    public void losslessTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.equallySpacedSphere(1));
+        Path raw = directory.resolve("raw.bin");
+        Path lossless = directory.resolve("lossless.bin");
+        field.saveBinary(raw);
+        field.saveBinary(lossless, FieldCodec.lossless());
+        Assert.assertTrue(Files.size(lossless) < Files.size(raw));
+        Field loaded = Field.loadBinary(lossless);
+        Assert.assertEquals(loaded.getAngleGrid(), field.getAngleGrid());
+        FieldFixtures.assertSameValues(loaded, field, 0);
+        FieldFixtures.assertSameValues(Field.loadBinary(lossless, ExecutionPolicy.parallel()), field, 0);
+    }
+
+    @Test
+    public void losslessSpecialValuesTest() throws IOException {
+        double[] real = { 0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 1.5,
+                1.5, 1.25 };
+        double[] imaginary = { Double.NEGATIVE_INFINITY, 1e-300, 0.0, -0.0, 3.0, 2.0, 1.0, 1.0, -1.0 };
+        ThetaPhi[] angles = new ThetaPhi[real.length];
+        for (int i = 0; i < angles.length; i++) {
+            angles[i] = ThetaPhi.fromRadians(0.1 * i, 0.2 * i);
+        }
+        Field field = Field.newBuilder().setFieldType(FieldType.FARFIELD).setFreqency(1e9)
+                .setAngleGrid(AngleGrid.fromList(Arrays.asList(angles)))
+                .addElectricField(ElectricField.THETA, real, imaginary).build();
+        Path path = directory.resolve("special.bin");
+        field.saveBinary(path, FieldCodec.lossless());
+        Field loaded = Field.loadBinary(path);
+        for (int i = 0; i < real.length; i++) {
+            Assert.assertEquals(Double.doubleToRawLongBits(loaded.getReal(ElectricField.THETA, i)),
+                    Double.doubleToRawLongBits(real[i]));
+            Assert.assertEquals(Double.doubleToRawLongBits(loaded.getImaginary(ElectricField.THETA, i)),
+                    Double.doubleToRawLongBits(imaginary[i]));
+        }
+    }
+
+    @Test
+    public void lossyTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.equallySpacedSphere(1));
+        Path lossless = directory.resolve("lossless.bin");
+        Path lossy = directory.resolve("lossy.bin");
+        field.saveBinary(lossless, FieldCodec.lossless());
+        field.saveBinary(lossy, FieldCodec.lossy(0.01));
+        Assert.assertTrue(Files.size(lossy) < Files.size(lossless));
+        Field loaded = Field.loadBinary(lossy, ExecutionPolicy.parallel());
+        double relativeError = 1 - Math.pow(10, -0.01 / 20);
+        for (ElectricField electricField : field.getAvailableElectricFields()) {
+            for (int i = 0; i < field.getAngleGrid().size(); i++) {
+                double real = field.getReal(electricField, i);
+                double imaginary = field.getImaginary(electricField, i);
+                double magnitude = Math.hypot(real, imaginary);
+                double error = Math.hypot(loaded.getReal(electricField, i) - real,
+                        loaded.getImaginary(electricField, i) - imaginary);
+                Assert.assertTrue(error <= relativeError * magnitude, electricField + " " + i);
+                if (magnitude > 0) {
+                    double magnitudeError = 20 * Math
+                            .log10(Math.hypot(loaded.getReal(electricField, i), loaded.getImaginary(electricField, i))
+                                    / magnitude);
+                    Assert.assertTrue(Math.abs(magnitudeError) <= 0.01);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lossySinglePrecisionTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.equallySpacedSphere(1)).toSinglePrecision();
+        double maxErrorDb = FieldCodec.MIN_SINGLE_PRECISION_ERROR_DB;
+        Path path = directory.resolve("lossy.bin");
+        field.saveBinary(path, FieldCodec.lossy(maxErrorDb));
+        Field loaded = Field.loadBinary(path);
+        Assert.assertTrue(loaded.isSinglePrecision());
+        double relativeError = 1 - Math.pow(10, -maxErrorDb / 20);
+        for (ElectricField electricField : field.getAvailableElectricFields()) {
+            for (int i = 0; i < field.getAngleGrid().size(); i++) {
+                double real = field.getReal(electricField, i);
+                double imaginary = field.getImaginary(electricField, i);
+                double error = Math.hypot(loaded.getReal(electricField, i) - real,
+                        loaded.getImaginary(electricField, i) - imaginary);
+                Assert.assertTrue(error <= relativeError * Math.hypot(real, imaginary), electricField + " " + i);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void lossySinglePrecisionErrorExceptionTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.equallySpacedSphere(10)).toSinglePrecision();
+        field.saveBinary(directory.resolve("lossy.bin"),
+                FieldCodec.lossy(FieldCodec.MIN_SINGLE_PRECISION_ERROR_DB / 2));
+    }
+
+    @Test
+    public void mixedCodecsTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.fromDegrees(0, 1, 91, 0, 1, 360)).toSinglePrecision();
+        Map<ElectricField, FieldCodec> codecs = new EnumMap<>(ElectricField.class);
+        codecs.put(ElectricField.THETA, FieldCodec.lossless());
+        Path path = directory.resolve("mixed.bin");
+        field.saveBinary(path, codecs, ExecutionPolicy.parallel());
+        Field loaded = Field.loadBinary(path);
+        Assert.assertTrue(loaded.isSinglePrecision());
+        FieldFixtures.assertSameValues(loaded, field, 0);
+    }
+
+    @Test
+    public void streamTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.equallySpacedSphere(1));
+        Path path = directory.resolve("stream.bin");
+        field.saveBinary(path, FieldCodec.lossy(0.1));
+        Field loaded = Field.loadBinary(path);
+        try (FieldStream stream = FieldStream.ofBinary(path)) {
+            /* Chunks not aligned with frames */
+            stream.forEachChunk(10000, (offset, chunk) -> {
+                for (int i = 0; i < chunk.getAngleGrid().size(); i++) {
+                    Assert.assertEquals(chunk.getReal(ElectricField.PHI, i),
+                            loaded.getReal(ElectricField.PHI, offset + i));
+                    Assert.assertEquals(chunk.getImaginary(ElectricField.PHI, i),
+                            loaded.getImaginary(ElectricField.PHI, offset + i));
+                }
+            });
+        }
+        try (FieldStream stream = FieldStream.ofBinary(path)) {
+            FieldFixtures.assertSameValues(stream.materialize(), loaded, 0);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void corruptFrameExceptionTest() throws IOException {
+        Field field = pattern(RegularAngleGrid.equallySpacedSphere(5));
+        Path path = directory.resolve("corrupt.bin");
+        field.saveBinary(path, FieldCodec.lossless());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            /* First frame end of first block points past the block */
+            ByteBuffer frameEnd = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            frameEnd.putLong(Long.MAX_VALUE / 2);
+            frameEnd.flip();
+            channel.write(frameEnd, FieldBinaryFormat.readLayout(channel, path).blockPositions[0]);
+        }
+        Field.loadBinary(path);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void lossyErrorExceptionTest() {
+        FieldCodec.lossy(0);
+    }
+
+    @Test
+    public void equalsTest() {
+        Assert.assertEquals(FieldCodec.lossy(0.1), FieldCodec.lossy(0.1));
+        Assert.assertNotEquals(FieldCodec.lossy(0.1), FieldCodec.lossy(0.2));
+        Assert.assertNotEquals(FieldCodec.raw(), FieldCodec.lossless());
+        Assert.assertFalse(FieldCodec.raw().isCompressed());
+        Assert.assertTrue(FieldCodec.lossless().isLossless());
+        Assert.assertFalse(FieldCodec.lossy(0.1).isLossless());
+        Assert.assertEquals(FieldCodec.lossy(0.1).getMaxErrorDb(), 0.1);
+    }
+
+    /**
+     * Smooth pattern of a tapered 4 element array along x, with nulls, over more than one frame.
+     */
+    private static Field pattern(AngleGrid angleGrid) {
+        int size = angleGrid.size();
+        double[] thetaReal = new double[size];
+        double[] thetaImaginary = new double[size];
+        double[] phiReal = new double[size];
+        double[] phiImaginary = new double[size];
+        double[] weights = { 0.5, 1, 1, 0.5 };
+        for (int i = 0; i < size; i++) {
+            double theta = angleGrid.getTheta(i);
+            double phi = angleGrid.getPhi(i);
+            double psi = Math.PI * Math.sin(theta) * Math.cos(phi);
+            double real = 0;
+            double imaginary = 0;
+            for (int n = 0; n < weights.length; n++) {
+                real += weights[n] * Math.cos(n * psi);
+                imaginary += weights[n] * Math.sin(n * psi);
+            }
+            thetaReal[i] = real * Math.cos(theta) * Math.cos(phi);
+            thetaImaginary[i] = imaginary * Math.cos(theta) * Math.cos(phi);
+            phiReal[i] = -real * Math.sin(phi);
+            phiImaginary[i] = -imaginary * Math.sin(phi);
+        }
+        return Field.newBuilder().setFieldType(FieldType.FARFIELD).setFreqency(28e9).setAngleGrid(angleGrid)
+                .addElectricField(ElectricField.THETA, thetaReal, thetaImaginary)
+                .addElectricField(ElectricField.PHI, phiReal, phiImaginary).build();
+    }
+
+}
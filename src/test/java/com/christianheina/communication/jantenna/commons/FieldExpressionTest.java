@@ -0,0 +1,221 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link FieldExpression}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class FieldExpressionTest {
+
+    private static final RegularAngleGrid ANGLE_GRID = RegularAngleGrid.equallySpacedSphere(2);
+
+    @Test
+    public void chainTest() {
+        Field element = field(1, 28e9);
+        Field arrayFactor = field(2, 28e9);
+        Field other = field(3, 28e9);
+        Complex taper = new Complex(0.5, -0.25);
+        Field expected = element.multiply(arrayFactor).scale(taper).conjugateMultiply(other).add(element);
+        Field actual = FieldExpression.of(element).multiply(arrayFactor).scale(taper).conjugateMultiply(other)
+                .add(element).materialize();
+        FieldFixtures.assertSameValues(actual, expected, 1e-12);
+        Assert.assertEquals(actual.getFrequency(), 28e9);
+        Assert.assertEquals(actual.getAngleGrid(), ANGLE_GRID);
+        Assert.assertEquals(actual.getFieldType(), FieldType.FARFIELD);
+    }
+
+    @Test
+    public void sharedSubexpressionTest() {
+        Field field = field(4, 28e9);
+        FieldExpression squared = FieldExpression.of(field).multiply(field);
+        Field actual = squared.add(squared).materialize();
+        FieldFixtures.assertSameValues(actual, field.multiply(field).scale(new Complex(2, 0)), 1e-12);
+    }
+
+    @Test
+    public void frequencyTest() {
+        FieldExpression expression = FieldExpression.of(field(1, 28e9)).multiply(field(2, 30e9));
+        Assert.assertEquals(expression.getFrequency(), -1.0);
+        Assert.assertEquals(expression.materialize().getFrequency(), -1.0);
+    }
+
+    @Test
+    public void rotatePolarizationTest() {
+        Field field = field(5, 28e9);
+        double angle = 0.3;
+        Field rotated = FieldExpression.of(field).rotatePolarization(angle).materialize();
+        for (int i = 0; i < ANGLE_GRID.size(); i += 97) {
+            Complex theta = new Complex(field.getReal(ElectricField.THETA, i),
+                    field.getImaginary(ElectricField.THETA, i));
+            Complex phi = new Complex(field.getReal(ElectricField.PHI, i), field.getImaginary(ElectricField.PHI, i));
+            Complex expectedTheta = theta.multiply(Math.cos(angle)).subtract(phi.multiply(Math.sin(angle)));
+            Complex expectedPhi = theta.multiply(Math.sin(angle)).add(phi.multiply(Math.cos(angle)));
+            Assert.assertEquals(rotated.getReal(ElectricField.THETA, i), expectedTheta.getReal(), 1e-12);
+            Assert.assertEquals(rotated.getImaginary(ElectricField.THETA, i), expectedTheta.getImaginary(), 1e-12);
+            Assert.assertEquals(rotated.getReal(ElectricField.PHI, i), expectedPhi.getReal(), 1e-12);
+            Assert.assertEquals(rotated.getImaginary(ElectricField.PHI, i), expectedPhi.getImaginary(), 1e-12);
+        }
+        /* Rotation back restores the field */
+        Field restored = FieldExpression.of(rotated).rotatePolarization(-angle).materialize();
+        FieldFixtures.assertSameValues(restored, field, 1e-12);
+    }
+
+    @Test
+    public void nestedRotationEvaluationCountTest() {
+        CountingComplexArray theta = new CountingComplexArray(ANGLE_GRID.size());
+        CountingComplexArray phi = new CountingComplexArray(ANGLE_GRID.size());
+        Field field = Field.newBuilder().setAngleGrid(ANGLE_GRID).addElectricFieldData(ElectricField.THETA, theta)
+                .addElectricFieldData(ElectricField.PHI, phi).build();
+        FieldExpression.of(field).materialize();
+        int copies = theta.copies;
+        FieldExpression expression = FieldExpression.of(field);
+        for (int k = 0; k < 6; k++) {
+            expression = expression.rotatePolarization(0.1);
+        }
+        expression.materialize();
+        /* Each operand read once per block, not 2^k times */
+        Assert.assertEquals(theta.copies, 2 * copies);
+        Assert.assertEquals(phi.copies, 2 * copies);
+    }
+
+    @Test
+    public void parallelTest() {
+        Field a = field(6, 28e9);
+        Field b = field(7, 28e9);
+        FieldExpression expression = FieldExpression.of(a).multiply(b).add(a).rotatePolarization(1.1);
+        Field sequential = expression.materialize();
+        Field parallel = expression.materialize(ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 3000));
+        FieldFixtures.assertSameValues(parallel, sequential, 0);
+        Assert.assertEquals(expression.calculateBeamMetrics(ExecutionPolicy.sequential()).getRadiatedPower(),
+                BeamMetrics.calculate(sequential).getRadiatedPower());
+    }
+
+    @Test
+    public void arrayFactorTest() {
+        Field element = FieldFixtures.field(ANGLE_GRID, 28e9, 1, ElectricField.THETA, ElectricField.PHI);
+        List<WeightableElement> elements = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            elements.add(new WeightableElement(new Vector3D(0.5 * (i % 4), 0.5 * (i / 4), 0), 28e9,
+                    new Complex(1, 0.1 * i)));
+        }
+        Field arrayFactor = ArrayFactor.newBuilder().setElements(elements).setElectricField(ElectricField.THETA).build()
+                .calculate(ANGLE_GRID);
+        Complex taper = new Complex(0.5, -0.25);
+        double angle = 0.3;
+        Field actual = FieldExpression.of(element).multiply(arrayFactor).scale(taper).rotatePolarization(angle)
+                .materialize();
+        Assert.assertEquals(actual.getAvailableElectricFields(), element.getAvailableElectricFields());
+        /* Single electric field operand on the left gives the same product */
+        Field swapped = FieldExpression.of(arrayFactor).multiply(element).scale(taper).rotatePolarization(angle)
+                .materialize();
+        FieldFixtures.assertSameValues(swapped, actual, 1e-12);
+        for (int i = 0; i < ANGLE_GRID.size(); i += 97) {
+            Complex factor = new Complex(arrayFactor.getReal(ElectricField.THETA, i),
+                    arrayFactor.getImaginary(ElectricField.THETA, i)).multiply(taper);
+            Complex theta = new Complex(element.getReal(ElectricField.THETA, i),
+                    element.getImaginary(ElectricField.THETA, i)).multiply(factor);
+            Complex phi = new Complex(element.getReal(ElectricField.PHI, i), element.getImaginary(ElectricField.PHI, i))
+                    .multiply(factor);
+            Complex expectedTheta = theta.multiply(Math.cos(angle)).subtract(phi.multiply(Math.sin(angle)));
+            Complex expectedPhi = theta.multiply(Math.sin(angle)).add(phi.multiply(Math.cos(angle)));
+            Assert.assertEquals(actual.getReal(ElectricField.THETA, i), expectedTheta.getReal(), 1e-12);
+            Assert.assertEquals(actual.getImaginary(ElectricField.THETA, i), expectedTheta.getImaginary(), 1e-12);
+            Assert.assertEquals(actual.getReal(ElectricField.PHI, i), expectedPhi.getReal(), 1e-12);
+            Assert.assertEquals(actual.getImaginary(ElectricField.PHI, i), expectedPhi.getImaginary(), 1e-12);
+        }
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void addSingleElectricFieldExceptionTest() {
+        Field arrayFactor = FieldFixtures.field(ANGLE_GRID, 28e9, 2, ElectricField.THETA);
+        FieldExpression.of(field(1, 28e9)).add(arrayFactor);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void incompatibleExceptionTest() {
+        Field other = Field.newBuilder().setAngleGrid(RegularAngleGrid.equallySpacedSphere(5))
+                .addElectricField(ElectricField.THETA, new double[0], new double[0]).build();
+        FieldExpression.of(field(1, 28e9)).multiply(other);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void rotationWithoutPartnerExceptionTest() {
+        Field field = Field.newBuilder().setAngleGrid(ANGLE_GRID)
+                .addElectricField(ElectricField.LUDWIG3H, new double[ANGLE_GRID.size()], new double[ANGLE_GRID.size()])
+                .build();
+        FieldExpression.of(field).rotatePolarization(0.1);
+    }
+
+    /**
+     * Electric field data counting block reads.
+     */
+    private static final class CountingComplexArray extends ComplexArray {
+
+        private final int size;
+        private int copies;
+
+        private CountingComplexArray(int size) {
+            this.size = size;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        double getReal(int index) {
+            return index;
+        }
+
+        @Override
+        double getImaginary(int index) {
+            return -index;
+        }
+
+        @Override
+        void set(int index, double realValue, double imaginaryValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        void copyTo(int srcPos, double[] realDest, double[] imaginaryDest, int destPos, int length) {
+            copies++;
+            super.copyTo(srcPos, realDest, imaginaryDest, destPos, length);
+        }
+
+    }
+
+    private static Field field(int seed, double frequency) {
+        return FieldFixtures.field(ANGLE_GRID, frequency, seed, ElectricField.THETA, ElectricField.PHI);
+    }
+
+}
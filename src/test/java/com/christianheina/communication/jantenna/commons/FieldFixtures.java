@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+
+/**
+ * Fields, element layouts and temporary directories shared by unit tests.
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+final class FieldFixtures {
+
+    private FieldFixtures() {
+        /* Hidden Constructor */ }
+
+    /**
+     * Smooth field with one value for each angle of each given electric field. Different seeds give different values,
+     * and so do different positions of the same seed in electricFields.
+     */
+    static Field field(AngleGrid angleGrid, double frequency, int seed, ElectricField... electricFields) {
+        int size = angleGrid.size();
+        Field.Builder builder = Field.newBuilder().setFieldType(FieldType.FARFIELD).setAngleGrid(angleGrid)
+                .setFreqency(frequency);
+        for (int f = 0; f < electricFields.length; f++) {
+            double[] real = new double[size];
+            double[] imaginary = new double[size];
+            for (int i = 0; i < size; i++) {
+                real[i] = Math.sin(seed * 0.37 + i * 0.011 * (f + 1));
+                imaginary[i] = Math.cos(seed * 0.53 - i * 0.007);
+            }
+            builder.addElectricField(electricFields[f], real, imaginary);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Assert same electric fields with the same number of values, each within delta.
+     */
+    static void assertSameValues(Field actual, Field expected, double delta) {
+        Assert.assertEquals(actual.getAvailableElectricFields(), expected.getAvailableElectricFields());
+        for (ElectricField electricField : expected.getAvailableElectricFields()) {
+            int size = expected.getElectricFieldSize(electricField);
+            Assert.assertEquals(actual.getElectricFieldSize(electricField), size);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(actual.getReal(electricField, i), expected.getReal(electricField, i), delta);
+                Assert.assertEquals(actual.getImaginary(electricField, i), expected.getImaginary(electricField, i),
+                        delta);
+            }
+        }
+    }
+
+    /**
+     * Planar array of columns x rows elements in the xy-plane, spaced half a wavelength.
+     */
+    static List<Element> panel(int columns, int rows, double frequency) {
+        List<Element> elements = new ArrayList<>();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                elements.add(new Element(new Vector3D(0.5 * x, 0.5 * y, 0), frequency));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Delete directory and the files in it.
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.commons.math3.complex.Complex;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link FieldStream}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class FieldStreamTest {
+
+    private static final double FREQUENCY = 28e9;
+    private static final Set<ElectricField> THETA_PHI = EnumSet.of(ElectricField.THETA, ElectricField.PHI);
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("fieldstream");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        FieldFixtures.deleteDirectory(directory);
+    }
+
+    @Test
+    public void binaryTest() throws IOException {
+        Field field = field(RegularAngleGrid.equallySpacedSphere(5), 1);
+        Path input = directory.resolve("input.bin");
+        Path output = directory.resolve("output.bin");
+        field.saveBinary(input);
+        try (FieldStream stream = FieldStream.ofBinary(input).scale(new Complex(0, 2))) {
+            Assert.assertEquals(stream.size(), field.getAngleGrid().size());
+            Assert.assertEquals(stream.getElectricFields(), THETA_PHI);
+            Assert.assertEquals(stream.getFieldType(), FieldType.FARFIELD);
+            Assert.assertEquals(stream.getFrequency(), FREQUENCY);
+            stream.saveBinary(output, 1000);
+        }
+        Field result = Field.loadBinary(output);
+        Assert.assertEquals(result.getAngleGrid(), field.getAngleGrid());
+        Assert.assertTrue(result.getAngleGrid() instanceof RegularAngleGrid);
+        FieldFixtures.assertSameValues(result, field.scale(new Complex(0, 2)), 1e-12);
+    }
+
+    @Test
+    public void saveBinaryOverSourceTest() throws IOException {
+        Field field = field(RegularAngleGrid.equallySpacedSphere(1), 10);
+        Path path = directory.resolve("field.bin");
+        field.saveBinary(path);
+        try (FieldStream stream = FieldStream.ofBinary(path).scale(new Complex(2))) {
+            stream.saveBinary(path, 1000);
+        }
+        FieldFixtures.assertSameValues(Field.loadBinary(path), field.scale(new Complex(2)), 1e-12);
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(files.count(), 1);
+        }
+    }
+
+    @Test
+    public void singlePrecisionBinaryTest() throws IOException {
+        Field field = field(RegularAngleGrid.equallySpacedSphere(10), 2).toSinglePrecision();
+        Path input = directory.resolve("input.bin");
+        field.saveBinary(input);
+        try (FieldStream stream = FieldStream.ofBinary(input)) {
+            FieldFixtures.assertSameValues(stream.materialize(), field, 1e-12);
+        }
+    }
+
+    @Test
+    public void jsonTest() throws IOException {
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            thetaPhiList.add(ThetaPhi.fromRadians(i * 0.006, i * 0.011 - 2));
+        }
+        Field field = field(AngleGrid.fromList(thetaPhiList), 3);
+        Path input = directory.resolve("input.json");
+        Path output = directory.resolve("output.bin");
+        field.saveJson(input);
+        List<Integer> offsets = new ArrayList<>();
+        try (FieldStream stream = FieldStream.ofJson(input).multiply(field).peek((offset, chunk) -> {
+            offsets.add(offset);
+            Assert.assertTrue(chunk.getAngleGrid().size() <= 64);
+        })) {
+            stream.saveBinary(output, 64);
+        }
+        Assert.assertEquals(offsets.size(), 8);
+        Assert.assertEquals(offsets.get(7).intValue(), 448);
+        Field result = Field.loadBinary(output);
+        Assert.assertEquals(result.getAngleGrid(), field.getAngleGrid());
+        FieldFixtures.assertSameValues(result, field.multiply(field), 1e-12);
+    }
+
+    @Test
+    public void convertPolarizationTest() throws IOException {
+        Field field = field(RegularAngleGrid.equallySpacedSphere(10), 4);
+        Set<ElectricField> targets = EnumSet.of(ElectricField.LUDWIG3H, ElectricField.RELATIVE_GAIN);
+        try (FieldStream stream = FieldStream.of(field).convertPolarization(targets)) {
+            Assert.assertEquals(stream.getElectricFields(), targets);
+            FieldFixtures.assertSameValues(stream.materialize(), field.convertPolarization(targets), 1e-12);
+        }
+    }
+
+    @Test
+    public void generateTest() throws IOException {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(2);
+        Path output = directory.resolve("output.bin");
+        BeamMetrics.Accumulator accumulator = BeamMetrics.newAccumulator(angleGrid);
+        try (FieldStream stream = FieldStream
+                .generate(FieldType.FARFIELD, FREQUENCY, angleGrid, THETA_PHI, (offset, angles) -> {
+                    /* Short dipole along z */
+                    double[] real = new double[angles.size()];
+                    for (int i = 0; i < angles.size(); i++) {
+                        real[i] = Math.sin(angles.getTheta(i));
+                    }
+                    return Field.newBuilder().setFieldType(FieldType.FARFIELD).setFreqency(FREQUENCY)
+                            .setAngleGrid(angles).addElectricField(ElectricField.THETA, real, new double[real.length])
+                            .addElectricField(ElectricField.PHI, new double[real.length], new double[real.length])
+                            .build();
+                }).peek(accumulator)) {
+            stream.saveBinary(output, 1234);
+        }
+        BeamMetrics metrics = BeamMetrics.calculate(Field.loadBinary(output));
+        Assert.assertEquals(accumulator.getRadiatedPower(), metrics.getRadiatedPower(), 1e-9);
+        Assert.assertEquals(accumulator.getDirectivity(), 1.5, 1e-3);
+        Assert.assertEquals(accumulator.getPeakIntensity(), metrics.getPeakIntensity());
+        Assert.assertEquals(accumulator.getPeakIndex(), metrics.getPeakIndex());
+        Assert.assertEquals(accumulator.getPeakDirection(), metrics.getPeakDirection());
+    }
+
+    @Test
+    public void mapTest() throws IOException {
+        Field field = field(RegularAngleGrid.equallySpacedSphere(10), 5);
+        try (FieldStream stream = FieldStream.of(field).map((offset, chunk) -> chunk.add(chunk))) {
+            FieldFixtures.assertSameValues(stream.materialize(), field.scale(new Complex(2)), 1e-12);
+        }
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void mapChangingElectricFieldsExceptionTest() throws IOException {
+        Field field = field(RegularAngleGrid.equallySpacedSphere(10), 6);
+        FieldStream.of(field).map((offset, chunk) -> chunk.convertPolarization(EnumSet.of(ElectricField.THETA)))
+                .materialize();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void consumedExceptionTest() throws IOException {
+        FieldStream stream = FieldStream.of(field(RegularAngleGrid.equallySpacedSphere(10), 7));
+        stream.scale(Complex.ONE);
+        stream.materialize();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void multiplyExceptionTest() {
+        FieldStream.of(field(RegularAngleGrid.equallySpacedSphere(10), 8))
+                .multiply(field(RegularAngleGrid.equallySpacedSphere(5), 8));
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void chunkSizeExceptionTest() throws IOException {
+        FieldStream.of(field(RegularAngleGrid.equallySpacedSphere(10), 9)).forEachChunk(0, (offset, chunk) -> {
+        });
+    }
+
+    private static Field field(AngleGrid angleGrid, int seed) {
+        return FieldFixtures.field(angleGrid, FREQUENCY, seed, ElectricField.THETA, ElectricField.PHI);
+    }
+
+}
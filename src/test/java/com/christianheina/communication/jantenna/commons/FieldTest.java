@@ -16,11 +16,19 @@
 
 package com.christianheina.communication.jantenna.commons;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import org.apache.commons.math3.complex.Complex;
 import org.testng.Assert;
@@ -28,6 +36,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 
 /**
  * Unit test for {@link Field}
@@ -71,6 +81,51 @@ public class FieldTest {
         Assert.assertTrue(field.getThetaPhiList().get(0).getPhi() == ThetaPhi.fromDegrees(90, 0).getPhi());
     }
 
+    @Test
+    public void primitiveBuilderTest() {
+        double[] real = { 1, 2 };
+        double[] imaginary = { 3, 4 };
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        thetaPhiList.add(ThetaPhi.fromDegrees(90, 0));
+        thetaPhiList.add(ThetaPhi.fromDegrees(90, 10));
+        Field field = Field.newBuilder().addElectricField(ElectricField.THETA, real, imaginary)
+                .setThetaPhiList(thetaPhiList).build();
+        Assert.assertEquals(field.getElectricFieldSize(ElectricField.THETA), 2);
+        Assert.assertEquals(field.getReal(ElectricField.THETA, 1), 2.0);
+        Assert.assertEquals(field.getImaginary(ElectricField.THETA, 1), 4.0);
+        Assert.assertEquals(field.getElectricField(ElectricField.THETA).get(0), new Complex(1, 3));
+        Assert.assertNull(field.getElectricField(ElectricField.PHI));
+
+        double[] realCopy = new double[3];
+        double[] imaginaryCopy = new double[3];
+        field.copyElectricField(ElectricField.THETA, realCopy, imaginaryCopy);
+        Assert.assertEquals(realCopy, new double[] { 1, 2, 0 });
+        Assert.assertEquals(imaginaryCopy, new double[] { 3, 4, 0 });
+        field.copyElectricField(ElectricField.THETA, 1, realCopy, imaginaryCopy, 2, 1);
+        Assert.assertEquals(realCopy, new double[] { 1, 2, 2 });
+        Assert.assertEquals(imaginaryCopy, new double[] { 3, 4, 4 });
+    }
+
+    @Test
+    public void electricFieldListViewTest() {
+        Field field = Field.newBuilder().addElectricField(ElectricField.THETA, new double[] { 1 }, new double[] { 0 })
+                .build();
+        List<Complex> view = field.getElectricField(ElectricField.THETA);
+        Assert.assertEquals(view.set(0, new Complex(5, 6)), new Complex(1, 0));
+        Assert.assertEquals(field.getReal(ElectricField.THETA, 0), 5.0);
+        Assert.assertEquals(field.getImaginary(ElectricField.THETA, 0), 6.0);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void primitiveBuilderExceptionDifferentLengthTest() {
+        Field.newBuilder().addElectricField(ElectricField.THETA, new double[1], new double[2]);
+    }
+
+    @Test(expectedExceptions = AntennaException.class, groups = "useCommonField")
+    public void getRealExceptionMissingElectricFieldTest() {
+        field.getReal(ElectricField.PHI, 0);
+    }
+
     @Test(groups = "useCommonField")
     public void saveAndLoadJsonTest() throws IOException {
         field.saveJson(FILENAME);
@@ -88,6 +143,325 @@ public class FieldTest {
         Assert.assertTrue(field.getThetaPhiList().get(0).getPhi() == loadedfield.getThetaPhiList().get(0).getPhi());
     }
 
+    @Test(groups = "useCommonField")
+    public void saveAndLoadJsonStreamTest() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        field.saveJson(outputStream);
+        Field loadedfield = Field.loadJson(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assert.assertEquals(loadedfield.getElectricField(ElectricField.RELATIVE_GAIN),
+                field.getElectricField(ElectricField.RELATIVE_GAIN));
+        Assert.assertEquals(loadedfield.getThetaPhiList(), field.getThetaPhiList());
+        Assert.assertEquals(loadedfield.getFieldType(), field.getFieldType());
+        Assert.assertEquals(loadedfield.getFrequency(), field.getFrequency());
+        Assert.assertEquals(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), field.toJson().toString());
+    }
+
+    @Test
+    public void loadJsonSchemaTest() throws IOException {
+        String json = "{\"fieldType\":\"FARFIELD\",\"thetaPhiList\":[{\"theta\":1.5,\"phi\":0.5}],"
+                + "\"electricFieldMap\":{\"THETA\":[{\"imaginary\":0.5,\"real\":1.0}],"
+                + "\"PHI\":[{\"real\":2.0,\"imaginary\":-1.0,\"isNaN\":false}]},\"frequency\":2.8E10}";
+        Field loadedField = Field.loadJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(loadedField.getFieldType(), FieldType.FARFIELD);
+        Assert.assertEquals(loadedField.getThetaPhiList().get(0), ThetaPhi.fromRadians(1.5, 0.5));
+        Assert.assertEquals(loadedField.getElectricField(ElectricField.THETA).get(0), new Complex(1, 0.5));
+        Assert.assertEquals(loadedField.getElectricField(ElectricField.PHI).get(0), new Complex(2, -1));
+        Assert.assertEquals(loadedField.getFrequency(), 2.8e10);
+        Assert.assertEquals(new Gson().fromJson(json, Field.class).getElectricField(ElectricField.PHI).get(0),
+                new Complex(2, -1));
+    }
+
+    @Test(expectedExceptions = JsonSyntaxException.class)
+    public void loadJsonExceptionInvalidTest() throws IOException {
+        String json = "{\"thetaPhiList\":{}}";
+        Field.loadJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void saveAndLoadBinaryTest() throws IOException {
+        Field field = twoValueField(new double[] { 1, 2 }, new double[] { -1, 0.5 });
+        Path path = Files.createTempFile("field", ".bin");
+        try {
+            field.saveBinary(path);
+            Field loadedField = Field.loadBinary(path);
+            Assert.assertEquals(loadedField.getFieldType(), field.getFieldType());
+            Assert.assertEquals(loadedField.getFrequency(), field.getFrequency());
+            Assert.assertEquals(loadedField.getThetaPhiList(), field.getThetaPhiList());
+            Assert.assertEquals(loadedField.getAvailableElectricFields(), field.getAvailableElectricFields());
+            Assert.assertEquals(loadedField.getElectricField(ElectricField.THETA),
+                    field.getElectricField(ElectricField.THETA));
+
+            Field product = loadedField.multiply(field);
+            Assert.assertEquals(product.getElectricField(ElectricField.THETA).get(0), new Complex(0, -2));
+            loadedField.scale(Complex.ZERO, loadedField);
+            Assert.assertEquals(loadedField.getReal(ElectricField.THETA, 1), 0.0);
+            Assert.assertEquals(Field.loadBinary(path).getReal(ElectricField.THETA, 1), 2.0);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void indexOfTest() {
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        List<Complex> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            thetaPhiList.add(ThetaPhi.fromRadians(Math.sqrt(i), 0.1 * i * i));
+            values.add(new Complex(i, -i));
+        }
+        thetaPhiList.add(ThetaPhi.fromRadians(Math.sqrt(3), 0.9));
+        values.add(new Complex(-1, -1));
+        Field field = Field.newBuilder().setThetaPhiList(thetaPhiList).addElectricField(ElectricField.THETA, values)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(field.indexOf(ThetaPhi.fromRadians(Math.sqrt(i), 0.1 * i * i)), i);
+        }
+        Assert.assertEquals(field.indexOf(ThetaPhi.fromRadians(1, 1)), -1);
+        Assert.assertEquals(field.getElectricFieldValue(ElectricField.THETA, thetaPhiList.get(42)),
+                new Complex(42, -42));
+
+        Field regularField = Field.newBuilder().setThetaPhiList(ThetaPhi.equallySpacedSphere(10))
+                .addElectricField(ElectricField.PHI, new double[19 * 37], new double[19 * 37]).build();
+        Assert.assertEquals(regularField.indexOf(ThetaPhi.fromDegrees(10, -170)), 38);
+    }
+
+    @Test(groups = "useCommonField", expectedExceptions = AntennaException.class)
+    public void getElectricFieldValueExceptionMissingAngleTest() {
+        field.getElectricFieldValue(ElectricField.RELATIVE_GAIN, ThetaPhi.fromDegrees(1, 2));
+    }
+
+    @Test
+    public void parallelOperationsTest() {
+        int size = 50000;
+        double[] aRe = new double[size];
+        double[] aIm = new double[size];
+        double[] bRe = new double[size];
+        double[] bIm = new double[size];
+        double[] thetas = new double[size];
+        for (int i = 0; i < size; i++) {
+            aRe[i] = Math.sin(i);
+            aIm[i] = Math.cos(3 * i);
+            bRe[i] = 1.0 / (i + 1);
+            bIm[i] = -Math.sin(0.5 * i);
+            thetas[i] = i * 1e-4;
+        }
+        AngleGrid angleGrid = AngleGrid.fromArrays(thetas, new double[size]);
+        Field a = Field.newBuilder().setAngleGrid(angleGrid).addElectricField(ElectricField.THETA, aRe, aIm)
+                .addElectricField(ElectricField.PHI, bIm, aRe).build();
+        Field b = Field.newBuilder().setAngleGrid(angleGrid).addElectricField(ElectricField.THETA, bRe, bIm)
+                .addElectricField(ElectricField.PHI, aIm, bRe).build();
+        ExecutionPolicy parallel = ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 1000);
+
+        FieldFixtures.assertSameValues(a.multiply(b, a.zeroedCopy(), parallel), a.multiply(b), 0);
+        FieldFixtures.assertSameValues(a.conjugateMultiply(b, a.zeroedCopy(), parallel), a.conjugateMultiply(b), 0);
+        FieldFixtures.assertSameValues(a.add(b, a.zeroedCopy(), parallel), a.add(b), 0);
+        FieldFixtures.assertSameValues(a.scale(new Complex(0.3, -2), a.zeroedCopy(), parallel),
+                a.scale(new Complex(0.3, -2)), 0);
+        FieldFixtures.assertSameValues(a.copy().multiplyAccumulate(a, b, parallel), a.copy().multiplyAccumulate(a, b),
+                0);
+    }
+
+    @Test
+    public void regularAngleGridTest() throws IOException {
+        RegularAngleGrid grid = RegularAngleGrid.equallySpacedSphere(5);
+        double[] real = new double[grid.size()];
+        double[] imaginary = new double[grid.size()];
+        real[3] = 1;
+        Field field = Field.newBuilder().setThetaPhiList(ThetaPhi.equallySpacedSphere(5))
+                .addElectricField(ElectricField.THETA, real, imaginary).build();
+        Assert.assertSame(field.getAngleGrid(), field.getAngleGrid());
+        Assert.assertEquals(field.getAngleGrid(), grid);
+        Assert.assertEquals(field.getThetaPhiList(), ThetaPhi.equallySpacedSphere(5));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        field.saveJson(outputStream);
+        Field jsonField = Field.loadJson(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assert.assertTrue(jsonField.getAngleGrid() instanceof RegularAngleGrid);
+        Assert.assertEquals(jsonField.getAngleGrid(), grid);
+
+        Path path = Files.createTempFile("field", ".bin");
+        try {
+            field.saveBinary(path);
+            Field binaryField = Field.loadBinary(path);
+            Assert.assertTrue(binaryField.getAngleGrid() instanceof RegularAngleGrid);
+            Assert.assertEquals(binaryField.getAngleGrid(), grid);
+            Assert.assertEquals(binaryField.getReal(ElectricField.THETA, 3), 1.0);
+            Assert.assertEquals(binaryField.multiply(field).getReal(ElectricField.THETA, 3), 1.0);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void singlePrecisionTest() {
+        Field field = twoValueField(new double[] { 1.1, 2 }, new double[] { -1, 0.3 });
+        Field single = field.toSinglePrecision();
+        Assert.assertTrue(single.isSinglePrecision());
+        Assert.assertFalse(field.isSinglePrecision());
+        Assert.assertEquals(single.getReal(ElectricField.THETA, 0), (double) 1.1f);
+        Assert.assertEquals(single.getImaginary(ElectricField.THETA, 1), (double) 0.3f);
+
+        Field product = single.multiply(single);
+        Assert.assertTrue(product.isSinglePrecision());
+        Assert.assertEquals(product.getReal(ElectricField.THETA, 1), (double) (2f * 2f - 0.3f * 0.3f));
+        Assert.assertEquals(product.getImaginary(ElectricField.THETA, 1), (double) (2f * 0.3f + 0.3f * 2f));
+        Assert.assertTrue(single.copy().isSinglePrecision());
+        Assert.assertTrue(single.zeroedCopy().isSinglePrecision());
+        single.multiplyAccumulate(single, single);
+        Assert.assertEquals(single.getReal(ElectricField.THETA, 1), (double) (2f + (2f * 2f - 0.3f * 0.3f)));
+
+        Field converted = field.toSinglePrecision().toDoublePrecision();
+        Assert.assertFalse(converted.isSinglePrecision());
+        Assert.assertEquals(converted.getReal(ElectricField.THETA, 0), field.getReal(ElectricField.THETA, 0), 1e-6);
+        /* Mixed precision operations fall back to element access */
+        Assert.assertEquals(field.multiply(field.toSinglePrecision()).getReal(ElectricField.THETA, 1),
+                2 * 2 - 0.3 * 0.3f, 1e-6);
+    }
+
+    @Test
+    public void saveAndLoadSinglePrecisionBinaryTest() throws IOException {
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        float[] real = new float[3];
+        float[] imaginary = new float[3];
+        for (int i = 0; i < 3; i++) {
+            thetaPhiList.add(ThetaPhi.fromDegrees(10 + i, 3 * i));
+            real[i] = 0.1f * i;
+            imaginary[i] = -0.7f * i;
+        }
+        Field field = Field.newBuilder().setThetaPhiList(thetaPhiList).setFreqency(28e9)
+                .addElectricField(ElectricField.THETA, real, imaginary)
+                .addElectricField(ElectricField.PHI, imaginary.clone(), real.clone()).build();
+        Path path = Files.createTempFile("field", ".bin");
+        try {
+            field.saveBinary(path);
+            /* Header, explicit angles and two fields of two 8 byte aligned blocks of three floats */
+            Assert.assertTrue(Files.size(path) < 200 + 2 * 3 * Double.BYTES + 4 * 16);
+            Field loadedField = Field.loadBinary(path);
+            Assert.assertTrue(loadedField.isSinglePrecision());
+            Assert.assertEquals(loadedField.getThetaPhiList(), field.getThetaPhiList());
+            Assert.assertEquals(loadedField.getElectricField(ElectricField.THETA),
+                    field.getElectricField(ElectricField.THETA));
+            Assert.assertEquals(loadedField.getElectricField(ElectricField.PHI),
+                    field.getElectricField(ElectricField.PHI));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void saveBinaryOverLoadedFileTest() throws IOException {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(1);
+        double[] real = new double[angleGrid.size()];
+        for (int i = 0; i < real.length; i++) {
+            real[i] = i;
+        }
+        Field field = Field.newBuilder().setAngleGrid(angleGrid).setFreqency(28e9)
+                .addElectricField(ElectricField.THETA, real, new double[real.length]).build();
+        Path directory = Files.createTempDirectory("field");
+        Path path = directory.resolve("field.bin");
+        try {
+            field.saveBinary(path);
+            Field loadedField = Field.loadBinary(path);
+            loadedField.scale(new Complex(2)).saveBinary(path);
+            /* Loaded field still maps the replaced file */
+            loadedField.saveBinary(path);
+            Assert.assertEquals(loadedField.getReal(ElectricField.THETA, real.length - 1), real.length - 1.0);
+            Assert.assertEquals(Field.loadBinary(path).getReal(ElectricField.THETA, real.length - 1),
+                    real.length - 1.0);
+            try (Stream<Path> files = Files.list(directory)) {
+                Assert.assertEquals(files.count(), 1);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void parallelModifyLoadedBinaryTest() throws IOException {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(2);
+        double[] real = new double[angleGrid.size()];
+        double[] imaginary = new double[angleGrid.size()];
+        for (int i = 0; i < real.length; i++) {
+            real[i] = i;
+            imaginary[i] = -i;
+        }
+        Field field = Field.newBuilder().setAngleGrid(angleGrid).setFreqency(28e9)
+                .addElectricField(ElectricField.THETA, real, imaginary).build();
+        Path path = Files.createTempFile("field", ".bin");
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            field.saveBinary(path);
+            for (int run = 0; run < 20; run++) {
+                Field loadedField = Field.loadBinary(path);
+                loadedField.scale(new Complex(2), loadedField, ExecutionPolicy.parallel(pool, 64));
+                for (int i = 0; i < real.length; i++) {
+                    Assert.assertEquals(loadedField.getReal(ElectricField.THETA, i), 2.0 * i);
+                    Assert.assertEquals(loadedField.getImaginary(ElectricField.THETA, i), -2.0 * i);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void loadBinaryExceptionInvalidFileTest() throws IOException {
+        Path path = Files.createTempFile("field", ".json");
+        try {
+            twoValueField(new double[2], new double[2]).saveJson(path);
+            Field.loadBinary(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void loadBinaryExceptionUnsupportedVersionTest() throws IOException {
+        Path path = Files.createTempFile("field", ".bin");
+        try {
+            twoValueField(new double[2], new double[2]).saveBinary(path);
+            byte[] bytes = Files.readAllBytes(path);
+            /* Format version follows the magic number */
+            bytes[Integer.BYTES] = (byte) (FieldBinaryFormat.VERSION + 1);
+            Files.write(path, bytes);
+            Field.loadBinary(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Invalid field binary file.*")
+    public void loadBinaryExceptionCorruptStringLengthTest() throws IOException {
+        Path path = Files.createTempFile("field", ".bin");
+        try {
+            twoValueField(new double[2], new double[2]).saveBinary(path);
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            /* Field type name length follows the magic number, version and header length */
+            bytes.putInt(3 * Integer.BYTES, Integer.MAX_VALUE - 8);
+            Files.write(path, bytes.array());
+            Field.loadBinary(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Invalid field binary file.*")
+    public void loadBinaryExceptionTruncatedHeaderTest() throws IOException {
+        Path path = Files.createTempFile("field", ".bin");
+        try {
+            twoValueField(new double[2], new double[2]).saveBinary(path);
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            /* Header ends in the middle of the field type name length */
+            bytes.putInt(2 * Integer.BYTES, 3 * Integer.BYTES + 2);
+            Files.write(path, bytes.array());
+            Field.loadBinary(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
     @Test(groups = "useCommonField")
     public void multiplyTest() {
         Field multipliedField = field.multiply(field);
@@ -115,6 +489,91 @@ public class FieldTest {
         Assert.assertEquals(multipliedField.getElectricField(ElectricField.RELATIVE_GAIN).get(0), new Complex(0, 0));
     }
 
+    @Test
+    public void multiplyDestinationTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field b = twoValueField(new double[] { 3, 0 }, new double[] { 0, 1 });
+        Field destination = a.zeroedCopy();
+        Assert.assertSame(a.multiply(b, destination), destination);
+        Assert.assertEquals(destination.getElectricField(ElectricField.THETA).get(0), new Complex(3, 3));
+        Assert.assertEquals(destination.getElectricField(ElectricField.THETA).get(1), new Complex(0, 2));
+
+        a.multiply(b, a);
+        Assert.assertEquals(a.getElectricField(ElectricField.THETA).get(0), new Complex(3, 3));
+        Assert.assertEquals(a.getElectricField(ElectricField.THETA).get(1), new Complex(0, 2));
+    }
+
+    @Test
+    public void conjugateMultiplyTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field b = twoValueField(new double[] { 3, 0 }, new double[] { 0, 1 });
+        Field result = a.conjugateMultiply(b);
+        Assert.assertEquals(result.getElectricField(ElectricField.THETA).get(0), new Complex(3, 3));
+        Assert.assertEquals(result.getElectricField(ElectricField.THETA).get(1), new Complex(0, -2));
+        Assert.assertEquals(result.getFrequency(), a.getFrequency());
+    }
+
+    @Test
+    public void addTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field b = twoValueField(new double[] { 3, 0 }, new double[] { 0, 1 });
+        Field result = a.add(b);
+        Assert.assertEquals(result.getElectricField(ElectricField.THETA).get(0), new Complex(4, 1));
+        Assert.assertEquals(result.getElectricField(ElectricField.THETA).get(1), new Complex(2, 1));
+        a.add(b, b);
+        Assert.assertEquals(b.getElectricField(ElectricField.THETA).get(0), new Complex(4, 1));
+    }
+
+    @Test
+    public void scaleTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field result = a.scale(new Complex(0, 2));
+        Assert.assertEquals(result.getElectricField(ElectricField.THETA).get(0), new Complex(-2, 2));
+        Assert.assertEquals(result.getElectricField(ElectricField.THETA).get(1), new Complex(0, 4));
+        Assert.assertEquals(a.getElectricField(ElectricField.THETA).get(0), new Complex(1, 1));
+        a.scale(new Complex(2, 0), a);
+        Assert.assertEquals(a.getElectricField(ElectricField.THETA).get(0), new Complex(2, 2));
+    }
+
+    @Test
+    public void multiplyAccumulateTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field b = twoValueField(new double[] { 3, 0 }, new double[] { 0, 1 });
+        Field accumulator = a.zeroedCopy();
+        accumulator.multiplyAccumulate(a, b).multiplyAccumulate(a, b);
+        Assert.assertEquals(accumulator.getElectricField(ElectricField.THETA).get(0), new Complex(6, 6));
+        Assert.assertEquals(accumulator.getElectricField(ElectricField.THETA).get(1), new Complex(0, 4));
+    }
+
+    @Test
+    public void copyTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field copy = a.copy();
+        a.scale(Complex.ZERO, a);
+        Assert.assertEquals(copy.getElectricField(ElectricField.THETA).get(0), new Complex(1, 1));
+        Assert.assertEquals(copy.getThetaPhiList(), a.getThetaPhiList());
+        Assert.assertEquals(copy.getFrequency(), a.getFrequency());
+        Field zeroed = copy.zeroedCopy();
+        Assert.assertEquals(zeroed.getElectricField(ElectricField.THETA).get(1), Complex.ZERO);
+        Assert.assertEquals(zeroed.getAvailableElectricFields(), copy.getAvailableElectricFields());
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void multiplyExceptionDifferentSizeTest() {
+        Field a = twoValueField(new double[] { 1, 2 }, new double[] { 1, 0 });
+        Field b = Field.newBuilder().setThetaPhiList(a.getThetaPhiList())
+                .addElectricField(ElectricField.THETA, new double[1], new double[1]).build();
+        a.multiply(b);
+    }
+
+    private static Field twoValueField(double[] real, double[] imaginary) {
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        thetaPhiList.add(ThetaPhi.fromDegrees(90, 0));
+        thetaPhiList.add(ThetaPhi.fromDegrees(90, 10));
+        return Field.newBuilder().addElectricField(ElectricField.THETA, real, imaginary).setThetaPhiList(thetaPhiList)
+                .setFreqency(28e9).build();
+    }
+
     @Test(expectedExceptions = AntennaException.class, groups = "useCommonField")
     public void multiplyExceptionDifferentThetaPhiTest() {
         Field differentThetaPhiAnglesField = Field.newBuilder().setThetaPhiList(new ArrayList<>()).build();
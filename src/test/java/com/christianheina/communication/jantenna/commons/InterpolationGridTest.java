@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import org.apache.commons.math3.complex.Complex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link InterpolationGrid} through
+ * {@link Field#interpolate(ElectricField, ThetaPhi, InterpolationMethod)}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class InterpolationGridTest {
+
+    /* Continuous over the sphere, x direction cosine */
+    private static final DoubleBinaryOperator SMOOTH = (theta, phi) -> Math.sin(theta) * Math.cos(phi);
+
+    @Test
+    public void gridAngleTest() {
+        Field field = sphereField(5, SMOOTH, ElectricField.RELATIVE_GAIN);
+        for (InterpolationMethod method : InterpolationMethod.values()) {
+            for (int i = 0; i < field.getAngleGrid().size(); i += 37) {
+                ThetaPhi thetaPhi = field.getAngleGrid().get(i);
+                Complex value = field.interpolate(ElectricField.RELATIVE_GAIN, thetaPhi, method);
+                Assert.assertEquals(value.getReal(), field.getReal(ElectricField.RELATIVE_GAIN, i), 1e-12);
+                Assert.assertEquals(value.getImaginary(), field.getImaginary(ElectricField.RELATIVE_GAIN, i), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void accuracyTest() {
+        Field field = sphereField(5, SMOOTH, ElectricField.RELATIVE_GAIN);
+        double bilinearError = 0;
+        double bicubicError = 0;
+        for (int i = 0; i < 500; i++) {
+            double theta = Math.PI * ((i * 0.618034) % 1);
+            double phi = 2 * Math.PI * ((i * 0.414214) % 1) - Math.PI;
+            double expected = SMOOTH.applyAsDouble(theta, phi);
+            ThetaPhi thetaPhi = ThetaPhi.fromRadians(theta, phi);
+            bilinearError = Math.max(bilinearError, Math.abs(
+                    field.interpolate(ElectricField.RELATIVE_GAIN, thetaPhi, InterpolationMethod.BILINEAR).getReal()
+                            - expected));
+            bicubicError = Math.max(bicubicError, Math
+                    .abs(field.interpolate(ElectricField.RELATIVE_GAIN, thetaPhi, InterpolationMethod.BICUBIC).getReal()
+                            - expected));
+        }
+        Assert.assertTrue(bilinearError < 5e-3, "bilinear error " + bilinearError);
+        Assert.assertTrue(bicubicError < bilinearError / 10, "bicubic error " + bicubicError);
+    }
+
+    @Test
+    public void phiWrapTest() {
+        Field field = sphereField(5, SMOOTH, ElectricField.RELATIVE_GAIN);
+        for (InterpolationMethod method : InterpolationMethod.values()) {
+            Complex wrapped = field.interpolate(ElectricField.RELATIVE_GAIN, ThetaPhi.fromDegrees(42, 542), method);
+            Complex value = field.interpolate(ElectricField.RELATIVE_GAIN, ThetaPhi.fromDegrees(42, -178), method);
+            Assert.assertEquals(wrapped.getReal(), value.getReal(), 1e-12);
+            Assert.assertEquals(value.getReal(), SMOOTH.applyAsDouble(Math.toRadians(42), Math.toRadians(-178)),
+                    method == InterpolationMethod.BICUBIC ? 1e-4 : 5e-3);
+        }
+    }
+
+    @Test
+    public void poleTest() {
+        Field gain = sphereField(5, SMOOTH, ElectricField.RELATIVE_GAIN);
+        Field theta = sphereField(5, (t, p) -> Math.cos(t) * Math.cos(p), ElectricField.THETA);
+        for (InterpolationMethod method : InterpolationMethod.values()) {
+            Complex beyondPole = gain.interpolate(ElectricField.RELATIVE_GAIN, ThetaPhi.fromDegrees(-12, 33), method);
+            Complex reflected = gain.interpolate(ElectricField.RELATIVE_GAIN, ThetaPhi.fromDegrees(12, 213), method);
+            Assert.assertEquals(beyondPole.getReal(), reflected.getReal(), 1e-12);
+
+            /* Theta component of a field polarized along x, continuous across the north pole */
+            double expected = Math.cos(Math.toRadians(2)) * Math.cos(Math.toRadians(33));
+            Assert.assertEquals(theta.interpolate(ElectricField.THETA, ThetaPhi.fromDegrees(2, 33), method).getReal(),
+                    expected, method == InterpolationMethod.BICUBIC ? 1e-4 : 5e-3);
+            /* Same direction, but theta unit vector points the opposite way */
+            Assert.assertEquals(theta.interpolate(ElectricField.THETA, ThetaPhi.fromDegrees(-2, 213), method).getReal(),
+                    -expected, method == InterpolationMethod.BICUBIC ? 1e-4 : 5e-3);
+            Assert.assertEquals(theta.interpolate(ElectricField.THETA, ThetaPhi.fromDegrees(178, 10), method).getReal(),
+                    Math.cos(Math.toRadians(178)) * Math.cos(Math.toRadians(10)), 5e-3);
+        }
+    }
+
+    @Test
+    public void batchTest() {
+        Field field = sphereField(2, SMOOTH, ElectricField.RELATIVE_GAIN);
+        double[] theta = new double[100];
+        double[] phi = new double[100];
+        for (int i = 0; i < theta.length; i++) {
+            theta[i] = 0.031 * i;
+            phi[i] = 0.17 * i - 4;
+        }
+        double[] real = new double[100];
+        double[] imaginary = new double[100];
+        field.interpolate(ElectricField.RELATIVE_GAIN, theta, phi, real, imaginary, InterpolationMethod.BICUBIC);
+        for (int i = 0; i < theta.length; i++) {
+            Complex value = field.interpolate(ElectricField.RELATIVE_GAIN, ThetaPhi.fromRadians(theta[i], phi[i]),
+                    InterpolationMethod.BICUBIC);
+            Assert.assertEquals(real[i], value.getReal());
+            Assert.assertEquals(imaginary[i], value.getImaginary());
+        }
+    }
+
+    @Test
+    public void explicitGridTest() {
+        double[] thetas = { 10, 12, 15, 20, 30 };
+        double[] phis = { 0, 5, 7, 20 };
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        List<Complex> values = new ArrayList<>();
+        for (double theta : thetas) {
+            for (double phi : phis) {
+                thetaPhiList.add(ThetaPhi.fromDegrees(theta, phi));
+                values.add(new Complex(2 * theta - phi, theta * 0.5));
+            }
+        }
+        Field field = Field.newBuilder().setThetaPhiList(thetaPhiList).addElectricField(ElectricField.LUDWIG3H, values)
+                .build();
+        Complex value = field.interpolate(ElectricField.LUDWIG3H, ThetaPhi.fromDegrees(13, 6),
+                InterpolationMethod.BILINEAR);
+        Assert.assertEquals(value.getReal(), 20, 1e-9);
+        Assert.assertEquals(value.getImaginary(), 6.5, 1e-9);
+        /* Outside grid values are clamped to grid edge */
+        value = field.interpolate(ElectricField.LUDWIG3H, ThetaPhi.fromDegrees(40, -10), InterpolationMethod.BILINEAR);
+        Assert.assertEquals(value.getReal(), 60, 1e-9);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void irregularGridExceptionTest() {
+        List<ThetaPhi> thetaPhiList = new ArrayList<>();
+        thetaPhiList.add(ThetaPhi.fromDegrees(10, 0));
+        thetaPhiList.add(ThetaPhi.fromDegrees(10, 5));
+        thetaPhiList.add(ThetaPhi.fromDegrees(20, 0));
+        List<Complex> values = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            values.add(Complex.ONE);
+        }
+        Field.newBuilder().setThetaPhiList(thetaPhiList).addElectricField(ElectricField.THETA, values).build()
+                .interpolate(ElectricField.THETA, ThetaPhi.fromDegrees(15, 0), InterpolationMethod.BILINEAR);
+    }
+
+    private static Field sphereField(int spacing, DoubleBinaryOperator function, ElectricField electricField) {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(spacing);
+        double[] real = new double[angleGrid.size()];
+        double[] imaginary = new double[angleGrid.size()];
+        for (int i = 0; i < angleGrid.size(); i++) {
+            real[i] = function.applyAsDouble(angleGrid.getTheta(i), angleGrid.getPhi(i));
+            imaginary[i] = 0.5 * real[i];
+        }
+        return Field.newBuilder().setAngleGrid(angleGrid).addElectricField(electricField, real, imaginary).build();
+    }
+
+}
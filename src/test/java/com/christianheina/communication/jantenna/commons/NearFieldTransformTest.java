@@ -0,0 +1,251 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link NearFieldTransform}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class NearFieldTransformTest {
+
+    private static final double FREQUENCY = 10e9;
+    private static final double LAMBDA = Util.calculateLambda(FREQUENCY);
+    private static final double K = 2 * Math.PI / LAMBDA;
+
+    @Test
+    public void planarTest() {
+        /*
+         * Tapered 8 by 8 array of x directed dipoles, directive enough for truncation of the plane to matter little,
+         * sampled at half wavelength spacing on a plane three wavelengths away
+         */
+        Vector3D[] positions = new Vector3D[64];
+        double[] weights = new double[64];
+        for (int i = 0; i < 64; i++) {
+            double x = (i % 8 - 3.5) * 0.5 * LAMBDA;
+            double y = (i / 8 - 3.5) * 0.5 * LAMBDA;
+            positions[i] = new Vector3D(x, y, 0);
+            weights[i] = Math.pow(Math.cos(Math.PI * (i % 8 - 3.5) / 8) * Math.cos(Math.PI * (i / 8 - 3.5) / 8), 2);
+        }
+        int count = 128;
+        double step = LAMBDA / 2;
+        double start = -0.5 * (count - 1) * step;
+        double distance = 3 * LAMBDA;
+        double[][] values = new double[4][count * count];
+        for (int y = 0; y < count; y++) {
+            for (int x = 0; x < count; x++) {
+                Complex[] e = dipoles(Vector3D.PLUS_I, positions, weights,
+                        new Vector3D(start + x * step, start + y * step, distance));
+                values[0][y * count + x] = e[0].getReal();
+                values[1][y * count + x] = e[0].getImaginary();
+                values[2][y * count + x] = e[1].getReal();
+                values[3][y * count + x] = e[1].getImaginary();
+            }
+        }
+        PlanarNearField nearField = PlanarNearField.newBuilder().setFrequency(FREQUENCY).setXAxis(start, step, count)
+                .setYAxis(start, step, count).setDistance(distance).setXComponent(values[0], values[1])
+                .setYComponent(values[2], values[3]).build();
+        RegularAngleGrid angleGrid = RegularAngleGrid.fromDegrees(0, 2.5, 13, -180, 7.5, 48);
+        Field farField = NearFieldTransform.newBuilder().setAngleGrid(angleGrid).build().transform(nearField);
+        Assert.assertEquals(farField.getFrequency(), FREQUENCY);
+        Assert.assertEquals(farField.getFieldType(), FieldType.FARFIELD);
+        /* Plane truncation and spectrum interpolation limit accuracy to about a percent of the peak */
+        assertFarField(farField, Vector3D.PLUS_I, positions, weights, 0.01);
+    }
+
+    @Test
+    public void sphericalTest() {
+        Vector3D moment = new Vector3D(0.6, 0, 0.8);
+        Vector3D position = new Vector3D(0.3 * LAMBDA, -0.1 * LAMBDA, 0.4 * LAMBDA);
+        double radius = 3 * LAMBDA;
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(5);
+        Field nearField = sphericalNearField(angleGrid, moment, position, radius, FREQUENCY);
+        Field farField = NearFieldTransform.newBuilder().setMeasurementRadius(radius).build().transform(nearField);
+        Assert.assertEquals(farField.getAngleGrid(), angleGrid);
+        Assert.assertEquals(farField.getFieldType(), FieldType.FARFIELD);
+        assertFarField(farField, moment, new Vector3D[] { position }, new double[] { 1 }, 1e-6);
+    }
+
+    @Test
+    public void multipleFrequenciesTest() {
+        Vector3D moment = Vector3D.PLUS_J;
+        Vector3D position = new Vector3D(0, 0.2 * LAMBDA, 0);
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(6);
+        List<Field> nearFields = Arrays.asList(sphericalNearField(angleGrid, moment, position, 2 * LAMBDA, FREQUENCY),
+                sphericalNearField(angleGrid, moment, position, 2 * LAMBDA, FREQUENCY));
+        List<Field> farFields = NearFieldTransform.newBuilder().setMeasurementRadius(2 * LAMBDA).setMaxDegree(12)
+                .setAngleGrid(RegularAngleGrid.equallySpacedSphere(10))
+                .setExecutionPolicy(ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 1)).build()
+                .transformSpherical(nearFields);
+        Assert.assertEquals(farFields.size(), 2);
+        assertFarField(farFields.get(0), moment, new Vector3D[] { position }, new double[] { 1 }, 1e-6);
+        Assert.assertEquals(farFields.get(1).getElectricField(ElectricField.THETA),
+                farFields.get(0).getElectricField(ElectricField.THETA));
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void farFieldInputExceptionTest() {
+        Field field = sphericalNearField(RegularAngleGrid.equallySpacedSphere(10), Vector3D.PLUS_K, Vector3D.ZERO,
+                LAMBDA, FREQUENCY);
+        Field farField = Field.newBuilder().setAngleGrid(field.getAngleGrid()).setFreqency(FREQUENCY)
+                .addElectricField(ElectricField.THETA, new double[703], new double[703])
+                .addElectricField(ElectricField.PHI, new double[703], new double[703]).build();
+        NearFieldTransform.newBuilder().setMeasurementRadius(LAMBDA).build().transform(farField);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void missingAngleGridExceptionTest() {
+        PlanarNearField nearField = PlanarNearField.newBuilder().setFrequency(FREQUENCY).setXAxis(0, 0.01, 2)
+                .setYAxis(0, 0.01, 2).setXComponent(new double[4], new double[4])
+                .setYComponent(new double[4], new double[4]).build();
+        NearFieldTransform.newBuilder().build().transform(nearField);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void invalidPlanarNearFieldExceptionTest() {
+        PlanarNearField.newBuilder().setFrequency(FREQUENCY).setXAxis(0, 0.01, 2).setYAxis(0, 0.01, 2)
+                .setXComponent(new double[3], new double[3]).setYComponent(new double[4], new double[4]).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void sampleCountOverflowExceptionTest() {
+        /* 65536 x 65536 samples wrap to 0 as int */
+        PlanarNearField.newBuilder().setFrequency(FREQUENCY).setXAxis(0, 0.01, 65536).setYAxis(0, 0.01, 65536)
+                .setXComponent(new double[0], new double[0]).setYComponent(new double[0], new double[0]).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void missingImaginaryPlanarNearFieldExceptionTest() {
+        PlanarNearField.newBuilder().setFrequency(FREQUENCY).setXAxis(0, 0.01, 2).setYAxis(0, 0.01, 2)
+                .setXComponent(new double[4], null).setYComponent(new double[4], new double[4]).build();
+    }
+
+    private static Field sphericalNearField(AngleGrid angleGrid, Vector3D moment, Vector3D position, double radius,
+            double frequency) {
+        int size = angleGrid.size();
+        double[][] values = new double[4][size];
+        for (int i = 0; i < size; i++) {
+            double theta = angleGrid.getTheta(i);
+            double phi = angleGrid.getPhi(i);
+            Vector3D point = new Vector3D(radius * Math.sin(theta) * Math.cos(phi),
+                    radius * Math.sin(theta) * Math.sin(phi), radius * Math.cos(theta));
+            Complex[] e = dipole(moment, position, point);
+            Complex[] tangential = project(e, theta, phi);
+            values[0][i] = tangential[0].getReal();
+            values[1][i] = tangential[0].getImaginary();
+            values[2][i] = tangential[1].getReal();
+            values[3][i] = tangential[1].getImaginary();
+        }
+        return Field.newBuilder().setFieldType(FieldType.NEARFIELD).setAngleGrid(angleGrid).setFreqency(frequency)
+                .addElectricField(ElectricField.THETA, values[0], values[1])
+                .addElectricField(ElectricField.PHI, values[2], values[3]).build();
+    }
+
+    private static void assertFarField(Field farField, Vector3D moment, Vector3D[] positions, double[] weights,
+            double relativeTolerance) {
+        AngleGrid angleGrid = farField.getAngleGrid();
+        double tolerance = relativeTolerance * K / (4 * Math.PI) * Arrays.stream(weights).sum();
+        for (int i = 0; i < angleGrid.size(); i++) {
+            double theta = angleGrid.getTheta(i);
+            double phi = angleGrid.getPhi(i);
+            Vector3D u = new Vector3D(Math.sin(theta) * Math.cos(phi), Math.sin(theta) * Math.sin(phi),
+                    Math.cos(theta));
+            /* -j * k / (4 * pi) * sum(w * exp(j * k * u.d)) * (p - u * (u.p)) */
+            Vector3D transverse = moment.subtract(u.scalarMultiply(u.dotProduct(moment)));
+            Complex factor = Complex.ZERO;
+            for (int s = 0; s < positions.length; s++) {
+                factor = factor.add(Complex.I.multiply(K * u.dotProduct(positions[s])).exp().multiply(weights[s]));
+            }
+            factor = factor.multiply(Complex.I.multiply(-K / (4 * Math.PI)));
+            Complex[] expected = project(new Complex[] { factor.multiply(transverse.getX()),
+                    factor.multiply(transverse.getY()), factor.multiply(transverse.getZ()) }, theta, phi);
+            String message = "Angle " + angleGrid.get(i);
+            Assert.assertEquals(farField.getReal(ElectricField.THETA, i), expected[0].getReal(), tolerance, message);
+            Assert.assertEquals(farField.getImaginary(ElectricField.THETA, i), expected[0].getImaginary(), tolerance,
+                    message);
+            Assert.assertEquals(farField.getReal(ElectricField.PHI, i), expected[1].getReal(), tolerance, message);
+            Assert.assertEquals(farField.getImaginary(ElectricField.PHI, i), expected[1].getImaginary(), tolerance,
+                    message);
+        }
+    }
+
+    /**
+     * Exact electric field of Hertzian dipole with moment p at position d, in Cartesian components
+     *
+     * <pre>
+     * E = j * k * exp(-j * k * R) / (4 * pi * R) * (B * (R.p) * R - A * (p - R * (R.p)))
+     * A = 1 + 1 / (j * k * R) - 1 / (k * R)^2
+     * B = 2 / (j * k * R) * (1 + 1 / (j * k * R))
+     * </pre>
+     */
+    private static Complex[] dipole(Vector3D moment, Vector3D position, Vector3D point) {
+        Vector3D r = point.subtract(position);
+        double distance = r.getNorm();
+        Vector3D direction = r.normalize();
+        double kr = K * distance;
+        Complex inverse = Complex.ONE.divide(Complex.I.multiply(kr));
+        Complex a = Complex.ONE.add(inverse).subtract(1 / (kr * kr));
+        Complex b = inverse.multiply(2).multiply(Complex.ONE.add(inverse));
+        Complex factor = Complex.I.multiply(K / (4 * Math.PI * distance))
+                .multiply(new Complex(Math.cos(kr), -Math.sin(kr)));
+        double radial = direction.dotProduct(moment);
+        Vector3D transverse = moment.subtract(direction.scalarMultiply(radial));
+        Complex[] e = new Complex[3];
+        double[] d = direction.toArray();
+        double[] t = transverse.toArray();
+        for (int c = 0; c < 3; c++) {
+            e[c] = factor.multiply(b.multiply(radial * d[c]).subtract(a.multiply(t[c])));
+        }
+        return e;
+    }
+
+    private static Complex[] dipoles(Vector3D moment, Vector3D[] positions, double[] weights, Vector3D point) {
+        Complex[] e = { Complex.ZERO, Complex.ZERO, Complex.ZERO };
+        for (int s = 0; s < positions.length; s++) {
+            Complex[] contribution = dipole(moment, positions[s], point);
+            for (int c = 0; c < 3; c++) {
+                e[c] = e[c].add(contribution[c].multiply(weights[s]));
+            }
+        }
+        return e;
+    }
+
+    private static Complex[] project(Complex[] e, double theta, double phi) {
+        double[] thetaHat = { Math.cos(theta) * Math.cos(phi), Math.cos(theta) * Math.sin(phi), -Math.sin(theta) };
+        double[] phiHat = { -Math.sin(phi), Math.cos(phi), 0 };
+        Complex eTheta = Complex.ZERO;
+        Complex ePhi = Complex.ZERO;
+        for (int c = 0; c < 3; c++) {
+            eTheta = eTheta.add(e[c].multiply(thetaHat[c]));
+            ePhi = ePhi.add(e[c].multiply(phiHat[c]));
+        }
+        return new Complex[] { eTheta, ePhi };
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+
+import org.apache.commons.math3.complex.Complex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link OffHeapFieldStore}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class OffHeapFieldStoreTest {
+
+    private static final RegularAngleGrid ANGLE_GRID = RegularAngleGrid.equallySpacedSphere(2);
+
+    @Test
+    public void copyOfTest() {
+        Field field = field(1);
+        try (OffHeapFieldStore store = OffHeapFieldStore.create()) {
+            Field offHeap = store.copyOf(field);
+            Assert.assertEquals(offHeap.getFieldType(), field.getFieldType());
+            Assert.assertEquals(offHeap.getFrequency(), field.getFrequency());
+            Assert.assertEquals(offHeap.getAngleGrid(), field.getAngleGrid());
+            FieldFixtures.assertSameValues(offHeap, field, 1e-12);
+            Assert.assertEquals(offHeap.getElectricField(ElectricField.THETA),
+                    field.getElectricField(ElectricField.THETA));
+            Assert.assertEquals(store.getAllocatedBytes(), 2L * 2 * ANGLE_GRID.size() * Double.BYTES);
+        }
+    }
+
+    @Test
+    public void operationTest() {
+        Field a = field(1);
+        Field b = field(2);
+        Field expected = a.multiply(b).add(a);
+        try (OffHeapFieldStore store = OffHeapFieldStore.create()) {
+            Field offHeapA = store.copyOf(a);
+            Field offHeapB = store.copyOf(b);
+            FieldFixtures.assertSameValues(offHeapA.multiply(offHeapB).add(offHeapA), expected, 1e-12);
+            Field destination = store.allocate(FieldType.FARFIELD, ANGLE_GRID, a.getFrequency(),
+                    EnumSet.of(ElectricField.THETA, ElectricField.PHI));
+            a.multiply(b, destination).add(a, destination);
+            FieldFixtures.assertSameValues(destination, expected, 1e-12);
+            Assert.assertEquals(destination.copy().getElectricField(ElectricField.PHI),
+                    expected.getElectricField(ElectricField.PHI));
+        }
+    }
+
+    @Test
+    public void writeThroughListTest() {
+        try (OffHeapFieldStore store = OffHeapFieldStore.create()) {
+            Field field = store.allocate(FieldType.FARFIELD, ANGLE_GRID, 28e9, EnumSet.of(ElectricField.THETA));
+            Assert.assertEquals(field.getReal(ElectricField.THETA, 3), 0.0);
+            field.getElectricField(ElectricField.THETA).set(3, new Complex(1.5, -2));
+            Assert.assertEquals(field.getElectricFieldValue(ElectricField.THETA, ANGLE_GRID.get(3)),
+                    new Complex(1.5, -2));
+        }
+    }
+
+    @Test
+    public void closeTest() {
+        OffHeapFieldStore store = OffHeapFieldStore.create();
+        Field field = store.copyOf(field(1));
+        Assert.assertFalse(store.isClosed());
+        store.close();
+        store.close();
+        Assert.assertTrue(store.isClosed());
+        Assert.assertEquals(store.getAllocatedBytes(), 0);
+        /* Metadata stays available */
+        Assert.assertEquals(field.getElectricFieldSize(ElectricField.THETA), ANGLE_GRID.size());
+        try {
+            field.getReal(ElectricField.THETA, 0);
+            Assert.fail("Expected AntennaException");
+        } catch (AntennaException e) {
+            /* Expected */
+        }
+    }
+
+    @Test
+    public void releaseTest() {
+        try (OffHeapFieldStore store = OffHeapFieldStore.create()) {
+            Field released = store.copyOf(field(1));
+            Field kept = store.copyOf(field(2));
+            store.release(released);
+            store.release(released);
+            store.release(field(3));
+            Assert.assertEquals(store.getAllocatedBytes(), 2L * 2 * ANGLE_GRID.size() * Double.BYTES);
+            FieldFixtures.assertSameValues(kept, field(2), 0);
+            try {
+                released.getReal(ElectricField.THETA, 0);
+                Assert.fail("Expected AntennaException");
+            } catch (AntennaException e) {
+                /* Expected */
+            }
+        }
+    }
+
+    @Test
+    public void closeFreesDirectMemoryTest() {
+        BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct")).findFirst().get();
+        OffHeapFieldStore store = OffHeapFieldStore.create(true);
+        store.copyOf(field(1));
+        long bytes = store.getAllocatedBytes();
+        long used = directPool.getMemoryUsed();
+        store.close();
+        /* Freed without waiting for garbage collection */
+        Assert.assertTrue(directPool.getMemoryUsed() <= used - bytes);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void copyAfterCloseExceptionTest() {
+        OffHeapFieldStore store = OffHeapFieldStore.create();
+        store.close();
+        store.copyOf(field(1));
+    }
+
+    private static Field field(int seed) {
+        return FieldFixtures.field(ANGLE_GRID, 28e9, seed, ElectricField.THETA, ElectricField.PHI);
+    }
+
+}
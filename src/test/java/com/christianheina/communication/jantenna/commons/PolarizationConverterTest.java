@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.complex.Complex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link PolarizationConverter} through {@link Field#convertPolarization(java.util.Set)}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class PolarizationConverterTest {
+
+    @Test
+    public void fromThetaPhiTest() {
+        Field field = thetaPhiField(5);
+        Field converted = field.convertPolarization(EnumSet.of(ElectricField.LUDWIG3H, ElectricField.LUDWIG3V,
+                ElectricField.PLUS45, ElectricField.MINUS45, ElectricField.RELATIVE_GAIN, ElectricField.THETA));
+        Assert.assertEquals(converted.getAvailableElectricFields(),
+                EnumSet.of(ElectricField.LUDWIG3H, ElectricField.LUDWIG3V, ElectricField.PLUS45, ElectricField.MINUS45,
+                        ElectricField.RELATIVE_GAIN, ElectricField.THETA));
+        Assert.assertEquals(converted.getAngleGrid(), field.getAngleGrid());
+        Assert.assertEquals(converted.getFrequency(), field.getFrequency());
+        for (int i = 0; i < field.getAngleGrid().size(); i += 7) {
+            double phi = field.getAngleGrid().getPhi(i);
+            Complex theta = value(field, ElectricField.THETA, i);
+            Complex phiValue = value(field, ElectricField.PHI, i);
+            Complex h = theta.multiply(Math.cos(phi)).subtract(phiValue.multiply(Math.sin(phi)));
+            Complex v = theta.multiply(Math.sin(phi)).add(phiValue.multiply(Math.cos(phi)));
+            assertValue(converted, ElectricField.LUDWIG3H, i, h);
+            assertValue(converted, ElectricField.LUDWIG3V, i, v);
+            assertValue(converted, ElectricField.PLUS45, i, h.add(v).divide(Math.sqrt(2)));
+            assertValue(converted, ElectricField.MINUS45, i, h.subtract(v).divide(Math.sqrt(2)));
+            assertValue(converted, ElectricField.RELATIVE_GAIN, i,
+                    new Complex(Math.sqrt(theta.abs() * theta.abs() + phiValue.abs() * phiValue.abs())));
+            assertValue(converted, ElectricField.THETA, i, theta);
+        }
+    }
+
+    @Test
+    public void roundTripTest() {
+        Field field = thetaPhiField(10);
+        Field ludwig3 = field.convertPolarization(EnumSet.of(ElectricField.LUDWIG3H, ElectricField.LUDWIG3V));
+        Field slant = field.convertPolarization(EnumSet.of(ElectricField.PLUS45, ElectricField.MINUS45));
+        Field fromLudwig3 = ludwig3.convertPolarization(EnumSet.of(ElectricField.THETA, ElectricField.PHI));
+        Field fromSlant = slant
+                .convertPolarization(EnumSet.of(ElectricField.THETA, ElectricField.PHI, ElectricField.LUDWIG3H));
+        for (int i = 0; i < field.getAngleGrid().size(); i++) {
+            for (ElectricField electricField : EnumSet.of(ElectricField.THETA, ElectricField.PHI)) {
+                assertValue(fromLudwig3, electricField, i, value(field, electricField, i));
+                assertValue(fromSlant, electricField, i, value(field, electricField, i));
+            }
+            assertValue(fromSlant, ElectricField.LUDWIG3H, i, value(ludwig3, ElectricField.LUDWIG3H, i));
+        }
+    }
+
+    @Test
+    public void parallelTest() {
+        Field field = thetaPhiField(1);
+        EnumSet<ElectricField> targets = EnumSet.of(ElectricField.LUDWIG3H, ElectricField.PLUS45,
+                ElectricField.RELATIVE_GAIN);
+        Field sequential = field.convertPolarization(targets);
+        Field parallel = field.convertPolarization(targets, ExecutionPolicy.parallel(ForkJoinPool.commonPool(), 4096));
+        for (ElectricField electricField : targets) {
+            for (int i = 0; i < field.getAngleGrid().size(); i++) {
+                Assert.assertEquals(parallel.getReal(electricField, i), sequential.getReal(electricField, i));
+                Assert.assertEquals(parallel.getImaginary(electricField, i), sequential.getImaginary(electricField, i));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void missingBasisExceptionTest() {
+        Field field = thetaPhiField(10).convertPolarization(EnumSet.of(ElectricField.THETA, ElectricField.PLUS45));
+        field.convertPolarization(EnumSet.of(ElectricField.PHI));
+    }
+
+    private static Field thetaPhiField(int spacing) {
+        RegularAngleGrid angleGrid = RegularAngleGrid.equallySpacedSphere(spacing);
+        int size = angleGrid.size();
+        double[] thetaRe = new double[size];
+        double[] thetaIm = new double[size];
+        double[] phiRe = new double[size];
+        double[] phiIm = new double[size];
+        for (int i = 0; i < size; i++) {
+            thetaRe[i] = Math.cos(angleGrid.getTheta(i)) * Math.cos(angleGrid.getPhi(i));
+            thetaIm[i] = 0.25 * Math.sin(3 * angleGrid.getPhi(i));
+            phiRe[i] = -Math.sin(angleGrid.getPhi(i));
+            phiIm[i] = 0.1 * i / size;
+        }
+        return Field.newBuilder().setAngleGrid(angleGrid).setFreqency(28e9)
+                .addElectricField(ElectricField.THETA, thetaRe, thetaIm)
+                .addElectricField(ElectricField.PHI, phiRe, phiIm).build();
+    }
+
+    private static Complex value(Field field, ElectricField electricField, int index) {
+        return new Complex(field.getReal(electricField, index), field.getImaginary(electricField, index));
+    }
+
+    private static void assertValue(Field field, ElectricField electricField, int index, Complex expected) {
+        Assert.assertEquals(field.getReal(electricField, index), expected.getReal(), 1e-12);
+        Assert.assertEquals(field.getImaginary(electricField, index), expected.getImaginary(), 1e-12);
+    }
+
+}
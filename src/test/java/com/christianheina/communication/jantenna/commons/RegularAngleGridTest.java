@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link RegularAngleGrid}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class RegularAngleGridTest {
+
+    @Test
+    public void equallySpacedSphereTest() {
+        RegularAngleGrid grid = RegularAngleGrid.equallySpacedSphere(1);
+        Assert.assertEquals(grid.size(), 181 * 361);
+        Assert.assertEquals(grid.getThetaCount(), 181);
+        Assert.assertEquals(grid.getPhiCount(), 361);
+        Assert.assertEquals(grid.get(0), ThetaPhi.fromDegrees(0, -180));
+        Assert.assertEquals(grid.get(361 + 5), ThetaPhi.fromDegrees(1, -175));
+        Assert.assertEquals(grid.get(grid.size() - 1), ThetaPhi.fromDegrees(180, 180));
+
+        List<ThetaPhi> expected = new ArrayList<>();
+        for (int i = 0; i <= 180; i += 7) {
+            for (int j = -180; j <= 180; j += 7) {
+                expected.add(ThetaPhi.fromDegrees(i, j));
+            }
+        }
+        Assert.assertEquals(RegularAngleGrid.equallySpacedSphere(7).asList(), expected);
+    }
+
+    @Test
+    public void indexOfTest() {
+        RegularAngleGrid grid = RegularAngleGrid.equallySpacedSphere(2);
+        for (int i = 0; i < grid.size(); i += 97) {
+            Assert.assertEquals(grid.indexOf(grid.get(i)), i);
+        }
+        Assert.assertEquals(grid.indexOf(Math.toRadians(10), Math.toRadians(-170) + 1e-12), grid.toIndex(5, 5));
+        Assert.assertEquals(grid.indexOf(ThetaPhi.fromDegrees(1, 0)), -1);
+        Assert.assertEquals(grid.indexOf(ThetaPhi.fromDegrees(182, 0)), -1);
+        Assert.assertEquals(grid.indexOf(ThetaPhi.fromDegrees(0, -182)), -1);
+        Assert.assertEquals(grid.asList().indexOf(ThetaPhi.fromDegrees(4, 0)), grid.toIndex(2, 90));
+        Assert.assertFalse(grid.asList().contains(ThetaPhi.fromDegrees(3, 0)));
+    }
+
+    @Test
+    public void equalsTest() {
+        RegularAngleGrid grid = RegularAngleGrid.fromDegrees(0, 1, 181, -180, 1, 361);
+        Assert.assertEquals(grid, RegularAngleGrid.equallySpacedSphere(1));
+        Assert.assertEquals(grid.hashCode(), RegularAngleGrid.equallySpacedSphere(1).hashCode());
+        Assert.assertNotEquals(grid, RegularAngleGrid.equallySpacedSphere(2));
+        Assert.assertNotEquals(grid, RegularAngleGrid.fromDegrees(0, 1, 181, -180, 1, 360));
+        Assert.assertEquals(RegularAngleGrid.fromDegrees(0, 1, 1, 0, 1, 3),
+                RegularAngleGrid.fromDegrees(0, 5, 1, 0, 1, 3));
+        Assert.assertEquals(RegularAngleGrid.fromDegrees(0, 1, 0, 0, 1, 3),
+                RegularAngleGrid.fromDegrees(5, 5, 2, 0, 1, 0));
+
+        AngleGrid explicit = AngleGrid.fromList(new ArrayList<>(grid.asList()));
+        Assert.assertEquals(explicit, grid);
+        Assert.assertEquals(grid, explicit);
+        Assert.assertEquals(explicit.hashCode(), grid.hashCode());
+    }
+
+    @Test
+    public void fromListDetectionTest() {
+        RegularAngleGrid grid = RegularAngleGrid.fromDegrees(10, 0.5, 20, -30, 2.5, 25);
+        Assert.assertSame(AngleGrid.fromList(grid.asList()), grid);
+
+        AngleGrid detected = AngleGrid.fromList(new ArrayList<>(grid.asList()));
+        Assert.assertTrue(detected instanceof RegularAngleGrid);
+        Assert.assertEquals(detected, grid);
+
+        List<ThetaPhi> irregular = new ArrayList<>(grid.asList());
+        irregular.set(7, ThetaPhi.fromDegrees(10, 1));
+        AngleGrid explicit = AngleGrid.fromList(irregular);
+        Assert.assertFalse(explicit instanceof RegularAngleGrid);
+        Assert.assertEquals(explicit.asList(), irregular);
+        Assert.assertEquals(explicit.indexOf(ThetaPhi.fromDegrees(10, 1)), 7);
+    }
+
+    @Test
+    public void fromRadiansTest() {
+        RegularAngleGrid grid = RegularAngleGrid.fromRadians(0, Math.PI / 2, 3, 0, Math.PI, 2);
+        Assert.assertEquals(grid.getThetaStepDegrees(), 90.0);
+        Assert.assertEquals(grid.getTheta(2), Math.PI / 2, 1e-15);
+        Assert.assertEquals(grid.getPhi(1), Math.PI, 1e-15);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void zeroStepExceptionTest() {
+        RegularAngleGrid.fromDegrees(0, 0, 2, 0, 1, 1);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void tooLargeExceptionTest() {
+        RegularAngleGrid.fromDegrees(0, 1, 100000, 0, 1, 100000);
+    }
+
+}
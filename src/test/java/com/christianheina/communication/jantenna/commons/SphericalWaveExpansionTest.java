@@ -0,0 +1,151 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.EnumSet;
+
+import org.apache.commons.math3.complex.Complex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link SphericalWaveExpansion}
+ *
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class SphericalWaveExpansionTest {
+
+    private static final RegularAngleGrid ANGLE_GRID = RegularAngleGrid.equallySpacedSphere(2);
+
+    @Test
+    public void dipoleTest() {
+        /* Short z directed dipole, E = sin(theta) theta_hat, is a single TM harmonic of degree 1 */
+        int size = ANGLE_GRID.size();
+        double[] real = new double[size];
+        for (int i = 0; i < size; i++) {
+            real[i] = Math.sin(ANGLE_GRID.getTheta(i));
+        }
+        Field field = Field.newBuilder().setAngleGrid(ANGLE_GRID).setFreqency(28e9)
+                .addElectricField(ElectricField.THETA, real, new double[size])
+                .addElectricField(ElectricField.PHI, new double[size], new double[size]).build();
+        SphericalWaveExpansion expansion = SphericalWaveExpansion.fit(field, 4);
+        Assert.assertEquals(expansion.getFrequency(), 28e9);
+        Assert.assertEquals(expansion.getCoefficientCount(), 2 * 4 * 6);
+        Assert.assertEquals(expansion.getRadiatedPower(), 8 * Math.PI / 3, 1e-9);
+        Assert.assertEquals(expansion.getTmCoefficient(1, 0).abs(), Math.sqrt(8 * Math.PI / 3), 1e-9);
+        Assert.assertEquals(expansion.getTeCoefficient(1, 0).abs(), 0, 1e-9);
+        Assert.assertEquals(expansion.getTmCoefficient(3, -2).abs(), 0, 1e-9);
+    }
+
+    @Test
+    public void reconstructionTest() {
+        Field field = arrayField(ANGLE_GRID);
+        SphericalWaveExpansion expansion = SphericalWaveExpansion.fit(field, 24);
+        Field reconstructed = expansion.toField(ANGLE_GRID);
+        for (ElectricField electricField : EnumSet.of(ElectricField.THETA, ElectricField.PHI)) {
+            for (int i = 0; i < ANGLE_GRID.size(); i++) {
+                Assert.assertEquals(reconstructed.getReal(electricField, i), field.getReal(electricField, i), 1e-8);
+                Assert.assertEquals(reconstructed.getImaginary(electricField, i), field.getImaginary(electricField, i),
+                        1e-8);
+            }
+        }
+        /* Directions between grid angles */
+        RegularAngleGrid offGrid = RegularAngleGrid.fromDegrees(0.7, 6.1, 29, -179.3, 7.3, 49);
+        Field expected = arrayField(offGrid);
+        Field actual = expansion.toField(offGrid);
+        Field explicit = expansion.toField(AngleGrid.fromList(offGrid.asList().subList(0, 100)));
+        for (int i = 0; i < offGrid.size(); i++) {
+            for (ElectricField electricField : EnumSet.of(ElectricField.THETA, ElectricField.PHI)) {
+                Complex value = expansion.evaluate(electricField, offGrid.get(i));
+                Assert.assertEquals(value.getReal(), expected.getReal(electricField, i), 1e-8);
+                Assert.assertEquals(value.getImaginary(), expected.getImaginary(electricField, i), 1e-8);
+                Assert.assertEquals(actual.getReal(electricField, i), value.getReal(), 1e-12);
+                if (i < 100) {
+                    Assert.assertEquals(explicit.getImaginary(electricField, i), value.getImaginary(), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void convertedBasisTest() {
+        Field field = arrayField(ANGLE_GRID);
+        Field ludwig = field.convertPolarization(EnumSet.of(ElectricField.LUDWIG3H, ElectricField.LUDWIG3V));
+        SphericalWaveExpansion expected = SphericalWaveExpansion.fit(field, 8);
+        SphericalWaveExpansion actual = SphericalWaveExpansion.fit(ludwig, 8);
+        Assert.assertEquals(actual.getRadiatedPower(), expected.getRadiatedPower(), 1e-9);
+        Assert.assertEquals(actual.getTeCoefficient(5, 3).getReal(), expected.getTeCoefficient(5, 3).getReal(), 1e-9);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void tooFewPhiAnglesExceptionTest() {
+        SphericalWaveExpansion.fit(arrayField(RegularAngleGrid.equallySpacedSphere(10)), 18);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void partialPhiExceptionTest() {
+        SphericalWaveExpansion.fit(arrayField(RegularAngleGrid.fromDegrees(0, 5, 37, 0, 5, 37)), 4);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void unsupportedElectricFieldExceptionTest() {
+        SphericalWaveExpansion.fit(arrayField(ANGLE_GRID), 2).evaluate(ElectricField.LUDWIG3H,
+                ThetaPhi.fromDegrees(10, 10));
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void degreeOutOfRangeExceptionTest() {
+        SphericalWaveExpansion.fit(arrayField(ANGLE_GRID), 2).getTeCoefficient(2, 3);
+    }
+
+    /**
+     * x polarized element times array factor of a small planar array, a smooth band limited far field.
+     */
+    private static Field arrayField(AngleGrid angleGrid) {
+        int size = angleGrid.size();
+        double[] thetaReal = new double[size];
+        double[] thetaImaginary = new double[size];
+        double[] phiReal = new double[size];
+        double[] phiImaginary = new double[size];
+        double[][] elements = { { 0, 0, 0.3 }, { 0.5, 0, -0.2 }, { 0, 0.5, 0.1 }, { 0.5, 0.5, 0 } };
+        for (int i = 0; i < size; i++) {
+            double theta = angleGrid.getTheta(i);
+            double phi = angleGrid.getPhi(i);
+            double u = Math.sin(theta) * Math.cos(phi);
+            double v = Math.sin(theta) * Math.sin(phi);
+            double w = Math.cos(theta);
+            Complex arrayFactor = Complex.ZERO;
+            for (int n = 0; n < elements.length; n++) {
+                double phase = 2 * Math.PI * (elements[n][0] * u + elements[n][1] * v + elements[n][2] * w);
+                arrayFactor = arrayFactor.add(new Complex(Math.cos(phase), Math.sin(phase)).multiply(1 + 0.1 * n));
+            }
+            Complex eTheta = arrayFactor.multiply(Math.cos(theta) * Math.cos(phi));
+            Complex ePhi = arrayFactor.multiply(-Math.sin(phi));
+            thetaReal[i] = eTheta.getReal();
+            thetaImaginary[i] = eTheta.getImaginary();
+            phiReal[i] = ePhi.getReal();
+            phiImaginary[i] = ePhi.getImaginary();
+        }
+        return Field.newBuilder().setAngleGrid(angleGrid).setFreqency(28e9)
+                .addElectricField(ElectricField.THETA, thetaReal, thetaImaginary)
+                .addElectricField(ElectricField.PHI, phiReal, phiImaginary).build();
+    }
+
+}
@@ -16,7 +16,10 @@
 
 package com.christianheina.communication.jantenna.commons;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
@@ -71,6 +74,15 @@ public class ThetaPhiTest {
                 thetaPhiList.stream().filter(distinctByKey(ThetaPhi::getPhi)).collect(Collectors.toList()).size(), 361);
     }
 
+    @Test
+    public void equallySpacedSphereModifiableTest() {
+        List<ThetaPhi> thetaPhiList = ThetaPhi.equallySpacedSphere(10);
+        Assert.assertEquals(thetaPhiList, RegularAngleGrid.equallySpacedSphere(10).asList());
+        thetaPhiList.add(ThetaPhi.fromDegrees(45, 45));
+        thetaPhiList.remove(0);
+        Assert.assertEquals(thetaPhiList.size(), 19 * 37);
+    }
+
     private static <T> Predicate<T> distinctByKey(Function<? super T, ?> keyExtractor) {
         Set<Object> seen = ConcurrentHashMap.newKeySet();
         return t -> seen.add(keyExtractor.apply(t));
@@ -101,4 +113,28 @@ public class ThetaPhiTest {
         Assert.assertNotEquals(thetaPhiList1, thetaPhiList3);
     }
 
+    @Test
+    public void hashCodeTest() {
+        Assert.assertEquals(ThetaPhi.fromDegrees(10, 20).hashCode(), ThetaPhi.fromDegrees(10, 20).hashCode());
+        Assert.assertNotEquals(ThetaPhi.fromDegrees(10, 20).hashCode(), ThetaPhi.fromDegrees(20, 10).hashCode());
+
+        Map<ThetaPhi, Integer> map = new HashMap<>();
+        List<ThetaPhi> thetaPhiList = ThetaPhi.equallySpacedSphere(5);
+        for (int i = 0; i < thetaPhiList.size(); i++) {
+            map.put(thetaPhiList.get(i), i);
+        }
+        Assert.assertEquals(map.size(), thetaPhiList.size());
+        Assert.assertEquals(map.get(ThetaPhi.fromDegrees(90, 0)),
+                Integer.valueOf(thetaPhiList.indexOf(ThetaPhi.fromDegrees(90, 0))));
+        Assert.assertEquals(new HashSet<>(thetaPhiList).size(), thetaPhiList.size());
+    }
+
+    @Test
+    public void internTest() {
+        ThetaPhi thetaPhi = ThetaPhi.fromDegrees(12.5, -40).intern();
+        Assert.assertSame(ThetaPhi.fromDegrees(12.5, -40).intern(), thetaPhi);
+        Assert.assertSame(thetaPhi.intern(), thetaPhi);
+        Assert.assertNotSame(ThetaPhi.fromDegrees(12.5, 40).intern(), thetaPhi);
+    }
+
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 Christian Heina
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.christianheina.communication.jantenna.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.commons.math3.complex.Complex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.christianheina.communication.jantenna.commons.exceptions.AntennaException;
+
+/**
+ * Unit test for {@link WidebandField}
+ * 
+ * @author Christian Heina (developer@christianheina.com)
+ */
+@SuppressWarnings("javadoc")
+public class WidebandFieldTest {
+
+    private static final RegularAngleGrid ANGLE_GRID = RegularAngleGrid.equallySpacedSphere(10);
+
+    @Test
+    public void fromFieldsTest() {
+        List<Field> fields = new ArrayList<>();
+        for (int f = 0; f < 5; f++) {
+            fields.add(field(1e9 * (f + 1), f));
+        }
+        WidebandField wideband = WidebandField.fromFields(fields);
+        Assert.assertEquals(wideband.getFrequencyCount(), 5);
+        Assert.assertEquals(wideband.getFrequency(2), 3e9);
+        Assert.assertEquals(wideband.getAngleGrid(), ANGLE_GRID);
+        Assert.assertEquals(wideband.getAvailableElectricFields(), EnumSet.of(ElectricField.THETA, ElectricField.PHI));
+        for (int f = 0; f < 5; f++) {
+            Field view = wideband.getField(f);
+            Assert.assertEquals(view.getFrequency(), fields.get(f).getFrequency());
+            Assert.assertEquals(view.getElectricField(ElectricField.THETA),
+                    fields.get(f).getElectricField(ElectricField.THETA));
+            Assert.assertEquals(view.getElectricField(ElectricField.PHI),
+                    fields.get(f).getElectricField(ElectricField.PHI));
+        }
+    }
+
+    @Test
+    public void viewTest() {
+        WidebandField wideband = WidebandField.newBuilder().setAngleGrid(ANGLE_GRID)
+                .setFrequencies(new double[] { 1e9, 2e9 }).setElectricFields(EnumSet.of(ElectricField.LUDWIG3H))
+                .build();
+        Assert.assertEquals(wideband.getField(1).getReal(ElectricField.LUDWIG3H, 7), 0.0);
+        /* Writes through a view go to the shared block */
+        wideband.getField(1).getElectricField(ElectricField.LUDWIG3H).set(7, new Complex(3, -1));
+        Assert.assertEquals(wideband.getField(1).getReal(ElectricField.LUDWIG3H, 7), 3.0);
+        Assert.assertEquals(wideband.getField(1).getImaginary(ElectricField.LUDWIG3H, 7), -1.0);
+        Assert.assertEquals(wideband.getField(0).getReal(ElectricField.LUDWIG3H, 7), 0.0);
+        Field result = wideband.getField(1).scale(new Complex(2, 0));
+        Assert.assertEquals(result.getReal(ElectricField.LUDWIG3H, 7), 6.0);
+    }
+
+    @Test
+    public void interpolateTest() {
+        List<Field> fields = new ArrayList<>();
+        fields.add(field(1e9, 0));
+        fields.add(field(2e9, 1));
+        fields.add(field(4e9, 3));
+        WidebandField wideband = WidebandField.fromFields(fields);
+        Field interpolated = wideband.interpolate(3e9);
+        Field expected = field(3e9, 2);
+        Assert.assertEquals(interpolated.getFrequency(), 3e9);
+        for (int i = 0; i < ANGLE_GRID.size(); i++) {
+            Assert.assertEquals(interpolated.getReal(ElectricField.THETA, i), expected.getReal(ElectricField.THETA, i),
+                    1e-12);
+            Assert.assertEquals(interpolated.getImaginary(ElectricField.PHI, i),
+                    expected.getImaginary(ElectricField.PHI, i), 1e-12);
+        }
+        /* Exact frequency point and clamping outside swept range */
+        Assert.assertEquals(wideband.interpolate(2e9).getElectricField(ElectricField.PHI),
+                fields.get(1).getElectricField(ElectricField.PHI));
+        Assert.assertEquals(wideband.interpolate(5e9).getElectricField(ElectricField.THETA),
+                fields.get(2).getElectricField(ElectricField.THETA));
+        Assert.assertEquals(wideband.interpolate(0.5e9).getElectricField(ElectricField.THETA),
+                fields.get(0).getElectricField(ElectricField.THETA));
+    }
+
+    @Test
+    public void setElectricFieldTest() {
+        WidebandField wideband = WidebandField.fromFields(Collections.singletonList(field(1e9, 0)));
+        double[] real = new double[ANGLE_GRID.size()];
+        double[] imaginary = new double[ANGLE_GRID.size()];
+        real[3] = 5;
+        wideband.setElectricField(0, ElectricField.PHI, real, imaginary);
+        Assert.assertEquals(wideband.getField(0).getReal(ElectricField.PHI, 3), 5.0);
+        Assert.assertEquals(wideband.getField(0).getReal(ElectricField.PHI, 4), 0.0);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void mismatchedFieldsExceptionTest() {
+        List<Field> fields = new ArrayList<>();
+        fields.add(field(1e9, 0));
+        fields.add(Field.newBuilder().setAngleGrid(RegularAngleGrid.equallySpacedSphere(5)).setFreqency(2e9).build());
+        WidebandField.fromFields(fields);
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void decreasingFrequenciesExceptionTest() {
+        WidebandField.newBuilder().setAngleGrid(ANGLE_GRID).setFrequencies(new double[] { 2e9, 1e9 }).build();
+    }
+
+    @Test(expectedExceptions = AntennaException.class)
+    public void missingElectricFieldExceptionTest() {
+        WidebandField.fromFields(Collections.singletonList(field(1e9, 0))).setElectricField(0, ElectricField.LUDWIG3V,
+                new double[ANGLE_GRID.size()], new double[ANGLE_GRID.size()]);
+    }
+
+    /* Values linear in offset so interpolation between frequency points is exact */
+    private static Field field(double frequency, double offset) {
+        int size = ANGLE_GRID.size();
+        double[] thetaReal = new double[size];
+        double[] thetaImaginary = new double[size];
+        double[] phiReal = new double[size];
+        double[] phiImaginary = new double[size];
+        for (int i = 0; i < size; i++) {
+            thetaReal[i] = Math.cos(ANGLE_GRID.getTheta(i)) + offset;
+            thetaImaginary[i] = 0.5 * offset;
+            phiReal[i] = Math.sin(ANGLE_GRID.getPhi(i)) - offset;
+            phiImaginary[i] = i * offset;
+        }
+        return Field.newBuilder().setAngleGrid(ANGLE_GRID).setFreqency(frequency)
+                .addElectricField(ElectricField.THETA, thetaReal, thetaImaginary)
+                .addElectricField(ElectricField.PHI, phiReal, phiImaginary).build();
+    }
+
+}